@@ -44,6 +44,10 @@ public class Batch implements Serializable {
 	@NotBlank
 	@Column(name = "b_state")
 	private String bState;
+	@Column(name = "b_latitude")
+	private Double bLatitude;
+	@Column(name = "b_longitude")
+	private Double bLongitude;
 	
 	public Batch() {
 		super();
@@ -114,6 +118,22 @@ public class Batch implements Serializable {
 		this.bState = bState;
 	}
 
+	public Double getbLatitude() {
+		return bLatitude;
+	}
+
+	public void setbLatitude(Double bLatitude) {
+		this.bLatitude = bLatitude;
+	}
+
+	public Double getbLongitude() {
+		return bLongitude;
+	}
+
+	public void setbLongitude(Double bLongitude) {
+		this.bLongitude = bLongitude;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
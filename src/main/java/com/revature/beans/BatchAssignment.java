@@ -0,0 +1,109 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BatchAssignment class that represents the result of matching a whole batch's riders to its
+ * drivers at once. Riders who couldn't be given a seat are listed as unassigned.
+ *
+ */
+
+public class BatchAssignment implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int batchNumber;
+
+	private List<RideAssignment> assignments = new ArrayList<RideAssignment>();
+
+	private List<User> unassigned = new ArrayList<User>();
+
+	private double totalDetour;
+
+	public BatchAssignment() {
+		super();
+	}
+
+	public BatchAssignment(int batchNumber) {
+		super();
+		this.batchNumber = batchNumber;
+	}
+
+	public int getBatchNumber() {
+		return batchNumber;
+	}
+
+	public void setBatchNumber(int batchNumber) {
+		this.batchNumber = batchNumber;
+	}
+
+	public List<RideAssignment> getAssignments() {
+		return assignments;
+	}
+
+	public void setAssignments(List<RideAssignment> assignments) {
+		this.assignments = assignments;
+	}
+
+	public List<User> getUnassigned() {
+		return unassigned;
+	}
+
+	public void setUnassigned(List<User> unassigned) {
+		this.unassigned = unassigned;
+	}
+
+	public double getTotalDetour() {
+		return totalDetour;
+	}
+
+	public void setTotalDetour(double totalDetour) {
+		this.totalDetour = totalDetour;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((assignments == null) ? 0 : assignments.hashCode());
+		result = prime * result + batchNumber;
+		long temp = Double.doubleToLongBits(totalDetour);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result + ((unassigned == null) ? 0 : unassigned.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchAssignment other = (BatchAssignment) obj;
+		if (assignments == null) {
+			if (other.assignments != null)
+				return false;
+		}
+		else if (!assignments.equals(other.assignments))
+			return false;
+		if (batchNumber != other.batchNumber)
+			return false;
+		if (Double.doubleToLongBits(totalDetour) != Double.doubleToLongBits(other.totalDetour))
+			return false;
+		if (unassigned == null) {
+			return other.unassigned == null;
+		}
+		return unassigned.equals(other.unassigned);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchAssignment [batchNumber=" + batchNumber + ", assignments=" + assignments + ", unassigned="
+				+ unassigned.size() + ", totalDetour=" + totalDetour + "]";
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * BatchMatrix class that represents the stored distances between a batch's users. All
+ * matrices have the home addresses as rows, the home and work addresses as columns, one
+ * address per line, and the distances in meters packed as four bytes each, row after row.
+ *
+ */
+
+@Component
+@Entity
+@Table(name="batch_matrices")
+public class BatchMatrix implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(name="batch_number")
+	private int batchNumber;
+
+	@Lob
+	@Column(nullable=false)
+	private String origins;
+
+	@Lob
+	@Column(nullable=false)
+	private String destinations;
+
+	@Lob
+	@Column(nullable=false)
+	private byte[] meters;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="computed_at")
+	private Date computedAt;
+
+	public BatchMatrix() {
+		super();
+	}
+
+	public BatchMatrix(int batchNumber, String origins, String destinations, byte[] meters, Date computedAt) {
+		super();
+		this.batchNumber = batchNumber;
+		this.origins = origins;
+		this.destinations = destinations;
+		this.meters = meters;
+		this.computedAt = computedAt;
+	}
+
+	public int getBatchNumber() {
+		return batchNumber;
+	}
+
+	public void setBatchNumber(int batchNumber) {
+		this.batchNumber = batchNumber;
+	}
+
+	public String getOrigins() {
+		return origins;
+	}
+
+	public void setOrigins(String origins) {
+		this.origins = origins;
+	}
+
+	public String getDestinations() {
+		return destinations;
+	}
+
+	public void setDestinations(String destinations) {
+		this.destinations = destinations;
+	}
+
+	public byte[] getMeters() {
+		return meters;
+	}
+
+	public void setMeters(byte[] meters) {
+		this.meters = meters;
+	}
+
+	public Date getComputedAt() {
+		return computedAt;
+	}
+
+	public void setComputedAt(Date computedAt) {
+		this.computedAt = computedAt;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + batchNumber;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchMatrix other = (BatchMatrix) obj;
+		return batchNumber == other.batchNumber;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchMatrix [batchNumber=" + batchNumber + ", bytes=" + (meters == null ? 0 : meters.length)
+				+ ", computedAt=" + computedAt + "]";
+	}
+
+}
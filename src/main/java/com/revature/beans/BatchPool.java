@@ -0,0 +1,108 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BatchPool class that represents a batch's riders pooled into its drivers' cars, one route
+ * per driver. Riders who couldn't be given a seat are listed as unassigned.
+ *
+ */
+
+public class BatchPool implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private int batchNumber;
+
+	private List<PooledRide> rides = new ArrayList<PooledRide>();
+
+	private List<User> unassigned = new ArrayList<User>();
+
+	private long totalDetour;
+
+	public BatchPool() {
+		super();
+	}
+
+	public BatchPool(int batchNumber) {
+		super();
+		this.batchNumber = batchNumber;
+	}
+
+	public int getBatchNumber() {
+		return batchNumber;
+	}
+
+	public void setBatchNumber(int batchNumber) {
+		this.batchNumber = batchNumber;
+	}
+
+	public List<PooledRide> getRides() {
+		return rides;
+	}
+
+	public void setRides(List<PooledRide> rides) {
+		this.rides = rides;
+	}
+
+	public List<User> getUnassigned() {
+		return unassigned;
+	}
+
+	public void setUnassigned(List<User> unassigned) {
+		this.unassigned = unassigned;
+	}
+
+	public long getTotalDetour() {
+		return totalDetour;
+	}
+
+	public void setTotalDetour(long totalDetour) {
+		this.totalDetour = totalDetour;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + batchNumber;
+		result = prime * result + ((rides == null) ? 0 : rides.hashCode());
+		result = prime * result + (int) (totalDetour ^ (totalDetour >>> 32));
+		result = prime * result + ((unassigned == null) ? 0 : unassigned.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchPool other = (BatchPool) obj;
+		if (batchNumber != other.batchNumber)
+			return false;
+		if (rides == null) {
+			if (other.rides != null)
+				return false;
+		}
+		else if (!rides.equals(other.rides))
+			return false;
+		if (totalDetour != other.totalDetour)
+			return false;
+		if (unassigned == null) {
+			return other.unassigned == null;
+		}
+		return unassigned.equals(other.unassigned);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchPool [batchNumber=" + batchNumber + ", rides=" + rides + ", unassigned=" + unassigned.size()
+				+ ", totalDetour=" + totalDetour + "]";
+	}
+
+}
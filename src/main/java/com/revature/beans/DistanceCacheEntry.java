@@ -0,0 +1,142 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * DistanceCacheEntry class that represents one cached driving distance. All entries have a
+ * normalized origin, a normalized destination, the distance in meters and when it was fetched.
+ *
+ */
+
+@Component
+@Entity
+@Table(name="distance_cache", uniqueConstraints=@UniqueConstraint(columnNames={"origin_key", "destination_key"}))
+public class DistanceCacheEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Column(name="cache_id")
+	private int cacheId;
+
+	@Column(name="origin_key", length=512, nullable=false)
+	private String originKey;
+
+	@Column(name="destination_key", length=512, nullable=false)
+	private String destinationKey;
+
+	private long meters;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="updated_at")
+	private Date updatedAt;
+
+	public DistanceCacheEntry() {
+		super();
+	}
+
+	public DistanceCacheEntry(String originKey, String destinationKey, long meters, Date updatedAt) {
+		super();
+		this.originKey = originKey;
+		this.destinationKey = destinationKey;
+		this.meters = meters;
+		this.updatedAt = updatedAt;
+	}
+
+	public int getCacheId() {
+		return cacheId;
+	}
+
+	public void setCacheId(int cacheId) {
+		this.cacheId = cacheId;
+	}
+
+	public String getOriginKey() {
+		return originKey;
+	}
+
+	public void setOriginKey(String originKey) {
+		this.originKey = originKey;
+	}
+
+	public String getDestinationKey() {
+		return destinationKey;
+	}
+
+	public void setDestinationKey(String destinationKey) {
+		this.destinationKey = destinationKey;
+	}
+
+	public long getMeters() {
+		return meters;
+	}
+
+	public void setMeters(long meters) {
+		this.meters = meters;
+	}
+
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + cacheId;
+		result = prime * result + ((destinationKey == null) ? 0 : destinationKey.hashCode());
+		result = prime * result + (int) (meters ^ (meters >>> 32));
+		result = prime * result + ((originKey == null) ? 0 : originKey.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		DistanceCacheEntry other = (DistanceCacheEntry) obj;
+		if (cacheId != other.cacheId)
+			return false;
+		if (destinationKey == null) {
+			if (other.destinationKey != null)
+				return false;
+		}
+		else if (!destinationKey.equals(other.destinationKey))
+			return false;
+		if (meters != other.meters)
+			return false;
+		if (originKey == null) {
+			return other.originKey == null;
+		}
+		return originKey.equals(other.originKey);
+	}
+
+	@Override
+	public String toString() {
+		return "DistanceCacheEntry [cacheId=" + cacheId + ", originKey=" + originKey + ", destinationKey="
+				+ destinationKey + ", meters=" + meters + ", updatedAt=" + updatedAt + "]";
+	}
+
+}
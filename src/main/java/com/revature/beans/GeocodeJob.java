@@ -0,0 +1,161 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * GeocodeJob class that represents a user or batch whose addresses still have to be turned
+ * into coordinates. There is at most one job per entity. All jobs have how many attempts
+ * failed so far and the time of the next attempt, which is empty once the job gave up.
+ *
+ */
+
+@Component
+@Entity
+@Table(name="geocode_jobs", uniqueConstraints=@UniqueConstraint(columnNames={"entity_type", "entity_id"}))
+public class GeocodeJob implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The kinds of entity that have addresses to geocode.
+	 */
+
+	public enum EntityType {
+		USER, BATCH
+	}
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Column(name="job_id")
+	private int jobId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name="entity_type", length=16, nullable=false)
+	private EntityType entityType;
+
+	@Column(name="entity_id", nullable=false)
+	private int entityId;
+
+	private int attempts;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="next_attempt_at")
+	private Date nextAttemptAt;
+
+	@Column(name="last_error", length=512)
+	private String lastError;
+
+	//Bumped by every save, so a job enqueued again while it was being processed isn't deleted
+	@Version
+	private long version;
+
+	public GeocodeJob() {
+		super();
+	}
+
+	public GeocodeJob(EntityType entityType, int entityId) {
+		super();
+		this.entityType = entityType;
+		this.entityId = entityId;
+	}
+
+	public int getJobId() {
+		return jobId;
+	}
+
+	public void setJobId(int jobId) {
+		this.jobId = jobId;
+	}
+
+	public EntityType getEntityType() {
+		return entityType;
+	}
+
+	public void setEntityType(EntityType entityType) {
+		this.entityType = entityType;
+	}
+
+	public int getEntityId() {
+		return entityId;
+	}
+
+	public void setEntityId(int entityId) {
+		this.entityId = entityId;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public Date getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(Date nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + entityId;
+		result = prime * result + ((entityType == null) ? 0 : entityType.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GeocodeJob other = (GeocodeJob) obj;
+		return entityId == other.entityId && entityType == other.entityType;
+	}
+
+	@Override
+	public String toString() {
+		return "GeocodeJob [jobId=" + jobId + ", entityType=" + entityType + ", entityId=" + entityId + ", attempts="
+				+ attempts + ", nextAttemptAt=" + nextAttemptAt + ", lastError=" + lastError + "]";
+	}
+
+}
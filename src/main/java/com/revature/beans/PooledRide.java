@@ -0,0 +1,112 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PooledRide class that represents one driver's route to work with several pickups. The riders
+ * are listed in the order they are picked up. The detour is how much longer the route is than
+ * the driver's direct commute.
+ *
+ */
+
+public class PooledRide implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private User driver;
+
+	private List<User> riders = new ArrayList<User>();
+
+	private long distance;
+
+	private long detour;
+
+	public PooledRide() {
+		super();
+	}
+
+	public PooledRide(User driver, List<User> riders, long distance, long detour) {
+		super();
+		this.driver = driver;
+		this.riders = riders;
+		this.distance = distance;
+		this.detour = detour;
+	}
+
+	public User getDriver() {
+		return driver;
+	}
+
+	public void setDriver(User driver) {
+		this.driver = driver;
+	}
+
+	public List<User> getRiders() {
+		return riders;
+	}
+
+	public void setRiders(List<User> riders) {
+		this.riders = riders;
+	}
+
+	public long getDistance() {
+		return distance;
+	}
+
+	public void setDistance(long distance) {
+		this.distance = distance;
+	}
+
+	public long getDetour() {
+		return detour;
+	}
+
+	public void setDetour(long detour) {
+		this.detour = detour;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + (int) (detour ^ (detour >>> 32));
+		result = prime * result + (int) (distance ^ (distance >>> 32));
+		result = prime * result + ((driver == null) ? 0 : driver.hashCode());
+		result = prime * result + ((riders == null) ? 0 : riders.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PooledRide other = (PooledRide) obj;
+		if (detour != other.detour)
+			return false;
+		if (distance != other.distance)
+			return false;
+		if (driver == null) {
+			if (other.driver != null)
+				return false;
+		}
+		else if (!driver.equals(other.driver))
+			return false;
+		if (riders == null) {
+			return other.riders == null;
+		}
+		return riders.equals(other.riders);
+	}
+
+	@Override
+	public String toString() {
+		return "PooledRide [driver=" + (driver == null ? null : driver.getUserId()) + ", riders=" + riders.size()
+				+ ", distance=" + distance + ", detour=" + detour + "]";
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.revature.beans;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * RecommendedDrivers class that represents the drivers recommended to a rider, best first.
+ * It is serialized as a plain list of users and compares as one. The degraded flag says that
+ * some distances were estimated because the distance provider was unavailable, and the
+ * partial flag that the request's deadline passed before every distance was fetched, so the
+ * ranking is from what was known by then; controllers report both in headers.
+ *
+ */
+
+public class RecommendedDrivers extends ArrayList<User> {
+
+	private static final long serialVersionUID = 1L;
+
+	private boolean degraded;
+
+	private boolean partial;
+
+	public RecommendedDrivers() {
+		super();
+	}
+
+	public RecommendedDrivers(Collection<User> drivers, boolean degraded) {
+		super(drivers);
+		this.degraded = degraded;
+	}
+
+	public boolean isDegraded() {
+		return degraded;
+	}
+
+	public void setDegraded(boolean degraded) {
+		this.degraded = degraded;
+	}
+
+	public boolean isPartial() {
+		return partial;
+	}
+
+	public void setPartial(boolean partial) {
+		this.partial = partial;
+	}
+
+	@Override
+	public String toString() {
+		return "RecommendedDrivers [degraded=" + degraded + ", partial=" + partial + ", drivers=" + super.toString() + "]";
+	}
+
+}
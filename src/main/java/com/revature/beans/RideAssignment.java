@@ -0,0 +1,96 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+
+/**
+ * RideAssignment class that represents one rider matched to one driver by the batch-wide
+ * assignment, with the distance the driver adds to their commute to pick the rider up.
+ *
+ */
+
+public class RideAssignment implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private User rider;
+
+	private User driver;
+
+	private double detour;
+
+	public RideAssignment() {
+		super();
+	}
+
+	public RideAssignment(User rider, User driver, double detour) {
+		super();
+		this.rider = rider;
+		this.driver = driver;
+		this.detour = detour;
+	}
+
+	public User getRider() {
+		return rider;
+	}
+
+	public void setRider(User rider) {
+		this.rider = rider;
+	}
+
+	public User getDriver() {
+		return driver;
+	}
+
+	public void setDriver(User driver) {
+		this.driver = driver;
+	}
+
+	public double getDetour() {
+		return detour;
+	}
+
+	public void setDetour(double detour) {
+		this.detour = detour;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp = Double.doubleToLongBits(detour);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result + ((driver == null) ? 0 : driver.hashCode());
+		result = prime * result + ((rider == null) ? 0 : rider.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		RideAssignment other = (RideAssignment) obj;
+		if (Double.doubleToLongBits(detour) != Double.doubleToLongBits(other.detour))
+			return false;
+		if (driver == null) {
+			if (other.driver != null)
+				return false;
+		}
+		else if (!driver.equals(other.driver))
+			return false;
+		if (rider == null) {
+			return other.rider == null;
+		}
+		return rider.equals(other.rider);
+	}
+
+	@Override
+	public String toString() {
+		return "RideAssignment [rider=" + (rider == null ? null : rider.getUserId()) + ", driver="
+				+ (driver == null ? null : driver.getUserId()) + ", detour=" + detour + "]";
+	}
+
+}
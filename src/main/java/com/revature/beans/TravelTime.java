@@ -0,0 +1,213 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * TravelTime class that represents one cached driving time in traffic. All entries have an
+ * origin cell, a destination cell, the weekday and the quarter hour of departure, and the
+ * points the time is fetched between. The seconds are null until they are first fetched.
+ *
+ */
+
+@Component
+@Entity
+@Table(name="travel_times", uniqueConstraints=@UniqueConstraint(columnNames={"origin_cell", "destination_cell", "weekday", "bucket"}))
+public class TravelTime implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Column(name="travel_time_id")
+	private int travelTimeId;
+
+	@Column(name="origin_cell", length=32, nullable=false)
+	private String originCell;
+
+	@Column(name="destination_cell", length=32, nullable=false)
+	private String destinationCell;
+
+	//1 for Monday to 7 for Sunday
+	private int weekday;
+
+	//Quarter hours since midnight, 0 to 95
+	private int bucket;
+
+	@Column(name="origin_latitude")
+	private double originLatitude;
+
+	@Column(name="origin_longitude")
+	private double originLongitude;
+
+	@Column(name="destination_latitude")
+	private double destinationLatitude;
+
+	@Column(name="destination_longitude")
+	private double destinationLongitude;
+
+	private Long seconds;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="fetched_at")
+	private Date fetchedAt;
+
+	public TravelTime() {
+		super();
+	}
+
+	public TravelTime(String originCell, String destinationCell, int weekday, int bucket, double originLatitude,
+			double originLongitude, double destinationLatitude, double destinationLongitude) {
+		super();
+		this.originCell = originCell;
+		this.destinationCell = destinationCell;
+		this.weekday = weekday;
+		this.bucket = bucket;
+		this.originLatitude = originLatitude;
+		this.originLongitude = originLongitude;
+		this.destinationLatitude = destinationLatitude;
+		this.destinationLongitude = destinationLongitude;
+	}
+
+	public int getTravelTimeId() {
+		return travelTimeId;
+	}
+
+	public void setTravelTimeId(int travelTimeId) {
+		this.travelTimeId = travelTimeId;
+	}
+
+	public String getOriginCell() {
+		return originCell;
+	}
+
+	public void setOriginCell(String originCell) {
+		this.originCell = originCell;
+	}
+
+	public String getDestinationCell() {
+		return destinationCell;
+	}
+
+	public void setDestinationCell(String destinationCell) {
+		this.destinationCell = destinationCell;
+	}
+
+	public int getWeekday() {
+		return weekday;
+	}
+
+	public void setWeekday(int weekday) {
+		this.weekday = weekday;
+	}
+
+	public int getBucket() {
+		return bucket;
+	}
+
+	public void setBucket(int bucket) {
+		this.bucket = bucket;
+	}
+
+	public double getOriginLatitude() {
+		return originLatitude;
+	}
+
+	public void setOriginLatitude(double originLatitude) {
+		this.originLatitude = originLatitude;
+	}
+
+	public double getOriginLongitude() {
+		return originLongitude;
+	}
+
+	public void setOriginLongitude(double originLongitude) {
+		this.originLongitude = originLongitude;
+	}
+
+	public double getDestinationLatitude() {
+		return destinationLatitude;
+	}
+
+	public void setDestinationLatitude(double destinationLatitude) {
+		this.destinationLatitude = destinationLatitude;
+	}
+
+	public double getDestinationLongitude() {
+		return destinationLongitude;
+	}
+
+	public void setDestinationLongitude(double destinationLongitude) {
+		this.destinationLongitude = destinationLongitude;
+	}
+
+	public Long getSeconds() {
+		return seconds;
+	}
+
+	public void setSeconds(Long seconds) {
+		this.seconds = seconds;
+	}
+
+	public Date getFetchedAt() {
+		return fetchedAt;
+	}
+
+	public void setFetchedAt(Date fetchedAt) {
+		this.fetchedAt = fetchedAt;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + bucket;
+		result = prime * result + ((destinationCell == null) ? 0 : destinationCell.hashCode());
+		result = prime * result + ((originCell == null) ? 0 : originCell.hashCode());
+		result = prime * result + weekday;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		TravelTime other = (TravelTime) obj;
+		if (bucket != other.bucket)
+			return false;
+		if (destinationCell == null) {
+			if (other.destinationCell != null)
+				return false;
+		} else if (!destinationCell.equals(other.destinationCell))
+			return false;
+		if (originCell == null) {
+			if (other.originCell != null)
+				return false;
+		} else if (!originCell.equals(other.originCell))
+			return false;
+		return weekday == other.weekday;
+	}
+
+	@Override
+	public String toString() {
+		return "TravelTime [travelTimeId=" + travelTimeId + ", originCell=" + originCell + ", destinationCell=" + destinationCell
+				+ ", weekday=" + weekday + ", bucket=" + bucket + ", seconds=" + seconds + ", fetchedAt=" + fetchedAt + "]";
+	}
+
+}
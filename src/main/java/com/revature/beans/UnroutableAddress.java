@@ -0,0 +1,124 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * UnroutableAddress class that represents an address the distance provider couldn't route.
+ * All entries have a normalized address, how many times in a row it failed and the time
+ * before which it isn't sent to the provider again.
+ *
+ */
+
+@Component
+@Entity
+@Table(name="unroutable_addresses")
+public class UnroutableAddress implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.IDENTITY)
+	@Column(name="unroutable_id")
+	private int unroutableId;
+
+	@Column(name="address_key", length=512, nullable=false, unique=true)
+	private String addressKey;
+
+	private int failures;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name="retry_after")
+	private Date retryAfter;
+
+	public UnroutableAddress() {
+		super();
+	}
+
+	public UnroutableAddress(String addressKey, int failures, Date retryAfter) {
+		super();
+		this.addressKey = addressKey;
+		this.failures = failures;
+		this.retryAfter = retryAfter;
+	}
+
+	public int getUnroutableId() {
+		return unroutableId;
+	}
+
+	public void setUnroutableId(int unroutableId) {
+		this.unroutableId = unroutableId;
+	}
+
+	public String getAddressKey() {
+		return addressKey;
+	}
+
+	public void setAddressKey(String addressKey) {
+		this.addressKey = addressKey;
+	}
+
+	public int getFailures() {
+		return failures;
+	}
+
+	public void setFailures(int failures) {
+		this.failures = failures;
+	}
+
+	public Date getRetryAfter() {
+		return retryAfter;
+	}
+
+	public void setRetryAfter(Date retryAfter) {
+		this.retryAfter = retryAfter;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((addressKey == null) ? 0 : addressKey.hashCode());
+		result = prime * result + failures;
+		result = prime * result + unroutableId;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		UnroutableAddress other = (UnroutableAddress) obj;
+		if (addressKey == null) {
+			if (other.addressKey != null)
+				return false;
+		}
+		else if (!addressKey.equals(other.addressKey))
+			return false;
+		if (failures != other.failures)
+			return false;
+		return unroutableId == other.unroutableId;
+	}
+
+	@Override
+	public String toString() {
+		return "UnroutableAddress [unroutableId=" + unroutableId + ", addressKey=" + addressKey + ", failures="
+				+ failures + ", retryAfter=" + retryAfter + "]";
+	}
+
+}
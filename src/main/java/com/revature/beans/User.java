@@ -7,6 +7,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
@@ -22,12 +23,13 @@ import javax.validation.constraints.Size;
 import org.springframework.stereotype.Component;
 
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import org.springframework.stereotype.Component;
 
 @Component
 @Entity
-@Table(name="users")
+@Table(name="users", indexes = @Index(name="idx_users_available_drivers", columnList="batch_number, is_driver, is_active, is_accepting_rides"))
 public class User implements Serializable {
 	private static final long serialVersionUID = 1L;
 	@Id
@@ -102,6 +104,17 @@ public class User implements Serializable {
 	@NotBlank
 	@Column(name = "w_state")
 	private String wState;
+	@Column(name = "h_latitude")
+	private Double hLatitude;
+	@Column(name = "h_longitude")
+	private Double hLongitude;
+	@Column(name = "w_latitude")
+	private Double wLatitude;
+	@Column(name = "w_longitude")
+	private Double wLongitude;
+	@Column(name = "commute_meters")
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private Long commuteMeters;
 	
 	public User() {
 		super();
@@ -352,6 +365,56 @@ public class User implements Serializable {
 	}
 
 
+	public Double gethLatitude() {
+		return hLatitude;
+	}
+
+
+	public void sethLatitude(Double hLatitude) {
+		this.hLatitude = hLatitude;
+	}
+
+
+	public Double gethLongitude() {
+		return hLongitude;
+	}
+
+
+	public void sethLongitude(Double hLongitude) {
+		this.hLongitude = hLongitude;
+	}
+
+
+	public Double getwLatitude() {
+		return wLatitude;
+	}
+
+
+	public void setwLatitude(Double wLatitude) {
+		this.wLatitude = wLatitude;
+	}
+
+
+	public Double getwLongitude() {
+		return wLongitude;
+	}
+
+
+	public void setwLongitude(Double wLongitude) {
+		this.wLongitude = wLongitude;
+	}
+
+
+	public Long getCommuteMeters() {
+		return commuteMeters;
+	}
+
+
+	public void setCommuteMeters(Long commuteMeters) {
+		this.commuteMeters = commuteMeters;
+	}
+
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,118 @@
+package com.revature.beans;
+
+import java.io.Serializable;
+
+/**
+ * Waypoint class that represents one origin or destination of a distance calculation. All
+ * waypoints have an address, and may also have coordinates once they are known and the ZIP
+ * code used to place them roughly until then.
+ *
+ */
+
+public class Waypoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String address;
+
+	private Double latitude;
+
+	private Double longitude;
+
+	private String zip;
+
+	public Waypoint() {
+		super();
+	}
+
+	public Waypoint(String address) {
+		super();
+		this.address = address;
+	}
+
+	public Waypoint(String address, Double latitude, Double longitude) {
+		super();
+		this.address = address;
+		this.latitude = latitude;
+		this.longitude = longitude;
+	}
+
+	public String getAddress() {
+		return address;
+	}
+
+	public void setAddress(String address) {
+		this.address = address;
+	}
+
+	public Double getLatitude() {
+		return latitude;
+	}
+
+	public void setLatitude(Double latitude) {
+		this.latitude = latitude;
+	}
+
+	public Double getLongitude() {
+		return longitude;
+	}
+
+	public void setLongitude(Double longitude) {
+		this.longitude = longitude;
+	}
+
+	public String getZip() {
+		return zip;
+	}
+
+	public void setZip(String zip) {
+		this.zip = zip;
+	}
+
+	public boolean hasCoordinates() {
+		return latitude != null && longitude != null;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((address == null) ? 0 : address.hashCode());
+		result = prime * result + ((latitude == null) ? 0 : latitude.hashCode());
+		result = prime * result + ((longitude == null) ? 0 : longitude.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Waypoint other = (Waypoint) obj;
+		if (address == null) {
+			if (other.address != null)
+				return false;
+		}
+		else if (!address.equals(other.address))
+			return false;
+		if (latitude == null) {
+			if (other.latitude != null)
+				return false;
+		}
+		else if (!latitude.equals(other.latitude))
+			return false;
+		if (longitude == null) {
+			return other.longitude == null;
+		}
+		return longitude.equals(other.longitude);
+	}
+
+	@Override
+	public String toString() {
+		return "Waypoint [address=" + address + ", latitude=" + latitude + ", longitude=" + longitude + "]";
+	}
+
+}
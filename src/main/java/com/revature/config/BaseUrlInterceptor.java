@@ -0,0 +1,36 @@
+package com.revature.config;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * BaseUrlInterceptor sends the Maps client's requests to another scheme, host and port, such
+ * as the local stand-in, keeping their path and query.
+ *
+ */
+
+public class BaseUrlInterceptor implements Interceptor {
+
+	private final HttpUrl base;
+
+	public BaseUrlInterceptor(String baseUrl) {
+		this.base = HttpUrl.parse(baseUrl);
+		if (base == null) {
+			throw new IllegalArgumentException("Not a base URL: " + baseUrl);
+		}
+	}
+
+	@Override
+	public Response intercept(Chain chain) throws IOException {
+		HttpUrl url = chain.request().url().newBuilder()
+				.scheme(base.scheme())
+				.host(base.host())
+				.port(base.port())
+				.build();
+		return chain.proceed(chain.request().newBuilder().url(url).build());
+	}
+
+}
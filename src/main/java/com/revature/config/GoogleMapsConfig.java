@@ -0,0 +1,113 @@
+package com.revature.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.google.maps.GeoApiContext;
+import com.google.maps.OkHttpRequestHandler;
+import com.revature.standin.DistanceMatrixStandIn;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+
+/**
+ * GoogleMapsConfig builds the one GeoApiContext the application shares. The context owns an
+ * HTTP client with a connection pool, a cap on concurrent requests, a client-side QPS limiter
+ * and retries with jittered exponential backoff, and it is shut down with the application
+ * context.
+ *
+ */
+
+@Configuration
+public class GoogleMapsConfig {
+
+	private static final Logger LOGGER = LogManager.getLogger(GoogleMapsConfig.class);
+
+	// Place key googleMapAPIKey & value apiKey (to be shared on slack) into Environment Vars.
+	@Value("${googleMapAPIKey:#{null}}")
+	private String apiKey;
+
+	@Value("${google.maps.queries-per-second:50}")
+	private int queriesPerSecond;
+
+	@Value("${google.maps.max-retries:3}")
+	private int maxRetries;
+
+	@Value("${google.maps.retry-timeout-ms:10000}")
+	private long retryTimeoutMs;
+
+	@Value("${google.maps.connect-timeout-ms:2000}")
+	private long connectTimeoutMs;
+
+	@Value("${google.maps.read-timeout-ms:5000}")
+	private long readTimeoutMs;
+
+	@Value("${google.maps.max-idle-connections:16}")
+	private int maxIdleConnections;
+
+	@Value("${google.maps.keep-alive-seconds:300}")
+	private long keepAliveSeconds;
+
+	//Every request goes to the same host, so this caps the matrix chunks in flight across the application
+	@Value("${google.maps.max-concurrent-requests:8}")
+	private int maxConcurrentRequests;
+
+	//Where requests go instead of maps.googleapis.com, such as a DistanceMatrixStandIn
+	@Value("${google.maps.base-url:}")
+	private String baseUrl;
+
+	/**
+	 * The shared GeoApiContext. Retries are spaced by the client library with a randomized
+	 * exponential backoff, up to max-retries attempts or retry-timeout-ms in total. Requests go
+	 * to base-url when it is set, or else to the stand-in when one runs in the application.
+	 *
+	 * @param standIn represents the stand-in, if it is enabled.
+	 * @return A GeoApiContext which is shut down when the application stops.
+	 */
+
+	@Bean(destroyMethod = "shutdown")
+	public GeoApiContext geoApiContext(ObjectProvider<DistanceMatrixStandIn> standIn) {
+		String target = baseUrl;
+		if (target.isEmpty() && standIn.getIfAvailable() != null) {
+			target = standIn.getIfAvailable().getBaseUrl();
+		}
+		String key = apiKey;
+		if (!target.isEmpty()) {
+			LOGGER.info("Sending Google Maps requests to " + target);
+			//The client refuses to build without something shaped like a key
+			if (key == null || key.isEmpty()) {
+				key = "AIzaStandIn";
+			}
+		} else if (key == null || key.isEmpty()) {
+			LOGGER.warn("googleMapAPIKey is not set, Google Maps requests will fail");
+		}
+
+		OkHttpRequestHandler.Builder handler = new OkHttpRequestHandler.Builder();
+		handler.okHttpClientBuilder()
+				.connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS));
+		//The handler's dispatcher runs on its QPS limiter, so it is tuned rather than replaced; a client built from the
+		//builder shares it
+		Dispatcher dispatcher = handler.okHttpClientBuilder().build().dispatcher();
+		dispatcher.setMaxRequests(Math.max(1, maxConcurrentRequests));
+		dispatcher.setMaxRequestsPerHost(Math.max(1, maxConcurrentRequests));
+		if (!target.isEmpty()) {
+			handler.okHttpClientBuilder().addInterceptor(new BaseUrlInterceptor(target));
+		}
+
+		return new GeoApiContext.Builder(handler)
+				.apiKey(key)
+				.queryRateLimit(queriesPerSecond)
+				.maxRetries(maxRetries)
+				.retryTimeout(retryTimeoutMs, TimeUnit.MILLISECONDS)
+				.connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+				.readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+				.build();
+	}
+
+}
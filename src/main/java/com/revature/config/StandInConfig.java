@@ -0,0 +1,92 @@
+package com.revature.config;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.revature.standin.DistanceMatrixRecordings;
+import com.revature.standin.DistanceMatrixStandIn;
+import com.revature.standin.LatencyModel;
+
+/**
+ * StandInConfig starts the Distance Matrix stand-in inside the application when
+ * google.maps.stand-in.enabled is true. The shared GeoApiContext then sends its requests to
+ * it, unless google.maps.base-url points somewhere else.
+ *
+ */
+
+@Configuration
+@ConditionalOnProperty(name = "google.maps.stand-in.enabled", havingValue = "true")
+public class StandInConfig {
+
+	@Value("${google.maps.stand-in.port:0}")
+	private int port;
+
+	@Value("${google.maps.stand-in.mode:simulated}")
+	private String mode;
+
+	@Value("${google.maps.stand-in.recordings:distance-recordings.jsonl}")
+	private String recordings;
+
+	@Value("${google.maps.stand-in.upstream:https://maps.googleapis.com}")
+	private String upstream;
+
+	@Value("${google.maps.stand-in.latency:}")
+	private String latency;
+
+	@Value("${google.maps.stand-in.error-rate:0}")
+	private double errorRate;
+
+	@Value("${google.maps.stand-in.over-limit-rate:0}")
+	private double overLimitRate;
+
+	@Value("${google.maps.stand-in.road-factor:1.3}")
+	private double roadFactor;
+
+	@Value("${google.maps.stand-in.meters-per-second:13.4}")
+	private double metersPerSecond;
+
+	@Value("${google.maps.stand-in.center-latitude:38.9586}")
+	private double centerLatitude;
+
+	@Value("${google.maps.stand-in.center-longitude:-77.3570}")
+	private double centerLongitude;
+
+	@Value("${google.maps.stand-in.radius-km:30}")
+	private double radiusKm;
+
+	@Value("${google.maps.stand-in.seed:#{null}}")
+	private Long seed;
+
+	/**
+	 * The stand-in, started before the GeoApiContext that uses it.
+	 *
+	 * @return A DistanceMatrixStandIn which is stopped when the application stops.
+	 * @throws IOException if the recordings can't be read or the port can't be bound.
+	 */
+
+	@Bean(destroyMethod = "stop")
+	public DistanceMatrixStandIn distanceMatrixStandIn() throws IOException {
+		DistanceMatrixStandIn.Mode standInMode = DistanceMatrixStandIn.Mode.valueOf(mode.trim().toUpperCase());
+		DistanceMatrixStandIn standIn = new DistanceMatrixStandIn(standInMode,
+				standInMode == DistanceMatrixStandIn.Mode.SIMULATED ? null : new DistanceMatrixRecordings(Paths.get(recordings)));
+		standIn.setLatency(LatencyModel.parse(latency));
+		standIn.setErrorRate(errorRate);
+		standIn.setOverLimitRate(overLimitRate);
+		standIn.setUpstream(upstream);
+		standIn.setRoadFactor(roadFactor);
+		standIn.setMetersPerSecond(metersPerSecond);
+		standIn.setCenter(centerLatitude, centerLongitude);
+		standIn.setRadiusMeters(radiusKm * 1000);
+		if (seed != null) {
+			standIn.setSeed(seed);
+		}
+		standIn.start(port);
+		return standIn;
+	}
+
+}
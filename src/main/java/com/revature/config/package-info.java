@@ -0,0 +1,5 @@
+/**
+ * Package that contains all configuration classes, which define shared beans.
+ */
+
+package com.revature.config;
\ No newline at end of file
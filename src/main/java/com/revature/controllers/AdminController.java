@@ -18,15 +18,17 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.revature.beans.Admin;
+import com.revature.beans.User;
 import com.revature.services.AdminService;
+import com.revature.services.DistanceService;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 
 /**
  * AdminController takes care of handling our requests to /admins.
- * It provides methods that can perform tasks like all admins, admin by id, add admin, update admin, and
- * delete admin by id.
+ * It provides methods that can perform tasks like all admins, admin by id, add admin, update admin,
+ * delete admin by id and users with unroutable addresses.
  * 
  * @author Adonis Cabreja
  *
@@ -41,6 +43,9 @@ public class AdminController {
 	@Autowired
 	private AdminService as;
 	
+	@Autowired
+	private DistanceService ds;
+	
 	/**
 	 * HTTP GET method (/users)
 	 * 
@@ -54,6 +59,20 @@ public class AdminController {
 		return as.getAdmins();
 	}
 	
+	/**
+	 * HTTP GET method (/admins/unroutable-users)
+	 * 
+	 * @return The users whose home or work address the distance provider couldn't route,
+	 *         and who are left out of recommendations until it can be retried.
+	 */
+	
+	@ApiOperation(value="Returns users with unroutable addresses", tags= {"Admin"})
+	@GetMapping("/unroutable-users")
+	public List<User> getUnroutableUsers() {
+		
+		return ds.getUnroutableUsers();
+	}
+	
 	/**
 	 * HTTP GET method (/users/{id})
 	 * 
@@ -0,0 +1,76 @@
+package com.revature.controllers;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.revature.beans.BatchAssignment;
+import com.revature.beans.BatchPool;
+import com.revature.services.AssignmentService;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+/**
+ * AssignmentController takes care of handling our requests to /assignments.
+ * It provides methods that match every rider of a batch, or of all batches, to a driver
+ * with a free seat, and that pool several riders into each car.
+ *
+ */
+
+@RestController
+@RequestMapping("/assignments")
+@CrossOrigin
+@Api(tags= {"Assignment"})
+public class AssignmentController {
+
+	@Autowired
+	private AssignmentService as;
+
+	/**
+	 * HTTP GET method (/assignments)
+	 *
+	 * @return The assignment of every batch.
+	 */
+
+	@ApiOperation(value="Assigns riders to drivers in every batch", tags= {"Assignment"})
+	@GetMapping
+	public List<BatchAssignment> getAssignments() {
+
+		return as.assignAllBatches();
+	}
+
+	/**
+	 * HTTP GET method (/assignments/{number})
+	 *
+	 * @param number represents the batch number.
+	 * @return The assignment of the batch.
+	 */
+
+	@ApiOperation(value="Assigns riders to drivers in a batch", tags= {"Assignment"})
+	@GetMapping("/{number}")
+	public BatchAssignment getAssignmentByBatch(@PathVariable("number") int number) {
+
+		return as.assignBatch(number);
+	}
+
+	/**
+	 * HTTP GET method (/assignments/{number}/pools)
+	 *
+	 * @param number represents the batch number.
+	 * @return Each driver's route with its pickups in order.
+	 */
+
+	@ApiOperation(value="Pools riders into drivers' cars in a batch", tags= {"Assignment"})
+	@GetMapping("/{number}/pools")
+	public BatchPool getPoolsByBatch(@PathVariable("number") int number) {
+
+		return as.poolBatch(number);
+	}
+
+}
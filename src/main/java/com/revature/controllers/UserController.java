@@ -1,17 +1,19 @@
 package com.revature.controllers;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import javax.persistence.EntityNotFoundException;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -22,12 +24,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.google.maps.errors.ApiException;
 import com.revature.beans.Batch;
+import com.revature.beans.RecommendedDrivers;
 import com.revature.beans.User;
 import com.revature.services.BatchService;
 import com.revature.services.DistanceService;
@@ -58,6 +61,21 @@ public class UserController {
 	@Autowired
 	private BatchService bs;
 
+	/**
+	 * Set on recommendations when some distances were estimated because the distance provider was unavailable.
+	 */
+	public static final String DEGRADED_HEADER = "X-Degraded";
+
+	/**
+	 * Request header with the time budget of a recommendation in milliseconds, distance.deadline-ms when absent.
+	 */
+	public static final String DEADLINE_HEADER = "X-Deadline-Ms";
+
+	/**
+	 * Set on recommendations when the deadline passed first, so the ranking is from what was known by then.
+	 */
+	public static final String PARTIAL_HEADER = "X-Partial";
+
 	@Autowired
 	private DistanceService ds;
 
@@ -77,11 +95,54 @@ public class UserController {
 		return us.getActiveDrivers();
 	}*/
 
+	/**
+	 * HTTP GET method (/users/driver/recommend/{id})
+	 * 
+	 * The request thread is released while distances are fetched, the response is
+	 * written once the drivers are ranked, or when the deadline passes.
+	 * 
+	 * @param id represents the rider's id.
+	 * @param deadlineMs represents the time budget in milliseconds, the configured one when absent.
+	 * @return The recommended drivers, best first. X-Degraded tells if distances were estimated,
+	 *         X-Partial if the deadline passed before they were all fetched.
+	 */
+	
 	@GetMapping("/driver/recommend/{id}")
-	public List<User> getTopDrivers(@PathVariable("id")int id) throws ApiException, InterruptedException, IOException {
+	public CompletableFuture<ResponseEntity<List<User>>> getTopDrivers(@PathVariable("id")int id,
+			@RequestHeader(name = DEADLINE_HEADER, required = false) Long deadlineMs) {
 		int driverCount = 5;
 		User rider = us.getUserById(id);
-		return ds.recommendDrivers(rider, driverCount);
+		CompletableFuture<RecommendedDrivers> recommended = deadlineMs == null ? ds.recommendDriversAsync(rider, driverCount)
+				: ds.recommendDriversAsync(rider, driverCount, deadlineMs);
+		return recommended.thenApply(drivers -> ResponseEntity.ok().header(DEGRADED_HEADER, String.valueOf(drivers.isDegraded()))
+				.header(PARTIAL_HEADER, String.valueOf(drivers.isPartial())).body(drivers));
+	}
+	
+	/**
+	 * HTTP GET method (/users/driver/recommend)
+	 * 
+	 * Recommends drivers to many riders at once, for instance when a batch onboards.
+	 * Riders of the same batch share one distance matrix.
+	 * 
+	 * @param ids represents the riders' ids.
+	 * @return The recommended drivers of each rider, keyed by rider id. X-Degraded tells if
+	 *         any of the distances were estimated.
+	 */
+	
+	@ApiOperation(value = "Returns recommended drivers for many riders", tags = { "User" })
+	@GetMapping("/driver/recommend")
+	public ResponseEntity<Map<Integer, RecommendedDrivers>> getTopDriversForRiders(@RequestParam("ids") List<Integer> ids) {
+		int driverCount = 5;
+		List<User> riders = new ArrayList<User>();
+		for (Integer id : new LinkedHashSet<Integer>(ids)) {
+			riders.add(us.getUserById(id));
+		}
+		Map<Integer, RecommendedDrivers> recommendations = ds.recommendDrivers(riders, driverCount);
+		boolean degraded = false;
+		for (RecommendedDrivers drivers : recommendations.values()) {
+			degraded |= drivers.isDegraded();
+		}
+		return ResponseEntity.ok().header(DEGRADED_HEADER, String.valueOf(degraded)).body(recommendations);
 	}
 	
 	/**
@@ -0,0 +1,17 @@
+package com.revature.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.revature.beans.BatchMatrix;
+
+/**
+ * BatchMatrixRepository which extends the JpaRepository.
+ * This repository handles the stored distance matrices of the batches.
+ *
+ */
+
+@Repository
+public interface BatchMatrixRepository extends JpaRepository<BatchMatrix, Integer> {
+
+}
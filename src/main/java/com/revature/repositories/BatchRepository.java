@@ -3,8 +3,10 @@ package com.revature.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.revature.beans.Batch;
 
@@ -28,4 +30,25 @@ public interface BatchRepository extends JpaRepository<Batch, Integer> {
 	
 	@Query("select b from Batch b where b.batchLocation = ?1")
 	public List<Batch> getBatchByLocation(String location);
+	
+	/**
+	 * Custom query that uses the @Query annotation to write a batch's coordinates without
+	 * touching its other columns, as long as its address is still the one they were found for.
+	 * 
+	 * @param batchNumber represents the batch's number.
+	 * @param latitude represents the latitude of the address.
+	 * @param longitude represents the longitude of the address.
+	 * @param address represents the street address that was geocoded.
+	 * @param city represents the city that was geocoded.
+	 * @param zip represents the zip that was geocoded, null matches a batch without one.
+	 * @param state represents the state that was geocoded.
+	 * @return The number of batches updated, 0 if the address changed in the meantime.
+	 */
+	
+	@Modifying
+	@Transactional
+	@Query("update Batch b set b.bLatitude = ?2, b.bLongitude = ?3 "
+			+ "where b.batchNumber = ?1 and b.bAddress = ?4 and b.bCity = ?5 and b.bState = ?7 "
+			+ "and ((?6 is null and b.bZip is null) or b.bZip = ?6)")
+	public int setCoordinates(int batchNumber, Double latitude, Double longitude, String address, String city, String zip, String state);
 }
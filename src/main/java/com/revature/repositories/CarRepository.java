@@ -1,5 +1,8 @@
 package com.revature.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -26,4 +29,14 @@ public interface CarRepository extends JpaRepository<Car, Integer> {
 	
 	@Query("select c from Car c where c.user.userId = ?1")
 	public Car getCarByUserId(int userId);
+	
+	/**
+	 * Custom query that uses the @Query annotation to select the cars of several users.
+	 * 
+	 * @param userIds represents the users' ids.
+	 * @return Check {@link com.revature.services.impl.AssignmentServiceImpl}
+	 */
+	
+	@Query("select c from Car c join fetch c.user where c.user.userId in ?1")
+	public List<Car> getCarsByUserIds(Collection<Integer> userIds);
 }
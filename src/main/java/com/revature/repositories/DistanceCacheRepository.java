@@ -0,0 +1,33 @@
+package com.revature.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.revature.beans.DistanceCacheEntry;
+
+/**
+ * DistanceCacheRepository which extends the JpaRepository.
+ * This repository handles the lookups of cached distances.
+ *
+ */
+
+@Repository
+public interface DistanceCacheRepository extends JpaRepository<DistanceCacheEntry, Integer> {
+
+	/**
+	 * Custom query that uses the @Query annotation to select every cached pair between a set
+	 * of origins and a set of destinations in one round trip.
+	 *
+	 * @param originKeys represents the normalized origin addresses.
+	 * @param destinationKeys represents the normalized destination addresses.
+	 * @return Check {@link com.revature.services.impl.DistanceCacheServiceImpl}
+	 */
+
+	@Query("select d from DistanceCacheEntry d where d.originKey in ?1 and d.destinationKey in ?2")
+	public List<DistanceCacheEntry> getEntries(Collection<String> originKeys, Collection<String> destinationKeys);
+
+}
@@ -0,0 +1,45 @@
+package com.revature.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.revature.beans.GeocodeJob;
+
+/**
+ * GeocodeJobRepository which extends the JpaRepository.
+ * This repository handles the users and batches waiting to be geocoded.
+ *
+ */
+
+@Repository
+public interface GeocodeJobRepository extends JpaRepository<GeocodeJob, Integer> {
+
+	/**
+	 * Custom query that uses the @Query annotation to select the job of a user or batch.
+	 *
+	 * @param entityType represents whether the id is a user's or a batch's.
+	 * @param entityId represents the user's id or the batch's number.
+	 * @return Check {@link com.revature.services.impl.GeocodeServiceImpl}
+	 */
+
+	@Query("select j from GeocodeJob j where j.entityType = ?1 and j.entityId = ?2")
+	public GeocodeJob getByEntity(GeocodeJob.EntityType entityType, int entityId);
+
+	/**
+	 * Custom query that uses the @Query annotation to select the jobs that are due, the ones
+	 * waiting the longest first. Jobs that gave up are never due.
+	 *
+	 * @param now represents the current time.
+	 * @param page represents how many jobs to take.
+	 * @return Check {@link com.revature.services.impl.GeocodeServiceImpl}
+	 */
+
+	@Query("select j from GeocodeJob j where j.nextAttemptAt <= ?1 order by j.nextAttemptAt")
+	public List<GeocodeJob> getDue(Date now, Pageable page);
+
+}
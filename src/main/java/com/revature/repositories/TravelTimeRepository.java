@@ -0,0 +1,50 @@
+package com.revature.repositories;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.revature.beans.TravelTime;
+
+/**
+ * TravelTimeRepository which extends the JpaRepository.
+ * This repository handles the lookups and refreshes of cached travel times.
+ *
+ */
+
+@Repository
+public interface TravelTimeRepository extends JpaRepository<TravelTime, Integer> {
+
+	/**
+	 * Custom query that uses the @Query annotation to select every cached time between a set
+	 * of origin cells and a set of destination cells, for one departure, in one round trip.
+	 *
+	 * @param originCells represents the origin cells.
+	 * @param destinationCells represents the destination cells.
+	 * @param weekday represents the day of departure, 1 for Monday.
+	 * @param bucket represents the quarter hour of departure.
+	 * @return Check {@link com.revature.services.impl.TravelTimeServiceImpl}
+	 */
+
+	@Query("select t from TravelTime t where t.originCell in ?1 and t.destinationCell in ?2 and t.weekday = ?3 and t.bucket = ?4")
+	public List<TravelTime> getEntries(Collection<String> originCells, Collection<String> destinationCells, int weekday, int bucket);
+
+	/**
+	 * Custom query that uses the @Query annotation to select the times to fetch, the ones never
+	 * fetched first, then the oldest.
+	 *
+	 * @param before represents the time before which a fetched time is stale.
+	 * @param page represents how many times to take.
+	 * @return Check {@link com.revature.services.impl.TravelTimeServiceImpl}
+	 */
+
+	@Query("select t from TravelTime t where t.fetchedAt is null or t.fetchedAt < ?1 "
+			+ "order by case when t.fetchedAt is null then 0 else 1 end, t.fetchedAt")
+	public List<TravelTime> getStale(Date before, Pageable page);
+
+}
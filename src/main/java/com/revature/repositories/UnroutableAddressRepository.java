@@ -0,0 +1,44 @@
+package com.revature.repositories;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.revature.beans.UnroutableAddress;
+
+/**
+ * UnroutableAddressRepository which extends the JpaRepository.
+ * This repository handles the addresses the distance provider couldn't route.
+ *
+ */
+
+@Repository
+public interface UnroutableAddressRepository extends JpaRepository<UnroutableAddress, Integer> {
+
+	/**
+	 * Custom query that uses the @Query annotation to select the entries of a set of addresses,
+	 * whether or not they can be retried yet.
+	 *
+	 * @param addressKeys represents the normalized addresses.
+	 * @return Check {@link com.revature.services.impl.DistanceCacheServiceImpl}
+	 */
+
+	@Query("select u from UnroutableAddress u where u.addressKey in ?1")
+	public List<UnroutableAddress> getByAddressKeys(Collection<String> addressKeys);
+
+	/**
+	 * Custom query that uses the @Query annotation to select the addresses that can't be
+	 * retried yet.
+	 *
+	 * @param now represents the current time.
+	 * @return Check {@link com.revature.services.impl.DistanceCacheServiceImpl}
+	 */
+
+	@Query("select u from UnroutableAddress u where u.retryAfter > ?1 order by u.addressKey")
+	public List<UnroutableAddress> getFlagged(Date now);
+
+}
@@ -3,8 +3,10 @@ package com.revature.repositories;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.revature.beans.User;
 
@@ -53,4 +55,94 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 	@Query("select u from User u where u.isDriver = true and u.isActive = true and u.isAcceptingRides = true")
 	public List<User> getActiveDrivers();
 	
+	/**
+	 * Custom query that uses the @Query annotation to select the active drivers accepting rides
+	 * of one batch. It is served by the idx_users_available_drivers index, and fetches each
+	 * driver's batch and car in the same statement.
+	 * 
+	 * @param batchNumber represents the batch's number.
+	 * @return Check {@link com.revature.services.impl.DriverIndexServiceImpl}
+	 */
+	
+	@Query("select u from User u join fetch u.batch left join fetch u.car "
+			+ "where u.batch.batchNumber = ?1 and u.isDriver = true and u.isActive = true and u.isAcceptingRides = true")
+	public List<User> getActiveDriversByBatch(int batchNumber);
+	
+	/**
+	 * Custom query that uses the @Query annotation to select the active riders of one batch.
+	 * 
+	 * @param batchNumber represents the batch's number.
+	 * @return Check {@link com.revature.services.impl.UserServiceImpl}
+	 */
+	
+	@Query("select u from User u join fetch u.batch where u.batch.batchNumber = ?1 and u.isDriver = false and u.isActive = true")
+	public List<User> getActiveRidersByBatch(int batchNumber);
+	
+	/**
+	 * Custom query that uses the @Query annotation to write a user's home coordinates without
+	 * touching their other columns, as long as their home is still the one they were found for.
+	 * 
+	 * @param userId represents the user's id.
+	 * @param latitude represents the latitude of the address.
+	 * @param longitude represents the longitude of the address.
+	 * @param address represents the street address that was geocoded.
+	 * @param city represents the city that was geocoded.
+	 * @param zip represents the zip that was geocoded, null matches a user without one.
+	 * @param state represents the state that was geocoded.
+	 * @return The number of users updated, 0 if the address changed in the meantime.
+	 */
+	
+	@Modifying
+	@Transactional
+	@Query("update User u set u.hLatitude = ?2, u.hLongitude = ?3 "
+			+ "where u.userId = ?1 and u.hAddress = ?4 and u.hCity = ?5 and u.hState = ?7 "
+			+ "and ((?6 is null and u.hZip is null) or u.hZip = ?6)")
+	public int setHomeCoordinates(int userId, Double latitude, Double longitude, String address, String city, String zip, String state);
+	
+	/**
+	 * Custom query that uses the @Query annotation to write a user's work coordinates without
+	 * touching their other columns, as long as their workplace is still the one they were found for.
+	 * 
+	 * @param userId represents the user's id.
+	 * @param latitude represents the latitude of the address.
+	 * @param longitude represents the longitude of the address.
+	 * @param address represents the street address that was geocoded.
+	 * @param city represents the city that was geocoded.
+	 * @param zip represents the zip that was geocoded, null matches a user without one.
+	 * @param state represents the state that was geocoded.
+	 * @return The number of users updated, 0 if the address changed in the meantime.
+	 */
+	
+	@Modifying
+	@Transactional
+	@Query("update User u set u.wLatitude = ?2, u.wLongitude = ?3 "
+			+ "where u.userId = ?1 and u.wAddress = ?4 and u.wCity = ?5 and u.wState = ?7 "
+			+ "and ((?6 is null and u.wZip is null) or u.wZip = ?6)")
+	public int setWorkCoordinates(int userId, Double latitude, Double longitude, String address, String city, String zip, String state);
+	
+	/**
+	 * Custom query that uses the @Query annotation to write a user's commute distance without
+	 * touching their other columns, as long as both addresses are still the ones it was fetched for.
+	 * 
+	 * @param userId represents the user's id.
+	 * @param meters represents the commute distance in meters.
+	 * @param hAddress represents the home street address the distance was fetched for.
+	 * @param hCity represents the home city the distance was fetched for.
+	 * @param hZip represents the home zip the distance was fetched for, null matches a user without one.
+	 * @param hState represents the home state the distance was fetched for.
+	 * @param wAddress represents the work street address the distance was fetched for.
+	 * @param wCity represents the work city the distance was fetched for.
+	 * @param wZip represents the work zip the distance was fetched for, null matches a user without one.
+	 * @param wState represents the work state the distance was fetched for.
+	 * @return The number of users updated, 0 if an address changed in the meantime.
+	 */
+	
+	@Modifying
+	@Transactional
+	@Query("update User u set u.commuteMeters = ?2 where u.userId = ?1 and u.hAddress = ?3 and u.hCity = ?4 and u.hState = ?6 "
+			+ "and u.wAddress = ?7 and u.wCity = ?8 and u.wState = ?10 "
+			+ "and ((?5 is null and u.hZip is null) or u.hZip = ?5) and ((?9 is null and u.wZip is null) or u.wZip = ?9)")
+	public int setCommuteMeters(int userId, Long meters, String hAddress, String hCity, String hZip, String hState, String wAddress,
+			String wCity, String wZip, String wState);
+	
 }
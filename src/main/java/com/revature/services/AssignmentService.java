@@ -0,0 +1,22 @@
+package com.revature.services;
+
+import java.util.List;
+
+import com.revature.beans.BatchAssignment;
+import com.revature.beans.BatchPool;
+
+public interface AssignmentService {
+
+	/**
+	 * Matches the batch's active riders to its drivers at once, no driver gets more riders than their car has seats.
+	 */
+	public BatchAssignment assignBatch(int batchNumber);
+	/**
+	 * Plans routes with several pickups per driver, again limited by the car's seats.
+	 */
+	public BatchPool poolBatch(int batchNumber);
+	/**
+	 * Runs assignBatch for every batch in parallel.
+	 */
+	public List<BatchAssignment> assignAllBatches();
+}
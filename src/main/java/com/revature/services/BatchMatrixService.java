@@ -0,0 +1,21 @@
+package com.revature.services;
+
+import com.revature.beans.User;
+import com.revature.beans.Waypoint;
+
+public interface BatchMatrixService {
+
+	/**
+	 * Distances the batches' matrices know, from memory. MISSING for the others, and null when none are known.
+	 */
+	public long[][] lookup(Waypoint[] origins, Waypoint[] destinations);
+	/**
+	 * Computes every batch's matrix again from the current users, run nightly.
+	 */
+	public void rebuildAll();
+	public void rebuild(int batchNumber);
+	/**
+	 * Adds the row and columns of a user who brought a new address to their batch, in the background.
+	 */
+	public void userSaved(User user);
+}
@@ -0,0 +1,30 @@
+package com.revature.services;
+
+import java.util.List;
+
+import com.revature.beans.UnroutableAddress;
+import com.revature.beans.Waypoint;
+
+public interface DistanceCacheService {
+
+	/**
+	 * Value of an element that isn't cached, or whose entry is older than the TTL.
+	 */
+	public static final long MISSING = -2;
+
+	public long[][] lookup(Waypoint[] origins, Waypoint[] destinations);
+	/**
+	 * Same as lookup but ignores the TTL, for when the provider can't be asked.
+	 */
+	public long[][] lookupStale(Waypoint[] origins, Waypoint[] destinations);
+	/**
+	 * Unreachable elements are not stored, but addresses that the provider clearly couldn't route are flagged as unroutable.
+	 */
+	public void store(Waypoint[] origins, Waypoint[] destinations, long[][] distances);
+	/**
+	 * True for the waypoints whose address is flagged and can't be retried yet.
+	 */
+	public boolean[] isUnroutable(Waypoint[] waypoints);
+	public List<UnroutableAddress> getUnroutable();
+	public String normalize(String address);
+}
@@ -0,0 +1,73 @@
+package com.revature.services;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+
+import com.google.maps.errors.ApiException;
+import com.revature.beans.Waypoint;
+
+/**
+ * DistanceProvider computes driving distances between every origin and every destination.
+ * DistanceServiceImpl only talks to this interface, so the backing engine can be swapped
+ * with the distance.provider property.
+ *
+ */
+
+public interface DistanceProvider {
+
+	/**
+	 * Value of an element when there is no route between the origin and the destination.
+	 */
+	public static final long UNREACHABLE = -1;
+
+	/**
+	 * Calculates the distance matrix for the given waypoints.
+	 *
+	 * @param origins represents the starting points, one row each.
+	 * @param destinations represents the end points, one column each.
+	 * @return The distances in meters, indexed [origin][destination], or UNREACHABLE.
+	 */
+	public long[][] getDistances(Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException, ApiException;
+
+	/**
+	 * Calculates the distance matrix without blocking the caller on network round trips.
+	 * Providers that compute locally can keep this default, which answers on the calling thread.
+	 *
+	 * @param origins represents the starting points, one row each.
+	 * @param destinations represents the end points, one column each.
+	 * @return A future of the distances in meters, completed exceptionally if they can't be calculated.
+	 */
+	public default CompletableFuture<long[][]> getDistancesAsync(Waypoint[] origins, Waypoint[] destinations) {
+		CompletableFuture<long[][]> distances = new CompletableFuture<long[][]>();
+		try {
+			distances.complete(getDistances(origins, destinations));
+		} catch (Exception e) {
+			distances.completeExceptionally(e);
+		}
+		return distances;
+	}
+
+	/**
+	 * Whether getDurations is supported, checked before asking for times in traffic.
+	 *
+	 * @return True for providers that predict traffic.
+	 */
+	public default boolean hasTraffic() {
+		return false;
+	}
+
+	/**
+	 * Calculates driving times in the traffic expected at a departure. Providers without
+	 * traffic keep this default, and rankings by time then use distances instead.
+	 *
+	 * @param origins represents the starting points, one row each.
+	 * @param destinations represents the end points, one column each.
+	 * @param departure represents when the trips start, now or later.
+	 * @return The times in seconds, indexed [origin][destination], or UNREACHABLE.
+	 */
+	public default long[][] getDurations(Waypoint[] origins, Waypoint[] destinations, Date departure) throws IOException, InterruptedException, ApiException {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " has no traffic");
+	}
+
+}
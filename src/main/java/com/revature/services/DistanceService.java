@@ -15,6 +15,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.simple.parser.ParseException;
 
@@ -29,17 +30,77 @@ import com.google.maps.model.GeocodingResult;
 import com.google.maps.model.LatLng;
 import com.google.maps.model.TravelMode;
 import com.google.maps.model.Unit;
+import com.revature.beans.RecommendedDrivers;
 import com.revature.beans.User;
+import com.revature.beans.Waypoint;
 
 
 public interface DistanceService {
  
+	/**
+	 * Added distance given to a driver that can't be routed, so that they rank last.
+	 */
+	public static final double UNREACHABLE_DETOUR = 999999999;
+ 
 	// Place key googleMapAPIKey & value apiKey (to be shared on slack) into Environment Vars.
 	public  String getGoogleMAPKey();
 
-	public List<User> recommendDrivers(User rider, int count);
+	public RecommendedDrivers recommendDrivers(User rider, int count);
+	
+	/**
+	 * Doesn't block on the distance provider, the future completes when the drivers are ranked.
+	 */
+	public CompletableFuture<RecommendedDrivers> recommendDriversAsync(User rider, int count);
+	
+	/**
+	 * Same, answered within deadlineMs with the ranking from what is known by then, flagged partial. 0 or less waits for every distance.
+	 */
+	public CompletableFuture<RecommendedDrivers> recommendDriversAsync(User rider, int count, long deadlineMs);
+	
+	/**
+	 * Riders of the same batch share one distance matrix. The result is keyed by rider id.
+	 */
+	public Map<Integer, RecommendedDrivers> recommendDrivers(List<User> riders, int count);
+	
+	/**
+	 * Riders share one distance matrix, candidates.get(r) are the drivers considered for riders.get(r).
+	 */
+	public double[][] calculateDetours(List<User> riders, List<List<User>> candidates) throws IOException, InterruptedException, ApiException;
+	
+	/**
+	 * For n users, [i][j] is the distance from i's home to j's home and [i][n + j] from i's home to j's work.
+	 */
+	public long[][] getCommuteMatrix(List<User> users) throws IOException, InterruptedException, ApiException;
 
 	List<String> getAddressFromUsers(List<User> users);
 	
+	/**
+	 * The user's own home to work distance, null when it could only be estimated or the provider can't route it.
+	 * Throws when the provider request fails.
+	 */
+	public Long getCommuteDistance(User user) throws IOException, InterruptedException;
+	/**
+	 * Users whose home or work address is flagged as unroutable, so an admin can correct them.
+	 */
+	public List<User> getUnroutableUsers();
+	/**
+	 * The batch's drivers, without those whose home address is flagged as unroutable.
+	 */
+	public List<User> getRoutableDrivers(int batchNumber);
+	/**
+	 * Called after a user is written, so the riders' kept rankings follow a driver joining, leaving or moving.
+	 * Both return at once, the change is applied in the background. versions are the roster versions
+	 * DriverIndexService moved each batch to with this change, so rankings are only ever stamped with them.
+	 */
+	public void userSaved(User user, Map<Integer, Long> versions);
+	public void userDeleted(int userId, Map<Integer, Long> versions);
+	
+	public Waypoint homeOf(User user);
+	public Waypoint workOf(User user);
+	/**
+	 * Distances from the cache and the provider, null when any of them would only be estimated.
+	 */
+	public long[][] getExactDistanceMatrix(Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException;
+	
 	
 }
\ No newline at end of file
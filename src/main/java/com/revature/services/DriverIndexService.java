@@ -0,0 +1,28 @@
+package com.revature.services;
+
+import java.util.List;
+import java.util.Map;
+
+import com.revature.beans.User;
+
+public interface DriverIndexService {
+
+	/**
+	 * Every active driver accepting rides in the batch, located or not.
+	 */
+	public List<User> getBatchDrivers(int batchNumber);
+	/**
+	 * Only drivers with home coordinates can be found this way, closest first.
+	 */
+	public List<User> getNearestDrivers(int batchNumber, double latitude, double longitude, int count);
+	/**
+	 * Changes whenever the batch's drivers change, so results computed for a roster can be keyed by it.
+	 */
+	public long getRosterVersion(int batchNumber);
+	/**
+	 * Called after a user is written, so the index follows changes in role, batch, activity or home.
+	 * Both return the roster version each changed batch was moved to.
+	 */
+	public Map<Integer, Long> userSaved(User user);
+	public Map<Integer, Long> userDeleted(int userId);
+}
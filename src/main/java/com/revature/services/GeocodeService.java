@@ -0,0 +1,15 @@
+package com.revature.services;
+
+import com.revature.beans.GeocodeJob;
+
+public interface GeocodeService {
+
+	/**
+	 * Asks for the coordinates of a user's or batch's addresses, a job already waiting for it starts over.
+	 */
+	public void enqueue(GeocodeJob.EntityType entityType, int entityId);
+	/**
+	 * Runs the jobs that are due and returns how many were finished.
+	 */
+	public int processDueJobs();
+}
@@ -0,0 +1,18 @@
+package com.revature.services;
+
+import java.util.Date;
+
+import com.revature.beans.Waypoint;
+
+public interface TravelTimeService {
+
+	/**
+	 * Cached driving times in seconds for a departure, MISSING where none is cached yet. The missing pairs are
+	 * remembered so the next refresh fetches them, and no provider is asked here.
+	 */
+	public long[][] lookup(Waypoint[] origins, Waypoint[] destinations, Date departure);
+	/**
+	 * Fetches the stale and missing times from the provider, run off-peak. Returns how many were fetched.
+	 */
+	public int refresh();
+}
@@ -18,4 +18,5 @@ public interface UserService {
 	public User updateUser(User user);
 	public String deleteUserById(int id);
 	public List<User> getActiveDrivers();
+	public List<User> getActiveRidersByBatch(int batchNumber);
 }
@@ -0,0 +1,127 @@
+package com.revature.services.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * AddressCanonicalizer turns the ways people type the same US address into one key. Case,
+ * spacing and punctuation are normalized, street suffixes, directions and unit words take
+ * their USPS abbreviation, state names become their two letter code and ZIP+4 codes are cut
+ * to five digits. Only keys are canonicalized, the addresses sent to the provider are not.
+ *
+ */
+
+public final class AddressCanonicalizer {
+
+	//Only long forms are mapped, so an abbreviation that means two things, like st, is left alone
+	private static final Map<String, String> WORDS = new HashMap<String, String>();
+
+	private static final Map<String, String> STATES = new HashMap<String, String>();
+
+	//A state with a zip, or a zip alone, at the end of the last part
+	private static final Pattern ZIP = Pattern.compile("^(.*?)\\s*(\\d{5})(?:-?\\d{4})?$");
+
+	static {
+		String[] words = {
+				"alley", "aly", "avenue", "ave", "av", "ave", "boulevard", "blvd", "circle", "cir", "court", "ct",
+				"cove", "cv", "crescent", "cres", "drive", "dr", "expressway", "expy", "freeway", "fwy", "highway", "hwy",
+				"lane", "ln", "parkway", "pkwy", "place", "pl", "plaza", "plz", "road", "rd", "square", "sq",
+				"street", "st", "terrace", "ter", "trail", "trl", "turnpike", "tpke", "north", "n", "south", "s",
+				"east", "e", "west", "w", "northeast", "ne", "northwest", "nw", "southeast", "se", "southwest", "sw",
+				"apartment", "apt", "building", "bldg", "floor", "fl", "suite", "ste", "unit", "unit"
+		};
+		for (int i = 0; i < words.length; i += 2) {
+			WORDS.put(words[i], words[i + 1]);
+		}
+
+		String[] states = {
+				"alabama", "al", "alaska", "ak", "arizona", "az", "arkansas", "ar", "california", "ca",
+				"colorado", "co", "connecticut", "ct", "delaware", "de", "district of columbia", "dc", "florida", "fl",
+				"georgia", "ga", "hawaii", "hi", "idaho", "id", "illinois", "il", "indiana", "in", "iowa", "ia",
+				"kansas", "ks", "kentucky", "ky", "louisiana", "la", "maine", "me", "maryland", "md",
+				"massachusetts", "ma", "michigan", "mi", "minnesota", "mn", "mississippi", "ms", "missouri", "mo",
+				"montana", "mt", "nebraska", "ne", "nevada", "nv", "new hampshire", "nh", "new jersey", "nj",
+				"new mexico", "nm", "new york", "ny", "north carolina", "nc", "north dakota", "nd", "ohio", "oh",
+				"oklahoma", "ok", "oregon", "or", "pennsylvania", "pa", "rhode island", "ri", "south carolina", "sc",
+				"south dakota", "sd", "tennessee", "tn", "texas", "tx", "utah", "ut", "vermont", "vt",
+				"virginia", "va", "washington", "wa", "west virginia", "wv", "wisconsin", "wi", "wyoming", "wy"
+		};
+		for (int i = 0; i < states.length; i += 2) {
+			STATES.put(states[i], states[i + 1]);
+		}
+	}
+
+	private AddressCanonicalizer() {
+		super();
+	}
+
+	/**
+	 * Canonicalizes an address written as street, city, state and an optional zip.
+	 *
+	 * @param address represents the address as a user typed it.
+	 * @return The same key for every spelling of the address, empty for null.
+	 */
+
+	public static String canonical(String address) {
+		if (address == null) {
+			return "";
+		}
+		String[] parts = address.toLowerCase().replace(".", "").replace('#', ' ').split(",");
+
+		//The country adds nothing, every address is in the US
+		int count = parts.length;
+		while (count > 1 && isCountry(parts[count - 1].trim())) {
+			count--;
+		}
+
+		StringBuilder key = new StringBuilder();
+		for (int p = 0; p < count; p++) {
+			String part = parts[p].trim().replaceAll("\\s+", " ");
+			if (part.isEmpty()) {
+				continue;
+			}
+			if (key.length() > 0) {
+				key.append(", ");
+			}
+			if (p == count - 1 && count > 1) {
+				key.append(state(part));
+			} else {
+				key.append(words(part));
+			}
+		}
+		return key.toString();
+	}
+
+	//The last part holds the state, the zip or both
+	private static String state(String part) {
+		Matcher zip = ZIP.matcher(part);
+		if (zip.matches()) {
+			String state = zip.group(1);
+			return state.isEmpty() ? zip.group(2) : stateCode(state) + " " + zip.group(2);
+		}
+		return stateCode(part);
+	}
+
+	private static String stateCode(String state) {
+		String code = STATES.get(state);
+		return code != null ? code : words(state);
+	}
+
+	private static String words(String part) {
+		String[] tokens = part.split(" ");
+		for (int i = 0; i < tokens.length; i++) {
+			String abbreviation = WORDS.get(tokens[i]);
+			if (abbreviation != null) {
+				tokens[i] = abbreviation;
+			}
+		}
+		return String.join(" ", tokens);
+	}
+
+	private static boolean isCountry(String part) {
+		return part.equals("usa") || part.equals("us") || part.equals("united states") || part.equals("united states of america");
+	}
+
+}
@@ -0,0 +1,259 @@
+package com.revature.services.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.revature.beans.Batch;
+import com.revature.beans.BatchAssignment;
+import com.revature.beans.BatchPool;
+import com.revature.beans.Car;
+import com.revature.beans.PooledRide;
+import com.revature.beans.RideAssignment;
+import com.revature.beans.User;
+import com.revature.repositories.CarRepository;
+import com.revature.services.AssignmentService;
+import com.revature.services.BatchService;
+import com.revature.services.DistanceService;
+import com.revature.services.UserService;
+
+/**
+ * AssignmentServiceImpl matches all of a batch's riders to its drivers in one computation,
+ * instead of ranking drivers for each rider on their own, where every rider may be sent to
+ * the same driver. The match is a min-cost flow: every rider is one unit of flow, every driver
+ * can carry as many units as their car has seats, and the cost of a rider-driver edge is the
+ * detour the driver makes to pick the rider up. The flow seats as many riders as possible with
+ * the smallest total detour.
+ *
+ * poolBatch goes further and lets a car pick up several riders on the way, planning each
+ * driver's pickup order with RoutePlanner.
+ *
+ * Seats are read from the cars as they are when solving, the driver index only knows who
+ * drives.
+ *
+ * Batches are independent, so assignAllBatches solves them in parallel on a dedicated
+ * fork-join pool.
+ *
+ */
+
+@Service
+public class AssignmentServiceImpl implements AssignmentService {
+
+	private static final Logger LOGGER = LogManager.getLogger(AssignmentServiceImpl.class);
+
+	@Autowired
+	private UserService us;
+
+	@Autowired
+	private BatchService bs;
+
+	@Autowired
+	private DistanceService ds;
+
+	@Autowired
+	private CarRepository cr;
+
+	//How many batches are solved at once, 0 uses one thread per processor
+	@Value("${assignment.parallelism:0}")
+	private int parallelism;
+
+	private ForkJoinPool pool;
+
+	@PostConstruct
+	public void startPool() {
+		pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	@PreDestroy
+	public void stopPool() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Solves the assignment for one batch.
+	 *
+	 * @param batchNumber represents the batch.
+	 * @return The riders matched to each driver, and the riders left without a seat.
+	 */
+
+	@Override
+	public BatchAssignment assignBatch(int batchNumber) {
+		BatchAssignment result = new BatchAssignment(batchNumber);
+		List<User> riders = us.getActiveRidersByBatch(batchNumber);
+		Map<Integer, Integer> seatsOf = new HashMap<Integer, Integer>();
+		List<User> drivers = getDriversWithSeats(batchNumber, seatsOf);
+		if (riders.isEmpty() || drivers.isEmpty()) {
+			result.getUnassigned().addAll(riders);
+			return result;
+		}
+
+		List<List<User>> candidates = new ArrayList<List<User>>();
+		for (int r = 0; r < riders.size(); r++) {
+			candidates.add(drivers);
+		}
+		double[][] detours;
+		try {
+			detours = ds.calculateDetours(riders, candidates);
+		} catch (Exception e) {
+			LOGGER.error("Could not calculate the detours of batch " + batchNumber, e);
+			result.getUnassigned().addAll(riders);
+			return result;
+		}
+
+		//Node 0 is the source, then one node per rider, one per driver, and the sink
+		int riderCount = riders.size();
+		int driverCount = drivers.size();
+		int source = 0;
+		int sink = riderCount + driverCount + 1;
+		MinCostFlow flow = new MinCostFlow(sink + 1, riderCount * driverCount + riderCount + driverCount);
+
+		int[][] edges = new int[riderCount][driverCount];
+		for (int r = 0; r < riderCount; r++) {
+			flow.addEdge(source, 1 + r, 1, 0);
+			for (int d = 0; d < driverCount; d++) {
+				//A driver who can't be routed to the rider is no option at all
+				edges[r][d] = detours[r][d] >= DistanceService.UNREACHABLE_DETOUR ? -1
+						: flow.addEdge(1 + r, 1 + riderCount + d, 1, Math.round(detours[r][d]));
+			}
+		}
+		for (int d = 0; d < driverCount; d++) {
+			flow.addEdge(1 + riderCount + d, sink, seatsOf.get(drivers.get(d).getUserId()), 0);
+		}
+		flow.solve(source, sink);
+
+		for (int r = 0; r < riderCount; r++) {
+			RideAssignment assignment = null;
+			for (int d = 0; d < driverCount && assignment == null; d++) {
+				if (edges[r][d] != -1 && flow.getFlow(edges[r][d]) > 0) {
+					assignment = new RideAssignment(riders.get(r), drivers.get(d), detours[r][d]);
+				}
+			}
+			if (assignment == null) {
+				result.getUnassigned().add(riders.get(r));
+			} else {
+				result.getAssignments().add(assignment);
+				result.setTotalDetour(result.getTotalDetour() + assignment.getDetour());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Pools the batch's riders into its drivers' cars, several riders per car.
+	 *
+	 * @param batchNumber represents the batch.
+	 * @return Each driver's route in pickup order, and the riders left without a seat.
+	 */
+
+	@Override
+	public BatchPool poolBatch(int batchNumber) {
+		BatchPool result = new BatchPool(batchNumber);
+		List<User> riders = us.getActiveRidersByBatch(batchNumber);
+		Map<Integer, Integer> seatsOf = new HashMap<Integer, Integer>();
+		List<User> drivers = getDriversWithSeats(batchNumber, seatsOf);
+		if (riders.isEmpty() || drivers.isEmpty()) {
+			result.getUnassigned().addAll(riders);
+			return result;
+		}
+
+		//Drivers come first in the matrix, then riders
+		List<User> people = new ArrayList<User>(drivers);
+		people.addAll(riders);
+		long[][] distances;
+		try {
+			distances = ds.getCommuteMatrix(people);
+		} catch (Exception e) {
+			LOGGER.error("Could not calculate the distances of batch " + batchNumber, e);
+			result.getUnassigned().addAll(riders);
+			return result;
+		}
+
+		int[] driverIndices = new int[drivers.size()];
+		int[] seats = new int[drivers.size()];
+		for (int k = 0; k < driverIndices.length; k++) {
+			driverIndices[k] = k;
+			seats[k] = seatsOf.get(drivers.get(k).getUserId());
+		}
+		int[] riderIndices = new int[riders.size()];
+		for (int r = 0; r < riderIndices.length; r++) {
+			riderIndices[r] = drivers.size() + r;
+		}
+
+		RoutePlanner planner = new RoutePlanner(distances);
+		int[][] routes = planner.plan(driverIndices, seats, riderIndices);
+
+		boolean[] seated = new boolean[people.size()];
+		for (int k = 0; k < routes.length; k++) {
+			if (routes[k].length == 0) {
+				continue;
+			}
+			List<User> pickups = new ArrayList<User>();
+			for (int pickup : routes[k]) {
+				pickups.add(people.get(pickup));
+				seated[pickup] = true;
+			}
+			long distance = planner.routeLength(k, routes[k]);
+			long detour = distance - planner.routeLength(k, new int[0]);
+			result.getRides().add(new PooledRide(drivers.get(k), pickups, distance, detour));
+			result.setTotalDetour(result.getTotalDetour() + detour);
+		}
+		for (int r = 0; r < riders.size(); r++) {
+			if (!seated[drivers.size() + r]) {
+				result.getUnassigned().add(riders.get(r));
+			}
+		}
+		return result;
+	}
+
+	//Only routable drivers with a car have seats to offer, cars added or changed since the index read them count
+	private List<User> getDriversWithSeats(int batchNumber, Map<Integer, Integer> seatsOf) {
+		List<User> indexed = ds.getRoutableDrivers(batchNumber);
+		List<User> drivers = new ArrayList<User>();
+		if (indexed.isEmpty()) {
+			return drivers;
+		}
+		List<Integer> userIds = new ArrayList<Integer>();
+		for (User driver : indexed) {
+			userIds.add(driver.getUserId());
+		}
+		for (Car car : cr.getCarsByUserIds(userIds)) {
+			if (car.getSeats() > 0) {
+				seatsOf.put(car.getUser().getUserId(), car.getSeats());
+			}
+		}
+		for (User driver : indexed) {
+			if (seatsOf.containsKey(driver.getUserId())) {
+				drivers.add(driver);
+			}
+		}
+		return drivers;
+	}
+
+	/**
+	 * Solves the assignment for every batch, several batches at a time.
+	 *
+	 * @return One assignment per batch.
+	 */
+
+	@Override
+	public List<BatchAssignment> assignAllBatches() {
+		List<Batch> batches = bs.getBatches();
+		//A parallel stream started from inside the pool runs on the pool's threads
+		return pool.submit(() -> batches.parallelStream()
+				.map(batch -> assignBatch(batch.getBatchNumber()))
+				.collect(Collectors.toList())).join();
+	}
+
+}
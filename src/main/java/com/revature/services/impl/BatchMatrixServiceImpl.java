@@ -0,0 +1,401 @@
+package com.revature.services.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.revature.beans.Batch;
+import com.revature.beans.BatchMatrix;
+import com.revature.beans.User;
+import com.revature.beans.Waypoint;
+import com.revature.repositories.BatchMatrixRepository;
+import com.revature.repositories.BatchRepository;
+import com.revature.repositories.UserRepository;
+import com.revature.services.BatchMatrixService;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+import com.revature.services.DistanceService;
+
+/**
+ * BatchMatrixServiceImpl keeps, for every batch, the distances from each active user's home
+ * to every other home and workplace of the batch, in memory as a PackedDistanceMatrix and in
+ * the batch_matrices table. Recommendations within a batch then find their distances without
+ * the cache or the provider. The matrices are computed again nightly, and a user who joins a
+ * batch or moves only adds their own row and columns in between.
+ *
+ * Batches without a stored matrix at startup are computed one at a time, spaced apart, so a
+ * cold start doesn't send every batch to the provider at once. Lookups find the batches that
+ * have an origin through an index by address, rather than asking every matrix.
+ *
+ */
+
+@Service
+public class BatchMatrixServiceImpl implements BatchMatrixService {
+
+	private static final Logger LOGGER = LogManager.getLogger(BatchMatrixServiceImpl.class);
+
+	@Autowired
+	private BatchMatrixRepository bmr;
+
+	@Autowired
+	private BatchRepository br;
+
+	@Autowired
+	private UserRepository ur;
+
+	@Autowired
+	private DistanceService ds;
+
+	@Value("${distance.batch-matrix.enabled:true}")
+	private boolean enabled = true;
+
+	//How long to wait between computing two of the matrices missing at startup
+	@Value("${distance.batch-matrix.startup-spacing-ms:30000}")
+	private long startupSpacingMillis = 30000;
+
+	private final ConcurrentMap<Integer, PackedDistanceMatrix> matrices = new ConcurrentHashMap<Integer, PackedDistanceMatrix>();
+
+	//The batches whose matrix has a canonical home address as an origin, written together with matrices
+	private final ConcurrentMap<String, Set<Integer>> batchesOfOrigin = new ConcurrentHashMap<String, Set<Integer>>();
+
+	//One thread, so the changes to a matrix are applied in the order the users were saved
+	private ScheduledExecutorService deltas = Executors.newSingleThreadScheduledExecutor(BatchMatrixServiceImpl::daemon);
+
+	/**
+	 * Loads the stored matrices, then computes the ones that are missing in the background,
+	 * one every startup-spacing-ms.
+	 */
+
+	@PostConstruct
+	public void loadMatrices() {
+		if (!enabled) {
+			return;
+		}
+		for (BatchMatrix stored : bmr.findAll()) {
+			Waypoint[] origins = waypoints(stored.getOrigins());
+			Waypoint[] destinations = waypoints(stored.getDestinations());
+			put(stored.getBatchNumber(), new PackedDistanceMatrix(origins, destinations, PackedDistanceMatrix.fromBytes(stored.getMeters())));
+		}
+		LOGGER.info("Loaded " + matrices.size() + " batch distance matrices");
+		deltas.execute(() -> {
+			long delay = 0;
+			for (Batch batch : br.findAll()) {
+				int batchNumber = batch.getBatchNumber();
+				if (!matrices.containsKey(batchNumber)) {
+					deltas.schedule(() -> buildMissing(batchNumber), delay, TimeUnit.MILLISECONDS);
+					delay += startupSpacingMillis;
+				}
+			}
+		});
+	}
+
+	//The nightly rebuild may have computed it in the meantime
+	private void buildMissing(int batchNumber) {
+		if (matrices.containsKey(batchNumber)) {
+			return;
+		}
+		try {
+			rebuild(batchNumber);
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not build the distance matrix of batch " + batchNumber, e);
+		}
+	}
+
+	@PreDestroy
+	public void stopDeltas() {
+		deltas.shutdownNow();
+	}
+
+	/**
+	 * Looks every pair up in the matrices of the batches that have its origin. Unreachable
+	 * distances are left out, so they are fetched again rather than kept until the next rebuild.
+	 *
+	 * @param origins represents the origins.
+	 * @param destinations represents the destinations.
+	 * @return The distances, MISSING where no matrix has the pair, null when none has any.
+	 */
+
+	@Override
+	public long[][] lookup(Waypoint[] origins, Waypoint[] destinations) {
+		if (matrices.isEmpty()) {
+			return null;
+		}
+		String[] from = keys(origins);
+		String[] to = keys(destinations);
+		long[][] distances = null;
+		for (int i = 0; i < from.length; i++) {
+			Set<Integer> batches = batchesOfOrigin.get(from[i]);
+			if (batches == null) {
+				continue;
+			}
+			for (int batchNumber : batches) {
+				PackedDistanceMatrix matrix = matrices.get(batchNumber);
+				if (matrix == null || !matrix.hasOrigin(from[i])) {
+					continue;
+				}
+				for (int j = 0; j < to.length; j++) {
+					if (distances != null && distances[i][j] != DistanceCacheService.MISSING) {
+						continue;
+					}
+					long distance = matrix.get(from[i], to[j]);
+					if (distance != DistanceCacheService.MISSING && distance != DistanceProvider.UNREACHABLE) {
+						if (distances == null) {
+							distances = missing(from.length, to.length);
+						}
+						distances[i][j] = distance;
+					}
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * The nightly job, it computes every batch's matrix again so users who left or moved drop
+	 * out and the distances follow the cache's expiry.
+	 */
+
+	@Override
+	@Scheduled(cron = "${distance.batch-matrix.cron:0 0 3 * * *}")
+	public void rebuildAll() {
+		if (!enabled) {
+			return;
+		}
+		for (Batch batch : br.findAll()) {
+			try {
+				rebuild(batch.getBatchNumber());
+			} catch (RuntimeException e) {
+				LOGGER.error("Could not rebuild the distance matrix of batch " + batch.getBatchNumber(), e);
+			}
+		}
+	}
+
+	/**
+	 * Computes one batch's matrix from its active users, from the cache where it can. While
+	 * it is computed the batch's recommendations use the cache and provider as usual.
+	 *
+	 * @param batchNumber represents the batch.
+	 */
+
+	@Override
+	public synchronized void rebuild(int batchNumber) {
+		Map<String, Waypoint> homes = new LinkedHashMap<String, Waypoint>();
+		Map<String, Waypoint> works = new LinkedHashMap<String, Waypoint>();
+		List<User> users = new ArrayList<User>(ur.getActiveDriversByBatch(batchNumber));
+		users.addAll(ur.getActiveRidersByBatch(batchNumber));
+		for (User user : users) {
+			Waypoint home = ds.homeOf(user);
+			homes.putIfAbsent(AddressCanonicalizer.canonical(home.getAddress()), home);
+			Waypoint work = ds.workOf(user);
+			works.putIfAbsent(AddressCanonicalizer.canonical(work.getAddress()), work);
+		}
+		if (homes.isEmpty()) {
+			remove(batchNumber);
+			if (bmr.existsById(batchNumber)) {
+				bmr.deleteById(batchNumber);
+			}
+			return;
+		}
+
+		Waypoint[] origins = homes.values().toArray(new Waypoint[homes.size()]);
+		Map<String, Waypoint> columns = new LinkedHashMap<String, Waypoint>(homes);
+		for (Map.Entry<String, Waypoint> work : works.entrySet()) {
+			columns.putIfAbsent(work.getKey(), work.getValue());
+		}
+		Waypoint[] destinations = columns.values().toArray(new Waypoint[columns.size()]);
+
+		//Taken out first, so the distances come from the cache and the provider rather than from itself
+		PackedDistanceMatrix previous = remove(batchNumber);
+		long[][] distances = fetch(origins, destinations);
+		if (distances == null) {
+			LOGGER.warn("Could not compute the distance matrix of batch " + batchNumber + ", the provider is unavailable");
+			if (previous != null) {
+				put(batchNumber, previous);
+			}
+			return;
+		}
+		save(batchNumber, PackedDistanceMatrix.of(origins, destinations, distances));
+	}
+
+	/**
+	 * Queues the user's new addresses to be added to their batch's matrix. A batch without a
+	 * matrix yet gets the user in its next rebuild.
+	 *
+	 * @param user represents the user as it was saved.
+	 */
+
+	@Override
+	public void userSaved(User user) {
+		if (!enabled || user.getBatch() == null || !user.isActive()) {
+			return;
+		}
+		int batchNumber = user.getBatch().getBatchNumber();
+		PackedDistanceMatrix matrix = matrices.get(batchNumber);
+		if (matrix == null) {
+			return;
+		}
+		Waypoint home = ds.homeOf(user);
+		Waypoint work = ds.workOf(user);
+		if (matrix.hasOrigin(AddressCanonicalizer.canonical(home.getAddress()))
+				&& matrix.hasDestination(AddressCanonicalizer.canonical(work.getAddress()))) {
+			return;
+		}
+		deltas.execute(() -> {
+			try {
+				extend(batchNumber, home, work);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not add user " + user.getUserId() + " to the distance matrix of batch " + batchNumber, e);
+			}
+		});
+	}
+
+	//Only the new row and the new columns are fetched, the rest of the matrix is copied
+	private synchronized void extend(int batchNumber, Waypoint home, Waypoint work) {
+		PackedDistanceMatrix matrix = matrices.get(batchNumber);
+		if (matrix == null) {
+			return;
+		}
+		String homeKey = AddressCanonicalizer.canonical(home.getAddress());
+		String workKey = AddressCanonicalizer.canonical(work.getAddress());
+		Waypoint[] newOrigins = matrix.hasOrigin(homeKey) ? new Waypoint[0] : new Waypoint[] {home};
+		List<Waypoint> added = new ArrayList<Waypoint>();
+		if (!matrix.hasDestination(homeKey)) {
+			added.add(home);
+		}
+		if (!matrix.hasDestination(workKey) && !workKey.equals(homeKey)) {
+			added.add(work);
+		}
+		Waypoint[] newDestinations = added.toArray(new Waypoint[added.size()]);
+		if (newOrigins.length == 0 && newDestinations.length == 0) {
+			return;
+		}
+
+		Waypoint[] origins = matrix.getOrigins();
+		Waypoint[] destinations = matrix.getDestinations();
+		Waypoint[] allDestinations = Arrays.copyOf(destinations, destinations.length + newDestinations.length);
+		System.arraycopy(newDestinations, 0, allDestinations, destinations.length, newDestinations.length);
+
+		long[][] newRows = newOrigins.length == 0 ? new long[0][] : fetch(newOrigins, allDestinations);
+		long[][] newColumns = newDestinations.length == 0 ? new long[origins.length][0]
+				: fetch(origins, newDestinations);
+		if (newRows == null || newColumns == null) {
+			LOGGER.warn("Leaving a new address of batch " + batchNumber + " to the nightly rebuild, the provider is unavailable");
+			return;
+		}
+		save(batchNumber, matrix.extend(newOrigins, newDestinations, newRows, newColumns));
+	}
+
+	//Null when the provider can't give every distance right now
+	private long[][] fetch(Waypoint[] origins, Waypoint[] destinations) {
+		try {
+			return ds.getExactDistanceMatrix(origins, destinations);
+		} catch (IOException e) {
+			LOGGER.warn("Could not fetch a batch's distances", e);
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private void save(int batchNumber, PackedDistanceMatrix matrix) {
+		bmr.save(new BatchMatrix(batchNumber, addresses(matrix.getOrigins()), addresses(matrix.getDestinations()), matrix.toBytes(),
+				new Date()));
+		put(batchNumber, matrix);
+	}
+
+	//Replaces the batch's matrix and its origins in the index
+	private void put(int batchNumber, PackedDistanceMatrix matrix) {
+		PackedDistanceMatrix previous = matrices.put(batchNumber, matrix);
+		for (String origin : keys(matrix.getOrigins())) {
+			batchesOfOrigin.computeIfAbsent(origin, key -> ConcurrentHashMap.newKeySet()).add(batchNumber);
+		}
+		if (previous != null) {
+			unindex(batchNumber, previous, matrix);
+		}
+	}
+
+	private PackedDistanceMatrix remove(int batchNumber) {
+		PackedDistanceMatrix previous = matrices.remove(batchNumber);
+		if (previous != null) {
+			unindex(batchNumber, previous, null);
+		}
+		return previous;
+	}
+
+	//Drops the batch from the origins of its old matrix that the new one, if any, doesn't have
+	private void unindex(int batchNumber, PackedDistanceMatrix old, PackedDistanceMatrix current) {
+		for (String origin : keys(old.getOrigins())) {
+			if (current != null && current.hasOrigin(origin)) {
+				continue;
+			}
+			batchesOfOrigin.computeIfPresent(origin, (key, batches) -> {
+				batches.remove(batchNumber);
+				return batches.isEmpty() ? null : batches;
+			});
+		}
+	}
+
+	private static String[] keys(Waypoint[] waypoints) {
+		String[] keys = new String[waypoints.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = AddressCanonicalizer.canonical(waypoints[i].getAddress());
+		}
+		return keys;
+	}
+
+	private static String addresses(Waypoint[] waypoints) {
+		StringBuilder addresses = new StringBuilder();
+		for (Waypoint waypoint : waypoints) {
+			if (addresses.length() > 0) {
+				addresses.append('\n');
+			}
+			addresses.append(waypoint.getAddress());
+		}
+		return addresses.toString();
+	}
+
+	private static Waypoint[] waypoints(String addresses) {
+		String[] lines = addresses.split("\n");
+		Waypoint[] waypoints = new Waypoint[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			waypoints[i] = new Waypoint(lines[i]);
+		}
+		return waypoints;
+	}
+
+	private static long[][] missing(int rows, int columns) {
+		long[][] distances = new long[rows][columns];
+		for (long[] row : distances) {
+			Arrays.fill(row, DistanceCacheService.MISSING);
+		}
+		return distances;
+	}
+
+	private static Thread daemon(Runnable runnable) {
+		Thread thread = new Thread(runnable, "batch-matrix");
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
@@ -1,13 +1,16 @@
 package com.revature.services.impl;
 
 import java.util.List;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.revature.beans.Batch;
+import com.revature.beans.GeocodeJob;
 import com.revature.repositories.BatchRepository;
 import com.revature.services.BatchService;
+import com.revature.services.GeocodeService;
 
 /**
  * BatchServiceImpl handles any additional services that need to be made before calling the
@@ -23,6 +26,9 @@ public class BatchServiceImpl implements BatchService {
 	@Autowired
 	private BatchRepository br;
 	
+	@Autowired
+	private GeocodeService gs;
+	
 	/**
 	 * Calls BatchRepository's findAll method found in the JpaRepository.
 	 * 
@@ -59,7 +65,8 @@ public class BatchServiceImpl implements BatchService {
 	}
 	
 	/**
-	 * Calls BatchRepository's save method found in the JpaRepository.
+	 * Calls BatchRepository's save method found in the JpaRepository, then asks for the
+	 * batch's coordinates if they weren't sent.
 	 * 
 	 * @param batch represents the new Batch object being sent.
 	 * @return The newly created batch.
@@ -67,11 +74,14 @@ public class BatchServiceImpl implements BatchService {
 	
 	@Override
 	public Batch addBatch(Batch batch) {
-		return br.save(batch);
+		Batch saved = br.save(batch);
+		geocodeIfMissing(saved);
+		return saved;
 	}
 
 	/**
-	 * Calls BatchRepository's save method found in the JpaRepository.
+	 * Keeps the stored coordinates unless the address changed, calls BatchRepository's save
+	 * method found in the JpaRepository, then asks for any missing coordinates.
 	 * 
 	 * @param batch represents the updated Batch object being sent.
 	 * @return The newly updated batch.
@@ -79,7 +89,22 @@ public class BatchServiceImpl implements BatchService {
 	
 	@Override
 	public Batch updateBatch(Batch batch) {
-		return br.save(batch);
+		Batch previous = br.findById(batch.getBatchNumber()).orElse(null);
+		if (previous != null) {
+			if (sameAddress(batch, previous)) {
+				if (batch.getbLatitude() == null || batch.getbLongitude() == null) {
+					batch.setbLatitude(previous.getbLatitude());
+					batch.setbLongitude(previous.getbLongitude());
+				}
+			} else if (Objects.equals(batch.getbLatitude(), previous.getbLatitude())
+					&& Objects.equals(batch.getbLongitude(), previous.getbLongitude())) {
+				batch.setbLatitude(null);
+				batch.setbLongitude(null);
+			}
+		}
+		Batch saved = br.save(batch);
+		geocodeIfMissing(saved);
+		return saved;
 	}
 
 	/**
@@ -94,5 +119,16 @@ public class BatchServiceImpl implements BatchService {
 		br.deleteById(number);
 		return "Batch number: " + number + " was deleted.";
 	}
+	
+	private void geocodeIfMissing(Batch batch) {
+		if (batch.getbLatitude() == null || batch.getbLongitude() == null) {
+			gs.enqueue(GeocodeJob.EntityType.BATCH, batch.getBatchNumber());
+		}
+	}
+	
+	private static boolean sameAddress(Batch batch, Batch other) {
+		return Objects.equals(batch.getbAddress(), other.getbAddress()) && Objects.equals(batch.getbCity(), other.getbCity())
+				&& Objects.equals(batch.getbState(), other.getbState()) && Objects.equals(batch.getbZip(), other.getbZip());
+	}
 
 }
@@ -0,0 +1,134 @@
+package com.revature.services.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * CircuitBreaker stops calling an upstream that keeps failing. Every call gets a timeout, and
+ * after failureThreshold failures in a row the breaker opens: calls are rejected straight away
+ * for openMillis, so callers can answer from a fallback without waiting on the upstream.
+ * Then a single trial call is let through, which closes the breaker if it succeeds and opens
+ * it again if it doesn't.
+ *
+ */
+
+public final class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	//Only completes timed out futures, so one thread serves every breaker
+	private static final ScheduledExecutorService TIMER;
+
+	static {
+		CustomizableThreadFactory threads = new CustomizableThreadFactory("circuit-breaker-timer-");
+		threads.setDaemon(true);
+		TIMER = Executors.newSingleThreadScheduledExecutor(threads);
+	}
+
+	private final int failureThreshold;
+
+	private final long openMillis;
+
+	private final long timeoutMillis;
+
+	private State state = State.CLOSED;
+
+	private int failures;
+
+	private long openedAt;
+
+	public CircuitBreaker(int failureThreshold, long openMillis, long timeoutMillis) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openMillis = openMillis;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Calls the upstream through the breaker.
+	 *
+	 * @param call represents the upstream call.
+	 * @return The call's result. It fails with a RejectedExecutionException if the breaker is
+	 *         open, and with a TimeoutException if the upstream takes longer than the timeout.
+	 */
+
+	public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> call) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		if (!allowRequest()) {
+			result.completeExceptionally(new RejectedExecutionException("Circuit breaker is open"));
+			return result;
+		}
+
+		CompletableFuture<T> upstream;
+		try {
+			upstream = call.get();
+		} catch (RuntimeException e) {
+			upstream = new CompletableFuture<T>();
+			upstream.completeExceptionally(e);
+		}
+		if (upstream == null) {
+			upstream = new CompletableFuture<T>();
+			upstream.completeExceptionally(new NullPointerException("The upstream call returned no result"));
+		}
+
+		//The timeout is completed from the common pool, so the caller's fallback never runs on the timer thread
+		ScheduledFuture<?> timeout = timeoutMillis <= 0 ? null : TIMER.schedule(
+				() -> ForkJoinPool.commonPool().execute(
+						() -> result.completeExceptionally(new TimeoutException("No answer within " + timeoutMillis + " ms"))),
+				timeoutMillis, TimeUnit.MILLISECONDS);
+		upstream.whenComplete((value, error) -> {
+			if (timeout != null) {
+				timeout.cancel(false);
+			}
+			if (error == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(error);
+			}
+		});
+		//Whichever completes first, the answer or the timeout, decides how the call is counted
+		return result.whenComplete((value, error) -> {
+			if (error == null) {
+				recordSuccess();
+			} else {
+				recordFailure();
+			}
+		});
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	private synchronized boolean allowRequest() {
+		if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+			state = State.HALF_OPEN;
+			return true;
+		}
+		return state == State.CLOSED;
+	}
+
+	private synchronized void recordSuccess() {
+		failures = 0;
+		state = State.CLOSED;
+	}
+
+	private synchronized void recordFailure() {
+		failures++;
+		if (state == State.HALF_OPEN || failures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.currentTimeMillis();
+		}
+	}
+
+}
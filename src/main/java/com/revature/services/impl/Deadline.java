@@ -0,0 +1,123 @@
+package com.revature.services.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Deadline is the time budget of one request. Each step the request waits on is raced
+ * against it, and a step still pending when it expires is answered by its fallback, what is
+ * known without waiting. The step itself isn't cancelled, it may be shared with other
+ * requests. Once any fallback was used the request's answer is partial.
+ *
+ */
+
+public final class Deadline {
+
+	public static final Deadline NONE = new Deadline(0);
+
+	//Only starts fallbacks, so one thread serves every deadline
+	private static final ScheduledExecutorService TIMER;
+
+	static {
+		CustomizableThreadFactory threads = new CustomizableThreadFactory("deadline-timer-");
+		threads.setDaemon(true);
+		TIMER = Executors.newSingleThreadScheduledExecutor(threads);
+	}
+
+	//System.nanoTime() at which it expires, unused by NONE
+	private final long expiresAt;
+
+	//Fallbacks that answered, counted before their answer is seen so stages depending on it find the deadline hit
+	private final AtomicInteger hits = new AtomicInteger();
+
+	private Deadline(long expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	/**
+	 * @param millis represents the budget from now, 0 or less for none.
+	 * @return The deadline.
+	 */
+
+	public static Deadline in(long millis) {
+		return millis <= 0 ? NONE : new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+
+	/**
+	 * @return A deadline that is expired already, every step raced against it is answered by its fallback.
+	 */
+
+	public static Deadline expired() {
+		return new Deadline(System.nanoTime());
+	}
+
+	public boolean isExpired() {
+		return this != NONE && System.nanoTime() - expiresAt >= 0;
+	}
+
+	/**
+	 * True once a fallback answered for a step, so the request's answer is partial.
+	 */
+	public boolean isHit() {
+		return hits.get() > 0;
+	}
+
+	/**
+	 * Starts the step unless the deadline already expired, and answers with the fallback if the
+	 * step isn't done by then.
+	 *
+	 * @param step represents the step, only started with time left.
+	 * @param fallback represents what is known without waiting, it runs off the timer thread.
+	 * @return The step's answer, or the fallback's.
+	 */
+
+	public <T> CompletableFuture<T> race(Supplier<CompletableFuture<T>> step, Supplier<T> fallback) {
+		if (this == NONE) {
+			return step.get();
+		}
+		if (isExpired()) {
+			T known = fallback.get();
+			hits.incrementAndGet();
+			return CompletableFuture.completedFuture(known);
+		}
+
+		CompletableFuture<T> pending = step.get();
+		if (pending.isDone()) {
+			return pending;
+		}
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		ScheduledFuture<?> expiry = TIMER.schedule(() -> ForkJoinPool.commonPool().execute(() -> {
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				T known = fallback.get();
+				hits.incrementAndGet();
+				//The step finished while the fallback ran, its answer is the one seen
+				if (!result.complete(known)) {
+					hits.decrementAndGet();
+				}
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}), expiresAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+		pending.whenComplete((value, error) -> {
+			expiry.cancel(false);
+			if (error == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(error);
+			}
+		});
+		return result;
+	}
+
+}
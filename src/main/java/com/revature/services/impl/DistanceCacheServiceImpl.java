@@ -0,0 +1,303 @@
+package com.revature.services.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.revature.beans.DistanceCacheEntry;
+import com.revature.beans.UnroutableAddress;
+import com.revature.beans.Waypoint;
+import com.revature.repositories.DistanceCacheRepository;
+import com.revature.repositories.UnroutableAddressRepository;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+
+/**
+ * DistanceCacheServiceImpl keeps driving distances between normalized addresses in the
+ * distance_cache table, so that repeat recommendations for a stable roster don't need
+ * the DistanceProvider. Entries older than distance.cache.ttl-hours are refetched.
+ *
+ * Addresses the provider couldn't route are kept in the unroutable_addresses table, so they
+ * stop costing matrix elements. Each failure in a row doubles the time before the address is
+ * tried again, from distance.unroutable.retry-hours up to max-retry-hours.
+ *
+ */
+
+@Service
+public class DistanceCacheServiceImpl implements DistanceCacheService {
+
+	private static final Logger LOGGER = LogManager.getLogger(DistanceCacheServiceImpl.class);
+
+	@Autowired
+	private DistanceCacheRepository dcr;
+
+	@Autowired
+	private UnroutableAddressRepository uar;
+
+	@Value("${distance.cache.ttl-hours:720}")
+	private long ttlHours;
+
+	@Value("${distance.unroutable.retry-hours:24}")
+	private long retryHours = 24;
+
+	@Value("${distance.unroutable.max-retry-hours:720}")
+	private long maxRetryHours = 720;
+
+	/**
+	 * Fetches every cached pair between the origins and the destinations in one query.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @return The distances in meters, MISSING where there is no fresh entry.
+	 */
+
+	@Override
+	public long[][] lookup(Waypoint[] origins, Waypoint[] destinations) {
+		return lookup(origins, destinations, System.currentTimeMillis() - TimeUnit.HOURS.toMillis(ttlHours));
+	}
+
+	/**
+	 * Fetches every cached pair however old it is, for when the DistanceProvider is unavailable
+	 * and an outdated distance is better than none.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @return The distances in meters, MISSING where there is no entry at all.
+	 */
+
+	@Override
+	public long[][] lookupStale(Waypoint[] origins, Waypoint[] destinations) {
+		return lookup(origins, destinations, Long.MIN_VALUE);
+	}
+
+	private long[][] lookup(Waypoint[] origins, Waypoint[] destinations, long oldest) {
+		String[] originKeys = keys(origins);
+		String[] destinationKeys = keys(destinations);
+
+		long[][] distances = new long[origins.length][destinations.length];
+		for (long[] row : distances) {
+			Arrays.fill(row, MISSING);
+		}
+
+		Map<String, Long> cached = new HashMap<String, Long>();
+		for (DistanceCacheEntry entry : dcr.getEntries(new LinkedHashSet<String>(Arrays.asList(originKeys)),
+				new LinkedHashSet<String>(Arrays.asList(destinationKeys)))) {
+			if (entry.getUpdatedAt() != null && entry.getUpdatedAt().getTime() >= oldest) {
+				cached.put(pairKey(entry.getOriginKey(), entry.getDestinationKey()), entry.getMeters());
+			}
+		}
+
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				Long meters = cached.get(pairKey(originKeys[i], destinationKeys[j]));
+				if (meters != null) {
+					distances[i][j] = meters;
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Writes freshly fetched distances through to the cache, refreshing any expired entries.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @param distances represents the distances returned by the provider.
+	 */
+
+	@Override
+	public void store(Waypoint[] origins, Waypoint[] destinations, long[][] distances) {
+		String[] originKeys = keys(origins);
+		String[] destinationKeys = keys(destinations);
+		storeUnroutable(originKeys, destinationKeys, distances);
+
+		Map<String, DistanceCacheEntry> existing = new HashMap<String, DistanceCacheEntry>();
+		for (DistanceCacheEntry entry : dcr.getEntries(new LinkedHashSet<String>(Arrays.asList(originKeys)),
+				new LinkedHashSet<String>(Arrays.asList(destinationKeys)))) {
+			existing.put(pairKey(entry.getOriginKey(), entry.getDestinationKey()), entry);
+		}
+
+		Date now = new Date();
+		Map<String, DistanceCacheEntry> updated = new HashMap<String, DistanceCacheEntry>();
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				if (distances[i][j] < 0) {
+					continue;
+				}
+				String pair = pairKey(originKeys[i], destinationKeys[j]);
+				DistanceCacheEntry entry = existing.get(pair);
+				if (entry == null) {
+					entry = new DistanceCacheEntry(originKeys[i], destinationKeys[j], distances[i][j], now);
+				} else {
+					entry.setMeters(distances[i][j]);
+					entry.setUpdatedAt(now);
+				}
+				updated.put(pair, entry);
+			}
+		}
+
+		if (updated.isEmpty()) {
+			return;
+		}
+		//The cache is only an optimization, a concurrent insert of the same pair shouldn't fail the recommendation
+		try {
+			dcr.saveAll(new ArrayList<DistanceCacheEntry>(updated.values()));
+		} catch (DataAccessException e) {
+			LOGGER.warn("Could not write " + updated.size() + " distances to the cache: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Finds which waypoints have an address that is flagged as unroutable and can't be
+	 * retried yet, in one query.
+	 *
+	 * @param waypoints represents the addresses to check.
+	 * @return True at the position of each flagged waypoint.
+	 */
+
+	@Override
+	public boolean[] isUnroutable(Waypoint[] waypoints) {
+		boolean[] flagged = new boolean[waypoints.length];
+		if (waypoints.length == 0) {
+			return flagged;
+		}
+		String[] keys = keys(waypoints);
+
+		Date now = new Date();
+		Set<String> unroutable = new HashSet<String>();
+		for (UnroutableAddress address : uar.getByAddressKeys(new LinkedHashSet<String>(Arrays.asList(keys)))) {
+			if (address.getRetryAfter() != null && address.getRetryAfter().after(now)) {
+				unroutable.add(address.getAddressKey());
+			}
+		}
+
+		for (int i = 0; i < keys.length; i++) {
+			flagged[i] = unroutable.contains(keys[i]);
+		}
+		return flagged;
+	}
+
+	/**
+	 * Finds every address that is flagged as unroutable and can't be retried yet.
+	 *
+	 * @return The flagged addresses, by address.
+	 */
+
+	@Override
+	public List<UnroutableAddress> getUnroutable() {
+		return uar.getFlagged(new Date());
+	}
+
+	//An origin whose whole row is unreachable while other rows reach something couldn't be routed, and the
+	//same goes for a destination's column. Without any reachable element there is no telling which address is at fault.
+	//Addresses that were reached are cleared, so a corrected address is used again once it has been retried.
+	private void storeUnroutable(String[] originKeys, String[] destinationKeys, long[][] distances) {
+		boolean[] rowReached = new boolean[originKeys.length];
+		boolean[] columnReached = new boolean[destinationKeys.length];
+		boolean anyReached = false;
+		for (int i = 0; i < originKeys.length; i++) {
+			for (int j = 0; j < destinationKeys.length; j++) {
+				if (distances[i][j] != DistanceProvider.UNREACHABLE) {
+					rowReached[i] = true;
+					columnReached[j] = true;
+					anyReached = true;
+				}
+			}
+		}
+		if (!anyReached) {
+			return;
+		}
+
+		Set<String> reached = new HashSet<String>();
+		Set<String> unreached = new LinkedHashSet<String>();
+		for (int i = 0; i < originKeys.length; i++) {
+			(rowReached[i] ? reached : unreached).add(originKeys[i]);
+		}
+		for (int j = 0; j < destinationKeys.length; j++) {
+			(columnReached[j] ? reached : unreached).add(destinationKeys[j]);
+		}
+		//An address that was routed as an origin or a destination can be routed
+		unreached.removeAll(reached);
+
+		Set<String> keys = new LinkedHashSet<String>(reached);
+		keys.addAll(unreached);
+		Map<String, UnroutableAddress> existing = new HashMap<String, UnroutableAddress>();
+		for (UnroutableAddress address : uar.getByAddressKeys(keys)) {
+			existing.put(address.getAddressKey(), address);
+		}
+
+		List<UnroutableAddress> cleared = new ArrayList<UnroutableAddress>();
+		for (String key : reached) {
+			if (existing.containsKey(key)) {
+				cleared.add(existing.get(key));
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		List<UnroutableAddress> flagged = new ArrayList<UnroutableAddress>();
+		for (String key : unreached) {
+			UnroutableAddress address = existing.get(key);
+			if (address == null) {
+				address = new UnroutableAddress(key, 0, null);
+			}
+			address.setFailures(address.getFailures() + 1);
+			long hours = Math.min(maxRetryHours, retryHours << Math.min(address.getFailures() - 1, 20));
+			address.setRetryAfter(new Date(now + TimeUnit.HOURS.toMillis(hours)));
+			flagged.add(address);
+		}
+
+		//Like the cache, a concurrent write of the same address shouldn't fail the recommendation
+		try {
+			if (!cleared.isEmpty()) {
+				uar.deleteAll(cleared);
+			}
+			if (!flagged.isEmpty()) {
+				uar.saveAll(flagged);
+				LOGGER.warn("Flagged " + flagged.size() + " unroutable addresses: " + unreached);
+			}
+		} catch (DataAccessException e) {
+			LOGGER.warn("Could not write " + flagged.size() + " unroutable addresses: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Normalizes an address so that differences in case, spacing, abbreviations and zip
+	 * share a cache entry.
+	 *
+	 * @param address represents the address as sent to the provider.
+	 * @return The cache key for the address, see {@link AddressCanonicalizer}.
+	 */
+
+	@Override
+	public String normalize(String address) {
+		return AddressCanonicalizer.canonical(address);
+	}
+
+	private String[] keys(Waypoint[] waypoints) {
+		String[] keys = new String[waypoints.length];
+		for (int i = 0; i < waypoints.length; i++) {
+			keys[i] = normalize(waypoints[i].getAddress());
+		}
+		return keys;
+	}
+
+	private static String pairKey(String originKey, String destinationKey) {
+		return originKey + '\n' + destinationKey;
+	}
+
+}
@@ -1,126 +1,887 @@
 package com.revature.services.impl;
 
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.stream.IntStream;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
-import com.google.maps.DistanceMatrixApi;
-import com.google.maps.DistanceMatrixApiRequest;
-import com.google.maps.GeoApiContext;
 import com.google.maps.errors.ApiException;
-import com.google.maps.model.DistanceMatrix;
-import com.google.maps.model.TravelMode;
-import com.google.maps.model.Unit;
+import com.revature.beans.RecommendedDrivers;
+import com.revature.beans.UnroutableAddress;
 import com.revature.beans.User;
+import com.revature.beans.Waypoint;
+import com.revature.services.BatchMatrixService;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
 import com.revature.services.DistanceService;
+import com.revature.services.DriverIndexService;
+import com.revature.services.TravelTimeService;
 import com.revature.services.UserService;
 
 @Service
 public class DistanceServiceImpl implements DistanceService {
 
+	private static final Logger LOGGER = LogManager.getLogger(DistanceServiceImpl.class);
+
 	@Autowired
 	private UserService us;
 	
+	//Whichever engine distance.provider selects, Google by default
+	@Autowired
+	private DistanceProvider provider;
+	
+	@Autowired
+	private DistanceCacheService dcs;
+	
+	@Autowired
+	private DriverIndexService dis;
+	
+	@Autowired
+	private ZipGazetteer gazetteer;
+	
+	@Autowired
+	private BatchMatrixService bms;
+	
+	@Autowired
+	private TravelTimeService tts;
+	
+	//How many multiples of the requested count survive the straight-line pre-filter, 0 disables it
+	@Value("${distance.prefilter.multiplier:3}")
+	private int preFilterMultiplier;
+	
+	//Provider calls go through a circuit breaker, consecutive failures or timeouts open it for a while
+	@Value("${distance.breaker.failure-threshold:5}")
+	private int breakerFailureThreshold = 5;
+	
+	@Value("${distance.breaker.open-seconds:30}")
+	private long breakerOpenSeconds = 30;
+	
+	@Value("${distance.breaker.timeout-ms:3000}")
+	private long providerTimeoutMs = 3000;
+	
+	//Roads are longer than straight lines, so straight-line estimates are stretched by this factor
+	@Value("${distance.fallback.road-factor:1.3}")
+	private double roadFactor = 1.3;
+	
+	//Answers every miss with the fallback estimate and never calls the provider
+	@Value("${distance.approximate:false}")
+	private boolean approximate;
+	
+	//Riders of batches up to max-drivers keep their ranking in memory, see RiderRankings
+	@Value("${distance.ranking.enabled:true}")
+	private boolean rankingEnabled = true;
+	
+	@Value("${distance.ranking.max-drivers:200}")
+	private int rankingMaxDrivers = 200;
+	
+	@Value("${distance.ranking.max-riders:10000}")
+	private int rankingMaxRiders = 10000;
+	
+	private RiderRankings rankings;
+	
+	//distance ranks drivers by the meters they add, duration by the seconds they add in traffic at the departure time,
+	//read from the cached travel times, see TravelTimeServiceImpl
+	@Value("${distance.ranking.mode:distance}")
+	private String rankingMode = "distance";
+	
+	@Value("${distance.duration.departure:08:30}")
+	private String departureTime = "08:30";
+	
+	//Pairs without a cached time yet are timed at this speed, about 40 km/h
+	@Value("${distance.duration.fallback-speed-mps:11}")
+	private double fallbackSpeedMps = 11;
+	
+	//Riders of one batch asking within window-ms share one fetch of the drivers to their homes, 0 sends each alone
+	@Value("${distance.micro-batch.window-ms:20}")
+	private long pickupWindowMs = 20;
+	
+	@Value("${distance.micro-batch.max-riders:25}")
+	private int pickupMaxRiders = 25;
+	
+	//Windows that close on time are fetched on these threads, as the fetch reads the cache first
+	@Value("${distance.micro-batch.threads:4}")
+	private int pickupThreads = 4;
+	
+	//Time budget of a recommendation, past it the rider gets the ranking from what is known so far, flagged partial; 0 waits for every distance
+	@Value("${distance.deadline-ms:0}")
+	private long deadlineMs = 0;
+	
+	//Built from the settings above once they are injected, see start
+	private MicroBatcher<Integer, Pickup, Distances> pickups;
+	
+	private ExecutorService pickupSenders;
+	
+	//Saved and deleted users are applied to the rankings one at a time, off the thread that wrote them
+	private ExecutorService rankingUpdates = Executors.newSingleThreadExecutor(daemonThreads("ranking-updates-"));
+	
+	private CircuitBreaker breaker;
+	
+	//Drivers' rows being fetched, keyed by batch, roster version and workplace
+	private final SingleFlight<String, DriverRows> driverRowFlights = new SingleFlight<String, DriverRows>();
+	
+	
+	//API key from the environment variables, resolved once at startup
+	@Value("${googleMapAPIKey:#{null}}")
+	private String googleMapAPIKey;
 	
-	//Grabs API key from environment variables
 	public String getGoogleMAPKey() {
-        Map<String, String> env = System.getenv();
-        for (Map.Entry <String, String> entry: env.entrySet()) {
-            if(entry.getKey().equals("googleMapAPIKey")) {
-                return entry.getValue();
-            }
-        }
-        return null;
-    }
+		return googleMapAPIKey;
+	}
+	
+	@PostConstruct
+	public void start() {
+		breaker = new CircuitBreaker(breakerFailureThreshold, TimeUnit.SECONDS.toMillis(breakerOpenSeconds), providerTimeoutMs);
+		rankings = new RiderRankings(rankingMaxRiders);
+		if (pickupSenders != null) {
+			pickupSenders.shutdown();
+		}
+		pickupSenders = Executors.newFixedThreadPool(Math.max(1, pickupThreads), daemonThreads("pickup-fetch-"));
+		pickups = new MicroBatcher<Integer, Pickup, Distances>(pickupWindowMs, pickupMaxRiders, pickupSenders, this::fetchPickups);
+	}
+	
+	@PreDestroy
+	public void stop() {
+		pickupSenders.shutdown();
+		rankingUpdates.shutdown();
+	}
+	
+	private static CustomizableThreadFactory daemonThreads(String prefix) {
+		CustomizableThreadFactory threads = new CustomizableThreadFactory(prefix);
+		threads.setDaemon(true);
+		return threads;
+	}
 	
 	@Override
 	//Returns a list of users sorted by distance they would need to add to their commute to pick up the rider
 	//Currently works under the assumption that they will work in the same building, but does not explicitly exclude drivers who don't
-	public List<User> recommendDrivers(User rider, int recCount){
+	//Waits for the same computation as recommendDriversAsync, so it shares the drivers' rows with concurrent callers too
+	public RecommendedDrivers recommendDrivers(User rider, int recCount){
 		
-		List<User> activeDrivers = getBatchActiveDrivers(rider);
-
-		String[] destinations = initDestinations(rider);
-		String[] origins = initOrigins(rider, activeDrivers);
+		try {
+			return recommendDriversAsync(rider, recCount).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return knownRecommendation(rider, recCount, e);
+		} catch (ExecutionException e) {
+			return knownRecommendation(rider, recCount, e.getCause());
+		}
+	}
+	
+	@Override
+	//Same recommendation as recommendDrivers, but no thread waits while the provider is working
+	//A rider whose ranking is still current is answered from memory without any distance lookup
+	//Otherwise the distances from the batch's drivers to the rider's work are shared with every rider of the batch asking at the same time,
+	//only the distances from the drivers to the rider's home and the rider's own commute are fetched for this rider
+	public CompletableFuture<RecommendedDrivers> recommendDriversAsync(User rider, int recCount){
 		
-		//List of the calculated ((DriverToRider+RiderToWork) - DriverToWork) aka added distances
-		List<Double> calcDistances = new ArrayList<Double>();
+		return recommendDriversAsync(rider, recCount, deadlineMs);
+	}
+	
+	@Override
+	//Each step the rider waits on is raced against the deadline, a step still pending then is answered from the cache and estimates,
+	//and keeps going for the next request, as it may be shared with other riders
+	public CompletableFuture<RecommendedDrivers> recommendDriversAsync(User rider, int recCount, long deadlineMs){
+		
+		Deadline deadline = Deadline.in(deadlineMs);
+		CompletableFuture<RecommendedDrivers> recommended;
 		try {
-			calcDistances = calculateDriverDistances(origins, destinations);
-		} catch (Exception e) {
-			e.printStackTrace();
+			int batchNumber = rider.getBatch().getBatchNumber();
+			//Read before the drivers, so a ranking built while the roster changes is never taken as current
+			long version = dis.getRosterVersion(batchNumber);
+			RiderRankings.Ranking ranking = rankings.get(rider.getUserId());
+			if (ranking != null && ranking.isCurrent(riderKey(rider), batchNumber, version)
+					&& ranking.covers(recCount, recCount * preFilterMultiplier)) {
+				return CompletableFuture.completedFuture(new RecommendedDrivers(ranking.top(recCount), false));
+			}
+			Waypoint work = workOf(rider);
+			recommended = deadline.race(() -> driverRows(batchNumber, version, work), () -> knownRows(batchNumber, work))
+					.thenCompose(rows -> recommendFromRows(rider, rows, recCount, version, deadline))
+					.thenApply(drivers -> {
+						drivers.setPartial(deadline.isHit());
+						return drivers;
+					});
+		} catch (RuntimeException e) {
+			recommended = new CompletableFuture<RecommendedDrivers>();
+			recommended.completeExceptionally(e);
+		}
+		
+		return recommended.exceptionally(e -> knownRecommendation(rider, recCount, e));
+	}
+	
+	//After the recommendation failed, the rider is ranked from the cache and estimates alone, flagged degraded
+	private RecommendedDrivers knownRecommendation(User rider, int recCount, Throwable failure) {
+		
+		LOGGER.warn("Could not recommend drivers for user " + rider.getUserId() + ", ranking from known distances", failure);
+		RecommendedDrivers known;
+		try {
+			int batchNumber = rider.getBatch().getBatchNumber();
+			//Already expired, so nothing is fetched and the ranking isn't kept
+			known = recommendFromRows(rider, knownRows(batchNumber, workOf(rider)), recCount, dis.getRosterVersion(batchNumber), Deadline.expired())
+					.join();
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not rank drivers from known distances for user " + rider.getUserId(), e);
+			known = new RecommendedDrivers();
+		}
+		known.setDegraded(true);
+		return known;
+	}
+	
+	//Ranks the rider's pre-filtered drivers, with their distance to work taken from the shared rows
+	//A kept ranking covers the same pre-filtered drivers, and is rebuilt once drivers leaving leave it short
+	//Rankings by duration aren't kept, the traffic they were ranked in changes through the day
+	private CompletableFuture<RecommendedDrivers> recommendFromRows(User rider, DriverRows rows, int recCount, long version, Deadline deadline) {
+		
+		List<User> batchDrivers = excluding(rows.drivers, rider);
+		boolean byDuration = "duration".equalsIgnoreCase(rankingMode);
+		boolean kept = rankingEnabled && !byDuration && batchDrivers.size() <= rankingMaxDrivers;
+		//By id, so drivers tied on their detour rank the way they do in RiderRankings
+		List<User> activeDrivers = new ArrayList<User>(preFilterDrivers(rider, batchDrivers, recCount));
+		activeDrivers.sort(Comparator.comparingInt(User::getUserId));
+		if (activeDrivers.isEmpty()) {
+			return CompletableFuture.completedFuture(new RecommendedDrivers(activeDrivers, rows.degraded));
 		}
 		
-		//Mapping function below requires a final list/array 
-		final List<Double> finCalcDistances = calcDistances;
+		Waypoint[] home = {homeOf(rider)};
+		Waypoint[] work = {workOf(rider)};
+		Waypoint[] driverHomes = new Waypoint[activeDrivers.size()];
+		for (int i = 0; i < driverHomes.length; i++) {
+			driverHomes[i] = homeOf(activeDrivers.get(i));
+		}
 		
-		//This creates a new array, where sortedIndices[0] contains the index of the distance(and user) with shortest distance
-		int[] sortedIndices = IntStream.range(0, finCalcDistances.size())
-						.boxed().sorted((i,j) -> finCalcDistances.get(i).compareTo(finCalcDistances.get(j)))
-						.mapToInt(ele -> ele).toArray();
+		//The rider's stored commute saves a call, only the drivers to the rider's home are left to fetch,
+		//together with the other riders of the batch asking at the same time
+		CompletableFuture<Distances> toHome = deadline.race(() -> pickups.submit(rider.getBatch().getBatchNumber(), new Pickup(driverHomes, home[0])),
+				() -> knownDistances(driverHomes, home));
+		CompletableFuture<Distances> commute = rider.getCommuteMeters() != null
+				? CompletableFuture.completedFuture(new Distances(new long[][] {{rider.getCommuteMeters()}}, false))
+				: deadline.race(() -> fetchDistances(home, work), () -> knownDistances(home, work));
+		return toHome.thenCombine(commute, (DtoR, RtoW) -> {
+			//Laid out like initOrigins by initDestinations, the rider's row first
+			long[][] matrix = new long[activeDrivers.size() + 1][2];
+			matrix[0][1] = RtoW.matrix[0][0];
+			for (int i = 0; i < activeDrivers.size(); i++) {
+				matrix[i + 1][0] = DtoR.matrix[i][0];
+				matrix[i + 1][1] = rows.toWork(activeDrivers.get(i));
+			}
+			double[] detours = calculateDriverDistances(byDuration ? inTraffic(matrix, home[0], work[0], driverHomes) : matrix);
+			boolean degraded = rows.degraded || DtoR.degraded || RtoW.degraded;
+			//Estimates and partial rankings aren't kept, the next request asks the provider again
+			if (kept && !degraded && !deadline.isHit()) {
+				int keep = activeDrivers.size() == batchDrivers.size() ? 0 : recCount * preFilterMultiplier;
+				rankings.put(new RiderRankings.Ranking(rider.getUserId(), rider.getBatch().getBatchNumber(), riderKey(rider), home[0],
+						work[0], matrix[0][1], version, activeDrivers, detours, keep));
+			}
+			return rankDrivers(activeDrivers, detours, recCount, degraded);
+		});
+	}
+	
+	//Turns the rider's matrix into seconds in traffic at today's departure time, laid out the same way
+	//Only cached times are read, a pair not cached yet is timed from its meters at the fallback speed until the refresh fetches it
+	private long[][] inTraffic(long[][] matrix, Waypoint home, Waypoint work, Waypoint[] driverHomes) {
 		
-		//Catches index out of bounds and returns as many as it can recommend
-		if (activeDrivers.size() < recCount) {
-			recCount = activeDrivers.size();
+		Waypoint[] origins = new Waypoint[driverHomes.length + 1];
+		origins[0] = home;
+		System.arraycopy(driverHomes, 0, origins, 1, driverHomes.length);
+		long[][] cached = null;
+		try {
+			Date departure = Date.from(LocalDate.now().atTime(LocalTime.parse(departureTime)).atZone(ZoneId.systemDefault()).toInstant());
+			cached = tts.lookup(origins, new Waypoint[] {home, work}, departure);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Could not read the cached travel times, timing every pair at the fallback speed", e);
 		}
 		
+		long[][] seconds = new long[matrix.length][2];
+		for (int i = 0; i < matrix.length; i++) {
+			for (int j = 0; j < 2; j++) {
+				if (matrix[i][j] == DistanceProvider.UNREACHABLE) {
+					seconds[i][j] = DistanceProvider.UNREACHABLE;
+				} else if (cached != null && cached[i][j] >= 0) {
+					seconds[i][j] = cached[i][j];
+				} else {
+					seconds[i][j] = Math.round(matrix[i][j] / fallbackSpeedMps);
+				}
+			}
+		}
+		return seconds;
+	}
+	
+	@Override
+	//Applies a saved user to the kept rankings: a driver leaving is removed, a driver whose route didn't change is swapped in place,
+	//and a driver joining or moving is scored for every rider of their batch from one matrix row
+	//Every roster change goes through here, so the rankings are moved to the batch's new roster version as they are changed,
+	//and a new address is added to the batch's distance matrix
+	//Applied in the background, in the order users were written, so the save never waits on the rankings; meanwhile the rankings
+	//of the batch are behind its roster version, and aren't taken as current
+	public void userSaved(User user, Map<Integer, Long> versions) {
+		rankingUpdates.execute(() -> {
+			try {
+				applySaved(user, versions);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not apply the save of user " + user.getUserId() + " to the rankings", e);
+			}
+		});
+	}
+	
+	private void applySaved(User user, Map<Integer, Long> versions) {
+		bms.userSaved(user);
+		boolean candidate = user.isDriver() && user.isActive() && user.isAcceptingRides() && user.getBatch() != null
+				&& !routable(Collections.singletonList(user)).isEmpty();
+		int batchNumber = user.getBatch() != null ? user.getBatch().getBatchNumber() : -1;
+		
+		List<RiderRankings.Ranking> rescored = new ArrayList<RiderRankings.Ranking>();
+		for (RiderRankings.Ranking ranking : rankings.all()) {
+			synchronized (ranking) {
+				if (!followsChange(ranking, versions)) {
+					continue;
+				}
+				Double detour = ranking.detour(user.getUserId());
+				User previous = ranking.remove(user.getUserId());
+				boolean inBatch = ranking.getBatchNumber() == batchNumber;
+				if (previous == null && !inBatch) {
+					continue;
+				}
+				if (candidate && inBatch && ranking.getRiderId() != user.getUserId()) {
+					if (previous != null && sameRoute(previous, user)) {
+						ranking.put(user, detour);
+					} else {
+						ranking.startFetch();
+						rescored.add(ranking);
+					}
+				}
+				stamp(ranking, versions);
+			}
+		}
+		if (!rescored.isEmpty()) {
+			rescore(user, rescored);
+		}
+	}
+	
+	@Override
+	//A deleted user is taken out of every kept ranking, and their own ranking is dropped
+	public void userDeleted(int userId, Map<Integer, Long> versions) {
+		rankingUpdates.execute(() -> {
+			try {
+				applyDeleted(userId, versions);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not apply the deletion of user " + userId + " to the rankings", e);
+			}
+		});
+	}
+	
+	private void applyDeleted(int userId, Map<Integer, Long> versions) {
+		rankings.remove(userId);
+		for (RiderRankings.Ranking ranking : rankings.all()) {
+			synchronized (ranking) {
+				if (followsChange(ranking, versions) && ranking.remove(userId) != null) {
+					stamp(ranking, versions);
+				}
+			}
+		}
+	}
+	
+	//A ranking built from a roster that already had the change in it has nothing to follow
+	private static boolean followsChange(RiderRankings.Ranking ranking, Map<Integer, Long> versions) {
+		Long version = versions.get(ranking.getBatchNumber());
+		return version == null || ranking.getVersion() < version;
+	}
+	
+	//Moved to the version the change gave its batch, never the batch's latest, as later changes may still be queued
+	private static void stamp(RiderRankings.Ranking ranking, Map<Integer, Long> versions) {
+		Long version = versions.get(ranking.getBatchNumber());
+		if (version != null) {
+			ranking.setVersion(version);
+		}
+	}
+	
+	//One row: the driver's home to each rider's home, and to each rider's work unless the driver's stored commute already goes there
+	private void rescore(User driver, List<RiderRankings.Ranking> rescored) {
+		Map<String, Integer> columns = new LinkedHashMap<String, Integer>();
+		List<Waypoint> destinations = new ArrayList<Waypoint>();
+		int[][] cells = new int[rescored.size()][];
+		for (int r = 0; r < cells.length; r++) {
+			RiderRankings.Ranking ranking = rescored.get(r);
+			cells[r] = new int[] {indexOf(ranking.getHome(), columns, destinations),
+					storedDistanceToWork(driver, ranking.getWork()) == null ? indexOf(ranking.getWork(), columns, destinations) : -1};
+		}
+		
+		CompletableFuture<Distances> row;
+		try {
+			row = fetchDistances(new Waypoint[] {homeOf(driver)}, destinations.toArray(new Waypoint[destinations.size()]));
+		} catch (RuntimeException e) {
+			row = new CompletableFuture<Distances>();
+			row.completeExceptionally(e);
+		}
+		row.whenComplete((distances, e) -> {
+			for (int r = 0; r < cells.length; r++) {
+				RiderRankings.Ranking ranking = rescored.get(r);
+				synchronized (ranking) {
+					ranking.endFetch();
+					if (e != null || distances.degraded) {
+						//Rebuilt from scratch on the rider's next request
+						rankings.remove(ranking.getRiderId());
+						continue;
+					}
+					long DtoR = distances.matrix[0][cells[r][0]];
+					Long stored = storedDistanceToWork(driver, ranking.getWork());
+					long DtoW = stored != null ? stored : distances.matrix[0][cells[r][1]];
+					ranking.put(driver, detour(DtoR, ranking.getRiderToWork(), DtoW));
+				}
+			}
+		});
+	}
+	
+	//The same added distance calculateDriverDistances gives
+	private static double detour(long DtoR, long RtoW, long DtoW) {
+		if (RtoW == DistanceProvider.UNREACHABLE || DtoR == DistanceProvider.UNREACHABLE || DtoW == DistanceProvider.UNREACHABLE) {
+			return UNREACHABLE_DETOUR;
+		}
+		return DtoR + RtoW - DtoW;
+	}
+	
+	//A ranking depends on the rider's addresses and commute, and is rebuilt when any of them changes
+	private String riderKey(User rider) {
+		return AddressCanonicalizer.canonical(homeOf(rider).getAddress()) + "\n" + AddressCanonicalizer.canonical(workOf(rider).getAddress())
+				+ "\n" + rider.getCommuteMeters();
+	}
+	
+	//A driver's added distance only depends on their home, their workplace and their stored commute
+	private boolean sameRoute(User driver, User other) {
+		return AddressCanonicalizer.canonical(homeOf(driver).getAddress()).equals(AddressCanonicalizer.canonical(homeOf(other).getAddress()))
+				&& AddressCanonicalizer.canonical(workOf(driver).getAddress()).equals(AddressCanonicalizer.canonical(workOf(other).getAddress()))
+				&& Objects.equals(driver.getCommuteMeters(), other.getCommuteMeters());
+	}
+	
+	//Distances from every driver of the batch to one workplace, computed once however many riders ask while it is in flight
+	//Keyed by the roster version, so a change to the batch's drivers never joins a computation for the old roster
+	//Drivers whose stored commute goes to this workplace already know their distance and aren't fetched
+	private CompletableFuture<DriverRows> driverRows(int batchNumber, long version, Waypoint work) {
+		
+		String key = batchNumber + "\n" + version + "\n" + dcs.normalize(work.getAddress());
+		return driverRowFlights.run(key, () -> driverRows(batchNumber, work, this::fetchDistances));
+	}
+	
+	//The batch's drivers past the deadline, with whatever distances to the workplace are known without the provider
+	private DriverRows knownRows(int batchNumber, Waypoint work) {
+		
+		return driverRows(batchNumber, work, (homes, works) -> CompletableFuture.completedFuture(knownDistances(homes, works))).join();
+	}
+	
+	private CompletableFuture<DriverRows> driverRows(int batchNumber, Waypoint work,
+			BiFunction<Waypoint[], Waypoint[], CompletableFuture<Distances>> fetch) {
+		
+		List<User> drivers = getRoutableDrivers(batchNumber);
+		List<User> unknown = new ArrayList<User>();
+		for (User driver : drivers) {
+			if (storedDistanceToWork(driver, work) == null) {
+				unknown.add(driver);
+			}
+		}
+		if (unknown.isEmpty()) {
+			return CompletableFuture.completedFuture(new DriverRows(drivers, unknown, new Distances(new long[0][1], false)));
+		}
+		Waypoint[] homes = new Waypoint[unknown.size()];
+		for (int i = 0; i < homes.length; i++) {
+			homes[i] = homeOf(unknown.get(i));
+		}
+		return fetch.apply(homes, new Waypoint[] {work}).thenApply(distances -> new DriverRows(drivers, unknown, distances));
+	}
+	
+	//One matrix for every rider in the window: the drivers any of them considers are the rows, their homes the columns,
+	//and each rider gets back the column of their own home in the rows of their own drivers
+	private CompletableFuture<List<Distances>> fetchPickups(List<Pickup> waiting) {
+		
+		if (waiting.size() == 1) {
+			Pickup pickup = waiting.get(0);
+			return fetchDistances(pickup.driverHomes, new Waypoint[] {pickup.home}).thenApply(Collections::singletonList);
+		}
+		Map<String, Integer> rows = new HashMap<String, Integer>();
+		List<Waypoint> origins = new ArrayList<Waypoint>();
+		Map<String, Integer> columns = new HashMap<String, Integer>();
+		List<Waypoint> destinations = new ArrayList<Waypoint>();
+		int[][] driverRows = new int[waiting.size()][];
+		int[] homeColumns = new int[waiting.size()];
+		for (int p = 0; p < waiting.size(); p++) {
+			Pickup pickup = waiting.get(p);
+			driverRows[p] = new int[pickup.driverHomes.length];
+			for (int i = 0; i < pickup.driverHomes.length; i++) {
+				driverRows[p][i] = indexOf(pickup.driverHomes[i], rows, origins);
+			}
+			homeColumns[p] = indexOf(pickup.home, columns, destinations);
+		}
+		
+		return fetchDistances(origins.toArray(new Waypoint[origins.size()]), destinations.toArray(new Waypoint[destinations.size()]))
+				.thenApply(distances -> {
+					List<Distances> slices = new ArrayList<Distances>();
+					for (int p = 0; p < driverRows.length; p++) {
+						long[][] slice = new long[driverRows[p].length][1];
+						for (int i = 0; i < slice.length; i++) {
+							slice[i][0] = distances.matrix[driverRows[p][i]][homeColumns[p]];
+						}
+						slices.add(new Distances(slice, distances.degraded));
+					}
+					return slices;
+				});
+	}
+	
+	//Returns the recCount drivers with the smallest added distance, best first
+	//Returns as many as it can recommend when there are fewer than recCount
+	private RecommendedDrivers rankDrivers(List<User> activeDrivers, double[] calcDistances, int recCount, boolean degraded) {
+		
+		//topIndices[0] contains the index of the distance(and user) with shortest distance
+		int[] topIndices = new int[Math.max(0, Math.min(recCount, calcDistances.length))];
+		int found = DriverRanker.topK(calcDistances, calcDistances.length, recCount, topIndices);
+		
 		//List to store the top n users that will be returned
-		List<User> sortedUsers = new ArrayList<User>();
-		for (int i = 0; i < recCount; i++) {
-			sortedUsers.add(activeDrivers.get(sortedIndices[i]));
+		RecommendedDrivers sortedUsers = new RecommendedDrivers();
+		for (int i = 0; i < found; i++) {
+			sortedUsers.add(activeDrivers.get(topIndices[i]));
 		}
+		sortedUsers.setDegraded(degraded);
 		
 		return sortedUsers;
 	}
 	
+	@Override
+	//Recommends drivers to many riders at once, e.g. a batch that is onboarding
+	//Riders of one batch share a single matrix: every candidate driver's home is one row, however many riders it serves,
+	//and every rider's home and work is one column, so the batch costs one set of provider calls instead of one per rider
+	public Map<Integer, RecommendedDrivers> recommendDrivers(List<User> riders, int recCount){
+		
+		Map<Integer, List<User>> ridersByBatch = new LinkedHashMap<Integer, List<User>>();
+		for (User rider : riders) {
+			ridersByBatch.computeIfAbsent(rider.getBatch().getBatchNumber(), b -> new ArrayList<User>()).add(rider);
+		}
+		
+		//Keyed by rider id, in the order the riders were given
+		Map<Integer, RecommendedDrivers> recommendations = new LinkedHashMap<Integer, RecommendedDrivers>();
+		for (User rider : riders) {
+			recommendations.put(rider.getUserId(), new RecommendedDrivers());
+		}
+		for (List<User> batchRiders : ridersByBatch.values()) {
+			recommendBatch(batchRiders, recCount, recommendations);
+		}
+		
+		return recommendations;
+	}
+	
+	//Ranks drivers for riders that are all in the same batch, from one combined matrix
+	private void recommendBatch(List<User> riders, int recCount, Map<Integer, RecommendedDrivers> recommendations) {
+		List<User> batchDrivers = getRoutableDrivers(riders.get(0).getBatch().getBatchNumber());
+		
+		List<List<User>> candidates = new ArrayList<List<User>>();
+		for (User rider : riders) {
+			List<User> others = new ArrayList<User>(batchDrivers);
+			others.remove(rider);
+			candidates.add(preFilterDrivers(rider, others, recCount));
+		}
+		
+		double[][] calcDistances;
+		boolean[] degraded = new boolean[1];
+		try {
+			calcDistances = calculateDetours(riders, candidates, degraded, this::fetchDistances);
+		} catch (Exception e) {
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			LOGGER.warn("Could not fetch the distances of " + riders.size() + " riders of batch " + riders.get(0).getBatch().getBatchNumber()
+					+ ", ranking from known distances", e);
+			try {
+				calcDistances = calculateDetours(riders, candidates, degraded,
+						(origins, destinations) -> CompletableFuture.completedFuture(knownDistances(origins, destinations)));
+			} catch (Exception known) {
+				LOGGER.error("Could not rank drivers from known distances for batch " + riders.get(0).getBatch().getBatchNumber(), known);
+				for (User rider : riders) {
+					recommendations.get(rider.getUserId()).setDegraded(true);
+				}
+				return;
+			}
+			degraded[0] = true;
+		}
+		
+		for (int r = 0; r < riders.size(); r++) {
+			RecommendedDrivers riderDrivers = recommendations.get(riders.get(r).getUserId());
+			riderDrivers.addAll(rankDrivers(candidates.get(r), calcDistances[r], recCount, degraded[0]));
+			riderDrivers.setDegraded(degraded[0]);
+		}
+	}
+	
+	@Override
+	//Added distance of each rider's candidate drivers, calcDistances[r][i] is rider r picked up by candidates.get(r).get(i)
+	//Every candidate driver's home is one row of a single matrix, however many riders it serves,
+	//and every rider's home and work is one column
+	public double[][] calculateDetours(List<User> riders, List<List<User>> candidates) throws IOException, InterruptedException, ApiException {
+		return calculateDetours(riders, candidates, new boolean[1], this::fetchDistances);
+	}
+	
+	//degraded[0] is set when some distances had to be estimated
+	private double[][] calculateDetours(List<User> riders, List<List<User>> candidates, boolean[] degraded,
+			BiFunction<Waypoint[], Waypoint[], CompletableFuture<Distances>> fetch) throws IOException, InterruptedException {
+		
+		Map<String, Integer> rows = new LinkedHashMap<String, Integer>();
+		List<Waypoint> origins = new ArrayList<Waypoint>();
+		Map<String, Integer> columns = new LinkedHashMap<String, Integer>();
+		List<Waypoint> destinations = new ArrayList<Waypoint>();
+		
+		List<int[]> candidateRows = new ArrayList<int[]>();
+		for (List<User> riderCandidates : candidates) {
+			int[] riderRows = new int[riderCandidates.size()];
+			for (int i = 0; i < riderRows.length; i++) {
+				riderRows[i] = indexOf(homeOf(riderCandidates.get(i)), rows, origins);
+			}
+			candidateRows.add(riderRows);
+		}
+		
+		//Each rider's home is a column, for the pickups. Stored commutes stand in for the rest, so the rider's work
+		//is only a column, and the rider's home only a row, when one of them is missing
+		int[][] riderCells = new int[riders.size()][];
+		for (int r = 0; r < riders.size(); r++) {
+			User rider = riders.get(r);
+			Waypoint work = workOf(rider);
+			boolean missing = rider.getCommuteMeters() == null;
+			for (User candidate : candidates.get(r)) {
+				missing |= storedDistanceToWork(candidate, work) == null;
+			}
+			riderCells[r] = new int[] {rider.getCommuteMeters() == null ? indexOf(homeOf(rider), rows, origins) : -1,
+					indexOf(homeOf(rider), columns, destinations), missing ? indexOf(work, columns, destinations) : -1};
+		}
+		
+		Distances distances = await(fetch.apply(origins.toArray(new Waypoint[origins.size()]),
+				destinations.toArray(new Waypoint[destinations.size()])));
+		long[][] matrix = distances.matrix;
+		degraded[0] = distances.degraded;
+		
+		double[][] calcDistances = new double[riders.size()][];
+		for (int r = 0; r < riders.size(); r++) {
+			User rider = riders.get(r);
+			int riderRow = riderCells[r][0];
+			int homeColumn = riderCells[r][1];
+			int workColumn = riderCells[r][2];
+			long RtoW = riderRow < 0 ? rider.getCommuteMeters() : matrix[riderRow][workColumn];
+			Waypoint work = workOf(rider);
+			
+			int[] riderRows = candidateRows.get(r);
+			calcDistances[r] = new double[riderRows.length];
+			for (int i = 0; i < riderRows.length; i++) {
+				long DtoR = matrix[riderRows[i]][homeColumn];
+				Long stored = storedDistanceToWork(candidates.get(r).get(i), work);
+				long DtoW = stored != null ? stored : matrix[riderRows[i]][workColumn];
+				//Same as calculateDriverDistances, unroutable drivers go to the back
+				if (RtoW == DistanceProvider.UNREACHABLE || DtoR == DistanceProvider.UNREACHABLE || DtoW == DistanceProvider.UNREACHABLE) {
+					calcDistances[r][i] = UNREACHABLE_DETOUR;
+				} else {
+					calcDistances[r][i] = DtoR + RtoW - DtoW;
+				}
+			}
+		}
+		return calcDistances;
+	}
+	
+	@Override
+	//Distances from everyone's home to everyone's home and to everyone's work, for routes with several pickups
+	//commute[i][j] is home i to home j and commute[i][n + j] is home i to the work of j,
+	//shared addresses are only one row or column of the underlying matrix
+	public long[][] getCommuteMatrix(List<User> users) throws IOException, InterruptedException, ApiException {
+		
+		Map<String, Integer> rows = new LinkedHashMap<String, Integer>();
+		List<Waypoint> origins = new ArrayList<Waypoint>();
+		Map<String, Integer> columns = new LinkedHashMap<String, Integer>();
+		List<Waypoint> destinations = new ArrayList<Waypoint>();
+		
+		int n = users.size();
+		int[] homeRows = new int[n];
+		int[] homeColumns = new int[n];
+		int[] workColumns = new int[n];
+		for (int i = 0; i < n; i++) {
+			homeRows[i] = indexOf(homeOf(users.get(i)), rows, origins);
+			homeColumns[i] = indexOf(homeOf(users.get(i)), columns, destinations);
+		}
+		for (int i = 0; i < n; i++) {
+			workColumns[i] = indexOf(workOf(users.get(i)), columns, destinations);
+		}
+		
+		long[][] matrix = getDistanceMatrix(origins.toArray(new Waypoint[origins.size()]),
+				destinations.toArray(new Waypoint[destinations.size()]));
+		
+		long[][] commute = new long[n][2 * n];
+		for (int i = 0; i < n; i++) {
+			long[] row = matrix[homeRows[i]];
+			for (int j = 0; j < n; j++) {
+				commute[i][j] = row[homeColumns[j]];
+				commute[i][n + j] = row[workColumns[j]];
+			}
+		}
+		return commute;
+	}
+	
+	//Position of a waypoint in the matrix, adding it the first time its canonical address is seen
+	private static int indexOf(Waypoint waypoint, Map<String, Integer> positions, List<Waypoint> waypoints) {
+		String key = AddressCanonicalizer.canonical(waypoint.getAddress());
+		Integer position = positions.get(key);
+		if (position == null) {
+			position = waypoints.size();
+			positions.put(key, position);
+			waypoints.add(waypoint);
+		}
+		return position;
+	}
+	
 	//Gets all active drivers, of the same batch, that are not the rider
+	//They come from the in-memory DriverIndexService rather than a scan of every active driver
+	//Drivers whose home the provider couldn't route are left out until they can be retried
 	public List<User> getBatchActiveDrivers(User rider){
-		List<User> activeDrivers = us.getActiveDrivers();
+		return excluding(getRoutableDrivers(rider.getBatch().getBatchNumber()), rider);
+	}
+	
+	//A driver's stored commute is the distance from their home to the rider's work when both work at the same address
+	private Long storedDistanceToWork(User driver, Waypoint work) {
+		if (driver.getCommuteMeters() == null) {
+			return null;
+		}
+		boolean sameWork = AddressCanonicalizer.canonical(workOf(driver).getAddress()).equals(AddressCanonicalizer.canonical(work.getAddress()));
+		return sameWork ? driver.getCommuteMeters() : null;
+	}
+	
+	//Unroutable drivers would only cost matrix elements
+	@Override
+	public List<User> getRoutableDrivers(int batchNumber) {
+		return routable(dis.getBatchDrivers(batchNumber));
+	}
+	
+	//Drops the drivers whose home address is flagged as unroutable
+	private List<User> routable(List<User> drivers) {
+		if (drivers.isEmpty()) {
+			return drivers;
+		}
+		Waypoint[] homes = new Waypoint[drivers.size()];
+		for (int i = 0; i < homes.length; i++) {
+			homes[i] = homeOf(drivers.get(i));
+		}
+		boolean[] unroutable = dcs.isUnroutable(homes);
+		
+		List<User> routable = new ArrayList<User>();
+		for (int i = 0; i < homes.length; i++) {
+			if (!unroutable[i]) {
+				routable.add(drivers.get(i));
+			}
+		}
+		return routable;
+	}
+	
+	private static List<User> excluding(List<User> activeDrivers, User rider) {
 		List<User> driverList = new ArrayList<User>();
 		
 		for (User driver : activeDrivers) {
-			if (driver.getBatch().equals(rider.getBatch())) {
-				if (!driver.equals(rider)) {
-					driverList.add(driver);
-				}
+			if (!driver.equals(rider)) {
+				driverList.add(driver);
 			}
 		}
 
 		return driverList;
 	}
 	
+	//Keeps only the drivers with the best straight-line detour estimate ((DtoR + RtoW) - DtoW),
+	//so the DistanceMatrix is only asked for a few multiples of recCount instead of the whole batch.
+	//Users whose coordinates aren't known yet are placed at their ZIP code's centroid, and drivers
+	//that can't be placed at all are always kept.
+	public List<User> preFilterDrivers(User rider, List<User> activeDrivers, int recCount) {
+		int keep = recCount * preFilterMultiplier;
+		if (keep <= 0 || activeDrivers.size() <= keep) {
+			return activeDrivers;
+		}
+		//A rider needs both a home and work location to estimate detours
+		double[] riderHome = locate(homeOf(rider));
+		double[] riderWork = locate(workOf(rider));
+		if (riderHome == null || riderWork == null) {
+			return activeDrivers;
+		}
+		
+		List<User> located = new ArrayList<User>();
+		List<double[]> homes = new ArrayList<double[]>();
+		List<User> unlocated = new ArrayList<User>();
+		for (User driver : activeDrivers) {
+			double[] home = locate(homeOf(driver));
+			if (home != null) {
+				located.add(driver);
+				homes.add(home);
+			} else {
+				unlocated.add(driver);
+			}
+		}
+		if (located.size() <= keep) {
+			return activeDrivers;
+		}
+		
+		double RtoW = Haversine.distance(riderHome[0], riderHome[1], riderWork[0], riderWork[1]);
+		double[] estimates = new double[located.size()];
+		for (int i = 0; i < estimates.length; i++) {
+			double[] home = homes.get(i);
+			//Drivers without a known work location are assumed to work where the rider does
+			double[] work = locate(workOf(located.get(i)));
+			if (work == null) {
+				work = riderWork;
+			}
+			double DtoR = Haversine.distance(home[0], home[1], riderHome[0], riderHome[1]);
+			double DtoW = Haversine.distance(home[0], home[1], work[0], work[1]);
+			estimates[i] = DtoR + RtoW - DtoW;
+		}
+		
+		int[] best = new int[keep];
+		DriverRanker.topK(estimates, estimates.length, keep, best);
+		
+		List<User> candidates = new ArrayList<User>();
+		for (int i = 0; i < keep; i++) {
+			candidates.add(located.get(best[i]));
+		}
+		candidates.addAll(unlocated);
+		return candidates;
+	}
+	
 	
-	//Generates a string array for use with Google's DistanceMatrix
-	public String[] initOrigins (User rider, List<User> activeDrivers) {
-		String[] origins = new String[activeDrivers.size()+1];
+	//Generates the origins for the DistanceMatrix, the rider's home followed by every driver's home
+	public Waypoint[] initOrigins (User rider, List<User> activeDrivers) {
+		Waypoint[] origins = new Waypoint[activeDrivers.size()+1];
 		
-		String riderHome = rider.gethAddress() + ", " + rider.gethCity()+ ", " + rider.gethState();
-		origins[0] = riderHome;
+		origins[0] = homeOf(rider);
 		
-		List<String> driverAdds = getAddressFromUsers(activeDrivers);
-		for(int i = 0; i < driverAdds.size(); i++) {
-			origins[i+1] = driverAdds.get(i);
+		for(int i = 0; i < activeDrivers.size(); i++) {
+			origins[i+1] = homeOf(activeDrivers.get(i));
 		}
 		
 		return origins;
 	}
 	
 	
-	//Generates a string array for use with Google's DistanceMatrix
-	public String[] initDestinations (User rider) {
-		String riderHome = rider.gethAddress() + ", " + rider.gethCity()+ ", " + rider.gethState();
-		String riderWork = rider.getwAddress() + ", " + rider.getwCity()+ ", " + rider.getwState();
-
-		String[] destinations = {riderHome, riderWork};
+	//Generates the destinations for the DistanceMatrix, the rider's home and the rider's work
+	public Waypoint[] initDestinations (User rider) {
+		Waypoint[] destinations = {homeOf(rider), workOf(rider)};
 		return destinations;
 	}
 
@@ -132,65 +893,365 @@ public class DistanceServiceImpl implements DistanceService {
 		List<String> addresses= new ArrayList<String>();
 		
 		for( User u : users) {
-			String add = u.gethAddress();
-			String city = u.gethCity();
-			String state = u.gethState();
-				                                                                                                                                                                                                
-			String fullAdd = add + ", " + city + ", " + state;
-			addresses.add(fullAdd);
+			addresses.add(homeOf(u).getAddress());
 		}
 
 		return addresses;
 	}
 	
-	//Method that makes the DistanceMatrix Api call and performs distance calculations
-	public List<Double> calculateDriverDistances(String[] origins, String[] destinations) throws IOException, InterruptedException, ApiException{
+	@Override
+	//The home to work distance only depends on the user, UserServiceImpl stores it when an address changes
+	//Estimates aren't returned, they would be stored as if they were real
+	public Long getCommuteDistance(User user) throws IOException, InterruptedException {
 		
-		//Used to get the Key for the Google Map API and run the Calculator
-		GeoApiContext getKey = new GeoApiContext.Builder().apiKey(getGoogleMAPKey()).build();
-		DistanceMatrixApiRequest apiCall = DistanceMatrixApi.newRequest(getKey);
-		DistanceMatrix distCalculator = apiCall.origins(origins).destinations(destinations)
-	.mode(TravelMode.DRIVING).units(Unit.IMPERIAL).await();
-
-
-		List<Double> distances = new ArrayList<Double>();
-		double DtoR;	//Distance : Driver to Rider
-		double RtoW;	//Distance : Rider to Work
-		double DtoW; 	// Distance : Driver to Work
-		double DtoRtoW; // Sum of DtoR and RtoW
+		Distances distances = await(fetchDistances(new Waypoint[] {homeOf(user)}, new Waypoint[] {workOf(user)}));
+		long meters = distances.matrix[0][0];
+		return distances.degraded || meters == DistanceProvider.UNREACHABLE ? null : meters;
+	}
+	
+	@Override
+	//Checks every user's addresses against the flagged ones, an admin listing doesn't need an index
+	public List<User> getUnroutableUsers() {
+		
+		Set<String> flagged = new HashSet<String>();
+		for (UnroutableAddress address : dcs.getUnroutable()) {
+			flagged.add(address.getAddressKey());
+		}
+		
+		List<User> users = new ArrayList<User>();
+		if (flagged.isEmpty()) {
+			return users;
+		}
+		for (User u : us.getUsers()) {
+			if (flagged.contains(dcs.normalize(homeOf(u).getAddress())) || flagged.contains(dcs.normalize(workOf(u).getAddress()))) {
+				users.add(u);
+			}
+		}
+		return users;
+	}
+	
+	//A user's home address, with its coordinates when they are known
+	@Override
+	public Waypoint homeOf(User u) {
+		String fullAdd = u.gethAddress() + ", " + u.gethCity() + ", " + u.gethState();
+		Waypoint home = new Waypoint(fullAdd, u.gethLatitude(), u.gethLongitude());
+		home.setZip(u.gethZip());
+		return home;
+	}
+	
+	//A user's work address, with its coordinates when they are known
+	@Override
+	public Waypoint workOf(User u) {
+		String fullAdd = u.getwAddress() + ", " + u.getwCity() + ", " + u.getwState();
+		Waypoint work = new Waypoint(fullAdd, u.getwLatitude(), u.getwLongitude());
+		work.setZip(u.getwZip());
+		return work;
+	}
+	
+	//The waypoint's coordinates, or its ZIP code's centroid until they are known
+	private double[] locate(Waypoint waypoint) {
+		if (waypoint.hasCoordinates()) {
+			return new double[] {waypoint.getLatitude(), waypoint.getLongitude()};
+		}
+		return gazetteer.centroid(waypoint.getZip());
+	}
+	
+	//Builds the distance matrix from the cache, only the rows and columns with misses are sent to the DistanceProvider
+	public long[][] getDistanceMatrix(Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException, ApiException{
+		
+		return await(fetchDistances(origins, destinations)).matrix;
+	}
+	
+	//Same as getDistanceMatrix, with the misses fetched through the provider's non-blocking call
+	public CompletableFuture<long[][]> getDistanceMatrixAsync(Waypoint[] origins, Waypoint[] destinations) {
+		
+		return fetchDistances(origins, destinations).thenApply(distances -> distances.matrix);
+	}
+	
+	//Null instead of estimates, for callers that store the distances
+	@Override
+	public long[][] getExactDistanceMatrix(Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException {
+		
+		Distances distances = await(fetchDistances(origins, destinations));
+		return distances.degraded ? null : distances.matrix;
+	}
+	
+	//Waypoints sharing a canonical address are a single row or column of what is looked up and fetched,
+	//so roommates and neighbors in one building cost one set of elements, and their distances are fanned back out
+	private CompletableFuture<Distances> fetchDistances(Waypoint[] origins, Waypoint[] destinations) {
+		
+		int[] rows = new int[origins.length];
+		Waypoint[] uniqueOrigins = collapse(origins, rows);
+		int[] columns = new int[destinations.length];
+		Waypoint[] uniqueDestinations = collapse(destinations, columns);
+		if (uniqueOrigins.length == origins.length && uniqueDestinations.length == destinations.length) {
+			return fetchUniqueDistances(origins, destinations);
+		}
+		
+		return fetchUniqueDistances(uniqueOrigins, uniqueDestinations).thenApply(distances -> {
+			long[][] matrix = new long[rows.length][columns.length];
+			for (int i = 0; i < rows.length; i++) {
+				long[] row = distances.matrix[rows[i]];
+				for (int j = 0; j < columns.length; j++) {
+					matrix[i][j] = row[columns[j]];
+				}
+			}
+			return new Distances(matrix, distances.degraded);
+		});
+	}
+	
+	//The first waypoint of each canonical address, positions[i] is where waypoints[i] ended up
+	private static Waypoint[] collapse(Waypoint[] waypoints, int[] positions) {
+		Map<String, Integer> seen = new HashMap<String, Integer>();
+		List<Waypoint> unique = new ArrayList<Waypoint>();
+		for (int i = 0; i < waypoints.length; i++) {
+			positions[i] = indexOf(waypoints[i], seen, unique);
+		}
+		return unique.size() == waypoints.length ? waypoints : unique.toArray(new Waypoint[unique.size()]);
+	}
+	
+	//Cached distances first, the misses from the provider through the circuit breaker,
+	//and when the provider fails, is too slow or the breaker is open, estimates for the misses so the answer never waits longer than the timeout
+	private CompletableFuture<Distances> fetchUniqueDistances(Waypoint[] origins, Waypoint[] destinations) {
 		
+		if (origins.length == 0 || destinations.length == 0) {
+			return CompletableFuture.completedFuture(new Distances(new long[origins.length][destinations.length], false));
+		}
+		long[][] matrix = lookup(origins, destinations);
+		
+		CacheMisses misses = new CacheMisses(matrix, origins, destinations);
+		if (misses.isEmpty()) {
+			return CompletableFuture.completedFuture(new Distances(matrix, false));
+		}
+		if (approximate) {
+			return CompletableFuture.completedFuture(new Distances(misses.estimate(), true));
+		}
+		
+		return breaker.call(() -> provider.getDistancesAsync(misses.origins, misses.destinations))
+				.handle((fetched, e) -> {
+					if (e == null) {
+						return new Distances(misses.merge(fetched), false);
+					}
+					LOGGER.warn("Estimating " + misses.origins.length + "x" + misses.destinations.length
+							+ " distances, the provider is unavailable: " + e);
+					return new Distances(misses.estimate(), true);
+				});
+	}
+	
+	//What is known without the provider, for a request past its deadline: cached distances, and estimates for the misses
+	private Distances knownDistances(Waypoint[] origins, Waypoint[] destinations) {
+		
+		if (origins.length == 0 || destinations.length == 0) {
+			return new Distances(new long[origins.length][destinations.length], false);
+		}
+		long[][] matrix = lookup(origins, destinations);
+		CacheMisses misses = new CacheMisses(matrix, origins, destinations);
+		return misses.isEmpty() ? new Distances(matrix, false) : new Distances(misses.estimate(), true);
+	}
+	
+	//The batches' matrices in memory first, the distance cache only when they miss some
+	private long[][] lookup(Waypoint[] origins, Waypoint[] destinations) {
+		long[][] known = bms.lookup(origins, destinations);
+		if (known == null) {
+			return dcs.lookup(origins, destinations);
+		}
+		long[][] matrix = null;
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				if (known[i][j] != DistanceCacheService.MISSING) {
+					continue;
+				}
+				if (matrix == null) {
+					matrix = dcs.lookup(origins, destinations);
+				}
+				known[i][j] = matrix[i][j];
+			}
+		}
+		return known;
+	}
+	
+	//The provider's failures end in an estimate, so only unexpected errors are left to unwrap
+	private static Distances await(CompletableFuture<Distances> distances) throws IOException, InterruptedException {
 		try {
+			return distances.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	//A batch's drivers, and their distances to one workplace, fetched for the drivers without a stored commute to it
+	private static final class DriverRows {
+		
+		private final List<User> drivers;
+		private final Map<Integer, Integer> rowOfDriver = new HashMap<Integer, Integer>();
+		private final long[][] matrix;
+		private final boolean degraded;
+		
+		private DriverRows(List<User> drivers, List<User> fetched, Distances distances) {
+			this.drivers = drivers;
+			this.matrix = distances.matrix;
+			this.degraded = distances.degraded;
+			for (int i = 0; i < fetched.size(); i++) {
+				rowOfDriver.put(fetched.get(i).getUserId(), i);
+			}
+		}
+		
+		private long toWork(User driver) {
+			Integer row = rowOfDriver.get(driver.getUserId());
+			return row != null ? matrix[row][0] : driver.getCommuteMeters();
+		}
+	}
+	
+	//The drivers whose distance to one rider's home is wanted
+	private static final class Pickup {
+		
+		private final Waypoint[] driverHomes;
+		private final Waypoint home;
+		
+		private Pickup(Waypoint[] driverHomes, Waypoint home) {
+			this.driverHomes = driverHomes;
+			this.home = home;
+		}
+	}
+	
+	//A distance matrix, and whether any of it is estimated because the provider couldn't be used
+	private static final class Distances {
+		
+		private final long[][] matrix;
+		private final boolean degraded;
+		
+		private Distances(long[][] matrix, boolean degraded) {
+			this.matrix = matrix;
+			this.degraded = degraded;
+		}
+	}
+	
+	//The rows and columns of a cached matrix that have at least one MISSING element
+	private class CacheMisses {
+		
+		private final long[][] matrix;
+		private final List<Integer> rows = new ArrayList<Integer>();
+		private final List<Integer> columns;
+		private final Waypoint[] origins;
+		private final Waypoint[] destinations;
+		
+		private CacheMisses(long[][] matrix, Waypoint[] allOrigins, Waypoint[] allDestinations) {
+			this.matrix = matrix;
 			
-			//Find the distance between Rider and Work
-			RtoW = (double) distCalculator.rows[0].elements[1].distance.inMeters;
+			Set<Integer> missColumns = new TreeSet<Integer>();
+			for (int i = 0; i < allOrigins.length; i++) {
+				for (int j = 0; j < allDestinations.length; j++) {
+					if (matrix[i][j] == DistanceCacheService.MISSING) {
+						if (rows.isEmpty() || rows.get(rows.size() - 1) != i) {
+							rows.add(i);
+						}
+						missColumns.add(j);
+					}
+				}
+			}
+			columns = new ArrayList<Integer>(missColumns);
 			
-			for (int i = 1; i < origins.length;  i++) {
-	
-
-				//Sometimes the api would return null for an invalid address, causing whole system to crash
-				//This catches null and sets the distance to a value that should prevent it from being recommended
-				if (distCalculator.rows[i].elements[0].distance== null || distCalculator.rows[i].elements[1].distance == null) {
-					System.out.println("Row " + i + "contains null");
-					distances.add((double) 999999999);
+			origins = new Waypoint[rows.size()];
+			for (int r = 0; r < origins.length; r++) {
+				origins[r] = allOrigins[rows.get(r)];
+			}
+			destinations = new Waypoint[columns.size()];
+			for (int c = 0; c < destinations.length; c++) {
+				destinations[c] = allDestinations[columns.get(c)];
+			}
+		}
+		
+		private boolean isEmpty() {
+			return rows.isEmpty();
+		}
+		
+		//Fills the misses with what the provider fetched and writes it through to the cache
+		private long[][] merge(long[][] fetched) {
+			for (int r = 0; r < origins.length; r++) {
+				for (int c = 0; c < destinations.length; c++) {
+					matrix[rows.get(r)][columns.get(c)] = fetched[r][c];
 				}
-				else {
-					
-					//Distance from Driver's home to Rider's home
-					DtoR = distCalculator.rows[i].elements[0].distance.inMeters;
-					//Find the distance between Driver[n] and Work
-					DtoW = (double) distCalculator.rows[i].elements[1].distance.inMeters;
-					//Find total distance to Rider then Work 
-					DtoRtoW = DtoR + RtoW;
-		
-					//Calculate the difference between Driving to Rider or Straight to Work
-					double distCompare = DtoRtoW - DtoW;
-					//Set values into the HashMap (Key-Origin,Value-Distance)
-					distances.add((Double)distCompare);
+			}
+			dcs.store(origins, destinations, fetched);
+			
+			return matrix;
+		}
+		
+		//Fills the misses without the provider, from expired cache entries where there are some
+		//and otherwise from the straight-line distance, between ZIP centroids where coordinates aren't known yet
+		private long[][] estimate() {
+			long[][] stale = dcs.lookupStale(origins, destinations);
+			double[][] from = new double[origins.length][];
+			for (int r = 0; r < origins.length; r++) {
+				from[r] = locate(origins[r]);
+			}
+			double[][] to = new double[destinations.length][];
+			for (int c = 0; c < destinations.length; c++) {
+				to[c] = locate(destinations[c]);
+			}
+			for (int r = 0; r < origins.length; r++) {
+				for (int c = 0; c < destinations.length; c++) {
+					int i = rows.get(r);
+					int j = columns.get(c);
+					if (matrix[i][j] != DistanceCacheService.MISSING) {
+						continue;
+					}
+					if (stale[r][c] >= 0) {
+						matrix[i][j] = stale[r][c];
+					} else if (from[r] != null && to[c] != null) {
+						matrix[i][j] = Math.round(roadFactor * Haversine.distance(from[r][0], from[r][1], to[c][0], to[c][1]));
+					} else {
+						matrix[i][j] = DistanceProvider.UNREACHABLE;
+					}
 				}
+			}
+			return matrix;
+		}
+	}
+	
+	//Method that gets the distance matrix and performs distance calculations
+	public double[] calculateDriverDistances(Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException, ApiException{
+		
+		return calculateDriverDistances(getDistanceMatrix(origins, destinations));
+	}
+	
+	//Row 0 of the matrix is the rider, every other row a driver, and the columns are the rider's home and work
+	public double[] calculateDriverDistances(long[][] matrix) {
 
+		double[] distances = new double[matrix.length - 1];
+		double DtoR;	//Distance : Driver to Rider
+		double RtoW;	//Distance : Rider to Work
+		double DtoW; 	// Distance : Driver to Work
+		double DtoRtoW; // Sum of DtoR and RtoW
+		
+		//Find the distance between Rider and Work
+		RtoW = (double) matrix[0][1];
+		
+		for (int i = 1; i < matrix.length;  i++) {
+
+			//Sometimes the provider can't route an invalid address, causing whole system to crash
+			//This catches it and sets the distance to a value that should prevent it from being recommended
+			if (RtoW == DistanceProvider.UNREACHABLE || matrix[i][0] == DistanceProvider.UNREACHABLE || matrix[i][1] == DistanceProvider.UNREACHABLE) {
+				LOGGER.debug("Row " + i + " is unreachable");
+				distances[i-1] = UNREACHABLE_DETOUR;
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+			else {
+				
+				//Distance from Driver's home to Rider's home
+				DtoR = matrix[i][0];
+				//Find the distance between Driver[n] and Work
+				DtoW = (double) matrix[i][1];
+				//Find total distance to Rider then Work 
+				DtoRtoW = DtoR + RtoW;
+	
+				//Calculate the difference between Driving to Rider or Straight to Work
+				double distCompare = DtoRtoW - DtoW;
+				distances[i-1] = distCompare;
+			}
+
 		}
 		
 	return distances;
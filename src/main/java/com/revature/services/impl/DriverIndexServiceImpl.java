@@ -0,0 +1,204 @@
+package com.revature.services.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.revature.beans.User;
+import com.revature.repositories.UserRepository;
+import com.revature.services.DriverIndexService;
+
+/**
+ * DriverIndexServiceImpl keeps the active drivers accepting rides in memory, grouped by batch,
+ * with a k-d tree over each batch's home coordinates. Each batch is loaded from the database
+ * with one indexed query the first time it is used, and afterwards follows the writes
+ * UserServiceImpl reports, so looking up a batch's drivers or the drivers nearest to a rider
+ * doesn't touch the database.
+ *
+ * Each batch is an immutable snapshot that is rebuilt and swapped in when one of its drivers
+ * changes, so readers never lock. Every snapshot gets a new roster version.
+ *
+ */
+
+@Service
+public class DriverIndexServiceImpl implements DriverIndexService {
+
+	@Autowired
+	private UserRepository ur;
+
+	//Only batches that have been loaded are present, a loaded batch without drivers is an empty index
+	private final Map<Integer, BatchIndex> batches = new ConcurrentHashMap<Integer, BatchIndex>();
+
+	//Batch each indexed driver is in, so an update that moves a driver can remove them from the old one
+	private final Map<Integer, Integer> batchOfDriver = new HashMap<Integer, Integer>();
+
+	//Shared by every batch, so a batch that is reloaded never repeats an earlier version
+	private final AtomicLong versions = new AtomicLong();
+
+	/**
+	 * Finds every indexed driver of a batch.
+	 *
+	 * @param batchNumber represents the batch.
+	 * @return The batch's active drivers accepting rides.
+	 */
+
+	@Override
+	public List<User> getBatchDrivers(int batchNumber) {
+		return new ArrayList<User>(getBatch(batchNumber).drivers);
+	}
+
+	/**
+	 * Finds the drivers of a batch whose homes are closest to a coordinate.
+	 *
+	 * @param batchNumber represents the batch.
+	 * @param latitude represents the latitude to search around.
+	 * @param longitude represents the longitude to search around.
+	 * @param count represents how many drivers to find.
+	 * @return Up to count located drivers, closest first.
+	 */
+
+	@Override
+	public List<User> getNearestDrivers(int batchNumber, double latitude, double longitude, int count) {
+		BatchIndex index = getBatch(batchNumber);
+		List<User> nearest = new ArrayList<User>();
+		if (index.tree == null) {
+			return nearest;
+		}
+		int[] positions = new int[Math.max(0, Math.min(count, index.tree.size()))];
+		int found = index.tree.nearest(latitude, longitude, count, positions);
+		for (int i = 0; i < found; i++) {
+			nearest.add(index.located[positions[i]]);
+		}
+		return nearest;
+	}
+
+	/**
+	 * Finds the version of a batch's roster.
+	 *
+	 * @param batchNumber represents the batch.
+	 * @return A number that changes whenever a driver joins, leaves or changes in the batch.
+	 */
+
+	@Override
+	public long getRosterVersion(int batchNumber) {
+		return getBatch(batchNumber).version;
+	}
+
+	/**
+	 * Adds, moves or removes a user in the index depending on their saved state.
+	 *
+	 * @param user represents the user as it was saved.
+	 * @return The roster version of each batch the save changed.
+	 */
+
+	@Override
+	public synchronized Map<Integer, Long> userSaved(User user) {
+		Map<Integer, Long> changed = new HashMap<Integer, Long>();
+		if (user == null) {
+			return changed;
+		}
+		remove(user.getUserId(), changed);
+		//A batch that isn't loaded yet will read the saved user from the database when it is
+		if (isIndexed(user) && batches.containsKey(user.getBatch().getBatchNumber())) {
+			int batchNumber = user.getBatch().getBatchNumber();
+			List<User> drivers = new ArrayList<User>(batches.get(batchNumber).drivers);
+			drivers.add(user);
+			long version = versions.incrementAndGet();
+			batches.put(batchNumber, new BatchIndex(drivers, version));
+			batchOfDriver.put(user.getUserId(), batchNumber);
+			changed.put(batchNumber, version);
+		}
+		return changed;
+	}
+
+	/**
+	 * Removes a deleted user from the index.
+	 *
+	 * @param userId represents the user's id.
+	 * @return The roster version of the batch the user was removed from, if any.
+	 */
+
+	@Override
+	public synchronized Map<Integer, Long> userDeleted(int userId) {
+		Map<Integer, Long> changed = new HashMap<Integer, Long>();
+		remove(userId, changed);
+		return changed;
+	}
+
+	private BatchIndex getBatch(int batchNumber) {
+		BatchIndex index = batches.get(batchNumber);
+		return index != null ? index : load(batchNumber);
+	}
+
+	private synchronized BatchIndex load(int batchNumber) {
+		BatchIndex index = batches.get(batchNumber);
+		if (index != null) {
+			return index;
+		}
+		List<User> drivers = ur.getActiveDriversByBatch(batchNumber);
+		for (User driver : drivers) {
+			batchOfDriver.put(driver.getUserId(), batchNumber);
+		}
+		index = new BatchIndex(drivers, versions.incrementAndGet());
+		batches.put(batchNumber, index);
+		return index;
+	}
+
+	private void remove(int userId, Map<Integer, Long> changed) {
+		Integer batchNumber = batchOfDriver.remove(userId);
+		if (batchNumber == null) {
+			return;
+		}
+		List<User> drivers = new ArrayList<User>(batches.get(batchNumber).drivers);
+		drivers.removeIf(driver -> driver.getUserId() == userId);
+		long version = versions.incrementAndGet();
+		batches.put(batchNumber, new BatchIndex(drivers, version));
+		changed.put(batchNumber, version);
+	}
+
+	//The same drivers UserRepository.getActiveDriversByBatch selects
+	private static boolean isIndexed(User user) {
+		return user.isDriver() && user.isActive() && user.isAcceptingRides() && user.getBatch() != null;
+	}
+
+	private static final class BatchIndex {
+
+		private final List<User> drivers;
+
+		private final User[] located;
+
+		private final KdTree tree;
+
+		private final long version;
+
+		private BatchIndex(Collection<User> drivers, long version) {
+			this.version = version;
+			this.drivers = Collections.unmodifiableList(new ArrayList<User>(drivers));
+
+			List<User> located = new ArrayList<User>();
+			for (User driver : drivers) {
+				if (driver.gethLatitude() != null && driver.gethLongitude() != null) {
+					located.add(driver);
+				}
+			}
+			this.located = located.toArray(new User[located.size()]);
+
+			double[] latitudes = new double[this.located.length];
+			double[] longitudes = new double[this.located.length];
+			for (int i = 0; i < this.located.length; i++) {
+				latitudes[i] = this.located[i].gethLatitude();
+				longitudes[i] = this.located[i].gethLongitude();
+			}
+			this.tree = this.located.length == 0 ? null : new KdTree(latitudes, longitudes);
+		}
+	}
+
+}
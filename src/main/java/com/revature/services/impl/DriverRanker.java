@@ -0,0 +1,112 @@
+package com.revature.services.impl;
+
+/**
+ * DriverRanker selects the best candidates of a recommendation straight from primitive arrays.
+ * It keeps a bounded max-heap of the k best positions inside the caller's output array, so
+ * ranking allocates nothing however many candidates there are, and costs O(n log k) instead
+ * of a full sort. Ties are broken by position, the same order a stable sort would give.
+ *
+ */
+
+public final class DriverRanker {
+
+	private DriverRanker() {
+		super();
+	}
+
+	/**
+	 * Finds the positions of the k lowest scores.
+	 *
+	 * @param scores represents the score of each candidate, lower is better. NaN ranks last.
+	 * @param count represents how many entries of scores are in use.
+	 * @param k represents how many candidates to select.
+	 * @param out receives the selected positions, best first. Must hold min(k, count) entries.
+	 * @return How many positions were written to out.
+	 */
+
+	public static int topK(double[] scores, int count, int k, int[] out) {
+		int size = Math.min(k, count);
+		if (size <= 0) {
+			return 0;
+		}
+
+		//out[0 .. size) is a max-heap on (score, position), its root is the worst candidate kept so far
+		for (int i = 0; i < size; i++) {
+			out[i] = i;
+			siftUp(scores, out, i);
+		}
+		for (int i = size; i < count; i++) {
+			if (worse(scores, out[0], i)) {
+				out[0] = i;
+				siftDown(scores, out, 0, size);
+			}
+		}
+
+		//Heap sort in place, which leaves the best candidate first
+		for (int end = size - 1; end > 0; end--) {
+			int root = out[0];
+			out[0] = out[end];
+			out[end] = root;
+			siftDown(scores, out, 0, end);
+		}
+		return size;
+	}
+
+	/**
+	 * Finds the ids of the k candidates with the lowest scores.
+	 *
+	 * @param scores represents the score of each candidate, lower is better.
+	 * @param ids represents the id of each candidate.
+	 * @param count represents how many entries of scores and ids are in use.
+	 * @param k represents how many candidates to select.
+	 * @param out receives the selected ids, best first.
+	 * @return How many ids were written to out.
+	 */
+
+	public static int topKIds(double[] scores, int[] ids, int count, int k, int[] out) {
+		int size = topK(scores, count, k, out);
+		for (int i = 0; i < size; i++) {
+			out[i] = ids[out[i]];
+		}
+		return size;
+	}
+
+	//True when position a ranks behind position b
+	private static boolean worse(double[] scores, int a, int b) {
+		int c = Double.compare(scores[a], scores[b]);
+		return c > 0 || (c == 0 && a > b);
+	}
+
+	private static void siftUp(double[] scores, int[] heap, int pos) {
+		int node = heap[pos];
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (!worse(scores, node, heap[parent])) {
+				break;
+			}
+			heap[pos] = heap[parent];
+			pos = parent;
+		}
+		heap[pos] = node;
+	}
+
+	private static void siftDown(double[] scores, int[] heap, int pos, int size) {
+		int node = heap[pos];
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && worse(scores, heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!worse(scores, heap[child], node)) {
+				break;
+			}
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = node;
+	}
+
+}
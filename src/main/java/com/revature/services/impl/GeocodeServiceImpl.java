@@ -0,0 +1,292 @@
+package com.revature.services.impl;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.maps.GeoApiContext;
+import com.google.maps.GeocodingApi;
+import com.google.maps.model.GeocodingResult;
+import com.google.maps.model.LatLng;
+import com.revature.beans.Batch;
+import com.revature.beans.GeocodeJob;
+import com.revature.beans.User;
+import com.revature.repositories.BatchRepository;
+import com.revature.repositories.GeocodeJobRepository;
+import com.revature.repositories.UserRepository;
+import com.revature.services.DistanceService;
+import com.revature.services.DriverIndexService;
+import com.revature.services.GeocodeService;
+
+/**
+ * GeocodeServiceImpl fills in the coordinates of users and batches in the background. Saving
+ * a user or batch with missing coordinates leaves a job in the geocode_jobs table, and a
+ * scheduled worker geocodes only the addresses that are still missing. Failed jobs are retried
+ * with a doubling delay and give up after max-attempts, or at once when the address isn't
+ * found, until the entity is saved again. Once a user's coordinates are there the worker also
+ * fetches their commute distance, so saving a user never waits on the distance provider.
+ * Jobs are only written once the save that needs them has committed, and failing to write one
+ * never fails the save.
+ *
+ */
+
+@Service
+public class GeocodeServiceImpl implements GeocodeService {
+
+	private static final Logger LOGGER = LogManager.getLogger(GeocodeServiceImpl.class);
+
+	@Autowired
+	private GeocodeJobRepository gjr;
+
+	@Autowired
+	private UserRepository ur;
+
+	@Autowired
+	private BatchRepository br;
+
+	@Autowired
+	private DriverIndexService dis;
+
+	@Autowired
+	private DistanceService ds;
+
+	@Autowired
+	private GeoApiContext context;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${geocode.worker.enabled:true}")
+	private boolean workerEnabled = true;
+
+	@Value("${geocode.worker.batch-size:20}")
+	private int batchSize = 20;
+
+	@Value("${geocode.retry.max-attempts:8}")
+	private int maxAttempts = 8;
+
+	@Value("${geocode.retry.base-seconds:60}")
+	private long retryBaseSeconds = 60;
+
+	/**
+	 * Creates the entity's job, or makes the waiting one due now with its attempts reset. Inside
+	 * a transaction the job is written after it commits, so the worker never looks for an entity
+	 * that isn't there yet.
+	 *
+	 * @param entityType represents whether the id is a user's or a batch's.
+	 * @param entityId represents the user's id or the batch's number.
+	 */
+
+	@Override
+	public void enqueue(GeocodeJob.EntityType entityType, int entityId) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			writeJob(entityType, entityId);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			@Override
+			public void afterCommit() {
+				//The committed transaction is still bound to the thread, the job needs one of its own
+				TransactionTemplate template = new TransactionTemplate(transactionManager);
+				template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+				template.execute(status -> {
+					writeJob(entityType, entityId);
+					return null;
+				});
+			}
+		});
+	}
+
+	//The entity is saved already, without its job it is located the next time it is saved
+	private void writeJob(GeocodeJob.EntityType entityType, int entityId) {
+		try {
+			//A second try covers the job being created or finished by someone else in between
+			for (int tries = 0; ; tries++) {
+				try {
+					GeocodeJob job = gjr.getByEntity(entityType, entityId);
+					if (job == null) {
+						job = new GeocodeJob(entityType, entityId);
+					}
+					job.setAttempts(0);
+					job.setNextAttemptAt(new Date());
+					job.setLastError(null);
+					gjr.save(job);
+					return;
+				} catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+					if (tries > 0) {
+						throw e;
+					}
+				}
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Could not queue geocoding " + entityType + " " + entityId, e);
+		}
+	}
+
+	/**
+	 * The worker, it takes up to batch-size due jobs every delay-ms. Jobs run one at a time
+	 * on the scheduler's thread, which also keeps the requests within the shared context's
+	 * rate limit.
+	 *
+	 * @return The number of jobs that were finished.
+	 */
+
+	@Override
+	@Scheduled(initialDelayString = "${geocode.worker.delay-ms:5000}", fixedDelayString = "${geocode.worker.delay-ms:5000}")
+	public int processDueJobs() {
+		if (!workerEnabled) {
+			return 0;
+		}
+		List<GeocodeJob> due = gjr.getDue(new Date(), PageRequest.of(0, batchSize));
+		int finished = 0;
+		for (GeocodeJob job : due) {
+			if (process(job)) {
+				finished++;
+			}
+		}
+		return finished;
+	}
+
+	private boolean process(GeocodeJob job) {
+		try {
+			String missing = job.getEntityType() == GeocodeJob.EntityType.USER ? geocodeUser(job.getEntityId())
+					: geocodeBatch(job.getEntityId());
+			if (missing != null) {
+				giveUp(job, "No results for " + missing);
+				return false;
+			}
+			gjr.delete(job);
+			return true;
+		} catch (OptimisticLockingFailureException e) {
+			//Enqueued again while it ran, the new job runs on its own
+			return false;
+		} catch (Exception e) {
+			retry(job, e);
+			return false;
+		}
+	}
+
+	//Returns the address that wasn't found, if any
+	private String geocodeUser(int userId) throws Exception {
+		User user = ur.findById(userId).orElse(null);
+		if (user == null) {
+			return null;
+		}
+		boolean written = false;
+		if (user.gethLatitude() == null || user.gethLongitude() == null) {
+			String address = address(user.gethAddress(), user.gethCity(), user.gethState(), user.gethZip());
+			LatLng home = geocode(address);
+			if (home == null) {
+				return address;
+			}
+			written |= ur.setHomeCoordinates(userId, home.lat, home.lng, user.gethAddress(), user.gethCity(), user.gethZip(),
+					user.gethState()) > 0;
+		}
+		if (user.getwLatitude() == null || user.getwLongitude() == null) {
+			String address = address(user.getwAddress(), user.getwCity(), user.getwState(), user.getwZip());
+			LatLng work = geocode(address);
+			if (work == null) {
+				return address;
+			}
+			written |= ur.setWorkCoordinates(userId, work.lat, work.lng, user.getwAddress(), user.getwCity(), user.getwZip(),
+					user.getwState()) > 0;
+		}
+		if (user.getCommuteMeters() == null && user.gethAddress() != null && user.getwAddress() != null) {
+			//Fetched from the coordinates just written, a failed request is retried like a failed geocode, but an estimated
+			//or unreachable commute won't get any better, so it stays unset and the job is done
+			User located = written ? ur.findById(userId).orElse(user) : user;
+			Long meters = ds.getCommuteDistance(located);
+			if (meters != null) {
+					written |= ur.setCommuteMeters(userId, meters, user.gethAddress(), user.gethCity(), user.gethZip(), user.gethState(),
+						user.getwAddress(), user.getwCity(), user.getwZip(), user.getwState()) > 0;
+			}
+		}
+		if (written) {
+			ur.findById(userId).ifPresent(saved -> {
+				ds.userSaved(saved, dis.userSaved(saved));
+			});
+		}
+		return null;
+	}
+
+	private String geocodeBatch(int batchNumber) throws Exception {
+		Batch batch = br.findById(batchNumber).orElse(null);
+		if (batch == null || (batch.getbLatitude() != null && batch.getbLongitude() != null)) {
+			return null;
+		}
+		String address = address(batch.getbAddress(), batch.getbCity(), batch.getbState(), batch.getbZip());
+		LatLng location = geocode(address);
+		if (location == null) {
+			return address;
+		}
+		br.setCoordinates(batchNumber, location.lat, location.lng, batch.getbAddress(), batch.getbCity(), batch.getbZip(),
+				batch.getbState());
+		return null;
+	}
+
+	/**
+	 * Geocodes one address with the shared GeoApiContext.
+	 *
+	 * @param address represents the address as street, city, state and zip.
+	 * @return The address's location, null if it wasn't found.
+	 * @throws Exception When the request fails.
+	 */
+
+	protected LatLng geocode(String address) throws Exception {
+		GeocodingResult[] results = GeocodingApi.geocode(context, address).await();
+		return results == null || results.length == 0 ? null : results[0].geometry.location;
+	}
+
+	private void retry(GeocodeJob job, Exception e) {
+		int attempts = job.getAttempts() + 1;
+		String error = String.valueOf(e.getMessage());
+		if (attempts >= maxAttempts) {
+			LOGGER.error("Giving up geocoding " + job.getEntityType() + " " + job.getEntityId() + " after " + attempts + " attempts", e);
+			job.setNextAttemptAt(null);
+		} else {
+			LOGGER.warn("Geocoding " + job.getEntityType() + " " + job.getEntityId() + " failed, attempt " + attempts + ": " + error);
+			long delaySeconds = retryBaseSeconds << Math.min(attempts - 1, 20);
+			job.setNextAttemptAt(new Date(System.currentTimeMillis() + delaySeconds * 1000));
+		}
+		job.setAttempts(attempts);
+		job.setLastError(error.length() > 512 ? error.substring(0, 512) : error);
+		save(job);
+	}
+
+	//An address that isn't found won't be found by asking again, only a new address helps
+	private void giveUp(GeocodeJob job, String error) {
+		LOGGER.warn("Giving up geocoding " + job.getEntityType() + " " + job.getEntityId() + ": " + error);
+		job.setAttempts(job.getAttempts() + 1);
+		job.setNextAttemptAt(null);
+		job.setLastError(error.length() > 512 ? error.substring(0, 512) : error);
+		save(job);
+	}
+
+	private void save(GeocodeJob job) {
+		try {
+			gjr.save(job);
+		} catch (OptimisticLockingFailureException e) {
+			//Enqueued again while it ran, which already made it due
+		}
+	}
+
+	private static String address(String street, String city, String state, String zip) {
+		return street + ", " + city + ", " + state + (zip == null ? "" : " " + zip);
+	}
+
+}
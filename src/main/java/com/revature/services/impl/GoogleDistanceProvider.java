@@ -0,0 +1,247 @@
+package com.revature.services.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.google.maps.DistanceMatrixApi;
+import com.google.maps.DistanceMatrixApiRequest;
+import com.google.maps.GeoApiContext;
+import com.google.maps.PendingResult;
+import com.google.maps.errors.ApiException;
+import com.google.maps.model.DistanceMatrix;
+import com.google.maps.model.DistanceMatrixElement;
+import com.google.maps.model.Duration;
+import com.google.maps.model.TrafficModel;
+import com.google.maps.model.TravelMode;
+import com.google.maps.model.Unit;
+import com.revature.beans.Waypoint;
+import com.revature.services.DistanceProvider;
+
+/**
+ * GoogleDistanceProvider answers distance matrices with Google's DistanceMatrix API.
+ * This is the default provider. Matrices larger than one request allows are split into
+ * chunks that are sent concurrently and merged back in index order. How many requests are in
+ * flight at once is up to the shared GeoApiContext's HTTP client, see GoogleMapsConfig.
+ *
+ */
+
+@Service
+@ConditionalOnProperty(name = "distance.provider", havingValue = "google", matchIfMissing = true)
+public class GoogleDistanceProvider implements DistanceProvider {
+
+	@Autowired
+	private GeoApiContext context;
+
+	//Google allows 25 origins, 25 destinations and 100 elements per request
+	@Value("${distance.matrix.max-origins:25}")
+	private int maxOrigins = 25;
+
+	@Value("${distance.matrix.max-destinations:25}")
+	private int maxDestinations = 25;
+
+	@Value("${distance.matrix.max-elements:100}")
+	private int maxElements = 100;
+
+	/**
+	 * Splits the matrix into chunks within the request limits, sends them concurrently and
+	 * waits for the merged results.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @return The distances in meters, UNREACHABLE where Google found no route.
+	 */
+
+	@Override
+	public long[][] getDistances(Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException, ApiException {
+
+		long[][] distances = new long[origins.length][destinations.length];
+		if (origins.length == 0 || destinations.length == 0) {
+			return distances;
+		}
+
+		List<int[]> chunks = chunks(origins.length, destinations.length);
+
+		//A single chunk doesn't need to leave this thread
+		if (chunks.size() == 1) {
+			copyChunk(distances, chunks.get(0), fetch(context, origins, destinations));
+			return distances;
+		}
+
+		try {
+			return getDistancesAsync(origins, destinations).get();
+		} catch (ExecutionException e) {
+			throw unwrap(e);
+		}
+	}
+
+	/**
+	 * Sends the same chunks as getDistances through the client library's callback API, so no
+	 * thread waits on the round trips. The chunks complete on the HTTP client's threads.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @return A future of the distances in meters, completed exceptionally if any chunk fails.
+	 */
+
+	@Override
+	public CompletableFuture<long[][]> getDistancesAsync(Waypoint[] origins, Waypoint[] destinations) {
+
+		long[][] distances = new long[origins.length][destinations.length];
+		if (origins.length == 0 || destinations.length == 0) {
+			return CompletableFuture.completedFuture(distances);
+		}
+
+		List<int[]> chunks = chunks(origins.length, destinations.length);
+		CompletableFuture<?>[] parts = new CompletableFuture<?>[chunks.size()];
+		for (int c = 0; c < parts.length; c++) {
+			int[] chunk = chunks.get(c);
+			Waypoint[] chunkOrigins = Arrays.copyOfRange(origins, chunk[0], chunk[1]);
+			Waypoint[] chunkDestinations = Arrays.copyOfRange(destinations, chunk[2], chunk[3]);
+			//Each chunk writes its own cells, allOf makes them visible to whoever continues
+			parts[c] = send(context, chunkOrigins, chunkDestinations).thenAccept(part -> copyChunk(distances, chunk, part));
+		}
+		return CompletableFuture.allOf(parts).thenApply(done -> distances);
+	}
+
+	@Override
+	public boolean hasTraffic() {
+		return true;
+	}
+
+	/**
+	 * Sends the same chunks as getDistances one after the other, asking for the time in
+	 * traffic at the departure. It is meant for background refreshes, not for requests.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @param departure represents when the trips start, Google only predicts from now on.
+	 * @return The times in seconds, UNREACHABLE where Google found no route.
+	 */
+
+	@Override
+	public long[][] getDurations(Waypoint[] origins, Waypoint[] destinations, Date departure) throws IOException, InterruptedException, ApiException {
+
+		long[][] durations = new long[origins.length][destinations.length];
+		for (int[] chunk : chunks(origins.length, destinations.length)) {
+			Waypoint[] chunkOrigins = Arrays.copyOfRange(origins, chunk[0], chunk[1]);
+			Waypoint[] chunkDestinations = Arrays.copyOfRange(destinations, chunk[2], chunk[3]);
+			DistanceMatrix matrix = request(context, chunkOrigins, chunkDestinations).departureTime(departure.toInstant())
+					.trafficModel(TrafficModel.BEST_GUESS).await();
+			copyChunk(durations, chunk, toDurations(matrix, chunkOrigins.length, chunkDestinations.length));
+		}
+		return durations;
+	}
+
+	//Sends one request that is within the limits, using the shared context from GoogleMapsConfig
+	protected long[][] fetch(GeoApiContext context, Waypoint[] origins, Waypoint[] destinations) throws IOException, InterruptedException, ApiException {
+		return toDistances(request(context, origins, destinations).await(), origins.length, destinations.length);
+	}
+
+	//Same as fetch, completed from the library's callback instead of waiting for it
+	protected CompletableFuture<long[][]> send(GeoApiContext context, Waypoint[] origins, Waypoint[] destinations) {
+		CompletableFuture<long[][]> distances = new CompletableFuture<long[][]>();
+		request(context, origins, destinations).setCallback(new PendingResult.Callback<DistanceMatrix>() {
+
+			@Override
+			public void onResult(DistanceMatrix matrix) {
+				try {
+					distances.complete(toDistances(matrix, origins.length, destinations.length));
+				} catch (RuntimeException e) {
+					distances.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable e) {
+				distances.completeExceptionally(e);
+			}
+		});
+		return distances;
+	}
+
+	private static DistanceMatrixApiRequest request(GeoApiContext context, Waypoint[] origins, Waypoint[] destinations) {
+		return DistanceMatrixApi.newRequest(context).origins(addresses(origins)).destinations(addresses(destinations))
+				.mode(TravelMode.DRIVING).units(Unit.IMPERIAL);
+	}
+
+	private static long[][] toDistances(DistanceMatrix matrix, int originCount, int destinationCount) {
+		long[][] distances = new long[originCount][destinationCount];
+		for (int i = 0; i < originCount; i++) {
+			for (int j = 0; j < destinationCount; j++) {
+				//Google returns a null distance for addresses it can't route
+				DistanceMatrixElement element = matrix.rows[i].elements[j];
+				distances[i][j] = element.distance == null ? UNREACHABLE : element.distance.inMeters;
+			}
+		}
+		return distances;
+	}
+
+	private static long[][] toDurations(DistanceMatrix matrix, int originCount, int destinationCount) {
+		long[][] durations = new long[originCount][destinationCount];
+		for (int i = 0; i < originCount; i++) {
+			for (int j = 0; j < destinationCount; j++) {
+				//The time in traffic is only there when Google has traffic for the route
+				DistanceMatrixElement element = matrix.rows[i].elements[j];
+				Duration duration = element.durationInTraffic != null ? element.durationInTraffic : element.duration;
+				durations[i][j] = duration == null ? UNREACHABLE : duration.inSeconds;
+			}
+		}
+		return durations;
+	}
+
+	//Bounds of each request as {firstOrigin, endOrigin, firstDestination, endDestination}
+	private List<int[]> chunks(int originCount, int destinationCount) {
+		int destinationChunk = Math.min(maxDestinations, destinationCount);
+		int originChunk = Math.max(1, Math.min(maxOrigins, maxElements / destinationChunk));
+
+		List<int[]> chunks = new ArrayList<int[]>();
+		for (int i = 0; i < originCount; i += originChunk) {
+			for (int j = 0; j < destinationCount; j += destinationChunk) {
+				chunks.add(new int[] {i, Math.min(i + originChunk, originCount), j, Math.min(j + destinationChunk, destinationCount)});
+			}
+		}
+		return chunks;
+	}
+
+	private static void copyChunk(long[][] distances, int[] chunk, long[][] part) {
+		for (int i = chunk[0]; i < chunk[1]; i++) {
+			System.arraycopy(part[i - chunk[0]], 0, distances[i], chunk[2], chunk[3] - chunk[2]);
+		}
+	}
+
+	private static IOException unwrap(ExecutionException e) throws InterruptedException, ApiException {
+		Throwable cause = e.getCause();
+		if (cause instanceof ApiException) {
+			throw (ApiException) cause;
+		}
+		if (cause instanceof InterruptedException) {
+			throw (InterruptedException) cause;
+		}
+		if (cause instanceof IOException) {
+			return (IOException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		return new IOException(cause);
+	}
+
+	private static String[] addresses(Waypoint[] waypoints) {
+		String[] addresses = new String[waypoints.length];
+		for (int i = 0; i < waypoints.length; i++) {
+			addresses[i] = waypoints[i].getAddress();
+		}
+		return addresses;
+	}
+
+}
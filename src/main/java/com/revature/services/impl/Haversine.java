@@ -0,0 +1,38 @@
+package com.revature.services.impl;
+
+/**
+ * Haversine provides great-circle distances between two coordinates. It is used to
+ * estimate distances locally when no road distance is needed or available.
+ *
+ */
+
+public final class Haversine {
+
+	/**
+	 * Mean radius of the earth in meters.
+	 */
+	public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+	private Haversine() {
+		super();
+	}
+
+	/**
+	 * Calculates the straight-line distance between two points.
+	 *
+	 * @param lat1 latitude of the first point in degrees.
+	 * @param lng1 longitude of the first point in degrees.
+	 * @param lat2 latitude of the second point in degrees.
+	 * @param lng2 longitude of the second point in degrees.
+	 * @return The distance in meters.
+	 */
+
+	public static double distance(double lat1, double lng1, double lat2, double lng2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLng = Math.toRadians(lng2 - lng1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+		return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+}
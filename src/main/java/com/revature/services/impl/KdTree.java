@@ -0,0 +1,222 @@
+package com.revature.services.impl;
+
+/**
+ * KdTree is a static 2-d tree over coordinates, answering nearest neighbour queries in
+ * logarithmic time for a batch-sized set of points. It is laid out implicitly in arrays,
+ * every subrange's median is its root, so a query walks the arrays without node objects.
+ * Distances are measured on an equirectangular projection around the points' mean latitude,
+ * which ranks neighbours the same way the haversine does at the scale of one batch.
+ *
+ */
+
+public final class KdTree {
+
+	private final double[] x;
+
+	private final double[] y;
+
+	//Position of each tree slot in the arrays the tree was built from
+	private final int[] slots;
+
+	private final double cosLatitude;
+
+	/**
+	 * Builds the tree. The arrays are copied, so the caller may reuse them.
+	 *
+	 * @param latitudes represents the latitude of each point.
+	 * @param longitudes represents the longitude of each point.
+	 */
+
+	public KdTree(double[] latitudes, double[] longitudes) {
+		int size = latitudes.length;
+		double meanLatitude = 0;
+		for (double latitude : latitudes) {
+			meanLatitude += latitude / size;
+		}
+		cosLatitude = Math.cos(Math.toRadians(meanLatitude));
+
+		x = new double[size];
+		y = new double[size];
+		slots = new int[size];
+		for (int i = 0; i < size; i++) {
+			x[i] = longitudes[i] * cosLatitude;
+			y[i] = latitudes[i];
+			slots[i] = i;
+		}
+		build(0, size, 0);
+	}
+
+	public int size() {
+		return slots.length;
+	}
+
+	/**
+	 * Finds the n points closest to a coordinate.
+	 *
+	 * @param latitude represents the latitude to search around.
+	 * @param longitude represents the longitude to search around.
+	 * @param n represents how many points to find.
+	 * @param out receives the positions of the points in the arrays the tree was built from,
+	 *            closest first. Must hold min(n, size()) entries.
+	 * @return How many positions were written to out.
+	 */
+
+	public int nearest(double latitude, double longitude, int n, int[] out) {
+		int limit = Math.min(n, slots.length);
+		if (limit <= 0) {
+			return 0;
+		}
+		//out[0 .. found) is a max-heap of tree slots on their distance, its root is the farthest kept
+		Search search = new Search(longitude * cosLatitude, latitude, limit, out);
+		search.visit(0, slots.length, 0);
+
+		for (int end = search.found - 1; end > 0; end--) {
+			swap(out, search.distances, 0, end);
+			search.siftDown(0, end);
+		}
+		for (int i = 0; i < search.found; i++) {
+			out[i] = slots[out[i]];
+		}
+		return search.found;
+	}
+
+	private final class Search {
+
+		private final double qx;
+		private final double qy;
+		private final int limit;
+		private final int[] heap;
+		private final double[] distances;
+		private int found;
+
+		private Search(double qx, double qy, int limit, int[] heap) {
+			this.qx = qx;
+			this.qy = qy;
+			this.limit = limit;
+			this.heap = heap;
+			this.distances = new double[limit];
+		}
+
+		private void visit(int lo, int hi, int axis) {
+			if (lo >= hi) {
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			offer(mid);
+
+			double diff = axis == 0 ? qx - x[mid] : qy - y[mid];
+			if (diff < 0) {
+				visit(lo, mid, axis ^ 1);
+			} else {
+				visit(mid + 1, hi, axis ^ 1);
+			}
+			//The other side can only hold something closer if the splitting line is closer than the farthest kept
+			if (found < limit || diff * diff < distances[0]) {
+				if (diff < 0) {
+					visit(mid + 1, hi, axis ^ 1);
+				} else {
+					visit(lo, mid, axis ^ 1);
+				}
+			}
+		}
+
+		private void offer(int slot) {
+			double dx = qx - x[slot];
+			double dy = qy - y[slot];
+			double distance = dx * dx + dy * dy;
+			if (found < limit) {
+				int pos = found++;
+				while (pos > 0) {
+					int parent = (pos - 1) >>> 1;
+					if (distances[parent] >= distance) {
+						break;
+					}
+					heap[pos] = heap[parent];
+					distances[pos] = distances[parent];
+					pos = parent;
+				}
+				heap[pos] = slot;
+				distances[pos] = distance;
+			} else if (distance < distances[0]) {
+				heap[0] = slot;
+				distances[0] = distance;
+				siftDown(0, found);
+			}
+		}
+
+		private void siftDown(int pos, int size) {
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= size) {
+					return;
+				}
+				if (child + 1 < size && distances[child + 1] > distances[child]) {
+					child++;
+				}
+				if (distances[child] <= distances[pos]) {
+					return;
+				}
+				swap(heap, distances, pos, child);
+				pos = child;
+			}
+		}
+	}
+
+	//Arranges [lo, hi) so that its median on the axis sits in the middle, then does the same for each half
+	private void build(int lo, int hi, int axis) {
+		if (hi - lo <= 1) {
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		double[] keys = axis == 0 ? x : y;
+		int left = lo;
+		int right = hi - 1;
+		while (left < right) {
+			double pivot = keys[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swapPoints(i++, j--);
+				}
+			}
+			if (mid <= j) {
+				right = j;
+			} else if (mid >= i) {
+				left = i;
+			} else {
+				break;
+			}
+		}
+		build(lo, mid, axis ^ 1);
+		build(mid + 1, hi, axis ^ 1);
+	}
+
+	private void swapPoints(int a, int b) {
+		double tx = x[a];
+		x[a] = x[b];
+		x[b] = tx;
+		double ty = y[a];
+		y[a] = y[b];
+		y[b] = ty;
+		int ts = slots[a];
+		slots[a] = slots[b];
+		slots[b] = ts;
+	}
+
+	private static void swap(int[] heap, double[] distances, int a, int b) {
+		int slot = heap[a];
+		heap[a] = heap[b];
+		heap[b] = slot;
+		double distance = distances[a];
+		distances[a] = distances[b];
+		distances[b] = distance;
+	}
+
+}
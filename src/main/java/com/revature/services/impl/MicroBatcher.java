@@ -0,0 +1,173 @@
+package com.revature.services.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * MicroBatcher holds the items submitted for the same key for a short window, then hands them
+ * to one call that answers them all together. Each caller gets the answer to its own item.
+ * A key's items are sent early once there are max of them, and with a window of 0 every item
+ * is sent alone as it comes. A window the timer closes is sent from the sender, a full one
+ * from the thread that filled it. If the sender refuses the window, for instance once it is
+ * shut down, the window's items fail with the rejection.
+ *
+ */
+
+public final class MicroBatcher<K, T, R> {
+
+	//One timer for every batcher, it only hands closed windows to their batcher's sender
+	private static final ScheduledExecutorService TIMER;
+
+	static {
+		CustomizableThreadFactory threads = new CustomizableThreadFactory("micro-batch-timer-");
+		threads.setDaemon(true);
+		TIMER = Executors.newSingleThreadScheduledExecutor(threads);
+	}
+
+	private final long windowMillis;
+
+	private final int max;
+
+	private final Executor sender;
+
+	private final Function<List<T>, CompletableFuture<List<R>>> call;
+
+	private final Map<K, Window> windows = new HashMap<K, Window>();
+
+	/**
+	 * @param windowMillis represents how long the first item of a key waits for others, 0 for not at all.
+	 * @param max represents how many items are sent together at most.
+	 * @param call represents the call answering a list of items, in the same order, it should not block.
+	 */
+
+	public MicroBatcher(long windowMillis, int max, Function<List<T>, CompletableFuture<List<R>>> call) {
+		this(windowMillis, max, ForkJoinPool.commonPool(), call);
+	}
+
+	/**
+	 * @param windowMillis represents how long the first item of a key waits for others, 0 for not at all.
+	 * @param max represents how many items are sent together at most.
+	 * @param sender represents where windows closed by the timer are sent from, for calls that block.
+	 * @param call represents the call answering a list of items, in the same order.
+	 */
+
+	public MicroBatcher(long windowMillis, int max, Executor sender, Function<List<T>, CompletableFuture<List<R>>> call) {
+		this.windowMillis = windowMillis;
+		this.max = Math.max(1, max);
+		this.sender = sender;
+		this.call = call;
+	}
+
+	/**
+	 * Adds the item to its key's window, opening one if there is none.
+	 *
+	 * @param key represents what the item can be sent together with.
+	 * @param item represents the item.
+	 * @return The item's own answer.
+	 */
+
+	public CompletableFuture<R> submit(K key, T item) {
+		CompletableFuture<R> answer = new CompletableFuture<R>();
+		if (windowMillis <= 0 || max == 1) {
+			send(Collections.singletonList(item), Collections.singletonList(answer));
+			return answer;
+		}
+
+		Window full = null;
+		synchronized (windows) {
+			Window window = windows.get(key);
+			if (window == null) {
+				Window opened = new Window();
+				windows.put(key, opened);
+				TIMER.schedule(() -> expire(key, opened), windowMillis, TimeUnit.MILLISECONDS);
+				window = opened;
+			}
+			window.items.add(item);
+			window.answers.add(answer);
+			if (window.items.size() >= max) {
+				windows.remove(key);
+				full = window;
+			}
+		}
+		if (full != null) {
+			send(full.items, full.answers);
+		}
+		return answer;
+	}
+
+	public int waiting() {
+		synchronized (windows) {
+			int waiting = 0;
+			for (Window window : windows.values()) {
+				waiting += window.items.size();
+			}
+			return waiting;
+		}
+	}
+
+	//Runs on the timer, so a sender that is shut down fails the window's callers here instead of leaving them waiting
+	private void expire(K key, Window window) {
+		try {
+			sender.execute(() -> close(key, window));
+		} catch (RejectedExecutionException e) {
+			if (take(key, window)) {
+				for (CompletableFuture<R> answer : window.answers) {
+					answer.completeExceptionally(e);
+				}
+			}
+		}
+	}
+
+	//Sent once the timer fires, unless it filled up and was sent already
+	private void close(K key, Window window) {
+		if (take(key, window)) {
+			send(window.items, window.answers);
+		}
+	}
+
+	private boolean take(K key, Window window) {
+		synchronized (windows) {
+			return windows.remove(key, window);
+		}
+	}
+
+	private void send(List<T> items, List<CompletableFuture<R>> answers) {
+		CompletableFuture<List<R>> results;
+		try {
+			results = call.apply(items);
+		} catch (RuntimeException e) {
+			results = new CompletableFuture<List<R>>();
+			results.completeExceptionally(e);
+		}
+		results.whenComplete((values, error) -> {
+			for (int i = 0; i < answers.size(); i++) {
+				if (error == null) {
+					answers.get(i).complete(values.get(i));
+				} else {
+					answers.get(i).completeExceptionally(error);
+				}
+			}
+		});
+	}
+
+	private final class Window {
+
+		private final List<T> items = new ArrayList<T>();
+
+		private final List<CompletableFuture<R>> answers = new ArrayList<CompletableFuture<R>>();
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.revature.services.impl;
+
+import java.util.Arrays;
+
+/**
+ * MinCostFlow finds a maximum flow of minimum total cost with successive shortest paths.
+ * Potentials keep the reduced costs non-negative so each path is found with Dijkstra, and
+ * negative edge costs are allowed because the first potentials come from Bellman-Ford.
+ * Dijkstra scans an array instead of using a heap, which suits the dense bipartite graphs
+ * built for a batch, where almost every rider can reach almost every driver.
+ *
+ */
+
+public final class MinCostFlow {
+
+	private static final long INFINITE = Long.MAX_VALUE / 4;
+
+	private final int nodes;
+
+	//Forward-star adjacency, edge e and its residual twin e ^ 1 are stored next to each other
+	private final int[] head;
+	private int[] next;
+	private int[] to;
+	private int[] capacity;
+	private long[] cost;
+	private int edges;
+
+	public MinCostFlow(int nodes, int expectedEdges) {
+		this.nodes = nodes;
+		head = new int[nodes];
+		Arrays.fill(head, -1);
+		int slots = Math.max(2, 2 * expectedEdges);
+		next = new int[slots];
+		to = new int[slots];
+		capacity = new int[slots];
+		cost = new long[slots];
+	}
+
+	/**
+	 * Adds a directed edge.
+	 *
+	 * @param from represents the tail node.
+	 * @param target represents the head node.
+	 * @param edgeCapacity represents how many units may flow through the edge.
+	 * @param edgeCost represents the cost of one unit of flow.
+	 * @return The edge's id, to read its flow once the problem is solved.
+	 */
+
+	public int addEdge(int from, int target, int edgeCapacity, long edgeCost) {
+		int id = edges;
+		link(from, target, edgeCapacity, edgeCost);
+		link(target, from, 0, -edgeCost);
+		return id;
+	}
+
+	public int getFlow(int edge) {
+		return capacity[edge ^ 1];
+	}
+
+	/**
+	 * Pushes as much flow as possible from source to sink, as cheaply as possible.
+	 *
+	 * @param source represents the node flow starts from.
+	 * @param sink represents the node flow ends at.
+	 * @return The total flow and its total cost, as {flow, cost}.
+	 */
+
+	public long[] solve(int source, int sink) {
+		long[] potential = bellmanFord(source);
+		long[] distance = new long[nodes];
+		int[] parentEdge = new int[nodes];
+		boolean[] done = new boolean[nodes];
+
+		long flow = 0;
+		long totalCost = 0;
+		while (true) {
+			Arrays.fill(distance, INFINITE);
+			Arrays.fill(parentEdge, -1);
+			Arrays.fill(done, false);
+			distance[source] = 0;
+
+			for (int round = 0; round < nodes; round++) {
+				int u = -1;
+				for (int v = 0; v < nodes; v++) {
+					if (!done[v] && distance[v] < INFINITE && (u == -1 || distance[v] < distance[u])) {
+						u = v;
+					}
+				}
+				if (u == -1) {
+					break;
+				}
+				done[u] = true;
+				for (int e = head[u]; e != -1; e = next[e]) {
+					int v = to[e];
+					if (capacity[e] > 0 && potential[v] < INFINITE) {
+						long reduced = distance[u] + cost[e] + potential[u] - potential[v];
+						if (reduced < distance[v]) {
+							distance[v] = reduced;
+							parentEdge[v] = e;
+						}
+					}
+				}
+			}
+			if (distance[sink] >= INFINITE) {
+				break;
+			}
+			for (int v = 0; v < nodes; v++) {
+				if (distance[v] < INFINITE) {
+					potential[v] += distance[v];
+				}
+			}
+
+			int push = Integer.MAX_VALUE;
+			for (int v = sink; v != source; v = to[parentEdge[v] ^ 1]) {
+				push = Math.min(push, capacity[parentEdge[v]]);
+			}
+			for (int v = sink; v != source; v = to[parentEdge[v] ^ 1]) {
+				int e = parentEdge[v];
+				capacity[e] -= push;
+				capacity[e ^ 1] += push;
+				totalCost += (long) push * cost[e];
+			}
+			flow += push;
+		}
+		return new long[] {flow, totalCost};
+	}
+
+	//Shortest distances over the initial edges, which may have negative costs but no negative cycles
+	private long[] bellmanFord(int source) {
+		long[] distance = new long[nodes];
+		Arrays.fill(distance, INFINITE);
+		distance[source] = 0;
+		for (int round = 1; round < nodes; round++) {
+			boolean changed = false;
+			for (int u = 0; u < nodes; u++) {
+				if (distance[u] >= INFINITE) {
+					continue;
+				}
+				for (int e = head[u]; e != -1; e = next[e]) {
+					if (capacity[e] > 0 && distance[u] + cost[e] < distance[to[e]]) {
+						distance[to[e]] = distance[u] + cost[e];
+						changed = true;
+					}
+				}
+			}
+			if (!changed) {
+				break;
+			}
+		}
+		return distance;
+	}
+
+	private void link(int from, int target, int edgeCapacity, long edgeCost) {
+		if (edges == to.length) {
+			int slots = to.length * 2;
+			next = Arrays.copyOf(next, slots);
+			to = Arrays.copyOf(to, slots);
+			capacity = Arrays.copyOf(capacity, slots);
+			cost = Arrays.copyOf(cost, slots);
+		}
+		next[edges] = head[from];
+		to[edges] = target;
+		capacity[edges] = edgeCapacity;
+		cost[edges] = edgeCost;
+		head[from] = edges++;
+	}
+
+}
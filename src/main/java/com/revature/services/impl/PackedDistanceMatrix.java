@@ -0,0 +1,148 @@
+package com.revature.services.impl;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.revature.beans.Waypoint;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+
+/**
+ * PackedDistanceMatrix holds a matrix of distances in meters as one int array, row after
+ * row, with -1 for UNREACHABLE. Rows and columns are found by canonical address. It never
+ * changes once built, extending it makes a new matrix, so readers need no lock.
+ *
+ */
+
+public final class PackedDistanceMatrix {
+
+	private final Waypoint[] origins;
+
+	private final Waypoint[] destinations;
+
+	private final Map<String, Integer> rows;
+
+	private final Map<String, Integer> columns;
+
+	private final int[] meters;
+
+	/**
+	 * @param origins represents the rows.
+	 * @param destinations represents the columns.
+	 * @param meters represents the distances row after row, -1 where unreachable.
+	 */
+
+	public PackedDistanceMatrix(Waypoint[] origins, Waypoint[] destinations, int[] meters) {
+		if (meters.length != origins.length * destinations.length) {
+			throw new IllegalArgumentException("A " + origins.length + "x" + destinations.length + " matrix can't hold "
+					+ meters.length + " distances");
+		}
+		this.origins = origins;
+		this.destinations = destinations;
+		this.meters = meters;
+		this.rows = positions(origins);
+		this.columns = positions(destinations);
+	}
+
+	public static PackedDistanceMatrix of(Waypoint[] origins, Waypoint[] destinations, long[][] distances) {
+		int[] meters = new int[origins.length * destinations.length];
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				meters[i * destinations.length + j] = pack(distances[i][j]);
+			}
+		}
+		return new PackedDistanceMatrix(origins, destinations, meters);
+	}
+
+	/**
+	 * Adds rows and columns, keeping every distance already known.
+	 *
+	 * @param newOrigins represents the rows to add.
+	 * @param newDestinations represents the columns to add.
+	 * @param newRows represents the new origins to every destination, old and new.
+	 * @param newColumns represents the old origins to the new destinations.
+	 * @return A new matrix, this one is unchanged.
+	 */
+
+	public PackedDistanceMatrix extend(Waypoint[] newOrigins, Waypoint[] newDestinations, long[][] newRows, long[][] newColumns) {
+		Waypoint[] allOrigins = concat(origins, newOrigins);
+		Waypoint[] allDestinations = concat(destinations, newDestinations);
+		int width = allDestinations.length;
+		int[] extended = new int[allOrigins.length * width];
+		for (int i = 0; i < origins.length; i++) {
+			System.arraycopy(meters, i * destinations.length, extended, i * width, destinations.length);
+			for (int j = 0; j < newDestinations.length; j++) {
+				extended[i * width + destinations.length + j] = pack(newColumns[i][j]);
+			}
+		}
+		for (int i = 0; i < newOrigins.length; i++) {
+			for (int j = 0; j < width; j++) {
+				extended[(origins.length + i) * width + j] = pack(newRows[i][j]);
+			}
+		}
+		return new PackedDistanceMatrix(allOrigins, allDestinations, extended);
+	}
+
+	//A distance, UNREACHABLE, or MISSING when the matrix has no such row or column
+	public long get(String originKey, String destinationKey) {
+		Integer row = rows.get(originKey);
+		Integer column = columns.get(destinationKey);
+		if (row == null || column == null) {
+			return DistanceCacheService.MISSING;
+		}
+		int distance = meters[row * destinations.length + column];
+		return distance < 0 ? DistanceProvider.UNREACHABLE : distance;
+	}
+
+	public boolean hasOrigin(String key) {
+		return rows.containsKey(key);
+	}
+
+	public boolean hasDestination(String key) {
+		return columns.containsKey(key);
+	}
+
+	public Waypoint[] getOrigins() {
+		return origins.clone();
+	}
+
+	public Waypoint[] getDestinations() {
+		return destinations.clone();
+	}
+
+	public byte[] toBytes() {
+		ByteBuffer bytes = ByteBuffer.allocate(meters.length * 4);
+		bytes.asIntBuffer().put(meters);
+		return bytes.array();
+	}
+
+	public static int[] fromBytes(byte[] bytes) {
+		int[] meters = new int[bytes.length / 4];
+		ByteBuffer.wrap(bytes).asIntBuffer().get(meters);
+		return meters;
+	}
+
+	private static int pack(long distance) {
+		if (distance < 0) {
+			return -1;
+		}
+		return (int) Math.min(distance, Integer.MAX_VALUE);
+	}
+
+	private static Map<String, Integer> positions(Waypoint[] waypoints) {
+		Map<String, Integer> positions = new HashMap<String, Integer>();
+		for (int i = 0; i < waypoints.length; i++) {
+			positions.putIfAbsent(AddressCanonicalizer.canonical(waypoints[i].getAddress()), i);
+		}
+		return positions;
+	}
+
+	private static Waypoint[] concat(Waypoint[] first, Waypoint[] second) {
+		Waypoint[] all = new Waypoint[first.length + second.length];
+		System.arraycopy(first, 0, all, 0, first.length);
+		System.arraycopy(second, 0, all, first.length, second.length);
+		return all;
+	}
+
+}
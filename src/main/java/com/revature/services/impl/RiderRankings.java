@@ -0,0 +1,217 @@
+package com.revature.services.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.revature.beans.User;
+import com.revature.beans.Waypoint;
+
+/**
+ * RiderRankings keeps each rider's drivers in the order they are recommended in, so a rider
+ * asking again is answered from memory. A ranking covers the rider's pre-filtered drivers, or
+ * every driver of the batch when none were filtered out, and is changed one driver at a time
+ * as drivers come, go or move. The least recently asked rankings are dropped past the capacity.
+ *
+ */
+
+public final class RiderRankings {
+
+	private final Map<Integer, Ranking> rankings;
+
+	public RiderRankings(final int capacity) {
+		this.rankings = new LinkedHashMap<Integer, Ranking>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Ranking> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public synchronized Ranking get(int riderId) {
+		return rankings.get(riderId);
+	}
+
+	public synchronized void put(Ranking ranking) {
+		rankings.put(ranking.riderId, ranking);
+	}
+
+	public synchronized Ranking remove(int riderId) {
+		return rankings.remove(riderId);
+	}
+
+	public synchronized List<Ranking> all() {
+		return new ArrayList<Ranking>(rankings.values());
+	}
+
+	public synchronized int size() {
+		return rankings.size();
+	}
+
+	/**
+	 * One rider's drivers by added distance, shortest first, with what the distances were
+	 * computed from. Callers lock the ranking while they change it together with its version.
+	 */
+
+	public static final class Ranking {
+
+		private final int riderId;
+
+		private final int batchNumber;
+
+		private final String riderKey;
+
+		private final Waypoint home;
+
+		private final Waypoint work;
+
+		private final long riderToWork;
+
+		private final int keep;
+
+		private final TreeSet<Scored> order = new TreeSet<Scored>();
+
+		private final Map<Integer, Scored> byDriver = new HashMap<Integer, Scored>();
+
+		private long version;
+
+		private int pending;
+
+		/**
+		 * @param riderId represents the rider.
+		 * @param batchNumber represents the rider's batch.
+		 * @param riderKey represents the rider's addresses and commute, the ranking is only valid for the same key.
+		 * @param home represents the rider's home.
+		 * @param work represents the rider's work.
+		 * @param riderToWork represents the rider's commute.
+		 * @param version represents the batch's roster version the drivers were read at.
+		 * @param drivers represents the batch's drivers that passed the pre-filter.
+		 * @param detours represents the added distance of each driver.
+		 * @param keep represents how many drivers the pre-filter kept, 0 when it kept the whole batch.
+		 */
+
+		public Ranking(int riderId, int batchNumber, String riderKey, Waypoint home, Waypoint work, long riderToWork,
+				long version, List<User> drivers, double[] detours, int keep) {
+			this.riderId = riderId;
+			this.batchNumber = batchNumber;
+			this.riderKey = riderKey;
+			this.home = home;
+			this.work = work;
+			this.riderToWork = riderToWork;
+			this.version = version;
+			this.keep = keep;
+			for (int i = 0; i < drivers.size(); i++) {
+				put(drivers.get(i), detours[i]);
+			}
+		}
+
+		public synchronized List<User> top(int count) {
+			List<User> top = new ArrayList<User>();
+			Iterator<Scored> drivers = order.iterator();
+			while (top.size() < count && drivers.hasNext()) {
+				top.add(drivers.next().driver);
+			}
+			return top;
+		}
+
+		//Inserts the driver, or replaces it and its distance
+		public synchronized void put(User driver, double detour) {
+			remove(driver.getUserId());
+			Scored scored = new Scored(driver, detour);
+			order.add(scored);
+			byDriver.put(driver.getUserId(), scored);
+		}
+
+		public synchronized User remove(int driverId) {
+			Scored scored = byDriver.remove(driverId);
+			if (scored == null) {
+				return null;
+			}
+			order.remove(scored);
+			return scored.driver;
+		}
+
+		public synchronized Double detour(int driverId) {
+			Scored scored = byDriver.get(driverId);
+			return scored == null ? null : scored.detour;
+		}
+
+		public synchronized int size() {
+			return byDriver.size();
+		}
+
+		//Drivers filtered out were never scored, so only a request whose pre-filter keeps no more drivers than this one did,
+		//for as many as are left, is answered the way a fresh ranking would
+		public synchronized boolean covers(int count, int keep) {
+			return this.keep == 0 || (keep > 0 && keep <= this.keep && byDriver.size() >= count);
+		}
+
+		//Valid for the rider as they are now, with no driver's distance still being fetched
+		public synchronized boolean isCurrent(String riderKey, int batchNumber, long version) {
+			return pending == 0 && this.version == version && this.batchNumber == batchNumber && this.riderKey.equals(riderKey);
+		}
+
+		public synchronized long getVersion() {
+			return version;
+		}
+
+		public synchronized void setVersion(long version) {
+			this.version = version;
+		}
+
+		public synchronized void startFetch() {
+			pending++;
+		}
+
+		public synchronized void endFetch() {
+			pending--;
+		}
+
+		public int getRiderId() {
+			return riderId;
+		}
+
+		public int getBatchNumber() {
+			return batchNumber;
+		}
+
+		public Waypoint getHome() {
+			return home;
+		}
+
+		public Waypoint getWork() {
+			return work;
+		}
+
+		public long getRiderToWork() {
+			return riderToWork;
+		}
+	}
+
+	//Ordered by distance, ties by driver id so two drivers never collide, the order fresh rankings tie in too
+	private static final class Scored implements Comparable<Scored> {
+
+		private final User driver;
+
+		private final double detour;
+
+		private Scored(User driver, double detour) {
+			this.driver = driver;
+			this.detour = detour;
+		}
+
+		@Override
+		public int compareTo(Scored other) {
+			int byDetour = Double.compare(detour, other.detour);
+			return byDetour != 0 ? byDetour : Integer.compare(driver.getUserId(), other.driver.getUserId());
+		}
+	}
+
+}
@@ -0,0 +1,512 @@
+package com.revature.services.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.springframework.core.io.InputStreamSource;
+
+import com.revature.services.DistanceProvider;
+
+/**
+ * RoadGraph is a compact, read-only road network built from an OpenStreetMap XML extract.
+ * Nodes and edges are stored in primitive arrays (forward and reverse adjacency in CSR form)
+ * and distance matrices are answered with one-to-many Dijkstra searches run from whichever
+ * side of the matrix is smaller. A graph can be shared between threads.
+ *
+ */
+
+public final class RoadGraph {
+
+	/**
+	 * Returned by nearestNode when there is no node close enough.
+	 */
+	public static final int NO_NODE = -1;
+
+	private static final int UNSEEN = -1;
+	private static final int SETTLED = -2;
+
+	//Size of a cell of the snapping grid, roughly a kilometer
+	private static final double CELL_DEGREES = 0.01;
+	private static final double METERS_PER_DEGREE = Math.PI * Haversine.EARTH_RADIUS_METERS / 180;
+
+	private static final Set<String> DRIVABLE = new HashSet<String>(Arrays.asList("motorway", "motorway_link",
+			"trunk", "trunk_link", "primary", "primary_link", "secondary", "secondary_link", "tertiary",
+			"tertiary_link", "unclassified", "residential", "living_street", "service", "road"));
+
+	private final double[] latitudes;
+	private final double[] longitudes;
+
+	private final int[] forwardFirst;
+	private final int[] forwardTarget;
+	private final int[] forwardWeight;
+	private final int[] reverseFirst;
+	private final int[] reverseTarget;
+	private final int[] reverseWeight;
+
+	private final Map<Long, int[]> grid;
+
+	private final ThreadLocal<SearchSpace> searchSpaces;
+
+	RoadGraph(double[] latitudes, double[] longitudes, int[] edgeFrom, int[] edgeTo, int[] edgeWeight, int edgeCount) {
+		int nodeCount = latitudes.length;
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+
+		this.forwardFirst = new int[nodeCount + 1];
+		this.forwardTarget = new int[edgeCount];
+		this.forwardWeight = new int[edgeCount];
+		buildAdjacency(edgeFrom, edgeTo, edgeWeight, edgeCount, forwardFirst, forwardTarget, forwardWeight);
+
+		this.reverseFirst = new int[nodeCount + 1];
+		this.reverseTarget = new int[edgeCount];
+		this.reverseWeight = new int[edgeCount];
+		buildAdjacency(edgeTo, edgeFrom, edgeWeight, edgeCount, reverseFirst, reverseTarget, reverseWeight);
+
+		this.grid = buildGrid(latitudes, longitudes);
+		this.searchSpaces = ThreadLocal.withInitial(() -> new SearchSpace(nodeCount));
+	}
+
+	/**
+	 * Reads the drivable ways of an OpenStreetMap XML extract. The source is read twice: once
+	 * for the ways and once for the coordinates of the nodes they use.
+	 *
+	 * @param source represents the .osm file.
+	 * @return The road graph.
+	 */
+
+	public static RoadGraph fromOsmXml(InputStreamSource source) throws IOException {
+		Map<Long, Integer> nodeIndex = new HashMap<Long, Integer>();
+		List<long[]> ways = new ArrayList<long[]>();
+		List<Integer> directions = new ArrayList<Integer>();
+
+		try (InputStream in = source.getInputStream()) {
+			readWays(in, nodeIndex, ways, directions);
+		}
+
+		double[] latitudes = new double[nodeIndex.size()];
+		double[] longitudes = new double[nodeIndex.size()];
+		Arrays.fill(latitudes, Double.NaN);
+		try (InputStream in = source.getInputStream()) {
+			readNodes(in, nodeIndex, latitudes, longitudes);
+		}
+
+		int capacity = 16;
+		int[] edgeFrom = new int[capacity];
+		int[] edgeTo = new int[capacity];
+		int[] edgeWeight = new int[capacity];
+		int edgeCount = 0;
+		for (int w = 0; w < ways.size(); w++) {
+			long[] refs = ways.get(w);
+			int direction = directions.get(w);
+			for (int i = 1; i < refs.length; i++) {
+				int a = nodeIndex.get(refs[i - 1]);
+				int b = nodeIndex.get(refs[i]);
+				//Extracts can be cut at a boundary, leaving ways that point at missing nodes
+				if (Double.isNaN(latitudes[a]) || Double.isNaN(latitudes[b])) {
+					continue;
+				}
+				int weight = (int) Math.round(Haversine.distance(latitudes[a], longitudes[a], latitudes[b], longitudes[b]));
+				if (edgeCount + 2 > capacity) {
+					capacity *= 2;
+					edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+					edgeTo = Arrays.copyOf(edgeTo, capacity);
+					edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+				}
+				if (direction >= 0) {
+					edgeFrom[edgeCount] = a;
+					edgeTo[edgeCount] = b;
+					edgeWeight[edgeCount++] = weight;
+				}
+				if (direction <= 0) {
+					edgeFrom[edgeCount] = b;
+					edgeTo[edgeCount] = a;
+					edgeWeight[edgeCount++] = weight;
+				}
+			}
+		}
+
+		return new RoadGraph(latitudes, longitudes, edgeFrom, edgeTo, edgeWeight, edgeCount);
+	}
+
+	public int getNodeCount() {
+		return latitudes.length;
+	}
+
+	public int getEdgeCount() {
+		return forwardTarget.length;
+	}
+
+	/**
+	 * Finds the node closest to a coordinate.
+	 *
+	 * @param latitude represents the latitude in degrees.
+	 * @param longitude represents the longitude in degrees.
+	 * @param maxMeters represents how far away the node may be.
+	 * @return The index of the node, or NO_NODE.
+	 */
+
+	public int nearestNode(double latitude, double longitude, double maxMeters) {
+		long row = (long) Math.floor(latitude / CELL_DEGREES);
+		long column = (long) Math.floor(longitude / CELL_DEGREES);
+		double cellHeight = CELL_DEGREES * METERS_PER_DEGREE;
+		double cellWidth = Math.max(cellHeight * Math.cos(Math.toRadians(latitude)), 1);
+		long rows = (long) Math.ceil(maxMeters / cellHeight);
+		long columns = (long) Math.ceil(maxMeters / cellWidth);
+
+		int best = NO_NODE;
+		double bestMeters = maxMeters;
+		for (long r = row - rows; r <= row + rows; r++) {
+			for (long c = column - columns; c <= column + columns; c++) {
+				int[] nodes = grid.get(cellKey(r, c));
+				if (nodes == null) {
+					continue;
+				}
+				for (int node : nodes) {
+					double meters = distanceToNode(node, latitude, longitude);
+					if (meters <= bestMeters) {
+						best = node;
+						bestMeters = meters;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Straight-line distance between a coordinate and a node, used to account for the gap
+	 * between an address and the road it was snapped to.
+	 */
+
+	public double distanceToNode(int node, double latitude, double longitude) {
+		return Haversine.distance(latitudes[node], longitudes[node], latitude, longitude);
+	}
+
+	/**
+	 * Calculates the shortest road distance from every origin node to every destination node.
+	 *
+	 * @param origins represents the origin nodes, NO_NODE is allowed.
+	 * @param destinations represents the destination nodes, NO_NODE is allowed.
+	 * @return The distances in meters, or DistanceProvider.UNREACHABLE.
+	 */
+
+	public long[][] distances(int[] origins, int[] destinations) {
+		long[][] result = new long[origins.length][destinations.length];
+		long[] found;
+
+		if (origins.length <= destinations.length) {
+			found = new long[destinations.length];
+			for (int i = 0; i < origins.length; i++) {
+				search(forwardFirst, forwardTarget, forwardWeight, origins[i], destinations, found);
+				System.arraycopy(found, 0, result[i], 0, found.length);
+			}
+		} else {
+			//Fewer destinations than origins, so search backwards from each destination instead
+			found = new long[origins.length];
+			for (int j = 0; j < destinations.length; j++) {
+				search(reverseFirst, reverseTarget, reverseWeight, destinations[j], origins, found);
+				for (int i = 0; i < origins.length; i++) {
+					result[i][j] = found[i];
+				}
+			}
+		}
+		return result;
+	}
+
+	//Dijkstra from source that stops as soon as every target has been settled
+	private void search(int[] first, int[] target, int[] weight, int source, int[] targets, long[] found) {
+		Arrays.fill(found, DistanceProvider.UNREACHABLE);
+		if (source == NO_NODE) {
+			return;
+		}
+
+		SearchSpace space = searchSpaces.get();
+		int stamp = space.nextStamp();
+		int remaining = 0;
+		for (int t : targets) {
+			if (t != NO_NODE && space.targetStamp[t] != stamp) {
+				space.targetStamp[t] = stamp;
+				remaining++;
+			}
+		}
+
+		space.reach(source, 0, stamp);
+		while (remaining > 0 && space.heapSize > 0) {
+			int u = space.pop();
+			if (space.targetStamp[u] == stamp) {
+				remaining--;
+			}
+			int du = space.dist[u];
+			for (int e = first[u]; e < first[u + 1]; e++) {
+				int v = target[e];
+				if (space.visitStamp[v] == stamp && space.heapPos[v] == SETTLED) {
+					continue;
+				}
+				int dv = du + weight[e];
+				if (space.visitStamp[v] != stamp || dv < space.dist[v]) {
+					space.reach(v, dv, stamp);
+				}
+			}
+		}
+
+		for (int k = 0; k < targets.length; k++) {
+			int t = targets[k];
+			if (t != NO_NODE && space.visitStamp[t] == stamp && space.heapPos[t] == SETTLED) {
+				found[k] = space.dist[t];
+			}
+		}
+	}
+
+	private static void buildAdjacency(int[] from, int[] to, int[] weights, int edgeCount, int[] first, int[] target, int[] weight) {
+		for (int e = 0; e < edgeCount; e++) {
+			first[from[e] + 1]++;
+		}
+		for (int n = 1; n < first.length; n++) {
+			first[n] += first[n - 1];
+		}
+		int[] next = Arrays.copyOf(first, first.length - 1);
+		for (int e = 0; e < edgeCount; e++) {
+			int slot = next[from[e]]++;
+			target[slot] = to[e];
+			weight[slot] = weights[e];
+		}
+	}
+
+	private static Map<Long, int[]> buildGrid(double[] latitudes, double[] longitudes) {
+		Map<Long, int[]> cells = new HashMap<Long, int[]>();
+		Map<Long, Integer> sizes = new HashMap<Long, Integer>();
+		for (int n = 0; n < latitudes.length; n++) {
+			if (!Double.isNaN(latitudes[n])) {
+				sizes.merge(cellKey(latitudes[n], longitudes[n]), 1, Integer::sum);
+			}
+		}
+		for (Map.Entry<Long, Integer> entry : sizes.entrySet()) {
+			cells.put(entry.getKey(), new int[entry.getValue()]);
+			entry.setValue(0);
+		}
+		for (int n = 0; n < latitudes.length; n++) {
+			if (!Double.isNaN(latitudes[n])) {
+				long key = cellKey(latitudes[n], longitudes[n]);
+				cells.get(key)[sizes.merge(key, 1, Integer::sum) - 1] = n;
+			}
+		}
+		return cells;
+	}
+
+	private static long cellKey(double latitude, double longitude) {
+		return cellKey((long) Math.floor(latitude / CELL_DEGREES), (long) Math.floor(longitude / CELL_DEGREES));
+	}
+
+	private static long cellKey(long row, long column) {
+		return (row << 32) | (column & 0xffffffffL);
+	}
+
+	private static XMLStreamReader reader(InputStream in) throws IOException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		try {
+			return factory.createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	//Collects drivable ways as node id lists with their direction (1 forward only, -1 backward only, 0 both)
+	private static void readWays(InputStream in, Map<Long, Integer> nodeIndex, List<long[]> ways, List<Integer> directions) throws IOException {
+		XMLStreamReader xml = reader(in);
+		try {
+			long[] refs = new long[16];
+			int refCount = 0;
+			boolean inWay = false;
+			String highway = null;
+			String oneway = null;
+			String junction = null;
+
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = xml.getLocalName();
+					if ("way".equals(name)) {
+						inWay = true;
+						refCount = 0;
+						highway = null;
+						oneway = null;
+						junction = null;
+					} else if (inWay && "nd".equals(name)) {
+						if (refCount == refs.length) {
+							refs = Arrays.copyOf(refs, refCount * 2);
+						}
+						refs[refCount++] = Long.parseLong(xml.getAttributeValue(null, "ref"));
+					} else if (inWay && "tag".equals(name)) {
+						String key = xml.getAttributeValue(null, "k");
+						String value = xml.getAttributeValue(null, "v");
+						if ("highway".equals(key)) {
+							highway = value;
+						} else if ("oneway".equals(key)) {
+							oneway = value;
+						} else if ("junction".equals(key)) {
+							junction = value;
+						}
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT && "way".equals(xml.getLocalName())) {
+					inWay = false;
+					if (highway == null || !DRIVABLE.contains(highway) || refCount < 2) {
+						continue;
+					}
+					long[] way = Arrays.copyOf(refs, refCount);
+					for (long ref : way) {
+						nodeIndex.putIfAbsent(ref, nodeIndex.size());
+					}
+					ways.add(way);
+					directions.add(direction(highway, oneway, junction));
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static int direction(String highway, String oneway, String junction) {
+		if (oneway == null) {
+			boolean impliedOneway = "motorway".equals(highway) || "motorway_link".equals(highway) || "roundabout".equals(junction);
+			return impliedOneway ? 1 : 0;
+		}
+		switch (oneway) {
+		case "yes":
+		case "true":
+		case "1":
+			return 1;
+		case "-1":
+		case "reverse":
+			return -1;
+		default:
+			return 0;
+		}
+	}
+
+	private static void readNodes(InputStream in, Map<Long, Integer> nodeIndex, double[] latitudes, double[] longitudes) throws IOException {
+		XMLStreamReader xml = reader(in);
+		try {
+			while (xml.hasNext()) {
+				if (xml.next() == XMLStreamConstants.START_ELEMENT && "node".equals(xml.getLocalName())) {
+					Integer index = nodeIndex.get(Long.parseLong(xml.getAttributeValue(null, "id")));
+					if (index != null) {
+						latitudes[index] = Double.parseDouble(xml.getAttributeValue(null, "lat"));
+						longitudes[index] = Double.parseDouble(xml.getAttributeValue(null, "lon"));
+					}
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Per-thread working arrays for a search. Stamps let the arrays be reused without clearing them.
+	 */
+
+	private static final class SearchSpace {
+
+		private final int[] dist;
+		private final int[] visitStamp;
+		private final int[] targetStamp;
+		private final int[] heapPos;
+		private final int[] heap;
+		private int heapSize;
+		private int stamp;
+
+		private SearchSpace(int nodeCount) {
+			dist = new int[nodeCount];
+			visitStamp = new int[nodeCount];
+			targetStamp = new int[nodeCount];
+			heapPos = new int[nodeCount];
+			heap = new int[nodeCount];
+		}
+
+		private int nextStamp() {
+			heapSize = 0;
+			if (++stamp == Integer.MAX_VALUE) {
+				Arrays.fill(visitStamp, 0);
+				Arrays.fill(targetStamp, 0);
+				stamp = 1;
+			}
+			return stamp;
+		}
+
+		//Inserts a node or lowers its distance if it is already queued
+		private void reach(int node, int distance, int currentStamp) {
+			if (visitStamp[node] != currentStamp) {
+				visitStamp[node] = currentStamp;
+				heapPos[node] = UNSEEN;
+			}
+			dist[node] = distance;
+			if (heapPos[node] == UNSEEN) {
+				heap[heapSize] = node;
+				heapPos[node] = heapSize++;
+			}
+			siftUp(heapPos[node]);
+		}
+
+		private int pop() {
+			int top = heap[0];
+			heapPos[top] = SETTLED;
+			if (--heapSize > 0) {
+				heap[0] = heap[heapSize];
+				heapPos[heap[0]] = 0;
+				siftDown(0);
+			}
+			return top;
+		}
+
+		private void siftUp(int pos) {
+			int node = heap[pos];
+			while (pos > 0) {
+				int parent = (pos - 1) >>> 1;
+				if (dist[heap[parent]] <= dist[node]) {
+					break;
+				}
+				heap[pos] = heap[parent];
+				heapPos[heap[pos]] = pos;
+				pos = parent;
+			}
+			heap[pos] = node;
+			heapPos[node] = pos;
+		}
+
+		private void siftDown(int pos) {
+			int node = heap[pos];
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if (child + 1 < heapSize && dist[heap[child + 1]] < dist[heap[child]]) {
+					child++;
+				}
+				if (dist[heap[child]] >= dist[node]) {
+					break;
+				}
+				heap[pos] = heap[child];
+				heapPos[heap[pos]] = pos;
+				pos = child;
+			}
+			heap[pos] = node;
+			heapPos[node] = pos;
+		}
+
+	}
+
+}
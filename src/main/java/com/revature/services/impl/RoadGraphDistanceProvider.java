@@ -0,0 +1,100 @@
+package com.revature.services.impl;
+
+import java.io.IOException;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import com.revature.beans.Waypoint;
+import com.revature.services.DistanceProvider;
+
+/**
+ * RoadGraphDistanceProvider answers distance matrices offline from a local OpenStreetMap
+ * extract, so recommendations don't need a network round trip. Enable it with
+ * distance.provider=road-graph and point distance.road-graph.file at a .osm file.
+ * Waypoints need coordinates to be routed; those without are UNREACHABLE.
+ *
+ */
+
+@Service
+@ConditionalOnProperty(name = "distance.provider", havingValue = "road-graph")
+public class RoadGraphDistanceProvider implements DistanceProvider {
+
+	private static final Logger LOGGER = LogManager.getLogger(RoadGraphDistanceProvider.class);
+
+	@Value("${distance.road-graph.file}")
+	private Resource file;
+
+	//How far an address may be from the nearest road node before it is considered unroutable
+	@Value("${distance.road-graph.max-snap-meters:2000}")
+	private double maxSnapMeters;
+
+	private RoadGraph graph;
+
+	public RoadGraphDistanceProvider() {
+		super();
+	}
+
+	public RoadGraphDistanceProvider(RoadGraph graph, double maxSnapMeters) {
+		super();
+		this.graph = graph;
+		this.maxSnapMeters = maxSnapMeters;
+	}
+
+	@PostConstruct
+	public void loadGraph() throws IOException {
+		long start = System.currentTimeMillis();
+		graph = RoadGraph.fromOsmXml(file);
+		LOGGER.info("Loaded road graph from " + file.getDescription() + " with " + graph.getNodeCount() + " nodes and "
+				+ graph.getEdgeCount() + " edges in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Snaps every waypoint to its nearest road and runs the shortest path searches locally.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @return The distances in meters, UNREACHABLE where no route was found.
+	 */
+
+	@Override
+	public long[][] getDistances(Waypoint[] origins, Waypoint[] destinations) {
+		int[] originNodes = new int[origins.length];
+		double[] originOffsets = new double[origins.length];
+		snap(origins, originNodes, originOffsets);
+
+		int[] destinationNodes = new int[destinations.length];
+		double[] destinationOffsets = new double[destinations.length];
+		snap(destinations, destinationNodes, destinationOffsets);
+
+		long[][] distances = graph.distances(originNodes, destinationNodes);
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				if (distances[i][j] != UNREACHABLE) {
+					distances[i][j] += Math.round(originOffsets[i] + destinationOffsets[j]);
+				}
+			}
+		}
+		return distances;
+	}
+
+	private void snap(Waypoint[] waypoints, int[] nodes, double[] offsets) {
+		for (int i = 0; i < waypoints.length; i++) {
+			Waypoint waypoint = waypoints[i];
+			nodes[i] = RoadGraph.NO_NODE;
+			if (waypoint.hasCoordinates()) {
+				nodes[i] = graph.nearestNode(waypoint.getLatitude(), waypoint.getLongitude(), maxSnapMeters);
+			}
+			if (nodes[i] != RoadGraph.NO_NODE) {
+				offsets[i] = graph.distanceToNode(nodes[i], waypoint.getLatitude(), waypoint.getLongitude());
+			}
+		}
+	}
+
+}
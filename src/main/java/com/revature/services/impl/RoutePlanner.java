@@ -0,0 +1,203 @@
+package com.revature.services.impl;
+
+import java.util.Arrays;
+
+import com.revature.services.DistanceProvider;
+
+/**
+ * RoutePlanner pools riders into cars. Each driver's route starts at their home, picks up
+ * riders in order and ends at work, with no more riders than the driver has seats.
+ * Routes are built by cheapest insertion: the rider that can be added to some route for the
+ * smallest increase in length goes first, at the best position of the best route. Each route's
+ * pickup order is then improved with 2-opt. Everything is read from one precomputed matrix,
+ * so no ordering that is tried costs a provider call.
+ *
+ * The matrix covers n people: distances[i][j] is the drive from i's home to j's home and
+ * distances[i][n + j] the drive from i's home to j's work.
+ *
+ */
+
+public final class RoutePlanner {
+
+	private static final long INFINITE = Long.MAX_VALUE / 4;
+
+	private final long[][] distances;
+
+	private final int people;
+
+	public RoutePlanner(long[][] distances) {
+		this.distances = distances;
+		this.people = distances.length;
+	}
+
+	/**
+	 * Plans a route for every driver.
+	 *
+	 * @param drivers represents the drivers, as indices into the matrix.
+	 * @param seats represents how many riders each driver can take.
+	 * @param riders represents the riders to pool, as indices into the matrix.
+	 * @return The pickup order of each driver's route. Riders in no route couldn't be seated.
+	 */
+
+	public int[][] plan(int[] drivers, int[] seats, int[] riders) {
+		int[][] routes = new int[drivers.length][];
+		int[] sizes = new int[drivers.length];
+		for (int k = 0; k < drivers.length; k++) {
+			routes[k] = new int[Math.max(0, seats[k])];
+		}
+
+		//Best insertion of every unseated rider, refreshed only where a route changed
+		boolean[] seated = new boolean[riders.length];
+		long[] bestDelta = new long[riders.length];
+		int[] bestRoute = new int[riders.length];
+		int[] bestPosition = new int[riders.length];
+		for (int r = 0; r < riders.length; r++) {
+			findBestInsertion(r, riders, drivers, routes, sizes, bestDelta, bestRoute, bestPosition);
+		}
+
+		while (true) {
+			int next = -1;
+			for (int r = 0; r < riders.length; r++) {
+				if (!seated[r] && bestDelta[r] < INFINITE && (next == -1 || bestDelta[r] < bestDelta[next])) {
+					next = r;
+				}
+			}
+			if (next == -1) {
+				break;
+			}
+
+			int k = bestRoute[next];
+			int position = bestPosition[next];
+			System.arraycopy(routes[k], position, routes[k], position + 1, sizes[k] - position);
+			routes[k][position] = riders[next];
+			sizes[k]++;
+			seated[next] = true;
+
+			for (int r = 0; r < riders.length; r++) {
+				if (seated[r]) {
+					continue;
+				}
+				if (bestRoute[r] == k) {
+					//The route this rider wanted changed or filled up, look everywhere again
+					findBestInsertion(r, riders, drivers, routes, sizes, bestDelta, bestRoute, bestPosition);
+				} else if (sizes[k] < routes[k].length) {
+					//Other routes are unchanged, only the changed one can now be better
+					long[] candidate = cheapestPosition(riders[r], drivers[k], routes[k], sizes[k]);
+					if (candidate[0] < bestDelta[r]) {
+						bestDelta[r] = candidate[0];
+						bestRoute[r] = k;
+						bestPosition[r] = (int) candidate[1];
+					}
+				}
+			}
+		}
+
+		int[][] planned = new int[drivers.length][];
+		for (int k = 0; k < drivers.length; k++) {
+			planned[k] = Arrays.copyOf(routes[k], sizes[k]);
+			twoOpt(drivers[k], planned[k]);
+		}
+		return planned;
+	}
+
+	/**
+	 * Measures a route from the driver's home, through the pickups in order, to the driver's work.
+	 *
+	 * @param driver represents the driver, as an index into the matrix.
+	 * @param pickups represents the riders in pickup order.
+	 * @return The route's length in meters, or a huge value if a leg can't be driven.
+	 */
+
+	public long routeLength(int driver, int[] pickups) {
+		long length = 0;
+		int from = driver;
+		//Stops at the first leg that reaches INFINITE, a few unreachable legs summed would overflow
+		for (int pickup : pickups) {
+			length += home(from, pickup);
+			if (length >= INFINITE) {
+				return INFINITE;
+			}
+			from = pickup;
+		}
+		return Math.min(INFINITE, length + work(from, driver));
+	}
+
+	//Reverses pickup segments while that shortens the route, distances may differ each way so routes are remeasured
+	private void twoOpt(int driver, int[] pickups) {
+		long best = routeLength(driver, pickups);
+		boolean improved = true;
+		while (improved) {
+			improved = false;
+			for (int i = 0; i < pickups.length - 1; i++) {
+				for (int j = i + 1; j < pickups.length; j++) {
+					reverse(pickups, i, j);
+					long length = routeLength(driver, pickups);
+					if (length < best) {
+						best = length;
+						improved = true;
+					} else {
+						reverse(pickups, i, j);
+					}
+				}
+			}
+		}
+	}
+
+	private void findBestInsertion(int r, int[] riders, int[] drivers, int[][] routes, int[] sizes,
+			long[] bestDelta, int[] bestRoute, int[] bestPosition) {
+		bestDelta[r] = INFINITE;
+		bestRoute[r] = -1;
+		for (int k = 0; k < drivers.length; k++) {
+			if (sizes[k] < routes[k].length) {
+				long[] candidate = cheapestPosition(riders[r], drivers[k], routes[k], sizes[k]);
+				if (candidate[0] < bestDelta[r]) {
+					bestDelta[r] = candidate[0];
+					bestRoute[r] = k;
+					bestPosition[r] = (int) candidate[1];
+				}
+			}
+		}
+	}
+
+	//Cheapest place to pick the rider up in a route, as {added length, position}
+	private long[] cheapestPosition(int rider, int driver, int[] route, int size) {
+		long best = INFINITE;
+		int position = -1;
+		for (int p = 0; p <= size; p++) {
+			int previous = p == 0 ? driver : route[p - 1];
+			long before = p == size ? work(previous, driver) : home(previous, route[p]);
+			long to = home(previous, rider);
+			long after = p == size ? work(rider, driver) : home(rider, route[p]);
+			if (before >= INFINITE || to >= INFINITE || after >= INFINITE) {
+				continue;
+			}
+			long added = to + after - before;
+			if (added < best) {
+				best = added;
+				position = p;
+			}
+		}
+		return new long[] {best, position};
+	}
+
+	private long home(int from, int to) {
+		return leg(distances[from][to]);
+	}
+
+	private long work(int from, int driver) {
+		return leg(distances[from][people + driver]);
+	}
+
+	private static long leg(long meters) {
+		return meters == DistanceProvider.UNREACHABLE || meters < 0 ? INFINITE : meters;
+	}
+
+	private static void reverse(int[] values, int i, int j) {
+		while (i < j) {
+			int value = values[i];
+			values[i++] = values[j];
+			values[j--] = value;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.revature.services.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * SingleFlight lets concurrent callers asking for the same key share one computation. The
+ * first caller starts it, and everyone who asks before it completes gets the same future.
+ * Once it completes the key is forgotten, so later callers start a fresh computation and
+ * nothing is cached here.
+ *
+ */
+
+public final class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+	/**
+	 * Joins the computation in flight for the key, or starts it.
+	 *
+	 * @param key represents what is being computed.
+	 * @param computation represents how to compute it, only called when nothing is in flight.
+	 * @return The shared result, which callers must not complete themselves.
+	 */
+
+	public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> computation) {
+		CompletableFuture<V> flight = new CompletableFuture<V>();
+		CompletableFuture<V> existing = flights.putIfAbsent(key, flight);
+		if (existing != null) {
+			return existing;
+		}
+
+		CompletableFuture<V> result;
+		try {
+			result = computation.get();
+		} catch (RuntimeException e) {
+			result = new CompletableFuture<V>();
+			result.completeExceptionally(e);
+		}
+		//Forgotten before it completes, so a caller continuing from it never joins a finished flight
+		result.whenComplete((value, error) -> {
+			flights.remove(key, flight);
+			if (error == null) {
+				flight.complete(value);
+			} else {
+				flight.completeExceptionally(error);
+			}
+		});
+		return flight;
+	}
+
+	public int inFlight() {
+		return flights.size();
+	}
+
+}
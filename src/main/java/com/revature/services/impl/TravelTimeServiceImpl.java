@@ -0,0 +1,279 @@
+package com.revature.services.impl;
+
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.revature.beans.TravelTime;
+import com.revature.beans.Waypoint;
+import com.revature.repositories.TravelTimeRepository;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+import com.revature.services.TravelTimeService;
+
+/**
+ * TravelTimeServiceImpl caches driving times in traffic between grid cells, for each weekday
+ * and quarter hour of departure. Requests only read the cache. A pair that isn't cached yet
+ * is written down without its time, and the off-peak refresh fetches it, then keeps every
+ * time fresh for the following weeks. With a provider that has no traffic nothing is written
+ * down or refreshed, and every pair is left to the caller's fallback.
+ *
+ */
+
+@Service
+public class TravelTimeServiceImpl implements TravelTimeService {
+
+	private static final Logger LOGGER = LogManager.getLogger(TravelTimeServiceImpl.class);
+
+	public static final int BUCKET_MINUTES = 15;
+
+	@Autowired
+	private TravelTimeRepository ttr;
+
+	@Autowired
+	private DistanceProvider provider;
+
+	@Autowired
+	private ZipGazetteer gazetteer;
+
+	//About a kilometer, waypoints closer than that mostly share their times
+	@Value("${distance.duration.cell-degrees:0.01}")
+	private double cellDegrees = 0.01;
+
+	@Value("${distance.duration.ttl-days:28}")
+	private int ttlDays = 28;
+
+	@Value("${distance.duration.refresh-size:100}")
+	private int refreshSize = 100;
+
+	//Pairs waiting to be written down, so a pair asked for again meanwhile is written once
+	private final Set<String> registering = ConcurrentHashMap.newKeySet();
+
+	private ExecutorService registrations = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "travel-times");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@PreDestroy
+	public void stopRegistrations() {
+		registrations.shutdownNow();
+	}
+
+	/**
+	 * Reads the times of every pair for the weekday and quarter hour of the departure.
+	 *
+	 * @param origins represents the starting points.
+	 * @param destinations represents the end points.
+	 * @param departure represents when the trips start.
+	 * @return The times in seconds, MISSING where not cached or the waypoint can't be placed.
+	 */
+
+	@Override
+	public long[][] lookup(Waypoint[] origins, Waypoint[] destinations, Date departure) {
+		ZonedDateTime at = departure.toInstant().atZone(ZoneId.systemDefault());
+		int weekday = at.getDayOfWeek().getValue();
+		int bucket = bucket(at);
+		double[][] from = locate(origins);
+		double[][] to = locate(destinations);
+		String[] fromCells = cells(from);
+		String[] toCells = cells(to);
+
+		long[][] seconds = new long[origins.length][destinations.length];
+		for (long[] row : seconds) {
+			Arrays.fill(row, DistanceCacheService.MISSING);
+		}
+		Set<String> originCells = known(fromCells);
+		Set<String> destinationCells = known(toCells);
+		if (originCells.isEmpty() || destinationCells.isEmpty()) {
+			return seconds;
+		}
+
+		Map<String, TravelTime> cached = new HashMap<String, TravelTime>();
+		for (TravelTime entry : ttr.getEntries(originCells, destinationCells, weekday, bucket)) {
+			cached.put(entry.getOriginCell() + "\n" + entry.getDestinationCell(), entry);
+		}
+		Map<String, TravelTime> unknown = new LinkedHashMap<String, TravelTime>();
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				if (fromCells[i] == null || toCells[j] == null) {
+					continue;
+				}
+				String pair = fromCells[i] + "\n" + toCells[j];
+				TravelTime entry = cached.get(pair);
+				if (entry == null) {
+					double[] start = center(from[i]);
+					double[] end = center(to[j]);
+					unknown.putIfAbsent(pair, new TravelTime(fromCells[i], toCells[j], weekday, bucket, start[0], start[1], end[0], end[1]));
+				} else if (entry.getSeconds() != null) {
+					seconds[i][j] = entry.getSeconds();
+				}
+			}
+		}
+		//Without traffic they would never be fetched
+		if (!unknown.isEmpty() && provider.hasTraffic()) {
+			register(new ArrayList<TravelTime>(unknown.values()));
+		}
+		return seconds;
+	}
+
+	/**
+	 * The off-peak job, it fetches the pairs never fetched and the oldest stale ones, each at
+	 * the next departure on its weekday and quarter hour.
+	 *
+	 * @return How many times were fetched.
+	 */
+
+	@Override
+	@Scheduled(cron = "${distance.duration.refresh-cron:0 */10 0-4 * * *}")
+	public int refresh() {
+		if (!provider.hasTraffic()) {
+			return 0;
+		}
+		Date now = new Date();
+		List<TravelTime> stale = ttr.getStale(new Date(now.getTime() - TimeUnit.DAYS.toMillis(ttlDays)), PageRequest.of(0, refreshSize));
+		Map<String, List<TravelTime>> byDeparture = new LinkedHashMap<String, List<TravelTime>>();
+		for (TravelTime entry : stale) {
+			byDeparture.computeIfAbsent(entry.getWeekday() + ":" + entry.getBucket(), d -> new ArrayList<TravelTime>()).add(entry);
+		}
+
+		int fetched = 0;
+		for (List<TravelTime> entries : byDeparture.values()) {
+			Map<String, Integer> rows = new HashMap<String, Integer>();
+			List<Waypoint> origins = new ArrayList<Waypoint>();
+			Map<String, Integer> columns = new HashMap<String, Integer>();
+			List<Waypoint> destinations = new ArrayList<Waypoint>();
+			for (TravelTime entry : entries) {
+				position(entry.getOriginCell(), entry.getOriginLatitude(), entry.getOriginLongitude(), rows, origins);
+				position(entry.getDestinationCell(), entry.getDestinationLatitude(), entry.getDestinationLongitude(), columns, destinations);
+			}
+			Date departure = Date.from(nextDeparture(ZonedDateTime.now(), entries.get(0).getWeekday(), entries.get(0).getBucket()).toInstant());
+			long[][] durations;
+			try {
+				durations = provider.getDurations(origins.toArray(new Waypoint[origins.size()]),
+						destinations.toArray(new Waypoint[destinations.size()]), departure);
+			} catch (Exception e) {
+				LOGGER.warn("Could not refresh " + entries.size() + " travel times departing " + departure, e);
+				continue;
+			}
+			for (TravelTime entry : entries) {
+				entry.setSeconds(durations[rows.get(entry.getOriginCell())][columns.get(entry.getDestinationCell())]);
+				entry.setFetchedAt(now);
+			}
+			ttr.saveAll(entries);
+			fetched += entries.size();
+		}
+		if (fetched > 0) {
+			LOGGER.info("Refreshed " + fetched + " travel times");
+		}
+		return fetched;
+	}
+
+	//Written in the background, the request that found them missing doesn't wait
+	private void register(List<TravelTime> entries) {
+		List<TravelTime> queued = new ArrayList<TravelTime>();
+		for (TravelTime entry : entries) {
+			if (registering.add(key(entry))) {
+				queued.add(entry);
+			}
+		}
+		if (queued.isEmpty()) {
+			return;
+		}
+		registrations.execute(() -> {
+			for (TravelTime entry : queued) {
+				try {
+					ttr.save(entry);
+				} catch (DataIntegrityViolationException e) {
+					//Written down already, by another instance
+				} finally {
+					registering.remove(key(entry));
+				}
+			}
+		});
+	}
+
+	public static int bucket(ZonedDateTime at) {
+		return (at.getHour() * 60 + at.getMinute()) / BUCKET_MINUTES;
+	}
+
+	//The first time from now on that falls on the weekday and quarter hour
+	public static ZonedDateTime nextDeparture(ZonedDateTime now, int weekday, int bucket) {
+		ZonedDateTime next = now.with(TemporalAdjusters.nextOrSame(DayOfWeek.of(weekday))).truncatedTo(ChronoUnit.DAYS)
+				.plusMinutes((long) bucket * BUCKET_MINUTES);
+		return next.isAfter(now) ? next : next.plusWeeks(1);
+	}
+
+	private double[][] locate(Waypoint[] waypoints) {
+		double[][] points = new double[waypoints.length][];
+		for (int i = 0; i < waypoints.length; i++) {
+			Waypoint waypoint = waypoints[i];
+			points[i] = waypoint.hasCoordinates() ? new double[] {waypoint.getLatitude(), waypoint.getLongitude()}
+					: gazetteer.centroid(waypoint.getZip());
+		}
+		return points;
+	}
+
+	private String[] cells(double[][] points) {
+		String[] cells = new String[points.length];
+		for (int i = 0; i < points.length; i++) {
+			if (points[i] != null) {
+				cells[i] = (long) Math.floor(points[i][0] / cellDegrees) + ":" + (long) Math.floor(points[i][1] / cellDegrees);
+			}
+		}
+		return cells;
+	}
+
+	//Times are fetched between cell centers, so every waypoint of a cell gets the same one
+	private double[] center(double[] point) {
+		return new double[] {(Math.floor(point[0] / cellDegrees) + 0.5) * cellDegrees, (Math.floor(point[1] / cellDegrees) + 0.5) * cellDegrees};
+	}
+
+	private static Set<String> known(String[] cells) {
+		Set<String> known = new LinkedHashSet<String>();
+		for (String cell : cells) {
+			if (cell != null) {
+				known.add(cell);
+			}
+		}
+		return known;
+	}
+
+	private static void position(String cell, double latitude, double longitude, Map<String, Integer> positions, List<Waypoint> waypoints) {
+		if (!positions.containsKey(cell)) {
+			positions.put(cell, waypoints.size());
+			waypoints.add(new Waypoint(String.format("%.6f,%.6f", latitude, longitude), latitude, longitude));
+		}
+	}
+
+	private static String key(TravelTime entry) {
+		return entry.getOriginCell() + "\n" + entry.getDestinationCell() + "\n" + entry.getWeekday() + "\n" + entry.getBucket();
+	}
+
+}
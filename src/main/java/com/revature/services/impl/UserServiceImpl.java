@@ -2,12 +2,17 @@ package com.revature.services.impl;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.revature.beans.GeocodeJob;
 import com.revature.beans.User;
 import com.revature.repositories.UserRepository;
+import com.revature.services.DistanceService;
+import com.revature.services.DriverIndexService;
+import com.revature.services.GeocodeService;
 import com.revature.services.UserService;
 
 /**
@@ -24,11 +29,32 @@ public class UserServiceImpl implements UserService {
 	@Autowired
 	private UserRepository ur;
 	
+	@Autowired
+	private DriverIndexService dis;
+	
+	@Autowired
+	private DistanceService ds;
+	
+	@Autowired
+	private GeocodeService gs;
+	
 	@Override
 	public List<User> getActiveDrivers() {
 		return ur.getActiveDrivers();
 	}
 	
+	/**
+	 * Calls UserRepository's custom query method getActiveRidersByBatch.
+	 * 
+	 * @param batchNumber represents the batch's number.
+	 * @return A list of the batch's active riders.
+	 */
+	
+	@Override
+	public List<User> getActiveRidersByBatch(int batchNumber) {
+		return ur.getActiveRidersByBatch(batchNumber);
+	}
+	
 	/**
 	 * Calls UserRepository's findAll method found in the JpaRepository.
 	 * 
@@ -102,7 +128,8 @@ public class UserServiceImpl implements UserService {
 	}
 	
 	/**
-	 * Calls UserRepository's save method found in the JpaRepository.
+	 * Calls UserRepository's save method found in the JpaRepository, then updates the driver
+	 * index and the riders' rankings and asks for the missing coordinates and commute distance.
 	 * 
 	 * @param user represents the new User object being sent.
 	 * @return The newly created object.
@@ -110,11 +137,17 @@ public class UserServiceImpl implements UserService {
 	
 	@Override
 	public User addUser(User user) {
-		return ur.save(user);
+		user.setCommuteMeters(null);
+		User saved = ur.save(user);
+		ds.userSaved(saved, dis.userSaved(saved));
+		locateIfMissing(saved);
+		return saved;
 	}
 
 	/**
-	 * Calls UserRepository's save method found in the JpaRepository.
+	 * Keeps the stored commute distance and coordinates unless an address changed, calls
+	 * UserRepository's save method found in the JpaRepository, then updates the driver index
+	 * and the riders' rankings and asks for the missing coordinates and commute distance.
 	 * 
 	 * @param user represents the updated User object being sent.
 	 * @return The newly updated object.
@@ -122,11 +155,18 @@ public class UserServiceImpl implements UserService {
 	
 	@Override
 	public User updateUser(User user) {
-		return ur.save(user);
+		User previous = ur.findById(user.getUserId()).orElse(null);
+		updateCoordinates(user, previous);
+		updateCommute(user, previous);
+		User saved = ur.save(user);
+		ds.userSaved(saved, dis.userSaved(saved));
+		locateIfMissing(saved);
+		return saved;
 	}
 
 	/**
-	 * Calls UserRepository's deleteById method found in the JpaRepository.
+	 * Calls UserRepository's deleteById method found in the JpaRepository,
+	 * then removes the user from the driver index and the riders' rankings.
 	 * 
 	 * @param id represents the user's id.
 	 * @return A string that says which user was deleted.
@@ -135,7 +175,77 @@ public class UserServiceImpl implements UserService {
 	@Override
 	public String deleteUserById(int id) {
 		ur.deleteById(id);
+		ds.userDeleted(id, dis.userDeleted(id));
 		return "User with id: " + id + " was deleted.";
 	}
 
+	/**
+	 * The commute only depends on the user's own addresses, so it is kept while they stay the
+	 * same. When one changes it is emptied, and the geocode worker fetches it again off the
+	 * request thread.
+	 * 
+	 * @param user represents the user about to be saved.
+	 * @param previous represents the user as currently stored.
+	 */
+	
+	private static void updateCommute(User user, User previous) {
+		user.setCommuteMeters(previous != null && sameAddresses(user, previous) ? previous.getCommuteMeters() : null);
+	}
+	
+	/**
+	 * Coordinates sent without them are kept while the address stays the same, and the old
+	 * coordinates are dropped when the address changed but they were sent back unchanged.
+	 * Coordinates the client chose itself are kept either way.
+	 * 
+	 * @param user represents the user about to be saved.
+	 * @param previous represents the user as currently stored, null for a new user.
+	 */
+	
+	private static void updateCoordinates(User user, User previous) {
+		if (previous == null) {
+			return;
+		}
+		if (sameHome(user, previous)) {
+			if (user.gethLatitude() == null || user.gethLongitude() == null) {
+				user.sethLatitude(previous.gethLatitude());
+				user.sethLongitude(previous.gethLongitude());
+			}
+		} else if (Objects.equals(user.gethLatitude(), previous.gethLatitude())
+				&& Objects.equals(user.gethLongitude(), previous.gethLongitude())) {
+			user.sethLatitude(null);
+			user.sethLongitude(null);
+		}
+		if (sameWork(user, previous)) {
+			if (user.getwLatitude() == null || user.getwLongitude() == null) {
+				user.setwLatitude(previous.getwLatitude());
+				user.setwLongitude(previous.getwLongitude());
+			}
+		} else if (Objects.equals(user.getwLatitude(), previous.getwLatitude())
+				&& Objects.equals(user.getwLongitude(), previous.getwLongitude())) {
+			user.setwLatitude(null);
+			user.setwLongitude(null);
+		}
+	}
+	
+	private void locateIfMissing(User user) {
+		if (user.gethLatitude() == null || user.gethLongitude() == null || user.getwLatitude() == null
+				|| user.getwLongitude() == null || (user.getCommuteMeters() == null && user.gethAddress() != null && user.getwAddress() != null)) {
+			gs.enqueue(GeocodeJob.EntityType.USER, user.getUserId());
+		}
+	}
+	
+	private static boolean sameAddresses(User user, User other) {
+		return sameHome(user, other) && sameWork(user, other);
+	}
+	
+	private static boolean sameHome(User user, User other) {
+		return Objects.equals(user.gethAddress(), other.gethAddress()) && Objects.equals(user.gethCity(), other.gethCity())
+				&& Objects.equals(user.gethState(), other.gethState()) && Objects.equals(user.gethZip(), other.gethZip());
+	}
+	
+	private static boolean sameWork(User user, User other) {
+		return Objects.equals(user.getwAddress(), other.getwAddress()) && Objects.equals(user.getwCity(), other.getwCity())
+				&& Objects.equals(user.getwState(), other.getwState()) && Objects.equals(user.getwZip(), other.getwZip());
+	}
+
 }
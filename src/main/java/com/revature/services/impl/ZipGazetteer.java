@@ -0,0 +1,145 @@
+package com.revature.services.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * ZipGazetteer knows the centroid of every five digit ZIP code it was loaded with, so an
+ * address can be placed roughly without any network call. The file is read in the Census
+ * Bureau's ZCTA gazetteer format, tab or comma separated with a header naming the GEOID,
+ * INTPTLAT and INTPTLONG columns, so the national file can replace the bundled one through
+ * geocode.gazetteer.file. The centroids are held in two arrays indexed by the ZIP itself.
+ *
+ */
+
+@Component
+public class ZipGazetteer {
+
+	private static final Logger LOGGER = LogManager.getLogger(ZipGazetteer.class);
+
+	private static final int ZIPS = 100000;
+
+	@Value("${geocode.gazetteer.file:classpath:zip-centroids.txt}")
+	private Resource file;
+
+	private final float[] latitudes = new float[ZIPS];
+
+	private final float[] longitudes = new float[ZIPS];
+
+	private int size;
+
+	public ZipGazetteer() {
+		super();
+		Arrays.fill(latitudes, Float.NaN);
+		Arrays.fill(longitudes, Float.NaN);
+	}
+
+	@PostConstruct
+	public void loadCentroids() throws IOException {
+		long start = System.currentTimeMillis();
+		try (Reader reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+			load(reader);
+		}
+		LOGGER.info("Loaded " + size + " ZIP centroids from " + file.getDescription() + " in "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Adds the centroids of a gazetteer file, a ZIP that appears twice keeps the last one.
+	 *
+	 * @param reader represents the file, starting with its header.
+	 * @throws IOException When the file can't be read or has no GEOID, INTPTLAT or INTPTLONG column.
+	 */
+
+	public void load(Reader reader) throws IOException {
+		BufferedReader lines = new BufferedReader(reader);
+		String header = lines.readLine();
+		if (header == null) {
+			return;
+		}
+		String separator = header.indexOf('\t') >= 0 ? "\t" : ",";
+		String[] names = header.split(separator);
+		int zipColumn = column(names, "GEOID");
+		int latitudeColumn = column(names, "INTPTLAT");
+		int longitudeColumn = column(names, "INTPTLONG");
+
+		int number = 1;
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			number++;
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split(separator);
+			int zip = parseZip(fields[zipColumn]);
+			if (zip < 0) {
+				throw new IOException("Line " + number + " has no five digit ZIP: " + line);
+			}
+			if (Float.isNaN(latitudes[zip])) {
+				size++;
+			}
+			latitudes[zip] = Float.parseFloat(fields[latitudeColumn].trim());
+			longitudes[zip] = Float.parseFloat(fields[longitudeColumn].trim());
+		}
+	}
+
+	/**
+	 * Looks up the centroid of a ZIP code, ZIP+4 codes use their first five digits.
+	 *
+	 * @param zip represents the ZIP code as a user typed it.
+	 * @return The latitude and longitude, null if the ZIP is missing, malformed or unknown.
+	 */
+
+	public double[] centroid(String zip) {
+		int key = parseZip(zip);
+		if (key < 0 || Float.isNaN(latitudes[key])) {
+			return null;
+		}
+		return new double[] {latitudes[key], longitudes[key]};
+	}
+
+	public int size() {
+		return size;
+	}
+
+	//The leading five digits as a number, -1 when there aren't five
+	private static int parseZip(String zip) {
+		if (zip == null) {
+			return -1;
+		}
+		String trimmed = zip.trim();
+		if (trimmed.length() < 5 || (trimmed.length() > 5 && Character.isDigit(trimmed.charAt(5)))) {
+			return -1;
+		}
+		int key = 0;
+		for (int i = 0; i < 5; i++) {
+			char digit = trimmed.charAt(i);
+			if (digit < '0' || digit > '9') {
+				return -1;
+			}
+			key = key * 10 + (digit - '0');
+		}
+		return key;
+	}
+
+	private static int column(String[] names, String name) throws IOException {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].trim().equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		throw new IOException("The gazetteer header has no " + name + " column");
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.revature.standin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * DistanceMatrixRecordings holds Distance Matrix responses captured from real traffic, by the
+ * request they answered. The file has one JSON object per line, with the request's parameters
+ * as a sorted query string without the key and the response as Google sent it.
+ *
+ */
+
+public final class DistanceMatrixRecordings {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	//Credentials, they don't change the answer and aren't written down
+	private static final String[] IGNORED = {"key", "client", "signature", "channel"};
+
+	private final Map<String, JsonNode> responses = new ConcurrentHashMap<String, JsonNode>();
+
+	private final Path file;
+
+	/**
+	 * @param file represents the recordings, read if it exists and appended to by add.
+	 * @throws IOException if the file can't be read.
+	 */
+
+	public DistanceMatrixRecordings(Path file) throws IOException {
+		this.file = file;
+		if (file != null && Files.exists(file)) {
+			try (BufferedReader lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = lines.readLine()) != null) {
+					if (line.trim().isEmpty()) {
+						continue;
+					}
+					JsonNode recording = JSON.readTree(line);
+					responses.put(recording.get("request").asText(), recording.get("response"));
+				}
+			}
+		}
+	}
+
+	public JsonNode get(String request) {
+		return responses.get(request);
+	}
+
+	public synchronized void add(String request, JsonNode response) throws IOException {
+		responses.put(request, response);
+		if (file == null) {
+			return;
+		}
+		ObjectNode recording = JSON.createObjectNode();
+		recording.put("request", request);
+		recording.set("response", response);
+		try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND)) {
+			out.write(JSON.writeValueAsString(recording));
+			out.write('\n');
+		}
+	}
+
+	public int size() {
+		return responses.size();
+	}
+
+	/**
+	 * @param parameters represents a request's decoded query parameters.
+	 * @return The request as it is recorded, the same for the same question in any order.
+	 */
+
+	public static String request(Map<String, String> parameters) {
+		Map<String, String> sorted = new TreeMap<String, String>(parameters);
+		for (String ignored : IGNORED) {
+			sorted.remove(ignored);
+		}
+		StringBuilder request = new StringBuilder();
+		for (Map.Entry<String, String> parameter : sorted.entrySet()) {
+			if (request.length() > 0) {
+				request.append('&');
+			}
+			request.append(parameter.getKey()).append('=').append(parameter.getValue());
+		}
+		return request.toString();
+	}
+
+}
@@ -0,0 +1,385 @@
+package com.revature.standin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.revature.services.impl.AddressCanonicalizer;
+import com.revature.services.impl.Haversine;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * DistanceMatrixStandIn is a local HTTP server that answers Distance Matrix requests in
+ * Google's JSON format, so recommendations can be load tested and benchmarked without the
+ * live API. It simulates distances from coordinates, replays recorded responses, or records
+ * them from the real API as it forwards requests. Each request first waits for a delay drawn
+ * from the latency model and may then fail with a server error or OVER_QUERY_LIMIT.
+ *
+ */
+
+public class DistanceMatrixStandIn {
+
+	private static final Logger LOGGER = LogManager.getLogger(DistanceMatrixStandIn.class);
+
+	public static final String PATH = "/maps/api/distancematrix/json";
+
+	public enum Mode {
+		SIMULATED, REPLAY, RECORD
+	}
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private static final Pattern LAT_LNG = Pattern.compile("^\\s*(-?\\d+(?:\\.\\d+)?)\\s*,\\s*(-?\\d+(?:\\.\\d+)?)\\s*$");
+
+	private static final double METERS_PER_MILE = 1609.344;
+
+	//Weekdays 7 to 10 and 16 to 19 take this much longer than free flow
+	private static final double RUSH_HOUR_FACTOR = 1.6;
+
+	private final Mode mode;
+
+	private final DistanceMatrixRecordings recordings;
+
+	private LatencyModel latency = LatencyModel.NONE;
+
+	private double errorRate;
+
+	private double overLimitRate;
+
+	private String upstream = "https://maps.googleapis.com";
+
+	private double roadFactor = 1.3;
+
+	private double metersPerSecond = 13.4;
+
+	private double centerLatitude = 38.9586;
+
+	private double centerLongitude = -77.3570;
+
+	private double radiusMeters = 30000;
+
+	private Random random = new Random();
+
+	private final AtomicLong requests = new AtomicLong();
+
+	private HttpServer server;
+
+	private ExecutorService handlers;
+
+	/**
+	 * @param mode represents how requests are answered.
+	 * @param recordings represents the responses replayed, or where new ones are recorded.
+	 */
+
+	public DistanceMatrixStandIn(Mode mode, DistanceMatrixRecordings recordings) {
+		if (mode != Mode.SIMULATED && recordings == null) {
+			throw new IllegalArgumentException(mode + " needs recordings");
+		}
+		this.mode = mode;
+		this.recordings = recordings;
+	}
+
+	/**
+	 * Starts answering on the loopback address.
+	 *
+	 * @param port represents the port, 0 for any free one.
+	 * @return The port it listens on.
+	 * @throws IOException if the port can't be bound.
+	 */
+
+	public synchronized int start(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(PATH, this::handle);
+		//A thread per request in flight, so a slow answer doesn't hold up the others
+		handlers = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "distance-stand-in");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(handlers);
+		server.start();
+		LOGGER.info("Distance Matrix stand-in answering " + mode + " at " + getBaseUrl() + " with latency " + latency
+				+ ", error rate " + errorRate + ", over limit rate " + overLimitRate);
+		return getPort();
+	}
+
+	public synchronized void stop() {
+		if (server != null) {
+			server.stop(0);
+			handlers.shutdownNow();
+			server = null;
+		}
+	}
+
+	public synchronized int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	public String getBaseUrl() {
+		return "http://localhost:" + getPort();
+	}
+
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			requests.incrementAndGet();
+			Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+			Thread.sleep(latency.sample(random));
+
+			double failure = random.nextDouble();
+			if (failure < errorRate) {
+				respond(exchange, 500, "{\"error_message\":\"Injected by the stand-in\"}");
+				return;
+			}
+			if (failure < errorRate + overLimitRate) {
+				respond(exchange, 200, status("OVER_QUERY_LIMIT", "Injected by the stand-in"));
+				return;
+			}
+
+			switch (mode) {
+			case REPLAY:
+				JsonNode recorded = recordings.get(DistanceMatrixRecordings.request(parameters));
+				respond(exchange, 200, recorded != null ? JSON.writeValueAsString(recorded)
+						: status("INVALID_REQUEST", "Nothing was recorded for this request"));
+				break;
+			case RECORD:
+				record(exchange, parameters);
+				break;
+			default:
+				respond(exchange, 200, simulate(parameters));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			LOGGER.warn("The stand-in could not answer " + exchange.getRequestURI(), e);
+			respond(exchange, 500, "{\"error_message\":\"" + e.getClass().getSimpleName() + "\"}");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Distances along the straight line times the road factor, and the time to drive them at
+	 * a constant speed. Origins and destinations written as lat,lng are used as they are, an
+	 * address is placed at a point within the radius of the center derived from its canonical
+	 * form, so spellings of one address land on the same spot. Requests with a departure time
+	 * also get the time in traffic, slower in the weekday rush hours.
+	 *
+	 * @param parameters represents the request's decoded parameters.
+	 * @return The response body.
+	 */
+
+	protected String simulate(Map<String, String> parameters) throws IOException {
+		String origins = parameters.get("origins");
+		String destinations = parameters.get("destinations");
+		if (origins == null || destinations == null || origins.isEmpty() || destinations.isEmpty()) {
+			return status("INVALID_REQUEST", "origins and destinations are required");
+		}
+		String[] from = origins.split("\\|");
+		String[] to = destinations.split("\\|");
+		boolean imperial = "imperial".equals(parameters.get("units"));
+		double traffic = traffic(parameters.get("departure_time"));
+
+		ObjectNode matrix = JSON.createObjectNode();
+		ArrayNode originAddresses = matrix.putArray("origin_addresses");
+		for (String origin : from) {
+			originAddresses.add(origin);
+		}
+		ArrayNode destinationAddresses = matrix.putArray("destination_addresses");
+		for (String destination : to) {
+			destinationAddresses.add(destination);
+		}
+		double[][] toPoints = new double[to.length][];
+		for (int j = 0; j < to.length; j++) {
+			toPoints[j] = locate(to[j]);
+		}
+		ArrayNode rows = matrix.putArray("rows");
+		for (String origin : from) {
+			double[] start = locate(origin);
+			ArrayNode elements = rows.addObject().putArray("elements");
+			for (double[] end : toPoints) {
+				long meters = Math.round(Haversine.distance(start[0], start[1], end[0], end[1]) * roadFactor);
+				long seconds = Math.round(meters / metersPerSecond);
+				ObjectNode element = elements.addObject();
+				ObjectNode distance = element.putObject("distance");
+				distance.put("text", imperial ? String.format("%.1f mi", meters / METERS_PER_MILE) : String.format("%.1f km", meters / 1000.0));
+				distance.put("value", meters);
+				ObjectNode duration = element.putObject("duration");
+				long minutes = Math.max(1, Math.round(seconds / 60.0));
+				duration.put("text", minutes + (minutes == 1 ? " min" : " mins"));
+				duration.put("value", seconds);
+				if (traffic > 0) {
+					long inTraffic = Math.round(seconds * traffic);
+					long trafficMinutes = Math.max(1, Math.round(inTraffic / 60.0));
+					ObjectNode durationInTraffic = element.putObject("duration_in_traffic");
+					durationInTraffic.put("text", trafficMinutes + (trafficMinutes == 1 ? " min" : " mins"));
+					durationInTraffic.put("value", inTraffic);
+				}
+				element.put("status", "OK");
+			}
+		}
+		matrix.put("status", "OK");
+		return JSON.writeValueAsString(matrix);
+	}
+
+	//How much slower than free flow it is at the departure, 0 without one
+	private static double traffic(String departure) {
+		if (departure == null || departure.isEmpty()) {
+			return 0;
+		}
+		ZonedDateTime at = "now".equals(departure) ? ZonedDateTime.now()
+				: Instant.ofEpochSecond(Long.parseLong(departure)).atZone(ZoneId.systemDefault());
+		boolean weekday = at.getDayOfWeek().getValue() <= 5;
+		int hour = at.getHour();
+		return weekday && ((hour >= 7 && hour < 10) || (hour >= 16 && hour < 19)) ? RUSH_HOUR_FACTOR : 1;
+	}
+
+	//Forwards the request as it came, key included, and keeps the answer when Google gave one
+	private void record(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(upstream + PATH + "?" + exchange.getRequestURI().getRawQuery())
+				.openConnection();
+		int code = connection.getResponseCode();
+		InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+		String body = in == null ? "" : read(in);
+		if (code == 200) {
+			JsonNode response = JSON.readTree(body);
+			if ("OK".equals(response.path("status").asText())) {
+				recordings.add(DistanceMatrixRecordings.request(parameters), response);
+			}
+		}
+		respond(exchange, code, body);
+	}
+
+	private double[] locate(String place) {
+		Matcher latLng = LAT_LNG.matcher(place);
+		if (latLng.matches()) {
+			return new double[] {Double.parseDouble(latLng.group(1)), Double.parseDouble(latLng.group(2))};
+		}
+		//Uniform over the disc, the same point for the same address on every run
+		Random spot = new Random(AddressCanonicalizer.canonical(place).hashCode());
+		double distance = radiusMeters * Math.sqrt(spot.nextDouble());
+		double bearing = 2 * Math.PI * spot.nextDouble();
+		double latitude = centerLatitude + Math.toDegrees(distance * Math.cos(bearing) / Haversine.EARTH_RADIUS_METERS);
+		double longitude = centerLongitude + Math.toDegrees(distance * Math.sin(bearing)
+				/ (Haversine.EARTH_RADIUS_METERS * Math.cos(Math.toRadians(centerLatitude))));
+		return new double[] {latitude, longitude};
+	}
+
+	private static String status(String status, String message) throws IOException {
+		ObjectNode body = JSON.createObjectNode();
+		body.putArray("origin_addresses");
+		body.putArray("destination_addresses");
+		body.putArray("rows");
+		body.put("status", status);
+		body.put("error_message", message);
+		return JSON.writeValueAsString(body);
+	}
+
+	private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static Map<String, String> parameters(String query) throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0) {
+				parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try (InputStream body = in) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = body.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public void setLatency(LatencyModel latency) {
+		this.latency = latency;
+	}
+
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	public void setOverLimitRate(double overLimitRate) {
+		this.overLimitRate = overLimitRate;
+	}
+
+	public void setUpstream(String upstream) {
+		this.upstream = upstream;
+	}
+
+	public void setRoadFactor(double roadFactor) {
+		this.roadFactor = roadFactor;
+	}
+
+	public void setMetersPerSecond(double metersPerSecond) {
+		this.metersPerSecond = metersPerSecond;
+	}
+
+	public void setCenter(double latitude, double longitude) {
+		this.centerLatitude = latitude;
+		this.centerLongitude = longitude;
+	}
+
+	public void setRadiusMeters(double radiusMeters) {
+		this.radiusMeters = radiusMeters;
+	}
+
+	//A fixed seed draws the same latencies and failures on every run
+	public void setSeed(long seed) {
+		this.random = new Random(seed);
+	}
+
+}
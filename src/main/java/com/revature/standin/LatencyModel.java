@@ -0,0 +1,81 @@
+package com.revature.standin;
+
+import java.util.Random;
+
+/**
+ * LatencyModel draws the delay the stand-in waits before answering a request. It is written
+ * as a distribution and its parameters in milliseconds: fixed:20, uniform:10,80,
+ * lognormal:40,0.6 for a median of 40 and a sigma of 0.6, or pareto:30,1.5 for a minimum of
+ * 30 and a shape of 1.5. The last two have the long tails real providers show.
+ *
+ */
+
+public final class LatencyModel {
+
+	public static final LatencyModel NONE = new LatencyModel("fixed", 0, 0);
+
+	private final String distribution;
+
+	private final double first;
+
+	private final double second;
+
+	private LatencyModel(String distribution, double first, double second) {
+		this.distribution = distribution;
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * @param spec represents the distribution, as in fixed:20, empty for none.
+	 * @return The model.
+	 */
+
+	public static LatencyModel parse(String spec) {
+		if (spec == null || spec.trim().isEmpty()) {
+			return NONE;
+		}
+		String[] parts = spec.trim().toLowerCase().split(":", 2);
+		String[] values = parts.length > 1 ? parts[1].split(",") : new String[0];
+		try {
+			switch (parts[0]) {
+			case "fixed":
+				return new LatencyModel("fixed", Double.parseDouble(values[0]), 0);
+			case "uniform":
+				return new LatencyModel("uniform", Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+			case "lognormal":
+				return new LatencyModel("lognormal", Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+			case "pareto":
+				return new LatencyModel("pareto", Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+			default:
+				throw new IllegalArgumentException("Unknown latency distribution " + parts[0]);
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			throw new IllegalArgumentException("Can't read the latency " + spec, e);
+		}
+	}
+
+	public long sample(Random random) {
+		double millis;
+		switch (distribution) {
+		case "uniform":
+			millis = first + random.nextDouble() * (second - first);
+			break;
+		case "lognormal":
+			millis = first * Math.exp(second * random.nextGaussian());
+			break;
+		case "pareto":
+			millis = first / Math.pow(1 - random.nextDouble(), 1 / second);
+			break;
+		default:
+			millis = first;
+		}
+		return Math.max(0, Math.round(millis));
+	}
+
+	@Override
+	public String toString() {
+		return distribution + ":" + first + (distribution.equals("fixed") ? "" : "," + second);
+	}
+
+}
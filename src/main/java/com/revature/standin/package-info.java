@@ -0,0 +1,5 @@
+/**
+ * Package that contains the local stand-in for the Distance Matrix API.
+ */
+
+package com.revature.standin;
@@ -0,0 +1,93 @@
+package com.revature.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.revature.services.impl.DriverRanker;
+
+/**
+ * DriverRankerBenchmark measures the ranking kernel used by recommendDrivers, with the GC
+ * profiler attached. Run it from the IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.revature.benchmarks.DriverRankerBenchmark
+ * and it fails if ranking allocates anything, whatever the number of candidates.
+ *
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverRankerBenchmark {
+
+	@Param({"10", "100", "1000"})
+	private int candidates;
+
+	@Param({"5"})
+	private int recCount;
+
+	private double[] detours;
+
+	private int[] ids;
+
+	private int[] out;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(729);
+		detours = new double[candidates];
+		ids = new int[candidates];
+		for (int i = 0; i < candidates; i++) {
+			detours[i] = random.nextInt(50000);
+			ids[i] = 1000 + i;
+		}
+		out = new int[recCount];
+	}
+
+	@Benchmark
+	public int topK() {
+		return DriverRanker.topK(detours, candidates, recCount, out);
+	}
+
+	@Benchmark
+	public int topKIds() {
+		return DriverRanker.topKIds(detours, ids, candidates, recCount, out);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DriverRankerBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		for (RunResult run : new Runner(options).run()) {
+			Result<?> allocated = run.getSecondaryResults().get("·gc.alloc.rate.norm");
+			//JMH's own bookkeeping can show up as a few bytes, anything per candidate would be far more
+			if (allocated != null && allocated.getScore() > 16) {
+				throw new IllegalStateException(run.getParams().getBenchmark() + " " + run.getParams() + " allocated "
+						+ allocated.getScore() + " bytes per ranking");
+			}
+		}
+	}
+
+}
@@ -24,7 +24,10 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.revature.beans.Admin;
+import com.revature.beans.Batch;
+import com.revature.beans.User;
 import com.revature.services.AdminService;
+import com.revature.services.DistanceService;
 
 @RunWith(SpringRunner.class)
 @WebMvcTest(AdminController.class)
@@ -39,6 +42,9 @@ public class AdminControllerTest {
 	@MockBean
 	private AdminService as;
 	
+	@MockBean
+	private DistanceService ds;
+	
 	@Test
 	public void testGettingAdmins() throws Exception {
 		
@@ -52,6 +58,19 @@ public class AdminControllerTest {
 		   .andExpect(jsonPath("$", hasSize(2)));
 	}
 	
+	@Test
+	public void testGettingUnroutableUsers() throws Exception {
+		
+		List<User> users = new ArrayList<>();
+		users.add(new User(1, "userName", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789"));
+		when(ds.getUnroutableUsers()).thenReturn(users);
+		
+		mvc.perform(get("/admins/unroutable-users"))
+		   .andExpect(status().isOk())
+		   .andExpect(jsonPath("$", hasSize(1)))
+		   .andExpect(jsonPath("$[0].userId").value(1));
+	}
+	
 	@Test
 	public void testGettingAdminById() throws Exception {
 		
@@ -0,0 +1,86 @@
+package com.revature.controllers;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.hasSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.revature.beans.Batch;
+import com.revature.beans.BatchAssignment;
+import com.revature.beans.BatchPool;
+import com.revature.beans.PooledRide;
+import com.revature.beans.RideAssignment;
+import com.revature.beans.User;
+import com.revature.services.AssignmentService;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(AssignmentController.class)
+public class AssignmentControllerTest {
+	
+	@Autowired
+	private MockMvc mvc;
+	
+	@MockBean
+	private AssignmentService as;
+	
+	@Test
+	public void testGettingAssignments() throws Exception {
+		
+		List<BatchAssignment> assignments = new ArrayList<>();
+		assignments.add(new BatchAssignment(1));
+		assignments.add(new BatchAssignment(2));
+		when(as.assignAllBatches()).thenReturn(assignments);
+		
+		mvc.perform(get("/assignments"))
+		   .andExpect(status().isOk())
+		   .andExpect(jsonPath("$", hasSize(2)));
+	}
+	
+	@Test
+	public void testGettingAssignmentByBatch() throws Exception {
+		
+		User rider = new User(1, "rider", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		User driver = new User(2, "driver", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		BatchAssignment assignment = new BatchAssignment(1);
+		assignment.getAssignments().add(new RideAssignment(rider, driver, 500));
+		assignment.setTotalDetour(500);
+		when(as.assignBatch(1)).thenReturn(assignment);
+		
+		mvc.perform(get("/assignments/{number}", 1))
+		   .andExpect(status().isOk())
+		   .andExpect(jsonPath("$.batchNumber").value(1))
+		   .andExpect(jsonPath("$.assignments[0].driver.userId").value(2))
+		   .andExpect(jsonPath("$.totalDetour").value(500.0));
+	}
+	
+	@Test
+	public void testGettingPoolsByBatch() throws Exception {
+		
+		User driver = new User(1, "driver", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		List<User> riders = new ArrayList<>();
+		riders.add(new User(2, "riderOne", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789"));
+		riders.add(new User(3, "riderTwo", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789"));
+		BatchPool pool = new BatchPool(1);
+		pool.getRides().add(new PooledRide(driver, riders, 12000, 2000));
+		when(as.poolBatch(1)).thenReturn(pool);
+		
+		mvc.perform(get("/assignments/{number}/pools", 1))
+		   .andExpect(status().isOk())
+		   .andExpect(jsonPath("$.rides[0].riders", hasSize(2)))
+		   .andExpect(jsonPath("$.rides[0].riders[1].userId").value(3))
+		   .andExpect(jsonPath("$.rides[0].detour").value(2000));
+	}
+
+}
@@ -3,16 +3,22 @@ package com.revature.controllers;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.hasSize;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,9 +28,11 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.revature.beans.Batch;
+import com.revature.beans.RecommendedDrivers;
 import com.revature.beans.User;
 import com.revature.services.BatchService;
 import com.revature.services.DistanceService;
@@ -76,6 +84,77 @@ public class UserControllerTest {
 		   .andExpect(jsonPath("$.userId").value(1));
 	}
 	
+	@Test
+	public void testRecommendingDriversAsync() throws Exception {
+		
+		User rider = new User(1, "rider", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		User driver = new User(2, "driver", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		List<User> drivers = new ArrayList<>();
+		drivers.add(driver);
+		CompletableFuture<RecommendedDrivers> recommended = new CompletableFuture<>();
+		when(us.getUserById(1)).thenReturn(rider);
+		when(ds.recommendDriversAsync(rider, 5)).thenReturn(recommended);
+		
+		MvcResult started = mvc.perform(get("/users/driver/recommend/{id}", 1))
+		   .andExpect(request().asyncStarted())
+		   .andReturn();
+		recommended.complete(new RecommendedDrivers(drivers, false));
+		
+		mvc.perform(asyncDispatch(started))
+		   .andExpect(status().isOk())
+		   .andExpect(header().string("X-Degraded", "false"))
+		   .andExpect(header().string("X-Partial", "false"))
+		   .andExpect(jsonPath("$", hasSize(1)))
+		   .andExpect(jsonPath("$[0].userId").value(2));
+	}
+	
+	@Test
+	public void testRecommendingDriversWithDeadline() throws Exception {
+		
+		User rider = new User(1, "rider", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		RecommendedDrivers drivers = new RecommendedDrivers();
+		drivers.add(new User(2, "driver", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789"));
+		drivers.setPartial(true);
+		when(us.getUserById(1)).thenReturn(rider);
+		when(ds.recommendDriversAsync(rider, 5, 300)).thenReturn(CompletableFuture.completedFuture(drivers));
+		
+		MvcResult started = mvc.perform(get("/users/driver/recommend/{id}", 1).header("X-Deadline-Ms", "300"))
+		   .andExpect(request().asyncStarted())
+		   .andReturn();
+		
+		mvc.perform(asyncDispatch(started))
+		   .andExpect(status().isOk())
+		   .andExpect(header().string("X-Partial", "true"))
+		   .andExpect(jsonPath("$", hasSize(1)));
+		verify(ds, never()).recommendDriversAsync(rider, 5);
+	}
+	
+	@Test
+	public void testRecommendingDriversForRiders() throws Exception {
+		
+		User riderOne = new User(1, "riderOne", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		User riderTwo = new User(2, "riderTwo", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		User driver = new User(3, "driver", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789");
+		List<User> riders = new ArrayList<>();
+		riders.add(riderOne);
+		riders.add(riderTwo);
+		Map<Integer, RecommendedDrivers> recommendations = new LinkedHashMap<>();
+		recommendations.put(1, new RecommendedDrivers());
+		recommendations.get(1).add(driver);
+		recommendations.put(2, new RecommendedDrivers());
+		recommendations.get(2).setDegraded(true);
+		when(us.getUserById(1)).thenReturn(riderOne);
+		when(us.getUserById(2)).thenReturn(riderTwo);
+		when(ds.recommendDrivers(riders, 5)).thenReturn(recommendations);
+		
+		mvc.perform(get("/users/driver/recommend").param("ids", "1,2,1"))
+		   .andExpect(status().isOk())
+		   .andExpect(header().string("X-Degraded", "true"))
+		   .andExpect(jsonPath("$.1", hasSize(1)))
+		   .andExpect(jsonPath("$.1[0].userId").value(3))
+		   .andExpect(jsonPath("$.2", hasSize(0)));
+	}
+	
 	@Test
 	public void testGettingUserByUsername() throws Exception {
 		
@@ -0,0 +1,48 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AddressCanonicalizerTest {
+
+	@Test
+	public void testCaseAndSpacing() {
+		assertEquals("418 wilson ave, morgantown, wv", AddressCanonicalizer.canonical("  418  Wilson Ave,\tMorgantown,WV "));
+	}
+
+	@Test
+	public void testAbbreviations() {
+		assertEquals("11730 plz america dr, reston, va",
+				AddressCanonicalizer.canonical("11730 Plaza America Drive, Reston, Virginia"));
+		assertEquals(AddressCanonicalizer.canonical("11730 Plaza America Dr., Reston, VA"),
+				AddressCanonicalizer.canonical("11730 Plaza America Drive, Reston, Virginia"));
+		assertEquals("100 n main st, ste 4, herndon, va", AddressCanonicalizer.canonical("100 North Main Street, Suite 4, Herndon, VA"));
+	}
+
+	//Multi word states are matched whole, before their words are abbreviated
+	@Test
+	public void testStates() {
+		assertEquals("650 price st, morgantown, wv", AddressCanonicalizer.canonical("650 Price Street, Morgantown, West Virginia"));
+		assertEquals("1 w virginia ave, washington, dc", AddressCanonicalizer.canonical("1 West Virginia Avenue, Washington, District of Columbia"));
+	}
+
+	@Test
+	public void testZip() {
+		assertEquals("2162 astoria cir, herndon, va 20170", AddressCanonicalizer.canonical("2162 Astoria Circle, Herndon, Virginia 20170-1234"));
+		assertEquals("2162 astoria cir, herndon, va 20170", AddressCanonicalizer.canonical("2162 Astoria Cir, Herndon, VA 20170, USA"));
+		assertEquals("2162 astoria cir, herndon, va, 20170", AddressCanonicalizer.canonical("2162 Astoria Cir, Herndon, VA, 201701234"));
+	}
+
+	//Short forms that mean more than one thing are kept as they are
+	@Test
+	public void testAmbiguousAbbreviationsKept() {
+		assertEquals("12 st james pl, st louis, mo", AddressCanonicalizer.canonical("12 St James Place, St Louis, Missouri"));
+	}
+
+	@Test
+	public void testNull() {
+		assertEquals("", AddressCanonicalizer.canonical(null));
+	}
+
+}
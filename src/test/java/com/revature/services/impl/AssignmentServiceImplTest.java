@@ -0,0 +1,237 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.revature.beans.Batch;
+import com.revature.beans.BatchAssignment;
+import com.revature.beans.BatchPool;
+import com.revature.beans.Car;
+import com.revature.beans.PooledRide;
+import com.revature.beans.RideAssignment;
+import com.revature.beans.User;
+import com.revature.repositories.CarRepository;
+import com.revature.services.BatchService;
+import com.revature.services.DistanceService;
+import com.revature.services.UserService;
+
+@RunWith(SpringRunner.class)
+public class AssignmentServiceImplTest {
+
+	@InjectMocks
+	private AssignmentServiceImpl asi;
+
+	@Mock
+	private UserService us;
+
+	@Mock
+	private BatchService bs;
+
+	@Mock
+	private DistanceService ds;
+
+	@Mock
+	private CarRepository cr;
+
+	//The cars in the database by their driver's id
+	private final Map<Integer, Car> cars = new ConcurrentHashMap<Integer, Car>();
+
+	@Before
+	public void readCars() {
+		when(cr.getCarsByUserIds(anyCollection())).thenAnswer(call -> {
+			List<Car> found = new ArrayList<Car>();
+			for (Object userId : (Iterable<?>) call.getArgument(0)) {
+				if (cars.containsKey(userId)) {
+					found.add(cars.get(userId));
+				}
+			}
+			return found;
+		});
+	}
+
+	//Every rider is closest to the first driver, who only has two seats
+	@Test
+	public void testSeatsAreHonored() throws Exception {
+		List<User> riders = users(1, 5, 0, false);
+		User small = driver(10, 0, 2);
+		User big = driver(11, 0, 3);
+		when(us.getActiveRidersByBatch(0)).thenReturn(riders);
+		when(ds.getRoutableDrivers(0)).thenReturn(Arrays.asList(small, big));
+		when(ds.calculateDetours(any(), any())).thenReturn(new double[][] {
+			{100, 900},
+			{200, 400},
+			{300, 1000},
+			{400, 600},
+			{500, 700}
+		});
+
+		BatchAssignment result = asi.assignBatch(0);
+
+		Map<Integer, Integer> driverOf = driverOf(result);
+		assertEquals(5, result.getAssignments().size());
+		assertEquals(0, result.getUnassigned().size());
+		//Riders 1 and 3 lose the most by not riding with the small car
+		assertEquals(Integer.valueOf(10), driverOf.get(1));
+		assertEquals(Integer.valueOf(10), driverOf.get(3));
+		assertEquals(Integer.valueOf(11), driverOf.get(2));
+		assertEquals(Integer.valueOf(11), driverOf.get(4));
+		assertEquals(Integer.valueOf(11), driverOf.get(5));
+		assertEquals(100 + 300 + 400 + 600 + 700, result.getTotalDetour(), 0);
+	}
+
+	@Test
+	public void testRidersWithoutSeatOrRoute() throws Exception {
+		List<User> riders = users(1, 3, 0, false);
+		User carless = driver(10, 0, 0);
+		carless.setCar(null);
+		cars.remove(10);
+		User single = driver(11, 0, 1);
+		when(us.getActiveRidersByBatch(0)).thenReturn(riders);
+		when(ds.getRoutableDrivers(0)).thenReturn(Arrays.asList(carless, single));
+		when(ds.calculateDetours(any(), any())).thenReturn(new double[][] {
+			{DistanceService.UNREACHABLE_DETOUR},
+			{800},
+			{900}
+		});
+
+		BatchAssignment result = asi.assignBatch(0);
+
+		assertEquals(1, result.getAssignments().size());
+		assertEquals(2, result.getAssignments().get(0).getRider().getUserId());
+		assertEquals(2, result.getUnassigned().size());
+	}
+
+	//The index's copy of the driver has no car yet, and the other's car has since lost a seat
+	@Test
+	public void testSeatsAreReadFromCurrentCars() throws Exception {
+		List<User> riders = users(1, 2, 0, false);
+		User added = driver(10, 0, 1);
+		added.setCar(null);
+		User shrunk = driver(11, 0, 1);
+		shrunk.setCar(new Car(11, "red", 2, "Honda", "Accord", 2015, shrunk));
+		when(us.getActiveRidersByBatch(0)).thenReturn(riders);
+		when(ds.getRoutableDrivers(0)).thenReturn(Arrays.asList(added, shrunk));
+		when(ds.calculateDetours(any(), any())).thenReturn(new double[][] {
+			{500, 100},
+			{600, 200}
+		});
+
+		BatchAssignment result = asi.assignBatch(0);
+
+		Map<Integer, Integer> driverOf = driverOf(result);
+		assertEquals(2, result.getAssignments().size());
+		assertEquals(Integer.valueOf(11), driverOf.get(1));
+		assertEquals(Integer.valueOf(10), driverOf.get(2));
+	}
+
+	@Test
+	public void testBatchWithoutDrivers() throws Exception {
+		when(us.getActiveRidersByBatch(0)).thenReturn(users(1, 2, 0, false));
+		when(ds.getRoutableDrivers(0)).thenReturn(new ArrayList<User>());
+
+		BatchAssignment result = asi.assignBatch(0);
+
+		assertEquals(2, result.getUnassigned().size());
+		verify(ds, never()).calculateDetours(any(), any());
+	}
+
+	//Drivers come first in the matrix, then riders, and everyone works at the origin
+	@Test
+	public void testPoolBatch() throws Exception {
+		List<User> riders = users(1, 3, 0, false);
+		User driver = driver(10, 0, 2);
+		User other = driver(11, 0, 1);
+		when(us.getActiveRidersByBatch(0)).thenReturn(riders);
+		when(ds.getRoutableDrivers(0)).thenReturn(Arrays.asList(driver, other));
+		//Positions on one road: driver 10 km, other driver -10 km, riders 6, 3 and -4 km
+		long[] position = {10000, -10000, 6000, 3000, -4000};
+		long[][] distances = new long[5][10];
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 5; j++) {
+				distances[i][j] = Math.abs(position[i] - position[j]);
+				distances[i][5 + j] = Math.abs(position[i]);
+			}
+		}
+		when(ds.getCommuteMatrix(any())).thenReturn(distances);
+
+		BatchPool result = asi.poolBatch(0);
+
+		assertEquals(2, result.getRides().size());
+		PooledRide first = result.getRides().get(0);
+		assertEquals(driver, first.getDriver());
+		assertEquals(Arrays.asList(riders.get(0), riders.get(1)), first.getRiders());
+		assertEquals(10000, first.getDistance());
+		assertEquals(0, first.getDetour());
+		assertEquals(Arrays.asList(riders.get(2)), result.getRides().get(1).getRiders());
+		assertEquals(0, result.getUnassigned().size());
+	}
+
+	@Test
+	public void testAllBatchesInParallel() throws Exception {
+		asi.startPool();
+		try {
+			List<Batch> batches = new ArrayList<Batch>();
+			for (int b = 0; b < 4; b++) {
+				batches.add(new Batch(b, "Reston"));
+				when(us.getActiveRidersByBatch(b)).thenReturn(users(100 * b + 1, 1, b, false));
+				when(ds.getRoutableDrivers(b)).thenReturn(Arrays.asList(driver(100 * b + 50, b, 4)));
+			}
+			when(bs.getBatches()).thenReturn(batches);
+			when(ds.calculateDetours(any(), any())).thenReturn(new double[][] {{250}});
+
+			List<BatchAssignment> results = asi.assignAllBatches();
+
+			assertEquals(4, results.size());
+			for (int b = 0; b < 4; b++) {
+				assertEquals(b, results.get(b).getBatchNumber());
+				assertEquals(100 * b + 50, results.get(b).getAssignments().get(0).getDriver().getUserId());
+			}
+		} finally {
+			asi.stopPool();
+		}
+	}
+
+	private static Map<Integer, Integer> driverOf(BatchAssignment result) {
+		Map<Integer, Integer> driverOf = new HashMap<Integer, Integer>();
+		for (RideAssignment assignment : result.getAssignments()) {
+			assertTrue(driverOf.put(assignment.getRider().getUserId(), assignment.getDriver().getUserId()) == null);
+		}
+		return driverOf;
+	}
+
+	private static List<User> users(int firstId, int count, int batchNumber, boolean isDriver) {
+		List<User> users = new ArrayList<User>();
+		for (int id = firstId; id < firstId + count; id++) {
+			users.add(new User(id, "User" + id, new Batch(batchNumber, "Reston"), "Fred", "Jones", "FJTest@gmail.com", "1234561234", isDriver, true, isDriver,
+					id + " Dulles Plaza", "Herndon", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia"));
+		}
+		return users;
+	}
+
+	private User driver(int id, int batchNumber, int seats) {
+		User driver = users(id, 1, batchNumber, true).get(0);
+		driver.setCar(new Car(id, "red", seats, "Honda", "Accord", 2015, driver));
+		cars.put(id, driver.getCar());
+		return driver;
+	}
+
+}
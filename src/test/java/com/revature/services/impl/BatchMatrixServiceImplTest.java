@@ -0,0 +1,205 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.revature.beans.Batch;
+import com.revature.beans.BatchMatrix;
+import com.revature.beans.User;
+import com.revature.beans.Waypoint;
+import com.revature.repositories.BatchMatrixRepository;
+import com.revature.repositories.BatchRepository;
+import com.revature.repositories.UserRepository;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+import com.revature.services.DistanceService;
+
+@RunWith(SpringRunner.class)
+public class BatchMatrixServiceImplTest {
+
+	@InjectMocks
+	private BatchMatrixServiceImpl bms;
+
+	@Mock
+	private BatchMatrixRepository bmr;
+
+	@Mock
+	private BatchRepository br;
+
+	@Mock
+	private UserRepository ur;
+
+	@Mock
+	private DistanceService ds;
+
+	private final User driver = user(1, true, "418 Wilson Ave", "Morgantown", "650 Price Street", "Morgantown");
+
+	private final User rider = user(2, false, "100 Beechurst Ave", "Morgantown", "650 Price Street", "Morgantown");
+
+	@Before
+	public void setup() {
+		when(ds.homeOf(any())).thenAnswer(call -> home(call.getArgument(0)));
+		when(ds.workOf(any())).thenAnswer(call -> work(call.getArgument(0)));
+	}
+
+	//Homes are the rows, homes then workplaces the columns, each address once
+	@Test
+	public void testRebuildStoresBatchMatrix() throws Exception {
+		rebuildWith(new long[][] {{0, 900, 1500}, {950, 0, 800}});
+
+		ArgumentCaptor<BatchMatrix> saved = ArgumentCaptor.forClass(BatchMatrix.class);
+		verify(bmr).save(saved.capture());
+		assertEquals(1, saved.getValue().getBatchNumber());
+		assertEquals(home(driver).getAddress() + "\n" + home(rider).getAddress(), saved.getValue().getOrigins());
+		assertEquals(24, saved.getValue().getMeters().length);
+
+		long[][] known = bms.lookup(new Waypoint[] {home(rider)}, new Waypoint[] {home(driver), work(rider)});
+		assertEquals(950, known[0][0]);
+		assertEquals(800, known[0][1]);
+	}
+
+	@Test
+	public void testLookupMissesUnknownAddresses() throws Exception {
+		Waypoint elsewhere = new Waypoint("1400 Dulles Plaza, Herndon, VA");
+		assertNull(bms.lookup(new Waypoint[] {home(rider)}, new Waypoint[] {home(driver)}));
+
+		rebuildWith(new long[][] {{0, 900, 1500}, {950, 0, 800}});
+
+		assertNull(bms.lookup(new Waypoint[] {elsewhere}, new Waypoint[] {home(driver)}));
+		long[][] known = bms.lookup(new Waypoint[] {home(rider), elsewhere}, new Waypoint[] {home(driver)});
+		assertEquals(950, known[0][0]);
+		assertEquals(DistanceCacheService.MISSING, known[1][0]);
+	}
+
+	//Without every distance the old matrix is kept rather than one with estimates stored
+	@Test
+	public void testRebuildKeepsOldMatrixWhenProviderUnavailable() throws Exception {
+		rebuildWith(new long[][] {{0, 900, 1500}, {950, 0, 800}});
+		when(ds.getExactDistanceMatrix(any(), any())).thenReturn(null);
+
+		bms.rebuild(1);
+
+		verify(bmr).save(any());
+		assertEquals(950, bms.lookup(new Waypoint[] {home(rider)}, new Waypoint[] {home(driver)})[0][0]);
+	}
+
+	//A user joining fetches their own row and the old homes to their address, nothing else
+	@Test
+	public void testUserJoiningAddsRowAndColumn() throws Exception {
+		rebuildWith(new long[][] {{0, 900, 1500}, {950, 0, 800}});
+		User joining = user(3, false, "1 Main St", "Morgantown", "650 Price Street", "Morgantown");
+		Waypoint[] newRow = {home(joining)};
+		Waypoint[] allColumns = {home(driver), home(rider), work(driver), home(joining)};
+		Waypoint[] oldRows = {home(driver), home(rider)};
+		Waypoint[] newColumn = {home(joining)};
+		when(ds.getExactDistanceMatrix(newRow, allColumns)).thenReturn(new long[][] {{300, 400, 700, 0}});
+		when(ds.getExactDistanceMatrix(oldRows, newColumn)).thenReturn(new long[][] {{310}, {410}});
+		ScheduledExecutorService deltas = Executors.newSingleThreadScheduledExecutor();
+		ReflectionTestUtils.setField(bms, "deltas", deltas);
+
+		bms.userSaved(joining);
+		deltas.shutdown();
+		deltas.awaitTermination(5, TimeUnit.SECONDS);
+
+		long[][] known = bms.lookup(new Waypoint[] {home(joining), home(driver)}, new Waypoint[] {work(joining), home(joining)});
+		assertEquals(700, known[0][0]);
+		assertEquals(310, known[1][1]);
+	}
+
+	//A user whose addresses the matrix already has costs nothing
+	@Test
+	public void testKnownUserChangesNothing() throws Exception {
+		rebuildWith(new long[][] {{0, 900, 1500}, {950, 0, 800}});
+		ScheduledExecutorService deltas = Executors.newSingleThreadScheduledExecutor();
+		ReflectionTestUtils.setField(bms, "deltas", deltas);
+
+		bms.userSaved(rider);
+		deltas.shutdown();
+		deltas.awaitTermination(5, TimeUnit.SECONDS);
+
+		verify(ds, times(1)).getExactDistanceMatrix(any(), any());
+		verify(bmr, times(1)).save(any());
+	}
+
+	//An unreachable distance is fetched again rather than answered from the matrix
+	@Test
+	public void testLookupSkipsUnreachable() throws Exception {
+		rebuildWith(new long[][] {{0, 900, 1500}, {DistanceProvider.UNREACHABLE, 0, 800}});
+
+		long[][] known = bms.lookup(new Waypoint[] {home(rider)}, new Waypoint[] {home(driver), work(rider)});
+		assertEquals(DistanceCacheService.MISSING, known[0][0]);
+		assertEquals(800, known[0][1]);
+	}
+
+	//Addresses that left a batch's matrix are no longer found through it
+	@Test
+	public void testRebuildDropsAddressesThatLeft() throws Exception {
+		rebuildWith(new long[][] {{0, 900, 1500}, {950, 0, 800}});
+		when(ur.getActiveRidersByBatch(1)).thenReturn(Collections.emptyList());
+		when(ds.getExactDistanceMatrix(any(), any())).thenReturn(new long[][] {{0, 1500}});
+
+		bms.rebuild(1);
+
+		assertNull(bms.lookup(new Waypoint[] {home(rider)}, new Waypoint[] {home(driver)}));
+		assertEquals(1500, bms.lookup(new Waypoint[] {home(driver)}, new Waypoint[] {work(driver)})[0][0]);
+	}
+
+	//Missing matrices are computed one at a time, the second only after the spacing
+	@Test
+	public void testMissingMatricesAreSpacedOut() throws Exception {
+		ScheduledExecutorService deltas = Executors.newSingleThreadScheduledExecutor();
+		ReflectionTestUtils.setField(bms, "deltas", deltas);
+		ReflectionTestUtils.setField(bms, "startupSpacingMillis", 60000L);
+		when(br.findAll()).thenReturn(Arrays.asList(new Batch(1, "Morgantown"), new Batch(2, "Reston")));
+		when(ur.getActiveDriversByBatch(1)).thenReturn(Collections.singletonList(driver));
+		when(ds.getExactDistanceMatrix(any(), any())).thenReturn(new long[][] {{0, 1500}});
+
+		bms.loadMatrices();
+		deltas.schedule(() -> null, 100, TimeUnit.MILLISECONDS).get();
+
+		verify(ur).getActiveDriversByBatch(1);
+		verify(ur, never()).getActiveDriversByBatch(2);
+		deltas.shutdownNow();
+	}
+
+	private void rebuildWith(long[][] distances) throws Exception {
+		when(ur.getActiveDriversByBatch(1)).thenReturn(Collections.singletonList(driver));
+		when(ur.getActiveRidersByBatch(1)).thenReturn(Arrays.asList(rider));
+		when(ds.getExactDistanceMatrix(any(), any())).thenReturn(distances);
+		bms.rebuild(1);
+	}
+
+	private static User user(int id, boolean driver, String home, String homeCity, String work, String workCity) {
+		return new User(id, "user" + id, new Batch(1, "Morgantown"), "First", "Last", "user" + id + "@gmail.com", "1234561234",
+				driver, true, driver, home, homeCity, "26505", "WV", work, workCity, "26506", "WV");
+	}
+
+	private static Waypoint home(User u) {
+		return new Waypoint(u.gethAddress() + ", " + u.gethCity() + ", " + u.gethState());
+	}
+
+	private static Waypoint work(User u) {
+		return new Waypoint(u.getwAddress() + ", " + u.getwCity() + ", " + u.getwState());
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.revature.services.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -15,7 +17,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import com.revature.beans.Admin;
 import com.revature.beans.Batch;
+import com.revature.beans.GeocodeJob;
 import com.revature.repositories.BatchRepository;
+import com.revature.services.GeocodeService;
 
 @RunWith(SpringRunner.class)
 public class BatchServiceImplTest {
@@ -26,6 +30,9 @@ public class BatchServiceImplTest {
 	@Mock
 	private BatchRepository br;
 	
+	@Mock
+	private GeocodeService gs;
+	
 	@Test
 	public void testGettingBatches() {
 		
@@ -88,4 +95,47 @@ public class BatchServiceImplTest {
 		
 		assertEquals(expected, actual);
 	}
+	
+	@Test
+	public void testAddingBatchGeocodesIt() {
+		
+		Batch batch = new Batch(123, "location", "650 Price Street", "Morgantown", "26505", "WV");
+		when(br.save(batch)).thenReturn(batch);
+		bsi.addBatch(batch);
+		
+		verify(gs).enqueue(GeocodeJob.EntityType.BATCH, 123);
+	}
+	
+	@Test
+	public void testUpdatingBatchKeepsCoordinates() {
+		
+		Batch stored = new Batch(123, "location", "650 Price Street", "Morgantown", "26505", "WV");
+		stored.setbLatitude(39.63);
+		stored.setbLongitude(-79.96);
+		Batch batch = new Batch(123, "renamed", "650 Price Street", "Morgantown", "26505", "WV");
+		when(br.findById(123)).thenReturn(Optional.of(stored));
+		when(br.save(batch)).thenReturn(batch);
+		bsi.updateBatch(batch);
+		
+		assertEquals(Double.valueOf(39.63), batch.getbLatitude());
+		verify(gs, never()).enqueue(GeocodeJob.EntityType.BATCH, 123);
+	}
+	
+	//Coordinates sent back unchanged with a new address belong to the old one
+	@Test
+	public void testMovingBatchGeocodesItAgain() {
+		
+		Batch stored = new Batch(123, "location", "650 Price Street", "Morgantown", "26505", "WV");
+		stored.setbLatitude(39.63);
+		stored.setbLongitude(-79.96);
+		Batch batch = new Batch(123, "location", "100 Main Street", "Reston", "20190", "VA");
+		batch.setbLatitude(39.63);
+		batch.setbLongitude(-79.96);
+		when(br.findById(123)).thenReturn(Optional.of(stored));
+		when(br.save(batch)).thenReturn(batch);
+		bsi.updateBatch(batch);
+		
+		assertEquals(null, batch.getbLatitude());
+		verify(gs).enqueue(GeocodeJob.EntityType.BATCH, 123);
+	}
 }
@@ -0,0 +1,110 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+	private static CompletableFuture<String> failed() {
+		CompletableFuture<String> failed = new CompletableFuture<String>();
+		failed.completeExceptionally(new IOException("upstream failed"));
+		return failed;
+	}
+
+	private static Throwable cause(CompletableFuture<?> future) throws InterruptedException {
+		try {
+			future.get();
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	@Test
+	public void testSuccessPassesThrough() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60000, 0);
+
+		assertEquals("ok", breaker.call(() -> CompletableFuture.completedFuture("ok")).get());
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	//After the threshold the upstream isn't called at all
+	@Test
+	public void testOpensAfterThreshold() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60000, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		for (int i = 0; i < 2; i++) {
+			assertTrue(cause(breaker.call(() -> {
+				calls.incrementAndGet();
+				return failed();
+			})) instanceof IOException);
+		}
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertTrue(cause(breaker.call(() -> {
+			calls.incrementAndGet();
+			return failed();
+		})) instanceof RejectedExecutionException);
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void testSuccessResetsFailures() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60000, 0);
+
+		cause(breaker.call(CircuitBreakerTest::failed));
+		breaker.call(() -> CompletableFuture.completedFuture("ok")).get();
+		cause(breaker.call(CircuitBreakerTest::failed));
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	//Once openMillis has passed one trial goes through, and its outcome decides the state
+	@Test
+	public void testHalfOpenTrial() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0, 0);
+
+		cause(breaker.call(CircuitBreakerTest::failed));
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		cause(breaker.call(CircuitBreakerTest::failed));
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		assertEquals("ok", breaker.call(() -> CompletableFuture.completedFuture("ok")).get());
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	//A slow upstream counts as a failure and doesn't hold the caller
+	@Test
+	public void testTimeout() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, 60000, 50);
+		CompletableFuture<String> pending = new CompletableFuture<String>();
+
+		assertTrue(cause(breaker.call(() -> pending)) instanceof TimeoutException);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		//A late answer no longer changes the result
+		pending.complete("late");
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+	@Test
+	public void testThrowingUpstreamIsAFailure() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(1, 60000, 0);
+
+		assertTrue(cause(breaker.call(() -> {
+			throw new IllegalStateException("no client");
+		})) instanceof IllegalStateException);
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class DeadlineTest {
+
+	@Test
+	public void testStepInTimeIsNotPartial() throws Exception {
+		Deadline deadline = Deadline.in(60000);
+		CompletableFuture<String> step = new CompletableFuture<String>();
+
+		CompletableFuture<String> raced = deadline.race(() -> step, () -> "known");
+		step.complete("fetched");
+
+		assertEquals("fetched", raced.get());
+		assertFalse(deadline.isHit());
+	}
+
+	//The step keeps going, only the answer stops waiting for it
+	@Test
+	public void testFallbackAnswersAtDeadline() throws Exception {
+		Deadline deadline = Deadline.in(50);
+		CompletableFuture<String> step = new CompletableFuture<String>();
+
+		CompletableFuture<String> raced = deadline.race(() -> step, () -> "known");
+
+		assertEquals("known", raced.get(5, TimeUnit.SECONDS));
+		assertTrue(deadline.isHit());
+		assertFalse(step.isDone());
+	}
+
+	//Stages depending on the fallback's answer already see the deadline hit
+	@Test
+	public void testHitBeforeFallbackIsSeen() throws Exception {
+		Deadline deadline = Deadline.in(50);
+		CompletableFuture<String> step = new CompletableFuture<String>();
+
+		CompletableFuture<Boolean> seen = deadline.race(() -> step, () -> "known").thenApply(known -> deadline.isHit());
+
+		assertTrue(seen.get(5, TimeUnit.SECONDS));
+	}
+
+	//The step finishing while the fallback runs wins, and the answer isn't partial
+	@Test
+	public void testLostFallbackIsNotHit() throws Exception {
+		Deadline deadline = Deadline.in(50);
+		CompletableFuture<String> step = new CompletableFuture<String>();
+
+		CompletableFuture<String> raced = deadline.race(() -> step, () -> {
+			step.complete("fetched");
+			return "known";
+		});
+
+		assertEquals("fetched", raced.get(5, TimeUnit.SECONDS));
+		assertFalse(deadline.isHit());
+	}
+
+	@Test
+	public void testExpiredDeadlineDoesNotStartStep() throws Exception {
+		Deadline deadline = Deadline.in(1);
+		Thread.sleep(5);
+		AtomicInteger started = new AtomicInteger();
+
+		CompletableFuture<String> raced = deadline.race(() -> {
+			started.incrementAndGet();
+			return CompletableFuture.completedFuture("fetched");
+		}, () -> "known");
+
+		assertEquals("known", raced.get());
+		assertEquals(0, started.get());
+		assertTrue(deadline.isExpired());
+	}
+
+	@Test
+	public void testNoDeadlineWaits() throws Exception {
+		Deadline deadline = Deadline.in(0);
+		CompletableFuture<String> step = new CompletableFuture<String>();
+
+		assertSame(step, deadline.race(() -> step, () -> "known"));
+		assertFalse(deadline.isExpired());
+	}
+
+}
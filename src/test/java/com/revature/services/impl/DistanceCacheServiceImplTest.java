@@ -0,0 +1,169 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.revature.beans.DistanceCacheEntry;
+import com.revature.beans.UnroutableAddress;
+import com.revature.beans.Waypoint;
+import com.revature.repositories.DistanceCacheRepository;
+import com.revature.repositories.UnroutableAddressRepository;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+
+@RunWith(SpringRunner.class)
+public class DistanceCacheServiceImplTest {
+
+	@InjectMocks
+	private DistanceCacheServiceImpl dcsi;
+
+	@Mock
+	private DistanceCacheRepository dcr;
+
+	@Mock
+	private UnroutableAddressRepository uar;
+
+	private Waypoint[] origins = {new Waypoint("418 Wilson Ave, Morgantown, WV"), new Waypoint("35 VanGilder Ave, Morgantown, WV")};
+	private Waypoint[] destinations = {new Waypoint("650 Price Street, Morgantown, WV")};
+
+	@Before
+	public void setTtl() {
+		ReflectionTestUtils.setField(dcsi, "ttlHours", 24L);
+	}
+
+	@Test
+	public void testNormalize() {
+		assertEquals("418 wilson ave, morgantown, wv", dcsi.normalize("  418  Wilson Ave,\tMorgantown, WV "));
+	}
+
+	@Test
+	public void testLookupSkipsExpiredEntries() {
+		List<DistanceCacheEntry> entries = new ArrayList<>();
+		entries.add(new DistanceCacheEntry("418 wilson ave, morgantown, wv", "650 price st, morgantown, wv", 1200, new Date()));
+		Date expired = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25));
+		entries.add(new DistanceCacheEntry("35 vangilder ave, morgantown, wv", "650 price st, morgantown, wv", 900, expired));
+		when(dcr.getEntries(anyCollection(), anyCollection())).thenReturn(entries);
+
+		long[][] distances = dcsi.lookup(origins, destinations);
+
+		assertEquals(1200, distances[0][0]);
+		assertEquals(DistanceCacheService.MISSING, distances[1][0]);
+	}
+
+	@Test
+	public void testLookupStaleKeepsExpiredEntries() {
+		List<DistanceCacheEntry> entries = new ArrayList<>();
+		Date expired = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(25));
+		entries.add(new DistanceCacheEntry("35 vangilder ave, morgantown, wv", "650 price st, morgantown, wv", 900, expired));
+		when(dcr.getEntries(anyCollection(), anyCollection())).thenReturn(entries);
+
+		long[][] distances = dcsi.lookupStale(origins, destinations);
+
+		assertEquals(DistanceCacheService.MISSING, distances[0][0]);
+		assertEquals(900, distances[1][0]);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testStoreRefreshesAndSkipsUnreachable() {
+		DistanceCacheEntry old = new DistanceCacheEntry("418 wilson ave, morgantown, wv", "650 price st, morgantown, wv", 1000, new Date(0));
+		List<DistanceCacheEntry> entries = new ArrayList<>();
+		entries.add(old);
+		when(dcr.getEntries(anyCollection(), anyCollection())).thenReturn(entries);
+
+		dcsi.store(origins, destinations, new long[][] {{1200}, {DistanceProvider.UNREACHABLE}});
+
+		ArgumentCaptor<List<DistanceCacheEntry>> saved = ArgumentCaptor.forClass(List.class);
+		verify(dcr).saveAll(saved.capture());
+		assertEquals(1, saved.getValue().size());
+		assertEquals(old, saved.getValue().get(0));
+		assertEquals(1200, old.getMeters());
+	}
+
+	@Test
+	public void testStoreNothingReachable() {
+		when(dcr.getEntries(anyCollection(), anyCollection())).thenReturn(new ArrayList<>());
+
+		dcsi.store(origins, destinations, new long[][] {{DistanceProvider.UNREACHABLE}, {DistanceProvider.UNREACHABLE}});
+
+		verify(dcr, never()).saveAll(any());
+		//Nothing was reached, so there is no telling which address is at fault
+		verify(uar, never()).saveAll(any());
+	}
+
+	//The unreached origin is flagged for retry-hours, the reached one is cleared
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testStoreFlagsUnroutableOrigin() {
+		UnroutableAddress fixed = new UnroutableAddress("418 wilson ave, morgantown, wv", 2, new Date(0));
+		List<UnroutableAddress> flagged = new ArrayList<>();
+		flagged.add(fixed);
+		when(uar.getByAddressKeys(anyCollection())).thenReturn(flagged);
+
+		long before = System.currentTimeMillis();
+		dcsi.store(origins, destinations, new long[][] {{1200}, {DistanceProvider.UNREACHABLE}});
+
+		ArgumentCaptor<List<UnroutableAddress>> saved = ArgumentCaptor.forClass(List.class);
+		verify(uar).saveAll(saved.capture());
+		assertEquals(1, saved.getValue().size());
+		UnroutableAddress address = saved.getValue().get(0);
+		assertEquals("35 vangilder ave, morgantown, wv", address.getAddressKey());
+		assertEquals(1, address.getFailures());
+		assertTrue(address.getRetryAfter().getTime() >= before + TimeUnit.HOURS.toMillis(24));
+		verify(uar).deleteAll(Collections.singletonList(fixed));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testRepeatedFailureDoublesRetry() {
+		UnroutableAddress again = new UnroutableAddress("35 vangilder ave, morgantown, wv", 1, new Date(0));
+		List<UnroutableAddress> flagged = new ArrayList<>();
+		flagged.add(again);
+		when(uar.getByAddressKeys(anyCollection())).thenReturn(flagged);
+
+		long before = System.currentTimeMillis();
+		dcsi.store(origins, destinations, new long[][] {{1200}, {DistanceProvider.UNREACHABLE}});
+
+		ArgumentCaptor<List<UnroutableAddress>> saved = ArgumentCaptor.forClass(List.class);
+		verify(uar).saveAll(saved.capture());
+		assertEquals(again, saved.getValue().get(0));
+		assertEquals(2, again.getFailures());
+		assertTrue(again.getRetryAfter().getTime() >= before + TimeUnit.HOURS.toMillis(48));
+		verify(uar, never()).deleteAll(any());
+	}
+
+	@Test
+	public void testIsUnroutableUntilRetryAfter() {
+		List<UnroutableAddress> flagged = new ArrayList<>();
+		flagged.add(new UnroutableAddress("418 wilson ave, morgantown, wv", 1, new Date(System.currentTimeMillis() + 60000)));
+		flagged.add(new UnroutableAddress("35 vangilder ave, morgantown, wv", 1, new Date(System.currentTimeMillis() - 60000)));
+		when(uar.getByAddressKeys(anyCollection())).thenReturn(flagged);
+
+		boolean[] unroutable = dcsi.isUnroutable(origins);
+
+		assertTrue(unroutable[0]);
+		assertFalse(unroutable[1]);
+	}
+
+}
@@ -6,19 +6,35 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
 
 import com.google.maps.errors.ApiException;
 import com.revature.beans.Batch;
+import com.revature.beans.RecommendedDrivers;
+import com.revature.beans.UnroutableAddress;
 import com.revature.beans.User;
+import com.revature.beans.Waypoint;
 import com.revature.repositories.UserRepository;
+import com.revature.services.BatchMatrixService;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+import com.revature.services.DriverIndexService;
+import com.revature.services.TravelTimeService;
 import com.revature.services.UserService;
 
 @RunWith(SpringRunner.class)
@@ -30,6 +46,24 @@ public class DistanceServiceImplTest {
 	@Mock
 	private UserService us;
 	
+	@Mock
+	private DistanceProvider provider;
+	
+	@Mock
+	private DistanceCacheService dcs;
+	
+	@Mock
+	private DriverIndexService dis;
+	
+	@Mock
+	private ZipGazetteer gazetteer;
+	
+	@Mock
+	private BatchMatrixService bms;
+	
+	@Mock
+	private TravelTimeService tts;
+	
 	private static User testRider;
 	private static User driverOne;
 	private static User driverTwo;
@@ -55,23 +89,38 @@ public class DistanceServiceImplTest {
 		
 	}
 
+	//Provider calls go through getDistancesAsync, whose default answers from the stubbed getDistances
+	//Riders' pickups are sent as they come, the tests of micro-batching open a window themselves
+	@Before
+	public void callThroughAsync() throws Exception {
+		Mockito.when(provider.getDistancesAsync(Mockito.any(), Mockito.any())).thenCallRealMethod();
+		Mockito.when(dcs.isUnroutable(Mockito.any())).thenAnswer(call -> new boolean[((Waypoint[]) call.getArgument(0)).length]);
+		microBatch(0, 25);
+	}
+	
+	private void microBatch(long windowMs, int maxRiders) {
+		ReflectionTestUtils.setField(dsi, "pickupWindowMs", windowMs);
+		ReflectionTestUtils.setField(dsi, "pickupMaxRiders", maxRiders);
+		dsi.start();
+	}
+
 	//initDestinations
 	@Test
 	public void testInitDestinations() {
-		String[] destTest = dsi.initDestinations(testRider);
+		Waypoint[] destTest = dsi.initDestinations(testRider);
 
-		assertTrue(destTest[0].equals("1400 Dulles Plaza, Herndon, Virginia"));
-		assertTrue(destTest[1].equals("11730 Plaza America Dr., Reston, Virginia"));
+		assertTrue(destTest[0].getAddress().equals("1400 Dulles Plaza, Herndon, Virginia"));
+		assertTrue(destTest[1].getAddress().equals("11730 Plaza America Dr., Reston, Virginia"));
 	}
 	
 	//initOrigins
 	@Test
 	public void testInitOrigins() {
-		String[] oriTest = dsi.initOrigins(testRider, driverList);
-		assertTrue(oriTest[0].equals("1400 Dulles Plaza, Herndon, Virginia"));
-		assertTrue(oriTest[1].equals("1202 Springtide Place, Herndon, Virginia"));
-		assertTrue(oriTest[2].equals("46025 Bayswater Terrace, Herndon, Virginia"));
-		assertTrue(oriTest[3].equals("738 Cordell Way, Herndon, Virginia"));
+		Waypoint[] oriTest = dsi.initOrigins(testRider, driverList);
+		assertTrue(oriTest[0].getAddress().equals("1400 Dulles Plaza, Herndon, Virginia"));
+		assertTrue(oriTest[1].getAddress().equals("1202 Springtide Place, Herndon, Virginia"));
+		assertTrue(oriTest[2].getAddress().equals("46025 Bayswater Terrace, Herndon, Virginia"));
+		assertTrue(oriTest[3].getAddress().equals("738 Cordell Way, Herndon, Virginia"));
 	}
 	
 	//getAddressFromUsers
@@ -89,26 +138,792 @@ public class DistanceServiceImplTest {
 	@Test
 	public void testCalculateDistance() {
 		Mockito.when(us.getActiveDrivers()).thenReturn(driverList);
-		String[] origins = dsi.initOrigins(testRider, driverList);
-		String[] destinations = dsi.initDestinations(testRider);
-		List<Double> calcDistances = new ArrayList<Double>();
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		double[] calcDistances = new double[0];
 		try {
 			calcDistances = dsi.calculateDriverDistances(origins, destinations);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		for(Double d : calcDistances) {
+		for(double d : calcDistances) {
 			assertTrue(d >= 0);
 		}		
 	}
 	
+	//Detour is (DtoR + RtoW) - DtoW, unreachable rows are pushed to the back
+	@Test
+	public void testCalculateDistanceFromProvider() throws Exception {
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		long[][] matrix = {
+				{0, 5000},
+				{1000, 5500},
+				{3000, 4000},
+				{DistanceProvider.UNREACHABLE, 6000}
+		};
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(missing(origins.length, destinations.length));
+		Mockito.when(provider.getDistances(origins, destinations)).thenReturn(matrix);
+		
+		double[] calcDistances = dsi.calculateDriverDistances(origins, destinations);
+		
+		assertEquals(3, calcDistances.length);
+		assertEquals(500, calcDistances[0], 0);
+		assertEquals(4000, calcDistances[1], 0);
+		assertEquals(999999999, calcDistances[2], 0);
+	}
+	
+	//Only the rows and columns the cache couldn't answer go to the provider, and they are written back
+	@Test
+	public void testDistanceMatrixSendsOnlyMisses() throws Exception {
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		long[][] cached = {
+				{0, 5000},
+				{1000, 5500},
+				{DistanceCacheService.MISSING, 4000},
+				{2000, 6000}
+		};
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(cached);
+		Waypoint[] missOrigins = {origins[2]};
+		Waypoint[] missDestinations = {destinations[0]};
+		long[][] fetched = {{3000}};
+		Mockito.when(provider.getDistances(missOrigins, missDestinations)).thenReturn(fetched);
+		
+		long[][] matrix = dsi.getDistanceMatrix(origins, destinations);
+		
+		assertEquals(3000, matrix[2][0]);
+		assertEquals(4000, matrix[2][1]);
+		assertEquals(6000, matrix[3][1]);
+		Mockito.verify(dcs).store(missOrigins, missDestinations, fetched);
+	}
+	
+	//Roommates and spellings of one address are a single row of the lookup and the provider call, fanned back out
+	@Test
+	public void testDistanceMatrixCollapsesSharedAddresses() throws Exception {
+		Waypoint rider = new Waypoint("1400 Dulles Plaza, Herndon, Virginia");
+		Waypoint roommateOne = new Waypoint("418 Wilson Ave, Morgantown, WV");
+		Waypoint roommateTwo = new Waypoint("418 wilson avenue,  Morgantown, West Virginia");
+		Waypoint[] origins = {rider, roommateOne, roommateTwo};
+		Waypoint[] destinations = {new Waypoint("650 Price Street, Morgantown, WV")};
+		Waypoint[] uniqueOrigins = {rider, roommateOne};
+		Mockito.when(dcs.lookup(uniqueOrigins, destinations)).thenReturn(missing(2, 1));
+		long[][] fetched = {{1000}, {2000}};
+		Mockito.when(provider.getDistances(uniqueOrigins, destinations)).thenReturn(fetched);
+		
+		long[][] matrix = dsi.getDistanceMatrix(origins, destinations);
+		
+		assertEquals(3, matrix.length);
+		assertEquals(1000, matrix[0][0]);
+		assertEquals(2000, matrix[1][0]);
+		assertEquals(2000, matrix[2][0]);
+		Mockito.verify(dcs).store(uniqueOrigins, destinations, fetched);
+	}
+	
+	@Test
+	public void testDistanceMatrixAllCached() throws Exception {
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		long[][] cached = {{0, 5000}, {1000, 5500}, {3000, 4000}, {2000, 6000}};
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(cached);
+		
+		assertEquals(cached, dsi.getDistanceMatrix(origins, destinations));
+		Mockito.verifyZeroInteractions(provider);
+	}
+	
+	//A batch's matrix answers from memory, neither the cache nor the provider is asked
+	@Test
+	public void testBatchMatrixAnswersFromMemory() throws Exception {
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		long[][] known = {{0, 5000}, {1000, 5500}, {3000, 4000}, {2000, 6000}};
+		Mockito.when(bms.lookup(origins, destinations)).thenReturn(known);
+		
+		assertEquals(known, dsi.getDistanceMatrix(origins, destinations));
+		Mockito.verify(dcs, Mockito.never()).lookup(Mockito.any(), Mockito.any());
+		Mockito.verifyZeroInteractions(provider);
+	}
+	
+	//The distances a batch's matrix misses come from the cache, then the provider
+	@Test
+	public void testBatchMatrixMissesFromCache() throws Exception {
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		long[][] known = missing(4, 2);
+		known[0][1] = 5000;
+		long[][] cached = {
+				{0, DistanceCacheService.MISSING},
+				{1000, 5500},
+				{DistanceCacheService.MISSING, 4000},
+				{2000, 6000}
+		};
+		Mockito.when(bms.lookup(origins, destinations)).thenReturn(known);
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(cached);
+		Waypoint[] missOrigins = {origins[2]};
+		Waypoint[] missDestinations = {destinations[0]};
+		Mockito.when(provider.getDistances(missOrigins, missDestinations)).thenReturn(new long[][] {{3000}});
+		
+		long[][] matrix = dsi.getDistanceMatrix(origins, destinations);
+		
+		assertEquals(5000, matrix[0][1]);
+		assertEquals(1000, matrix[1][0]);
+		assertEquals(3000, matrix[2][0]);
+		Mockito.verify(provider).getDistances(missOrigins, missDestinations);
+	}
+	
+	private static long[][] missing(int rows, int columns) {
+		long[][] matrix = new long[rows][columns];
+		for (long[] row : matrix) {
+			Arrays.fill(row, DistanceCacheService.MISSING);
+		}
+		return matrix;
+	}
+	
 	@Test
 	public void testRecommendDrivers() {
-		Mockito.when(us.getActiveDrivers()).thenReturn(driverList);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(new ArrayList<User>(driverList));
 		List<User> recDrivers = dsi.recommendDrivers(testRider, 2);
 		
 	}
 	
+	//The async path ranks once the provider's futures complete, the drivers' rows are fetched first
+	@Test
+	public void testRecommendDriversAsync() throws Exception {
+		User rider = onLine(10, 10, false);
+		User driverA = onLine(11, 18, true);
+		User driverC = onLine(12, 8, true);
+		User driverD = onLine(13, 5, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> recommended = dsi.recommendDriversAsync(rider, 2);
+		assertFalse(recommended.isDone());
+		assertEquals(1, calls.size());
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), recommended.get());
+		assertFalse(recommended.get().isDegraded());
+		//The drivers' rows, the drivers to the rider's home and the rider's commute
+		assertEquals(3, calls.size());
+		Mockito.verify(dcs, Mockito.times(3)).store(Mockito.any(), Mockito.any(), Mockito.any());
+		Mockito.verify(provider, Mockito.never()).getDistances(Mockito.any(), Mockito.any());
+	}
+	
+	//Riders of one batch asking at the same time share a single fetch of the drivers' rows
+	@Test
+	public void testConcurrentRecommendationsShareDriverRows() throws Exception {
+		User riderOne = onLine(20, 10, false);
+		User riderTwo = onLine(21, 20, false);
+		User driverA = onLine(22, 18, true);
+		User driverC = onLine(23, 8, true);
+		User driverD = onLine(24, 5, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> first = dsi.recommendDriversAsync(riderOne, 2);
+		CompletableFuture<RecommendedDrivers> second = dsi.recommendDriversAsync(riderTwo, 2);
+		assertEquals(1, calls.size());
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), first.get());
+		assertEquals(Arrays.asList(driverA, driverC), second.get());
+		assertEquals(5, calls.size());
+		Mockito.verify(dis, Mockito.times(1)).getBatchDrivers(0);
+	}
+	
+	//Riders of one batch in the same window share one fetch of the drivers to their homes, each gets their own column
+	@Test
+	public void testMicroBatchSharesPickups() throws Exception {
+		microBatch(60000, 2);
+		User riderOne = onLine(25, 10, false);
+		User riderTwo = onLine(26, 20, false);
+		User driverA = onLine(27, 18, true);
+		User driverC = onLine(28, 8, true);
+		User driverD = onLine(29, 5, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> first = dsi.recommendDriversAsync(riderOne, 2);
+		CompletableFuture<RecommendedDrivers> second = dsi.recommendDriversAsync(riderTwo, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), first.get());
+		assertEquals(Arrays.asList(driverA, driverC), second.get());
+		//The drivers' rows, one pickup matrix for both riders and each rider's commute
+		assertEquals(4, calls.size());
+		int pickups = 0;
+		for (Object[] call : calls) {
+			if (((Waypoint[]) call[0]).length == 3 && ((Waypoint[]) call[1]).length == 2) {
+				pickups++;
+			}
+		}
+		assertEquals(1, pickups);
+	}
+	
+	//A rider alone in the window is sent when it closes
+	@Test
+	public void testMicroBatchWindowCloses() throws Exception {
+		microBatch(20, 25);
+		User rider = onLine(35, 10, false);
+		User driverA = onLine(36, 18, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(provider.getDistances(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> alongLine(call.getArgument(0), call.getArgument(1)));
+		
+		assertEquals(Arrays.asList(driverA), dsi.recommendDriversAsync(rider, 2).get(5, TimeUnit.SECONDS));
+	}
+	
+	//A change to the roster while a fetch is in flight starts a new one instead of joining it
+	@Test
+	public void testRosterChangeStartsNewDriverRows() throws Exception {
+		Mockito.when(dis.getRosterVersion(0)).thenReturn(1L, 2L);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(onLine(32, 18, true)));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		dsi.recommendDriversAsync(onLine(30, 10, false), 2);
+		dsi.recommendDriversAsync(onLine(31, 20, false), 2);
+		
+		assertEquals(2, calls.size());
+		Mockito.verify(dis, Mockito.times(2)).getBatchDrivers(0);
+	}
+	
+	//A rider asking again is answered from their kept ranking, without reading the drivers or any distance
+	@Test
+	public void testKeptRankingAnswersFromMemory() throws Exception {
+		User rider = onLine(50, 10, false);
+		User driverA = onLine(51, 18, true);
+		User driverC = onLine(52, 8, true);
+		User driverD = onLine(53, 5, true);
+		List<Object[]> calls = keepRanking(rider, driverA, driverC, driverD);
+		
+		RecommendedDrivers again = dsi.recommendDriversAsync(rider, 3).get();
+		
+		assertEquals(Arrays.asList(driverA, driverC, driverD), again);
+		assertEquals(3, calls.size());
+		Mockito.verify(dis, Mockito.times(1)).getBatchDrivers(0);
+		Mockito.verify(dcs, Mockito.times(3)).lookup(Mockito.any(), Mockito.any());
+	}
+	
+	//A driver who stops accepting rides is taken out of the kept rankings without asking the provider
+	@Test
+	public void testDriverLeavingIsRemovedFromRankings() throws Exception {
+		User rider = onLine(54, 10, false);
+		User driverA = onLine(55, 18, true);
+		User driverC = onLine(56, 8, true);
+		User driverD = onLine(57, 5, true);
+		List<Object[]> calls = keepRanking(rider, driverA, driverC, driverD);
+		
+		driverA.setAcceptingRides(false);
+		saved(driverA, 1);
+		
+		assertEquals(Arrays.asList(driverC, driverD), dsi.recommendDriversAsync(rider, 2).get());
+		assertEquals(3, calls.size());
+	}
+	
+	//A driver joining is scored for every kept rider of the batch from a single row
+	@Test
+	public void testDriverJoiningIsScoredFromOneRow() throws Exception {
+		User riderOne = onLine(60, 10, false);
+		User riderTwo = onLine(61, 20, false);
+		User driverA = onLine(62, 18, true);
+		User driverC = onLine(63, 8, true);
+		List<Object[]> calls = keepRanking(riderOne, driverA, driverC);
+		dsi.recommendDriversAsync(riderTwo, 2);
+		completeAlongLine(calls);
+		int before = calls.size();
+		
+		User joining = onLine(64, 12, true);
+		saved(joining, 1);
+		
+		assertEquals(before + 1, calls.size());
+		Object[] row = calls.get(before);
+		assertEquals(1, ((Waypoint[]) row[0]).length);
+		//Both riders' homes and their shared workplace
+		assertEquals(3, ((Waypoint[]) row[1]).length);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, joining, driverC), dsi.recommendDriversAsync(riderOne, 3).get());
+		assertEquals(Arrays.asList(driverA, joining, driverC), dsi.recommendDriversAsync(riderTwo, 3).get());
+		assertEquals(before + 1, calls.size());
+	}
+	
+	//The thread saving the user doesn't wait for the rankings to follow
+	@Test
+	public void testSaveIsAppliedInBackground() throws Exception {
+		List<String> appliedOn = new ArrayList<String>();
+		Mockito.doAnswer(call -> appliedOn.add(Thread.currentThread().getName())).when(bms).userSaved(Mockito.any());
+		
+		dsi.userSaved(onLine(68, 12, true), Collections.emptyMap());
+		applyUpdates();
+		
+		assertEquals(1, appliedOn.size());
+		assertTrue(appliedOn.get(0).startsWith("ranking-updates-"));
+	}
+	
+	//The index moved batch 0 to version with this save
+	private void saved(User user, long version) throws Exception {
+		Mockito.when(dis.getRosterVersion(0)).thenReturn(version);
+		dsi.userSaved(user, Collections.singletonMap(0, version));
+		applyUpdates();
+	}
+	
+	//A save applied while a later one is still queued leaves the ranking behind the roster, so it isn't served
+	@Test
+	public void testRankingStampedWithAppliedSave() throws Exception {
+		User rider = onLine(78, 10, false);
+		User driverA = onLine(79, 18, true);
+		User driverC = onLine(85, 8, true);
+		List<Object[]> calls = keepRanking(rider, driverA, driverC);
+		
+		//Both saves are in the index, only the first is applied to the rankings yet
+		Mockito.when(dis.getRosterVersion(0)).thenReturn(2L);
+		dsi.userSaved(driverC, Collections.singletonMap(0, 1L));
+		applyUpdates();
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverC));
+		CompletableFuture<RecommendedDrivers> rebuilt = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverC), rebuilt.get());
+	}
+	
+	//Saves and deletions are applied in order, so one submitted after them runs once they are done
+	private void applyUpdates() throws Exception {
+		((ExecutorService) ReflectionTestUtils.getField(dsi, "rankingUpdates")).submit(() -> {}).get(5, TimeUnit.SECONDS);
+	}
+	
+	//A rider who moved is ranked again, their kept ranking was for the old address
+	@Test
+	public void testMovedRiderIsRankedAgain() throws Exception {
+		User rider = onLine(65, 10, false);
+		User driverA = onLine(66, 18, true);
+		User driverC = onLine(67, 8, true);
+		List<Object[]> calls = keepRanking(rider, driverA, driverC);
+		
+		rider.sethAddress("15 Line Road");
+		CompletableFuture<RecommendedDrivers> moved = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), moved.get());
+		assertTrue(calls.size() > 3);
+	}
+	
+	//Ranks the rider once, through held provider calls, so the ranking is kept
+	//By duration, a driver close in meters but slow in traffic drops behind, and pairs not cached yet are timed at the fallback speed
+	@Test
+	public void testDurationModeRanksByCachedTraffic() throws Exception {
+		ReflectionTestUtils.setField(dsi, "rankingMode", "duration");
+		User rider = onLine(58, 10, false);
+		User driverA = onLine(59, 18, true);
+		User driverC = onLine(65, 8, true);
+		Mockito.when(tts.lookup(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(new long[][] {
+				{0, 1000},
+				{1500, 1500},
+				{DistanceCacheService.MISSING, DistanceCacheService.MISSING}});
+		List<Object[]> calls = keepRanking(rider, driverA, driverC);
+		
+		CompletableFuture<RecommendedDrivers> again = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverC, driverA), again.get());
+		Mockito.verify(dis, Mockito.times(2)).getBatchDrivers(0);
+		Mockito.verify(provider, Mockito.never()).getDurations(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+	
+	//A kept ranking only fetches the pre-filtered drivers, and is rebuilt once a driver leaving leaves it short
+	@Test
+	public void testKeptRankingIsPreFiltered() throws Exception {
+		ReflectionTestUtils.setField(dsi, "preFilterMultiplier", 1);
+		User rider = located(onLine(80, 10, false));
+		User driverA = located(onLine(81, 18, true));
+		User driverC = located(onLine(82, 8, true));
+		User driverD = located(onLine(83, 5, true));
+		User behindWork = located(onLine(84, -20, true));
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD, behindWork));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> first = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), first.get());
+		for (Object[] call : calls) {
+			if (((Waypoint[]) call[1])[0].getAddress().startsWith("10 ")) {
+				assertEquals(2, ((Waypoint[]) call[0]).length);
+			}
+		}
+		assertEquals(Arrays.asList(driverA, driverC), dsi.recommendDriversAsync(rider, 2).get());
+		Mockito.verify(dis, Mockito.times(1)).getBatchDrivers(0);
+		
+		driverA.setAcceptingRides(false);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverC, driverD, behindWork));
+		saved(driverA, 1);
+		CompletableFuture<RecommendedDrivers> rebuilt = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverC, driverD), rebuilt.get());
+		Mockito.verify(dis, Mockito.times(2)).getBatchDrivers(0);
+	}
+	
+	//Placed on the line, a kilometer being about 1/111 of a degree of latitude
+	private static User located(User user) {
+		user.sethLatitude(38.95 + position(new Waypoint(user.gethAddress())) / 111.0);
+		user.sethLongitude(-77.35);
+		user.setwLatitude(38.95);
+		user.setwLongitude(-77.35);
+		return user;
+	}
+	
+	private List<Object[]> keepRanking(User rider, User... drivers) throws Exception {
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(drivers));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		CompletableFuture<RecommendedDrivers> first = dsi.recommendDriversAsync(rider, drivers.length);
+		completeAlongLine(calls);
+		first.get();
+		return calls;
+	}
+	
+	//When the provider fails, expired cache entries stand in and the answer is flagged as degraded
+	@Test
+	public void testRecommendDriversAsyncFailure() throws Exception {
+		User rider = onLine(40, 10, false);
+		User driverA = onLine(41, 18, true);
+		User driverC = onLine(42, 8, true);
+		User driverD = onLine(43, 5, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(dcs.lookupStale(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> alongLine(call.getArgument(0), call.getArgument(1)));
+		CompletableFuture<long[][]> failed = new CompletableFuture<long[][]>();
+		failed.completeExceptionally(new IOException("upstream failed"));
+		Mockito.doReturn(failed).when(provider).getDistancesAsync(Mockito.any(), Mockito.any());
+		
+		RecommendedDrivers recommended = dsi.recommendDriversAsync(rider, 2).get();
+		
+		assertEquals(Arrays.asList(driverA, driverC), recommended);
+		assertTrue(recommended.isDegraded());
+		Mockito.verify(dcs, Mockito.never()).store(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+	
+	//Past the deadline the rider is ranked from what is known, here expired cache entries, and the ranking isn't kept
+	@Test
+	public void testDeadlineAnswersPartialRanking() throws Exception {
+		User rider = onLine(44, 10, false);
+		User driverA = onLine(45, 18, true);
+		User driverC = onLine(46, 8, true);
+		User driverD = onLine(47, 5, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(dcs.lookupStale(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> alongLine(call.getArgument(0), call.getArgument(1)));
+		List<Object[]> calls = holdProviderCalls();
+		
+		RecommendedDrivers recommended = dsi.recommendDriversAsync(rider, 2, 100).get(5, TimeUnit.SECONDS);
+		
+		assertEquals(Arrays.asList(driverA, driverC), recommended);
+		assertTrue(recommended.isPartial());
+		completeAlongLine(calls);
+		assertNull(((RiderRankings) ReflectionTestUtils.getField(dsi, "rankings")).get(44));
+	}
+	
+	//A recommendation that fails is answered from the cache and estimates, flagged degraded
+	@Test
+	public void testFailureAnswersKnownRanking() throws Exception {
+		User rider = onLine(74, 10, false);
+		User driverA = onLine(75, 18, true);
+		User driverC = onLine(76, 8, true);
+		User driverD = onLine(77, 5, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(dcs.lookupStale(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> alongLine(call.getArgument(0), call.getArgument(1)));
+		List<Object[]> calls = holdProviderCalls();
+		ReflectionTestUtils.setField(dsi, "pickups", new MicroBatcher<Object, Object, Object>(0, 1, items -> {
+			throw new IllegalStateException("pickups failed");
+		}));
+		
+		CompletableFuture<RecommendedDrivers> recommended = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), recommended.get(5, TimeUnit.SECONDS));
+		assertTrue(recommended.get().isDegraded());
+		assertNull(((RiderRankings) ReflectionTestUtils.getField(dsi, "rankings")).get(74));
+	}
+	
+	@Test
+	public void testDeadlineNotHitIsComplete() throws Exception {
+		User rider = onLine(48, 10, false);
+		User driverA = onLine(49, 18, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> alongLine(call.getArgument(0), call.getArgument(1)));
+		
+		RecommendedDrivers recommended = dsi.recommendDriversAsync(rider, 2, 60000).get();
+		
+		assertEquals(Arrays.asList(driverA), recommended);
+		assertFalse(recommended.isPartial());
+	}
+	
+	//With every commute stored, a recommendation is a single column from the drivers to the rider's home
+	@Test
+	public void testStoredCommutesLeaveOnlyPickups() throws Exception {
+		User rider = commuting(onLine(70, 10, false));
+		User driverA = commuting(onLine(71, 18, true));
+		User driverC = commuting(onLine(72, 8, true));
+		User driverD = commuting(onLine(73, 5, true));
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverC, driverD));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> recommended = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA, driverC), recommended.get());
+		assertEquals(1, calls.size());
+		assertEquals(3, ((Waypoint[]) calls.get(0)[0]).length);
+		assertEquals(1, ((Waypoint[]) calls.get(0)[1]).length);
+	}
+	
+	//A driver's commute to another workplace isn't their distance to the rider's work, so that row is still fetched
+	@Test
+	public void testCommuteToOtherWorkFetched() throws Exception {
+		User rider = commuting(onLine(80, 10, false));
+		User elsewhere = commuting(onLine(81, 18, true));
+		elsewhere.setwAddress("7 Line Road");
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(elsewhere));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> recommended = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(elsewhere), recommended.get());
+		assertEquals(2, calls.size());
+	}
+	
+	@Test
+	public void testBulkWithStoredCommutes() throws Exception {
+		User riderOne = commuting(onLine(90, 10, false));
+		User riderTwo = commuting(onLine(91, 20, false));
+		User driverA = commuting(onLine(92, 18, true));
+		User driverB = commuting(onLine(93, 22, true));
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverB));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(provider.getDistances(Mockito.any(), Mockito.any())).thenAnswer(call -> {
+			Waypoint[] destinations = call.getArgument(1);
+			//Only the riders' homes, no workplace
+			assertEquals(2, destinations.length);
+			return alongLine(call.getArgument(0), destinations);
+		});
+		
+		Map<Integer, RecommendedDrivers> recommendations = dsi.recommendDrivers(Arrays.asList(riderOne, riderTwo), 2);
+		
+		assertEquals(Arrays.asList(driverA, driverB), recommendations.get(90));
+		assertEquals(Arrays.asList(driverB, driverA), recommendations.get(91));
+	}
+	
+	@Test
+	public void testCommuteDistance() throws Exception {
+		User user = onLine(95, 12, false);
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any())).thenReturn(missing(1, 1));
+		Mockito.when(provider.getDistances(Mockito.any(), Mockito.any())).thenReturn(new long[][] {{12000}});
+		
+		assertEquals(Long.valueOf(12000), dsi.getCommuteDistance(user));
+	}
+	
+	//Everyone on the line works at kilometer 0
+	private static User commuting(User user) {
+		user.setCommuteMeters(1000L * position(new Waypoint(user.gethAddress())));
+		return user;
+	}
+	
+	//A driver whose home is flagged as unroutable isn't part of the drivers' rows at all
+	@Test
+	public void testUnroutableDriversExcluded() throws Exception {
+		User rider = onLine(50, 10, false);
+		User driverA = onLine(51, 18, true);
+		User flagged = onLine(52, 12, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, flagged));
+		Mockito.doAnswer(call -> {
+			Waypoint[] homes = call.getArgument(0);
+			boolean[] unroutable = new boolean[homes.length];
+			for (int i = 0; i < homes.length; i++) {
+				unroutable[i] = position(homes[i]) == 12;
+			}
+			return unroutable;
+		}).when(dcs).isUnroutable(Mockito.any());
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Object[]> calls = holdProviderCalls();
+		
+		CompletableFuture<RecommendedDrivers> recommended = dsi.recommendDriversAsync(rider, 2);
+		completeAlongLine(calls);
+		
+		assertEquals(Arrays.asList(driverA), recommended.get());
+		for (Object[] call : calls) {
+			for (Waypoint origin : (Waypoint[]) call[0]) {
+				assertNotEquals(12, position(origin));
+			}
+		}
+	}
+	
+	//The bulk path drops flagged drivers the same way
+	@Test
+	public void testBulkExcludesUnroutableDrivers() throws Exception {
+		User rider = commuting(onLine(53, 10, false));
+		User driverA = commuting(onLine(54, 18, true));
+		User flagged = commuting(onLine(55, 12, true));
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, flagged));
+		Mockito.doAnswer(call -> {
+			Waypoint[] homes = call.getArgument(0);
+			boolean[] unroutable = new boolean[homes.length];
+			for (int i = 0; i < homes.length; i++) {
+				unroutable[i] = position(homes[i]) == 12;
+			}
+			return unroutable;
+		}).when(dcs).isUnroutable(Mockito.any());
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(provider.getDistances(Mockito.any(), Mockito.any())).thenAnswer(call -> {
+			for (Waypoint origin : (Waypoint[]) call.getArgument(0)) {
+				assertNotEquals(12, position(origin));
+			}
+			return alongLine(call.getArgument(0), call.getArgument(1));
+		});
+		
+		Map<Integer, RecommendedDrivers> recommendations = dsi.recommendDrivers(Arrays.asList(rider), 2);
+		
+		assertEquals(Arrays.asList(driverA), recommendations.get(53));
+	}
+	
+	@Test
+	public void testUnroutableUsers() {
+		User broken = onLine(60, 12, true);
+		Mockito.when(dcs.getUnroutable()).thenReturn(Arrays.asList(new UnroutableAddress("12 line road", 1, new Date())));
+		Mockito.when(dcs.normalize(Mockito.anyString())).thenAnswer(call -> ((String) call.getArgument(0)).split(",")[0].toLowerCase());
+		Mockito.when(us.getUsers()).thenReturn(Arrays.asList(onLine(61, 10, false), broken));
+		
+		assertEquals(Arrays.asList(broken), dsi.getUnroutableUsers());
+	}
+	
+	//Provider calls stay pending until completeAlongLine, as if the provider were slow
+	private List<Object[]> holdProviderCalls() {
+		List<Object[]> calls = Collections.synchronizedList(new ArrayList<Object[]>());
+		Mockito.doAnswer(call -> {
+			CompletableFuture<long[][]> pending = new CompletableFuture<long[][]>();
+			calls.add(new Object[] {call.getArgument(0), call.getArgument(1), pending});
+			return pending;
+		}).when(provider).getDistancesAsync(Mockito.any(), Mockito.any());
+		return calls;
+	}
+	
+	//Completes every held call, including the ones the completions start
+	@SuppressWarnings("unchecked")
+	private static void completeAlongLine(List<Object[]> calls) {
+		for (int i = 0; i < calls.size(); i++) {
+			Object[] call = calls.get(i);
+			((CompletableFuture<long[][]>) call[2]).complete(alongLine((Waypoint[]) call[0], (Waypoint[]) call[1]));
+		}
+	}
+	
+	private static long[][] alongLine(Waypoint[] origins, Waypoint[] destinations) {
+		long[][] matrix = new long[origins.length][destinations.length];
+		for (int i = 0; i < origins.length; i++) {
+			for (int j = 0; j < destinations.length; j++) {
+				matrix[i][j] = 1000 * Math.abs(position(origins[i]) - position(destinations[j]));
+			}
+		}
+		return matrix;
+	}
+	
+	//Without any cache entry, misses between located waypoints are estimated from the straight line
+	@Test
+	public void testDistanceMatrixEstimatesWhenProviderFails() throws Exception {
+		Waypoint origin = new Waypoint("Origin", 38.95, -77.35);
+		Waypoint located = new Waypoint("Located", 38.96, -77.35);
+		Waypoint unknown = new Waypoint("Unknown");
+		Waypoint[] origins = {origin};
+		Waypoint[] destinations = {located, unknown};
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(missing(1, 2));
+		Mockito.when(dcs.lookupStale(origins, destinations)).thenReturn(missing(1, 2));
+		Mockito.when(provider.getDistances(origins, destinations)).thenThrow(new IOException("upstream failed"));
+		
+		long[][] matrix = dsi.getDistanceMatrix(origins, destinations);
+		
+		assertEquals(Math.round(1.3 * Haversine.distance(38.95, -77.35, 38.96, -77.35)), matrix[0][0]);
+		assertEquals(DistanceProvider.UNREACHABLE, matrix[0][1]);
+	}
+	
+	//Until a waypoint is geocoded its ZIP code's centroid stands in for its coordinates
+	@Test
+	public void testDistanceMatrixEstimatesFromZipCentroids() throws Exception {
+		Waypoint origin = new Waypoint("Origin", 38.95, -77.35);
+		Waypoint unknown = new Waypoint("Unknown");
+		unknown.setZip("20190-1234");
+		Waypoint[] origins = {origin};
+		Waypoint[] destinations = {unknown};
+		Mockito.when(gazetteer.centroid("20190-1234")).thenReturn(new double[] {38.96, -77.34});
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(missing(1, 1));
+		Mockito.when(dcs.lookupStale(origins, destinations)).thenReturn(missing(1, 1));
+		Mockito.when(provider.getDistances(origins, destinations)).thenThrow(new IOException("upstream failed"));
+		
+		long[][] matrix = dsi.getDistanceMatrix(origins, destinations);
+		
+		assertEquals(Math.round(1.3 * Haversine.distance(38.95, -77.35, 38.96, -77.34)), matrix[0][0]);
+	}
+	
+	//In approximate mode the provider is never asked and nothing is written to the cache
+	@Test
+	public void testApproximateModeSkipsProvider() throws Exception {
+		ReflectionTestUtils.setField(dsi, "approximate", true);
+		Waypoint[] origins = {new Waypoint("Origin", 38.95, -77.35)};
+		Waypoint[] destinations = {new Waypoint("Located", 38.96, -77.35)};
+		Mockito.when(dcs.lookup(origins, destinations)).thenReturn(missing(1, 1));
+		Mockito.when(dcs.lookupStale(origins, destinations)).thenReturn(missing(1, 1));
+		
+		long[][] matrix = dsi.getDistanceMatrix(origins, destinations);
+		
+		assertEquals(Math.round(1.3 * Haversine.distance(38.95, -77.35, 38.96, -77.35)), matrix[0][0]);
+		Mockito.verify(provider, Mockito.never()).getDistancesAsync(origins, destinations);
+		Mockito.verify(dcs, Mockito.never()).store(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+	
+	//Once the breaker opens, the provider isn't called again until it lets a trial through
+	@Test
+	public void testOpenBreakerSkipsProvider() throws Exception {
+		ReflectionTestUtils.setField(dsi, "breakerFailureThreshold", 2);
+		dsi.start();
+		Waypoint[] origins = dsi.initOrigins(testRider, driverList);
+		Waypoint[] destinations = dsi.initDestinations(testRider);
+		Mockito.when(dcs.lookup(origins, destinations)).thenAnswer(call -> missing(4, 2));
+		Mockito.when(dcs.lookupStale(origins, destinations)).thenAnswer(call -> missing(4, 2));
+		Mockito.when(provider.getDistances(origins, destinations)).thenThrow(new IOException("upstream failed"));
+		
+		for (int i = 0; i < 4; i++) {
+			dsi.getDistanceMatrix(origins, destinations);
+		}
+		
+		Mockito.verify(provider, Mockito.times(2)).getDistances(origins, destinations);
+	}
+	
 	@Test
 	public void getBatchActiveDrivers() {
 		List<User> testUList = new ArrayList<User>();
@@ -116,18 +931,158 @@ public class DistanceServiceImplTest {
 		testUList.add(driverOne);
 		testUList.add(driverTwo);
 		
-		//Testing a user from a different batch
-		User testRider2 = new User(4, "TestUserBat", new Batch(1, "Morgantown"), "Fred2", "Jones2", "FJ2Test@gmail.com", "1234561234", false, true, false,
-				"1400 Dulles Plaza", "Herndon", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia");
-		testUList.add(testRider2);
-		
-		Mockito.when(us.getActiveDrivers()).thenReturn(testUList);
+		//The index only answers with the rider's batch, the rider is taken out here
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(testUList);
 		List<User> updatedList = dsi.getBatchActiveDrivers(testRider);
 		
 		assertTrue(updatedList.contains(driverOne));
 		assertTrue(updatedList.contains(driverTwo));
 		assertFalse(updatedList.contains(testRider));
-		assertFalse(updatedList.contains(testRider2));
+		Mockito.verify(us, Mockito.never()).getActiveDrivers();
+	}
+	
+	//Two riders of one batch are ranked from a single provider call, with each shared driver fetched once
+	@Test
+	public void testRecommendDriversForRiders() throws Exception {
+		User riderOne = onLine(20, 10, false);
+		User riderTwo = onLine(21, 20, false);
+		User driverA = onLine(22, 18, true);
+		User driverB = onLine(23, 22, true);
+		User driverC = onLine(24, 8, true);
+		Mockito.when(dis.getBatchDrivers(0)).thenReturn(Arrays.asList(driverA, driverB, driverC));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		List<Waypoint[]> requestedOrigins = new ArrayList<Waypoint[]>();
+		Mockito.when(provider.getDistances(Mockito.any(), Mockito.any())).thenAnswer(call -> {
+			Waypoint[] origins = call.getArgument(0);
+			Waypoint[] destinations = call.getArgument(1);
+			requestedOrigins.add(origins);
+			long[][] matrix = new long[origins.length][destinations.length];
+			for (int i = 0; i < origins.length; i++) {
+				for (int j = 0; j < destinations.length; j++) {
+					matrix[i][j] = 1000 * Math.abs(position(origins[i]) - position(destinations[j]));
+				}
+			}
+			return matrix;
+		});
+		
+		Map<Integer, RecommendedDrivers> recommendations = dsi.recommendDrivers(Arrays.asList(riderOne, riderTwo), 2);
+		
+		assertEquals(Arrays.asList(driverA, driverB), recommendations.get(20));
+		assertEquals(Arrays.asList(driverB, driverA), recommendations.get(21));
+		Mockito.verify(provider, Mockito.times(1)).getDistances(Mockito.any(), Mockito.any());
+		//Three driver homes and two rider homes
+		assertEquals(5, requestedOrigins.get(0).length);
+	}
+	
+	//Everyone lives on one road, at the given kilometer from work
+	private static User onLine(int id, int kilometer, boolean isDriver) {
+		return new User(id, "LineUser" + id, new Batch(0, "Reston"), "Line", "User", "LUTest@gmail.com", "1234561234", isDriver, true, isDriver,
+				kilometer + " Line Road", "Herndon", "11112", "Virginia", "0 Line Road", "Reston", "11111", "Virginia");
+	}
+	
+	private static int position(Waypoint waypoint) {
+		return Integer.parseInt(waypoint.getAddress().substring(0, waypoint.getAddress().indexOf(' ')));
+	}
+	
+	//Riders sharing a workplace share one column, and the expanded matrix repeats it for each of them
+	@Test
+	public void testCommuteMatrix() throws Exception {
+		List<User> users = Arrays.asList(onLine(30, 5, true), onLine(31, 2, false), onLine(32, 9, false));
+		Mockito.when(dcs.lookup(Mockito.any(), Mockito.any()))
+				.thenAnswer(call -> missing(((Waypoint[]) call.getArgument(0)).length, ((Waypoint[]) call.getArgument(1)).length));
+		Mockito.when(provider.getDistances(Mockito.any(), Mockito.any())).thenAnswer(call -> {
+			Waypoint[] origins = call.getArgument(0);
+			Waypoint[] destinations = call.getArgument(1);
+			assertEquals(3, origins.length);
+			assertEquals(4, destinations.length);
+			long[][] matrix = new long[origins.length][destinations.length];
+			for (int i = 0; i < origins.length; i++) {
+				for (int j = 0; j < destinations.length; j++) {
+					matrix[i][j] = 1000 * Math.abs(position(origins[i]) - position(destinations[j]));
+				}
+			}
+			return matrix;
+		});
+		
+		long[][] commute = dsi.getCommuteMatrix(users);
+		
+		assertEquals(3, commute.length);
+		assertEquals(6, commute[0].length);
+		assertEquals(3000, commute[0][1]);
+		assertEquals(7000, commute[1][2]);
+		assertEquals(9000, commute[2][3]);
+		assertEquals(9000, commute[2][5]);
+	}
+	
+	@Test
+	public void testPreFilterDrivers() {
+		ReflectionTestUtils.setField(dsi, "preFilterMultiplier", 1);
+		User rider = new User(10, "PreRider", new Batch(0, "Reston"), "Pre", "Rider", "PRTest@gmail.com", "1234561234", false, true, false,
+				"1400 Dulles Plaza", "Herndon", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia");
+		rider.sethLatitude(38.9530);
+		rider.sethLongitude(-77.4480);
+		rider.setwLatitude(38.9560);
+		rider.setwLongitude(-77.3640);
+		
+		//Right next door to the rider
+		User near = new User(11, "PreNear", new Batch(0, "Reston"), "Pre", "Near", "PNTest@gmail.com", "1234561234", true, true, true,
+				"1402 Dulles Plaza", "Herndon", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia");
+		near.sethLatitude(38.9535);
+		near.sethLongitude(-77.4485);
+		//On the other side of work, the rider is far out of the way
+		User far = new User(12, "PreFar", new Batch(0, "Reston"), "Pre", "Far", "PFTest@gmail.com", "1234561234", true, true, true,
+				"1 Far Away Rd", "Vienna", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia");
+		far.sethLatitude(38.9010);
+		far.sethLongitude(-77.2650);
+		//No coordinates yet, so it can't be filtered out
+		User unknown = new User(13, "PreUnknown", new Batch(0, "Reston"), "Pre", "Unknown", "PUTest@gmail.com", "1234561234", true, true, true,
+				"738 Cordell Way", "Herndon", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia");
+		
+		List<User> drivers = new ArrayList<User>();
+		drivers.add(far);
+		drivers.add(unknown);
+		drivers.add(near);
+		
+		List<User> candidates = dsi.preFilterDrivers(rider, drivers, 1);
+		
+		assertEquals(2, candidates.size());
+		assertEquals(near, candidates.get(0));
+		assertTrue(candidates.contains(unknown));
+		assertFalse(candidates.contains(far));
+	}
+	
+	//A rider who isn't geocoded yet is ranked from the centroids of their ZIP codes
+	@Test
+	public void testPreFilterPlacesRiderByZip() {
+		ReflectionTestUtils.setField(dsi, "preFilterMultiplier", 1);
+		User rider = new User(10, "PreRider", new Batch(0, "Reston"), "Pre", "Rider", "PRTest@gmail.com", "1234561234", false, true, false,
+				"1400 Dulles Plaza", "Herndon", "20170", "Virginia", "11730 Plaza America Dr.", "Reston", "20190", "Virginia");
+		Mockito.when(gazetteer.centroid("20170")).thenReturn(new double[] {38.9808, -77.3806});
+		Mockito.when(gazetteer.centroid("20190")).thenReturn(new double[] {38.9597, -77.3432});
+		
+		User near = new User(11, "PreNear", new Batch(0, "Reston"), "Pre", "Near", "PNTest@gmail.com", "1234561234", true, true, true,
+				"1402 Dulles Plaza", "Herndon", "20170", "Virginia", "11730 Plaza America Dr.", "Reston", "20190", "Virginia");
+		near.sethLatitude(38.9810);
+		near.sethLongitude(-77.3810);
+		User far = new User(12, "PreFar", new Batch(0, "Reston"), "Pre", "Far", "PFTest@gmail.com", "1234561234", true, true, true,
+				"1 Far Away Rd", "Vienna", "22182", "Virginia", "11730 Plaza America Dr.", "Reston", "20190", "Virginia");
+		far.sethLatitude(38.9010);
+		far.sethLongitude(-77.2650);
+		
+		List<User> drivers = new ArrayList<User>();
+		drivers.add(far);
+		drivers.add(near);
+		
+		assertEquals(Arrays.asList(near), dsi.preFilterDrivers(rider, drivers, 1));
+	}
+	
+	@Test
+	public void testPreFilterDriversDisabled() {
+		ReflectionTestUtils.setField(dsi, "preFilterMultiplier", 0);
+		List<User> candidates = dsi.preFilterDrivers(testRider, driverList, 1);
+		
+		assertEquals(driverList, candidates);
 	}
 	
 	
@@ -0,0 +1,153 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.revature.beans.Batch;
+import com.revature.beans.User;
+import com.revature.repositories.UserRepository;
+
+@RunWith(SpringRunner.class)
+public class DriverIndexServiceImplTest {
+
+	@InjectMocks
+	private DriverIndexServiceImpl disi;
+
+	@Mock
+	private UserRepository ur;
+
+	private User near;
+	private User far;
+	private User unlocated;
+	private User otherBatch;
+
+	@Before
+	public void setUp() {
+		near = driver(1, 0, 38.95, -77.40);
+		far = driver(2, 0, 39.20, -77.90);
+		unlocated = driver(3, 0, null, null);
+		otherBatch = driver(4, 1, 38.95, -77.40);
+
+		List<User> drivers = new ArrayList<User>();
+		drivers.add(near);
+		drivers.add(far);
+		drivers.add(unlocated);
+		when(ur.getActiveDriversByBatch(0)).thenReturn(drivers);
+		List<User> others = new ArrayList<User>();
+		others.add(otherBatch);
+		when(ur.getActiveDriversByBatch(1)).thenReturn(others);
+	}
+
+	@Test
+	public void testBatchDriversLoadedOnce() {
+		List<User> batch = disi.getBatchDrivers(0);
+		disi.getBatchDrivers(0);
+
+		assertEquals(3, batch.size());
+		assertTrue(batch.contains(unlocated));
+		assertEquals(0, disi.getBatchDrivers(5).size());
+		verify(ur, times(1)).getActiveDriversByBatch(0);
+		verify(ur, never()).getActiveDriversByBatch(1);
+		verify(ur, never()).getActiveDrivers();
+	}
+
+	@Test
+	public void testNearestSkipsUnlocated() {
+		List<User> nearest = disi.getNearestDrivers(0, 38.96, -77.41, 5);
+
+		assertEquals(2, nearest.size());
+		assertEquals(near, nearest.get(0));
+		assertEquals(far, nearest.get(1));
+	}
+
+	@Test
+	public void testSavedDriverMovesBatch() {
+		disi.getBatchDrivers(0);
+		disi.getBatchDrivers(1);
+
+		User moved = driver(1, 1, 38.95, -77.40);
+		disi.userSaved(moved);
+
+		assertEquals(2, disi.getBatchDrivers(0).size());
+		assertEquals(2, disi.getBatchDrivers(1).size());
+		assertEquals(1, disi.getNearestDrivers(0, 38.96, -77.41, 5).size());
+	}
+
+	@Test
+	public void testSavedDriverStopsAccepting() {
+		disi.getBatchDrivers(0);
+
+		User stopped = driver(2, 0, 39.20, -77.90);
+		stopped.setAcceptingRides(false);
+		disi.userSaved(stopped);
+		disi.userDeleted(3);
+
+		List<User> batch = disi.getBatchDrivers(0);
+		assertEquals(1, batch.size());
+		assertEquals(near, batch.get(0));
+	}
+
+	@Test
+	public void testSavedDriverInUnloadedBatch() {
+		disi.getBatchDrivers(0);
+
+		disi.userSaved(driver(1, 1, 38.95, -77.40));
+
+		assertEquals(2, disi.getBatchDrivers(0).size());
+		//Batch 1 is read from the database when it is first used
+		assertEquals(1, disi.getBatchDrivers(1).size());
+		verify(ur, times(1)).getActiveDriversByBatch(1);
+	}
+
+	@Test
+	public void testNewDriverAdded() {
+		disi.getBatchDrivers(0);
+
+		User added = driver(9, 0, 38.9501, -77.4001);
+		disi.userSaved(added);
+
+		assertEquals(added, disi.getNearestDrivers(0, 38.9501, -77.4001, 1).get(0));
+	}
+
+	//Only a change to the batch's own drivers gives it a new version
+	@Test
+	public void testRosterVersionFollowsChanges() {
+		long zero = disi.getRosterVersion(0);
+		long one = disi.getRosterVersion(1);
+		assertEquals(zero, disi.getRosterVersion(0));
+
+		far.setActive(false);
+		Map<Integer, Long> changed = disi.userSaved(far);
+
+		assertNotEquals(zero, disi.getRosterVersion(0));
+		assertEquals(one, disi.getRosterVersion(1));
+		//Only the batch the save changed, at the version it was moved to
+		assertEquals(Collections.singletonMap(0, disi.getRosterVersion(0)), changed);
+	}
+
+	private static User driver(int id, int batchNumber, Double lat, Double lng) {
+		User driver = new User(id, "Driver" + id, new Batch(batchNumber, "Reston"), "Ted", "Lones", "TLTest@gmail.com", "1234561234", true, true, true,
+				"1202 Springtide Place", "Herndon", "11112", "Virginia", "11730 Plaza America Dr.", "Reston", "11111", "Virginia");
+		driver.sethLatitude(lat);
+		driver.sethLongitude(lng);
+		return driver;
+	}
+
+}
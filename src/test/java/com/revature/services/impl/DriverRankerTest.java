@@ -0,0 +1,75 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+public class DriverRankerTest {
+
+	@Test
+	public void testTopK() {
+		double[] scores = {500, 4000, 999999999, 120, 3000};
+		int[] out = new int[3];
+
+		assertEquals(3, DriverRanker.topK(scores, scores.length, 3, out));
+		assertArrayEquals(new int[] {3, 0, 4}, out);
+	}
+
+	@Test
+	public void testFewerCandidatesThanRequested() {
+		double[] scores = {7, 3};
+		int[] out = new int[2];
+
+		assertEquals(2, DriverRanker.topK(scores, scores.length, 5, out));
+		assertArrayEquals(new int[] {1, 0}, out);
+		assertEquals(0, DriverRanker.topK(scores, 0, 5, out));
+	}
+
+	@Test
+	public void testTiesKeepPositionOrderAndNaNIsLast() {
+		double[] scores = {Double.NaN, 2, 1, 2, 1};
+		int[] out = new int[5];
+
+		DriverRanker.topK(scores, scores.length, 5, out);
+		assertArrayEquals(new int[] {2, 4, 1, 3, 0}, out);
+	}
+
+	@Test
+	public void testTopKIds() {
+		double[] scores = {9, 1, 5};
+		int[] ids = {42, 7, 13};
+		int[] out = new int[2];
+
+		assertEquals(2, DriverRanker.topKIds(scores, ids, scores.length, 2, out));
+		assertArrayEquals(new int[] {7, 13}, out);
+	}
+
+	//Same answer as the stable boxed sort recommendDrivers used to do
+	@Test
+	public void testMatchesFullSort() {
+		Random random = new Random(729);
+		for (int round = 0; round < 50; round++) {
+			double[] scores = new double[1 + random.nextInt(200)];
+			for (int i = 0; i < scores.length; i++) {
+				scores[i] = random.nextInt(50);
+			}
+			int k = 1 + random.nextInt(10);
+			int[] expected = IntStream.range(0, scores.length).boxed()
+					.sorted((i, j) -> Double.compare(scores[i], scores[j]))
+					.mapToInt(i -> i).limit(k).toArray();
+
+			int[] out = new int[k];
+			int found = DriverRanker.topK(scores, scores.length, k, out);
+			assertArrayEquals(expected, Arrays.copyOf(out, found));
+		}
+	}
+
+}
@@ -0,0 +1,308 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.maps.GeoApiContext;
+import com.google.maps.model.LatLng;
+import com.revature.beans.Batch;
+import com.revature.beans.GeocodeJob;
+import com.revature.beans.User;
+import com.revature.repositories.BatchRepository;
+import com.revature.repositories.GeocodeJobRepository;
+import com.revature.repositories.UserRepository;
+import com.revature.services.DistanceService;
+import com.revature.services.DriverIndexService;
+
+@RunWith(SpringRunner.class)
+public class GeocodeServiceImplTest {
+
+	//Answers from a map instead of Google, an address starting with fail throws
+	static class StubGeocodeService extends GeocodeServiceImpl {
+
+		private final Map<String, LatLng> locations = new HashMap<>();
+
+		private final List<String> requested = new ArrayList<>();
+
+		@Override
+		protected LatLng geocode(String address) throws Exception {
+			requested.add(address);
+			if (address.startsWith("fail")) {
+				throw new IOException("upstream failed");
+			}
+			return locations.get(address);
+		}
+	}
+
+	@InjectMocks
+	private StubGeocodeService gs;
+
+	@Mock
+	private GeocodeJobRepository gjr;
+
+	@Mock
+	private UserRepository ur;
+
+	@Mock
+	private BatchRepository br;
+
+	@Mock
+	private DriverIndexService dis;
+
+	@Mock
+	private DistanceService ds;
+
+	@Mock
+	private GeoApiContext context;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	public void testEnqueueCreatesJob() {
+		gs.enqueue(GeocodeJob.EntityType.USER, 1);
+
+		GeocodeJob job = saved();
+		assertEquals(GeocodeJob.EntityType.USER, job.getEntityType());
+		assertEquals(1, job.getEntityId());
+		assertNotNull(job.getNextAttemptAt());
+	}
+
+	@Test
+	public void testEnqueueRestartsJobThatGaveUp() {
+		GeocodeJob waiting = job(GeocodeJob.EntityType.USER, 1, 8);
+		waiting.setNextAttemptAt(null);
+		waiting.setLastError("upstream failed");
+		when(gjr.getByEntity(GeocodeJob.EntityType.USER, 1)).thenReturn(waiting);
+
+		gs.enqueue(GeocodeJob.EntityType.USER, 1);
+
+		GeocodeJob job = saved();
+		assertEquals(0, job.getAttempts());
+		assertNotNull(job.getNextAttemptAt());
+		assertNull(job.getLastError());
+	}
+
+	//The job waits for the transaction saving the user to commit
+	@Test
+	public void testEnqueueWaitsForCommit() {
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			gs.enqueue(GeocodeJob.EntityType.USER, 1);
+			verify(gjr, never()).save(any());
+
+			for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+				synchronization.afterCommit();
+			}
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertEquals(1, saved().getEntityId());
+	}
+
+	@Test
+	public void testEnqueueFailureDoesNotFailSave() {
+		when(gjr.save(any())).thenThrow(new IllegalStateException("database is down"));
+
+		gs.enqueue(GeocodeJob.EntityType.USER, 1);
+
+		verify(gjr).save(any());
+	}
+
+	@Test
+	public void testGeocodingUserWritesBothAddresses() throws Exception {
+		User user = commuter();
+		GeocodeJob job = due(GeocodeJob.EntityType.USER, 1, 0);
+		when(ur.findById(1)).thenReturn(Optional.of(user));
+		when(ur.setHomeCoordinates(anyInt(), anyDouble(), anyDouble(), anyString(), anyString(), anyString(), anyString())).thenReturn(1);
+		when(ur.setWorkCoordinates(anyInt(), anyDouble(), anyDouble(), anyString(), anyString(), anyString(), anyString())).thenReturn(1);
+		gs.locations.put("418 Wilson Ave, Morgantown, WV 26501", new LatLng(39.64, -79.95));
+		gs.locations.put("650 Price Street, Morgantown, WV 26505", new LatLng(39.63, -79.96));
+		when(ds.getCommuteDistance(user)).thenReturn(8000L);
+
+		assertEquals(1, gs.processDueJobs());
+
+		verify(ur).setHomeCoordinates(1, 39.64, -79.95, "418 Wilson Ave", "Morgantown", "26501", "WV");
+		verify(ur).setWorkCoordinates(1, 39.63, -79.96, "650 Price Street", "Morgantown", "26505", "WV");
+		verify(ur).setCommuteMeters(1, 8000L, "418 Wilson Ave", "Morgantown", "26501", "WV", "650 Price Street", "Morgantown", "26505", "WV");
+		verify(dis).userSaved(user);
+		verify(ds).userSaved(eq(user), any());
+		verify(gjr).delete(job);
+	}
+
+	@Test
+	public void testGeocodingUserSkipsKnownAddresses() {
+		User user = commuter();
+		user.sethLatitude(39.64);
+		user.sethLongitude(-79.95);
+		due(GeocodeJob.EntityType.USER, 1, 0);
+		when(ur.findById(1)).thenReturn(Optional.of(user));
+		gs.locations.put("650 Price Street, Morgantown, WV 26505", new LatLng(39.63, -79.96));
+
+		gs.processDueJobs();
+
+		assertEquals(Arrays.asList("650 Price Street, Morgantown, WV 26505"), gs.requested);
+	}
+
+	//Coordinates already known, only the commute is left to fetch, and a failed request is retried like a geocode
+	@Test
+	public void testCommuteFailureIsRetried() throws Exception {
+		User user = located(commuter());
+		GeocodeJob job = due(GeocodeJob.EntityType.USER, 1, 0);
+		when(ur.findById(1)).thenReturn(Optional.of(user));
+		when(ds.getCommuteDistance(user)).thenThrow(new IOException("Request failed"));
+
+		assertEquals(0, gs.processDueJobs());
+
+		assertEquals(1, job.getAttempts());
+		assertNotNull(job.getNextAttemptAt());
+		assertTrue(gs.requested.isEmpty());
+		verify(gjr, never()).delete(job);
+	}
+
+	//An estimated or unreachable commute is left unset instead of being retried
+	@Test
+	public void testUnknownCommuteCompletesJob() throws Exception {
+		User user = located(commuter());
+		GeocodeJob job = due(GeocodeJob.EntityType.USER, 1, 0);
+		when(ur.findById(1)).thenReturn(Optional.of(user));
+		when(ds.getCommuteDistance(user)).thenReturn(null);
+
+		assertEquals(1, gs.processDueJobs());
+
+		verify(ur, never()).setCommuteMeters(anyInt(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+		verify(gjr).delete(job);
+	}
+
+	@Test
+	public void testGeocodingBatch() {
+		GeocodeJob job = due(GeocodeJob.EntityType.BATCH, 1801, 0);
+		when(br.findById(1801)).thenReturn(Optional.of(new Batch(1801, "Morgantown", "650 Price Street", "Morgantown", "26505", "WV")));
+		gs.locations.put("650 Price Street, Morgantown, WV 26505", new LatLng(39.63, -79.96));
+
+		assertEquals(1, gs.processDueJobs());
+
+		verify(br).setCoordinates(1801, 39.63, -79.96, "650 Price Street", "Morgantown", "26505", "WV");
+		verify(gjr).delete(job);
+	}
+
+	@Test
+	public void testFailedJobIsRetriedLater() {
+		Batch batch = new Batch(1801, "Morgantown", "fail", "Morgantown", "26505", "WV");
+		GeocodeJob job = due(GeocodeJob.EntityType.BATCH, 1801, 1);
+		when(br.findById(1801)).thenReturn(Optional.of(batch));
+		long before = System.currentTimeMillis();
+
+		assertEquals(0, gs.processDueJobs());
+
+		assertEquals(2, job.getAttempts());
+		assertEquals("upstream failed", job.getLastError());
+		//The second failure waits twice the base delay
+		assertTrue(job.getNextAttemptAt().getTime() >= before + 120000);
+		verify(gjr).save(job);
+		verify(gjr, never()).delete(job);
+	}
+
+	@Test
+	public void testFailingJobGivesUp() {
+		Batch batch = new Batch(1801, "Morgantown", "fail", "Morgantown", "26505", "WV");
+		GeocodeJob job = due(GeocodeJob.EntityType.BATCH, 1801, 7);
+		when(br.findById(1801)).thenReturn(Optional.of(batch));
+
+		gs.processDueJobs();
+
+		assertEquals(8, job.getAttempts());
+		assertNull(job.getNextAttemptAt());
+	}
+
+	@Test
+	public void testAddressNotFoundGivesUpAtOnce() {
+		GeocodeJob job = due(GeocodeJob.EntityType.BATCH, 1801, 0);
+		when(br.findById(1801)).thenReturn(Optional.of(new Batch(1801, "Nowhere", "1 Nowhere Rd", "Nowhere", "00000", "WV")));
+
+		gs.processDueJobs();
+
+		assertNull(job.getNextAttemptAt());
+		assertEquals("No results for 1 Nowhere Rd, Nowhere, WV 00000", job.getLastError());
+	}
+
+	//The entity was saved again while the job ran, the job that was enqueued again stays
+	@Test
+	public void testJobEnqueuedWhileRunningIsKept() {
+		GeocodeJob job = due(GeocodeJob.EntityType.BATCH, 1801, 0);
+		when(br.findById(1801)).thenReturn(Optional.of(new Batch(1801, "Morgantown", "650 Price Street", "Morgantown", "26505", "WV")));
+		gs.locations.put("650 Price Street, Morgantown, WV 26505", new LatLng(39.63, -79.96));
+		doThrow(new ObjectOptimisticLockingFailureException(GeocodeJob.class, 1)).when(gjr).delete(job);
+
+		assertEquals(0, gs.processDueJobs());
+
+		verify(gjr, never()).save(any(GeocodeJob.class));
+	}
+
+	private GeocodeJob due(GeocodeJob.EntityType type, int id, int attempts) {
+		GeocodeJob job = job(type, id, attempts);
+		when(gjr.getDue(any(Date.class), any(Pageable.class))).thenReturn(Arrays.asList(job));
+		return job;
+	}
+
+	private static GeocodeJob job(GeocodeJob.EntityType type, int id, int attempts) {
+		GeocodeJob job = new GeocodeJob(type, id);
+		job.setAttempts(attempts);
+		job.setNextAttemptAt(new Date());
+		return job;
+	}
+
+	private GeocodeJob saved() {
+		ArgumentCaptor<GeocodeJob> job = ArgumentCaptor.forClass(GeocodeJob.class);
+		verify(gjr).save(job.capture());
+		return job.getValue();
+	}
+
+	private static User commuter() {
+		return new User(1, "commuter", new Batch(), "Grady", "Pichmann", "gp@gmail.com", "212-374-3466", false, true, true,
+				"418 Wilson Ave", "Morgantown", "26501", "WV", "650 Price Street", "Morgantown", "26505", "WV");
+	}
+
+	//Both addresses already have their coordinates
+	private static User located(User user) {
+		user.sethLatitude(39.64);
+		user.sethLongitude(-79.95);
+		user.setwLatitude(39.63);
+		user.setwLongitude(-79.96);
+		return user;
+	}
+
+}
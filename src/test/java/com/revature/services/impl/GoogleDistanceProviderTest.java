@@ -0,0 +1,140 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.google.maps.GeoApiContext;
+import com.revature.beans.Waypoint;
+
+@RunWith(SpringRunner.class)
+public class GoogleDistanceProviderTest {
+
+	//Answers every element with origin * 1000 + destination, and remembers the size of each request
+	private static class RecordingProvider extends GoogleDistanceProvider {
+
+		private final List<int[]> requests = new CopyOnWriteArrayList<>();
+
+		@Override
+		protected long[][] fetch(GeoApiContext context, Waypoint[] origins, Waypoint[] destinations) throws IOException {
+			requests.add(new int[] {origins.length, destinations.length});
+			if (origins[0].getAddress().equals("fail")) {
+				throw new IOException("upstream failed");
+			}
+			long[][] distances = new long[origins.length][destinations.length];
+			for (int i = 0; i < origins.length; i++) {
+				for (int j = 0; j < destinations.length; j++) {
+					distances[i][j] = Long.parseLong(origins[i].getAddress()) * 1000 + Long.parseLong(destinations[j].getAddress());
+				}
+			}
+			return distances;
+		}
+
+		//Completes on another thread, the way the HTTP client's callbacks do
+		@Override
+		protected CompletableFuture<long[][]> send(GeoApiContext context, Waypoint[] origins, Waypoint[] destinations) {
+			CompletableFuture<long[][]> distances = new CompletableFuture<>();
+			ForkJoinPool.commonPool().execute(() -> {
+				try {
+					distances.complete(fetch(context, origins, destinations));
+				} catch (IOException e) {
+					distances.completeExceptionally(e);
+				}
+			});
+			return distances;
+		}
+	}
+
+	private RecordingProvider provider;
+
+	@Before
+	public void start() {
+		provider = new RecordingProvider();
+	}
+
+	private static Waypoint[] waypoints(int count) {
+		Waypoint[] waypoints = new Waypoint[count];
+		for (int i = 0; i < count; i++) {
+			waypoints[i] = new Waypoint(String.valueOf(i));
+		}
+		return waypoints;
+	}
+
+	@Test
+	public void testSmallMatrixIsOneRequest() throws Exception {
+		long[][] distances = provider.getDistances(waypoints(10), waypoints(2));
+
+		assertEquals(1, provider.requests.size());
+		assertEquals(9001, distances[9][1]);
+	}
+
+	@Test
+	public void testLargeMatrixIsChunkedAndMergedInOrder() throws Exception {
+		long[][] distances = provider.getDistances(waypoints(230), waypoints(2));
+
+		//100 elements / 2 destinations is capped at 25 origins per request
+		assertEquals(10, provider.requests.size());
+		for (int[] request : provider.requests) {
+			assertTrue(request[0] <= 25);
+			assertTrue(request[0] * request[1] <= 100);
+		}
+		for (int i = 0; i < 230; i++) {
+			assertEquals(i * 1000L, distances[i][0]);
+			assertEquals(i * 1000L + 1, distances[i][1]);
+		}
+	}
+
+	@Test
+	public void testWideMatrixChunksDestinations() throws Exception {
+		long[][] distances = provider.getDistances(waypoints(3), waypoints(60));
+
+		for (int[] request : provider.requests) {
+			assertTrue(request[1] <= 25);
+			assertTrue(request[0] * request[1] <= 100);
+		}
+		assertEquals(2059, distances[2][59]);
+	}
+
+	@Test(expected = IOException.class)
+	public void testChunkFailureIsRethrown() throws Exception {
+		Waypoint[] origins = waypoints(60);
+		origins[25] = new Waypoint("fail");
+		provider.getDistances(origins, waypoints(2));
+	}
+
+	@Test
+	public void testAsyncMatrixIsChunkedAndMergedInOrder() throws Exception {
+		long[][] distances = provider.getDistancesAsync(waypoints(230), waypoints(2)).get();
+
+		assertEquals(10, provider.requests.size());
+		for (int i = 0; i < 230; i++) {
+			assertEquals(i * 1000L, distances[i][0]);
+			assertEquals(i * 1000L + 1, distances[i][1]);
+		}
+	}
+
+	@Test
+	public void testAsyncChunkFailureCompletesExceptionally() throws Exception {
+		Waypoint[] origins = waypoints(60);
+		origins[25] = new Waypoint("fail");
+		try {
+			provider.getDistancesAsync(origins, waypoints(2)).get();
+			fail("Expected the failed chunk to fail the matrix");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class KdTreeTest {
+
+	@Test
+	public void testNearestClosestFirst() {
+		double[] lat = {38.95, 38.96, 38.90, 39.10};
+		double[] lng = {-77.40, -77.41, -77.30, -77.60};
+		KdTree tree = new KdTree(lat, lng);
+
+		int[] out = new int[3];
+		int found = tree.nearest(38.951, -77.401, 3, out);
+
+		assertEquals(3, found);
+		assertArrayEquals(new int[] {0, 1, 2}, out);
+	}
+
+	@Test
+	public void testNearestFewerPointsThanAsked() {
+		KdTree tree = new KdTree(new double[] {38.95, 38.90}, new double[] {-77.40, -77.30});
+
+		int[] out = new int[2];
+		assertEquals(2, tree.nearest(38.89, -77.29, 5, out));
+		assertArrayEquals(new int[] {1, 0}, out);
+		assertEquals(0, tree.nearest(38.89, -77.29, 0, new int[0]));
+	}
+
+	//Compares against a full scan on the same projection over a region the size of a metro area
+	@Test
+	public void testNearestMatchesScan() {
+		Random random = new Random(7);
+		int size = 500;
+		double[] lat = new double[size];
+		double[] lng = new double[size];
+		for (int i = 0; i < size; i++) {
+			//Whole hundredths repeat coordinates, so the tree has to handle duplicates on the split
+			lat[i] = 38.5 + random.nextInt(100) / 100.0;
+			lng[i] = -77.8 + random.nextInt(100) / 100.0;
+		}
+		KdTree tree = new KdTree(lat, lng);
+		double cos = Math.cos(Math.toRadians(Arrays.stream(lat).average().getAsDouble()));
+
+		for (int q = 0; q < 50; q++) {
+			double qLat = 38.5 + random.nextDouble();
+			double qLng = -77.8 + random.nextDouble();
+			Comparator<Integer> byDistance = Comparator.comparingDouble(i -> {
+				double dx = (lng[i] - qLng) * cos;
+				double dy = lat[i] - qLat;
+				return dx * dx + dy * dy;
+			});
+			Integer[] expected = IntStream.range(0, size).boxed().sorted(byDistance).limit(10).toArray(Integer[]::new);
+
+			int[] out = new int[10];
+			tree.nearest(qLat, qLng, 10, out);
+			for (int i = 0; i < 10; i++) {
+				//Ties may come back in either order, the distances must match
+				assertEquals(0, byDistance.compare(expected[i], out[i]));
+			}
+		}
+	}
+
+}
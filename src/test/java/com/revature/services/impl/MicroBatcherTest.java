@@ -0,0 +1,141 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MicroBatcherTest {
+
+	private final List<List<Integer>> sent = new ArrayList<List<Integer>>();
+
+	//Answers each item with its square, and remembers what was sent together
+	private CompletableFuture<List<Integer>> square(List<Integer> items) {
+		synchronized (sent) {
+			sent.add(new ArrayList<Integer>(items));
+		}
+		List<Integer> squares = new ArrayList<Integer>();
+		for (int item : items) {
+			squares.add(item * item);
+		}
+		return CompletableFuture.completedFuture(squares);
+	}
+
+	@Test
+	public void testWindowSendsTogether() throws Exception {
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(50, 10, this::square);
+
+		CompletableFuture<Integer> two = batcher.submit("a", 2);
+		CompletableFuture<Integer> three = batcher.submit("a", 3);
+		assertFalse(two.isDone());
+		assertEquals(2, batcher.waiting());
+
+		assertEquals(4, (int) two.get(5, TimeUnit.SECONDS));
+		assertEquals(9, (int) three.get(5, TimeUnit.SECONDS));
+		assertEquals(1, sent.size());
+		assertEquals(0, batcher.waiting());
+	}
+
+	//The timer thread only hands the window over, the call runs on the sender
+	@Test
+	public void testClosedWindowSentFromSender() throws Exception {
+		ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "sender"));
+		List<String> callers = new ArrayList<String>();
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(50, 10, sender, items -> {
+			callers.add(Thread.currentThread().getName());
+			return square(items);
+		});
+
+		assertEquals(4, (int) batcher.submit("a", 2).get(5, TimeUnit.SECONDS));
+		sender.shutdown();
+
+		assertEquals(Arrays.asList("sender"), callers);
+	}
+
+	//A window closing after its sender was shut down fails instead of never answering
+	@Test
+	public void testRejectedWindowFails() throws Exception {
+		ExecutorService sender = Executors.newSingleThreadExecutor();
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(50, 10, sender, this::square);
+
+		CompletableFuture<Integer> two = batcher.submit("a", 2);
+		sender.shutdown();
+
+		try {
+			two.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		assertEquals(0, batcher.waiting());
+		assertTrue(sent.isEmpty());
+	}
+
+	@Test
+	public void testKeysAreSentApart() throws Exception {
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(50, 10, this::square);
+
+		CompletableFuture<Integer> two = batcher.submit("a", 2);
+		CompletableFuture<Integer> three = batcher.submit("b", 3);
+
+		assertEquals(4, (int) two.get(5, TimeUnit.SECONDS));
+		assertEquals(9, (int) three.get(5, TimeUnit.SECONDS));
+		assertEquals(2, sent.size());
+	}
+
+	//A full window doesn't wait for the timer
+	@Test
+	public void testFullWindowSentAtOnce() {
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(60000, 2, this::square);
+
+		CompletableFuture<Integer> two = batcher.submit("a", 2);
+		CompletableFuture<Integer> three = batcher.submit("a", 3);
+		CompletableFuture<Integer> four = batcher.submit("a", 4);
+
+		assertTrue(two.isDone());
+		assertTrue(three.isDone());
+		assertFalse(four.isDone());
+		assertEquals(1, sent.size());
+	}
+
+	@Test
+	public void testNoWindowSendsAlone() {
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(0, 10, this::square);
+
+		assertEquals(4, (int) batcher.submit("a", 2).join());
+		assertEquals(9, (int) batcher.submit("a", 3).join());
+		assertEquals(2, sent.size());
+	}
+
+	@Test
+	public void testFailureReachesEveryCaller() throws Exception {
+		MicroBatcher<String, Integer, Integer> batcher = new MicroBatcher<String, Integer, Integer>(60000, 2, items -> {
+			CompletableFuture<List<Integer>> failed = new CompletableFuture<List<Integer>>();
+			failed.completeExceptionally(new IOException("upstream failed"));
+			return failed;
+		});
+
+		CompletableFuture<Integer> two = batcher.submit("a", 2);
+		CompletableFuture<Integer> three = batcher.submit("a", 3);
+
+		for (CompletableFuture<Integer> answer : Arrays.asList(two, three)) {
+			try {
+				answer.get();
+				fail("The call failed");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class MinCostFlowTest {
+
+	//Greedy would give both riders the first driver's only seat in turn, the optimum splits them
+	@Test
+	public void testAssignmentBeatsGreedy() {
+		//0 source, 1-2 riders, 3-4 drivers, 5 sink
+		MinCostFlow flow = new MinCostFlow(6, 8);
+		flow.addEdge(0, 1, 1, 0);
+		flow.addEdge(0, 2, 1, 0);
+		int r1d1 = flow.addEdge(1, 3, 1, 1);
+		int r1d2 = flow.addEdge(1, 4, 1, 2);
+		int r2d1 = flow.addEdge(2, 3, 1, 2);
+		int r2d2 = flow.addEdge(2, 4, 1, 10);
+		flow.addEdge(3, 5, 1, 0);
+		flow.addEdge(4, 5, 1, 0);
+
+		assertArrayEquals(new long[] {2, 4}, flow.solve(0, 5));
+		assertEquals(0, flow.getFlow(r1d1));
+		assertEquals(1, flow.getFlow(r1d2));
+		assertEquals(1, flow.getFlow(r2d1));
+		assertEquals(0, flow.getFlow(r2d2));
+	}
+
+	@Test
+	public void testCapacityLimitsFlow() {
+		MinCostFlow flow = new MinCostFlow(5, 2);
+		flow.addEdge(0, 1, 1, 0);
+		flow.addEdge(0, 2, 1, 0);
+		flow.addEdge(0, 3, 1, 0);
+		flow.addEdge(1, 4, 5, 3);
+		flow.addEdge(2, 4, 5, 1);
+
+		//Node 3 has no way to the sink, and the edge arrays grow past the expected size
+		assertArrayEquals(new long[] {2, 4}, flow.solve(0, 4));
+	}
+
+	@Test
+	public void testNegativeCosts() {
+		MinCostFlow flow = new MinCostFlow(4, 5);
+		flow.addEdge(0, 1, 1, 0);
+		flow.addEdge(0, 2, 1, 0);
+		int cheap = flow.addEdge(1, 3, 1, -5);
+		flow.addEdge(2, 3, 1, 2);
+		int shared = flow.addEdge(1, 2, 1, -1);
+
+		assertArrayEquals(new long[] {2, -3}, flow.solve(0, 3));
+		assertEquals(1, flow.getFlow(cheap));
+		assertEquals(0, flow.getFlow(shared));
+	}
+
+}
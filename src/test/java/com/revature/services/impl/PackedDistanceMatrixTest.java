@@ -0,0 +1,72 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.revature.beans.Waypoint;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+
+public class PackedDistanceMatrixTest {
+
+	private static final Waypoint A = new Waypoint("418 Wilson Ave, Morgantown, WV");
+	private static final Waypoint B = new Waypoint("650 Price Street, Morgantown, WV");
+	private static final Waypoint C = new Waypoint("1400 Dulles Plaza, Herndon, VA");
+	private static final Waypoint WORK = new Waypoint("11730 Plaza America Dr, Reston, VA");
+
+	@Test
+	public void testGetByCanonicalAddress() {
+		PackedDistanceMatrix matrix = PackedDistanceMatrix.of(new Waypoint[] {A, B}, new Waypoint[] {A, B, WORK},
+				new long[][] {{0, 1200, 90000}, {1100, 0, DistanceProvider.UNREACHABLE}});
+
+		assertEquals(1200, matrix.get(key("418 wilson avenue, Morgantown, West Virginia"), key(B.getAddress())));
+		assertEquals(90000, matrix.get(key(A.getAddress()), key(WORK.getAddress())));
+		assertEquals(DistanceProvider.UNREACHABLE, matrix.get(key(B.getAddress()), key(WORK.getAddress())));
+		assertEquals(DistanceCacheService.MISSING, matrix.get(key(C.getAddress()), key(A.getAddress())));
+		assertTrue(matrix.hasOrigin(key(A.getAddress())));
+		assertFalse(matrix.hasOrigin(key(WORK.getAddress())));
+	}
+
+	//The old cells are copied, the new row covers every column and the new column every old row
+	@Test
+	public void testExtendKeepsKnownDistances() {
+		PackedDistanceMatrix matrix = PackedDistanceMatrix.of(new Waypoint[] {A, B}, new Waypoint[] {A, B, WORK},
+				new long[][] {{0, 1200, 90000}, {1100, 0, 91000}});
+
+		PackedDistanceMatrix extended = matrix.extend(new Waypoint[] {C}, new Waypoint[] {C},
+				new long[][] {{80000, 81000, 5000, 0}}, new long[][] {{79000}, {82000}});
+
+		assertEquals(1100, extended.get(key(B.getAddress()), key(A.getAddress())));
+		assertEquals(91000, extended.get(key(B.getAddress()), key(WORK.getAddress())));
+		assertEquals(82000, extended.get(key(B.getAddress()), key(C.getAddress())));
+		assertEquals(5000, extended.get(key(C.getAddress()), key(WORK.getAddress())));
+		assertEquals(DistanceCacheService.MISSING, matrix.get(key(C.getAddress()), key(WORK.getAddress())));
+		assertEquals(3, extended.getOrigins().length);
+		assertEquals(4, extended.getDestinations().length);
+	}
+
+	@Test
+	public void testBytesRoundTrip() {
+		PackedDistanceMatrix matrix = PackedDistanceMatrix.of(new Waypoint[] {A}, new Waypoint[] {B, WORK},
+				new long[][] {{1200, DistanceProvider.UNREACHABLE}});
+
+		byte[] bytes = matrix.toBytes();
+
+		assertEquals(8, bytes.length);
+		assertArrayEquals(new int[] {1200, -1}, PackedDistanceMatrix.fromBytes(bytes));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongSizeRejected() {
+		new PackedDistanceMatrix(new Waypoint[] {A}, new Waypoint[] {B, WORK}, new int[3]);
+	}
+
+	private static String key(String address) {
+		return AddressCanonicalizer.canonical(address);
+	}
+
+}
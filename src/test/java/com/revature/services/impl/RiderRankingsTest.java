@@ -0,0 +1,101 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.revature.beans.Batch;
+import com.revature.beans.User;
+import com.revature.beans.Waypoint;
+
+public class RiderRankingsTest {
+
+	@Test
+	public void testTopIsShortestFirst() {
+		User a = driver(1);
+		User b = driver(2);
+		User c = driver(3);
+		RiderRankings.Ranking ranking = ranking(10, Arrays.asList(a, b, c), new double[] {300, 100, 200});
+
+		assertEquals(Arrays.asList(b, c), ranking.top(2));
+		assertEquals(Arrays.asList(b, c, a), ranking.top(5));
+	}
+
+	@Test
+	public void testPutReplacesAndRemoveDrops() {
+		User a = driver(1);
+		User b = driver(2);
+		RiderRankings.Ranking ranking = ranking(10, Arrays.asList(a, b), new double[] {100, 200});
+
+		ranking.put(a, 300);
+		assertEquals(Arrays.asList(b, a), ranking.top(2));
+		assertEquals(2, ranking.size());
+
+		assertEquals(b, ranking.remove(2));
+		assertNull(ranking.remove(2));
+		assertEquals(Arrays.asList(a), ranking.top(2));
+	}
+
+	//Equal distances are both kept, ordered by driver id
+	@Test
+	public void testTiesKeepBothDrivers() {
+		User a = driver(1);
+		User b = driver(2);
+		RiderRankings.Ranking ranking = ranking(10, Arrays.asList(b, a), new double[] {100, 100});
+
+		assertEquals(Arrays.asList(a, b), ranking.top(2));
+	}
+
+	@Test
+	public void testCurrentOnlyForSameRiderAndVersion() {
+		RiderRankings.Ranking ranking = ranking(10, Arrays.asList(driver(1)), new double[] {100});
+
+		assertTrue(ranking.isCurrent("key", 0, 1));
+		assertFalse(ranking.isCurrent("moved", 0, 1));
+		assertFalse(ranking.isCurrent("key", 0, 2));
+		ranking.startFetch();
+		assertFalse(ranking.isCurrent("key", 0, 1));
+		ranking.endFetch();
+		assertTrue(ranking.isCurrent("key", 0, 1));
+	}
+
+	//A ranking pre-filtered down to four drivers can't answer a request whose pre-filter would keep six
+	@Test
+	public void testCoversOnlyRequestsWithinItsPreFilter() {
+		RiderRankings.Ranking whole = ranking(10, Arrays.asList(driver(1), driver(2)), new double[] {100, 200});
+		RiderRankings.Ranking kept = new RiderRankings.Ranking(11, 0, "key", new Waypoint("home"), new Waypoint("work"), 1000, 1,
+				Arrays.asList(driver(1), driver(2), driver(3), driver(4)), new double[] {100, 200, 300, 400}, 4);
+
+		assertTrue(whole.covers(5, 10));
+		assertTrue(kept.covers(2, 4));
+		assertFalse(kept.covers(3, 6));
+		assertFalse(kept.covers(2, 0));
+	}
+
+	@Test
+	public void testLeastRecentlyAskedRankingIsDropped() {
+		RiderRankings rankings = new RiderRankings(2);
+		rankings.put(ranking(10, Arrays.asList(driver(1)), new double[] {100}));
+		rankings.put(ranking(11, Arrays.asList(driver(1)), new double[] {100}));
+		rankings.get(10);
+		rankings.put(ranking(12, Arrays.asList(driver(1)), new double[] {100}));
+
+		assertEquals(2, rankings.size());
+		assertNull(rankings.get(11));
+	}
+
+	private static RiderRankings.Ranking ranking(int riderId, List<User> drivers, double[] detours) {
+		return new RiderRankings.Ranking(riderId, 0, "key", new Waypoint("home"), new Waypoint("work"), 1000, 1, drivers, detours, 0);
+	}
+
+	private static User driver(int id) {
+		return new User(id, "driver" + id, new Batch(0, "Reston"), "Driver", "User", "d@gmail.com", "1234561234");
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.revature.beans.Waypoint;
+import com.revature.services.DistanceProvider;
+
+@RunWith(SpringRunner.class)
+public class RoadGraphTest {
+
+	//A - B - C is a two way street, C -> D is one way, and the A - D footpath isn't drivable
+	private static final String OSM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<osm version=\"0.6\">\n"
+			+ "  <node id=\"1\" lat=\"0.0\" lon=\"0.0\"/>\n"
+			+ "  <node id=\"2\" lat=\"0.0\" lon=\"0.001\"/>\n"
+			+ "  <node id=\"3\" lat=\"0.0\" lon=\"0.002\"/>\n"
+			+ "  <node id=\"4\" lat=\"0.001\" lon=\"0.002\"/>\n"
+			+ "  <way id=\"10\"><nd ref=\"1\"/><nd ref=\"2\"/><nd ref=\"3\"/><tag k=\"highway\" v=\"residential\"/></way>\n"
+			+ "  <way id=\"11\"><nd ref=\"3\"/><nd ref=\"4\"/><tag k=\"highway\" v=\"tertiary\"/><tag k=\"oneway\" v=\"yes\"/></way>\n"
+			+ "  <way id=\"12\"><nd ref=\"1\"/><nd ref=\"4\"/><tag k=\"highway\" v=\"footway\"/></way>\n"
+			+ "</osm>\n";
+
+	private static RoadGraph graph;
+
+	@BeforeClass
+	public static void loadGraph() throws IOException {
+		graph = RoadGraph.fromOsmXml(new ByteArrayResource(OSM.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void testLoadsOnlyDrivableWays() {
+		assertEquals(4, graph.getNodeCount());
+		//Two way A-B and B-C, one way C-D
+		assertEquals(5, graph.getEdgeCount());
+	}
+
+	@Test
+	public void testNearestNode() {
+		int b = graph.nearestNode(0.0001, 0.0011, 100);
+		assertEquals(0, graph.distanceToNode(b, 0.0, 0.001), 0.01);
+		assertEquals(RoadGraph.NO_NODE, graph.nearestNode(1.0, 1.0, 100));
+	}
+
+	@Test
+	public void testDistancesFollowOneWayStreets() {
+		int a = graph.nearestNode(0.0, 0.0, 10);
+		int c = graph.nearestNode(0.0, 0.002, 10);
+		int d = graph.nearestNode(0.001, 0.002, 10);
+
+		long[][] forward = graph.distances(new int[] {a}, new int[] {c, d});
+		assertEquals(222, forward[0][0], 1);
+		assertEquals(333, forward[0][1], 1);
+
+		//More origins than destinations runs the reverse search
+		long[][] backward = graph.distances(new int[] {d, c, RoadGraph.NO_NODE}, new int[] {a});
+		assertEquals(DistanceProvider.UNREACHABLE, backward[0][0]);
+		assertEquals(222, backward[1][0], 1);
+		assertEquals(DistanceProvider.UNREACHABLE, backward[2][0]);
+	}
+
+	@Test
+	public void testProviderAddsSnapOffsets() {
+		RoadGraphDistanceProvider provider = new RoadGraphDistanceProvider(graph, 500);
+		Waypoint[] origins = {new Waypoint("A", 0.0, 0.0), new Waypoint("No coordinates")};
+		Waypoint[] destinations = {new Waypoint("Near C", 0.0003, 0.002)};
+
+		long[][] distances = provider.getDistances(origins, destinations);
+
+		assertTrue(distances[0][0] > 222);
+		assertEquals(222 + 33, distances[0][0], 2);
+		assertEquals(DistanceProvider.UNREACHABLE, distances[1][0]);
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.revature.services.DistanceProvider;
+
+public class RoutePlannerTest {
+
+	//Everyone works at the origin, distances are straight lines in meters
+	private static long[][] matrix(double[] x, double[] y) {
+		int n = x.length;
+		long[][] distances = new long[n][2 * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				distances[i][j] = Math.round(Math.hypot(x[i] - x[j], y[i] - y[j]));
+				distances[i][n + j] = Math.round(Math.hypot(x[i], y[i]));
+			}
+		}
+		return distances;
+	}
+
+	@Test
+	public void testPicksUpAlongTheWay() {
+		//The driver lives at 10 km, the riders at 4, 7 and 2 km on the same road
+		RoutePlanner planner = new RoutePlanner(matrix(new double[] {10000, 4000, 7000, 2000}, new double[4]));
+
+		int[][] routes = planner.plan(new int[] {0}, new int[] {3}, new int[] {1, 2, 3});
+
+		assertArrayEquals(new int[] {2, 1, 3}, routes[0]);
+		assertEquals(10000, planner.routeLength(0, routes[0]));
+	}
+
+	@Test
+	public void testSeatsLimitPickups() {
+		double[] x = {10000, -10000, 9000, -9000, 5000};
+		RoutePlanner planner = new RoutePlanner(matrix(x, new double[5]));
+
+		int[][] routes = planner.plan(new int[] {0, 1}, new int[] {1, 1}, new int[] {2, 3, 4});
+
+		assertArrayEquals(new int[] {2}, routes[0]);
+		assertArrayEquals(new int[] {3}, routes[1]);
+	}
+
+	@Test
+	public void testUnreachableRiderIsLeftOut() {
+		long[][] distances = matrix(new double[] {10000, 5000, 3000}, new double[3]);
+		for (int j = 0; j < 6; j++) {
+			distances[2][j] = DistanceProvider.UNREACHABLE;
+		}
+		RoutePlanner planner = new RoutePlanner(distances);
+
+		int[][] routes = planner.plan(new int[] {0}, new int[] {4}, new int[] {1, 2});
+
+		assertArrayEquals(new int[] {1}, routes[0]);
+	}
+
+	//Five unreachable legs would overflow if summed, the length stays at the largest value instead
+	@Test
+	public void testUnreachableLegsDoNotOverflow() {
+		long[][] distances = new long[5][10];
+		for (long[] row : distances) {
+			Arrays.fill(row, DistanceProvider.UNREACHABLE);
+		}
+		RoutePlanner planner = new RoutePlanner(distances);
+
+		long length = planner.routeLength(0, new int[] {1, 2, 3, 4});
+		assertTrue(length > 0);
+		assertEquals(length, planner.routeLength(0, new int[] {1}));
+	}
+
+	//A 200 person batch, checked for seat limits, every rider seated once and 2-opt leaving no improving reversal
+	@Test
+	public void testLargeBatch() {
+		Random random = new Random(200);
+		int drivers = 50;
+		int people = 200;
+		double[] x = new double[people];
+		double[] y = new double[people];
+		for (int i = 0; i < people; i++) {
+			x[i] = random.nextInt(40000) - 20000;
+			y[i] = random.nextInt(40000) - 20000;
+		}
+		long[][] distances = matrix(x, y);
+		int[] driverIndices = new int[drivers];
+		int[] seats = new int[drivers];
+		for (int k = 0; k < drivers; k++) {
+			driverIndices[k] = k;
+			seats[k] = 1 + k % 5;
+		}
+		int[] riderIndices = new int[people - drivers];
+		for (int r = 0; r < riderIndices.length; r++) {
+			riderIndices[r] = drivers + r;
+		}
+
+		long start = System.nanoTime();
+		RoutePlanner planner = new RoutePlanner(distances);
+		int[][] routes = planner.plan(driverIndices, seats, riderIndices);
+		long millis = (System.nanoTime() - start) / 1000000;
+
+		assertTrue("Planning took " + millis + " ms", millis < 1000);
+		boolean[] seated = new boolean[people];
+		for (int k = 0; k < drivers; k++) {
+			assertTrue(routes[k].length <= seats[k]);
+			for (int pickup : routes[k]) {
+				assertFalse(seated[pickup]);
+				seated[pickup] = true;
+			}
+			long length = planner.routeLength(k, routes[k]);
+			for (int i = 0; i < routes[k].length - 1; i++) {
+				for (int j = i + 1; j < routes[k].length; j++) {
+					int[] reversed = routes[k].clone();
+					for (int a = i, b = j; a < b; a++, b--) {
+						int t = reversed[a];
+						reversed[a] = reversed[b];
+						reversed[b] = t;
+					}
+					assertTrue(planner.routeLength(k, reversed) >= length);
+				}
+			}
+		}
+		//150 seats for 150 riders
+		assertEquals(people, drivers + Arrays.stream(routes).mapToInt(route -> route.length).sum());
+	}
+
+}
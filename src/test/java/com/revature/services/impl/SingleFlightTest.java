@@ -0,0 +1,78 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+	@Test
+	public void testConcurrentCallersShareOneComputation() throws Exception {
+		SingleFlight<String, Integer> flights = new SingleFlight<String, Integer>();
+		AtomicInteger computations = new AtomicInteger();
+		CompletableFuture<Integer> pending = new CompletableFuture<Integer>();
+
+		CompletableFuture<Integer> first = flights.run("batch", () -> {
+			computations.incrementAndGet();
+			return pending;
+		});
+		CompletableFuture<Integer> second = flights.run("batch", () -> {
+			computations.incrementAndGet();
+			return CompletableFuture.completedFuture(2);
+		});
+		assertEquals(1, flights.inFlight());
+		pending.complete(1);
+
+		assertEquals(1, computations.get());
+		assertEquals(Integer.valueOf(1), first.get());
+		assertEquals(Integer.valueOf(1), second.get());
+		assertEquals(0, flights.inFlight());
+	}
+
+	@Test
+	public void testDifferentKeysDontShare() throws Exception {
+		SingleFlight<String, Integer> flights = new SingleFlight<String, Integer>();
+
+		CompletableFuture<Integer> first = flights.run("one", () -> new CompletableFuture<Integer>());
+		CompletableFuture<Integer> second = flights.run("two", () -> CompletableFuture.completedFuture(2));
+
+		assertFalse(first.isDone());
+		assertEquals(Integer.valueOf(2), second.get());
+		assertEquals(1, flights.inFlight());
+	}
+
+	//A completed computation isn't reused, and neither is a failed one
+	@Test
+	public void testCompletedFlightIsForgotten() throws Exception {
+		SingleFlight<String, Integer> flights = new SingleFlight<String, Integer>();
+		CompletableFuture<Integer> failed = new CompletableFuture<Integer>();
+		failed.completeExceptionally(new IOException("upstream failed"));
+
+		try {
+			flights.run("batch", () -> failed).get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+
+		assertEquals(Integer.valueOf(3), flights.run("batch", () -> CompletableFuture.completedFuture(3)).get());
+	}
+
+	@Test
+	public void testThrowingComputationFails() throws Exception {
+		SingleFlight<String, Integer> flights = new SingleFlight<String, Integer>();
+
+		CompletableFuture<Integer> result = flights.run("batch", () -> {
+			throw new IllegalStateException("no roster");
+		});
+
+		assertTrue(result.isCompletedExceptionally());
+		assertEquals(0, flights.inFlight());
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.revature.beans.TravelTime;
+import com.revature.beans.Waypoint;
+import com.revature.repositories.TravelTimeRepository;
+import com.revature.services.DistanceCacheService;
+import com.revature.services.DistanceProvider;
+
+@RunWith(SpringRunner.class)
+public class TravelTimeServiceImplTest {
+
+	@InjectMocks
+	private TravelTimeServiceImpl tts;
+
+	@Mock
+	private TravelTimeRepository ttr;
+
+	@Mock
+	private DistanceProvider provider;
+
+	@Mock
+	private ZipGazetteer gazetteer;
+
+	private final Waypoint home = new Waypoint("418 Wilson Ave, Morgantown, WV", 39.6295, -79.9559);
+
+	private final Waypoint work = new Waypoint("650 Price Street, Morgantown, WV", 39.6480, -79.9710);
+
+	//A Tuesday, 8:40 is in the quarter hour starting 8:30
+	private final Date departure = Date.from(ZonedDateTime.of(2026, 10, 13, 8, 40, 0, 0, ZoneId.systemDefault()).toInstant());
+
+	@Before
+	public void withTraffic() {
+		when(provider.hasTraffic()).thenReturn(true);
+	}
+
+	@Test
+	public void testLookupReadsCachedTimes() {
+		TravelTime cached = new TravelTime("3962:-7996", "3964:-7998", 2, 34, 0, 0, 0, 0);
+		cached.setSeconds(540L);
+		when(ttr.getEntries(any(), any(), eq(2), eq(34))).thenReturn(Arrays.asList(cached));
+
+		long[][] seconds = tts.lookup(new Waypoint[] {home}, new Waypoint[] {work}, departure);
+
+		assertEquals(540, seconds[0][0]);
+		verify(ttr, never()).save(any());
+	}
+
+	//Unknown pairs are written down once for the refresh, between the centers of their cells
+	@Test
+	public void testLookupRegistersMisses() throws Exception {
+		ExecutorService registrations = Executors.newSingleThreadExecutor();
+		ReflectionTestUtils.setField(tts, "registrations", registrations);
+		when(ttr.getEntries(any(), any(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
+
+		long[][] seconds = tts.lookup(new Waypoint[] {home, home}, new Waypoint[] {work}, departure);
+		registrations.shutdown();
+		registrations.awaitTermination(5, TimeUnit.SECONDS);
+
+		assertEquals(DistanceCacheService.MISSING, seconds[0][0]);
+		assertEquals(DistanceCacheService.MISSING, seconds[1][0]);
+		ArgumentCaptor<TravelTime> saved = ArgumentCaptor.forClass(TravelTime.class);
+		verify(ttr, times(1)).save(saved.capture());
+		assertEquals("3962:-7996", saved.getValue().getOriginCell());
+		assertEquals(39.625, saved.getValue().getOriginLatitude(), 1e-9);
+		assertEquals(34, saved.getValue().getBucket());
+		assertNull(saved.getValue().getSeconds());
+	}
+
+	//Cached but not fetched yet is still a miss, and isn't written down again
+	@Test
+	public void testLookupSkipsUnfetchedEntries() {
+		when(ttr.getEntries(any(), any(), anyInt(), anyInt()))
+				.thenReturn(Arrays.asList(new TravelTime("3962:-7996", "3964:-7998", 2, 34, 0, 0, 0, 0)));
+
+		long[][] seconds = tts.lookup(new Waypoint[] {home}, new Waypoint[] {work}, departure);
+
+		assertEquals(DistanceCacheService.MISSING, seconds[0][0]);
+		verify(ttr, never()).save(any());
+	}
+
+	@Test
+	public void testLookupWithoutLocationIsMissing() {
+		long[][] seconds = tts.lookup(new Waypoint[] {new Waypoint("Nowhere")}, new Waypoint[] {work}, departure);
+
+		assertEquals(DistanceCacheService.MISSING, seconds[0][0]);
+		verify(ttr, never()).getEntries(any(), any(), anyInt(), anyInt());
+	}
+
+	//One provider call per departure, each distinct cell sent once
+	@Test
+	public void testRefreshFetchesStaleTimes() throws Exception {
+		TravelTime first = new TravelTime("1:1", "2:2", 2, 34, 0.015, 0.015, 0.025, 0.025);
+		TravelTime second = new TravelTime("1:1", "3:3", 2, 34, 0.015, 0.015, 0.035, 0.035);
+		TravelTime evening = new TravelTime("1:1", "2:2", 5, 70, 0.015, 0.015, 0.025, 0.025);
+		when(ttr.getStale(any(Date.class), any(Pageable.class))).thenReturn(Arrays.asList(first, second, evening));
+		when(provider.getDurations(any(), any(), any())).thenReturn(new long[][] {{600, 900}}, new long[][] {{700}});
+
+		assertEquals(3, tts.refresh());
+
+		verify(provider, times(2)).getDurations(any(), any(), any());
+		assertEquals(Long.valueOf(600), first.getSeconds());
+		assertEquals(Long.valueOf(900), second.getSeconds());
+		assertEquals(Long.valueOf(700), evening.getSeconds());
+		verify(ttr, times(2)).saveAll(any());
+	}
+
+	@Test
+	public void testRefreshStopsWithoutTraffic() throws Exception {
+		when(provider.hasTraffic()).thenReturn(false);
+
+		assertEquals(0, tts.refresh());
+		verify(ttr, never()).getStale(any(Date.class), any(Pageable.class));
+		verify(provider, never()).getDurations(any(), any(), any());
+	}
+
+	//Misses would never be fetched, so they aren't written down
+	@Test
+	public void testLookupWithoutTrafficRegistersNothing() throws Exception {
+		ExecutorService registrations = Executors.newSingleThreadExecutor();
+		ReflectionTestUtils.setField(tts, "registrations", registrations);
+		when(provider.hasTraffic()).thenReturn(false);
+		when(ttr.getEntries(any(), any(), anyInt(), anyInt())).thenReturn(Collections.emptyList());
+
+		long[][] seconds = tts.lookup(new Waypoint[] {home}, new Waypoint[] {work}, departure);
+		registrations.shutdown();
+		registrations.awaitTermination(5, TimeUnit.SECONDS);
+
+		assertEquals(DistanceCacheService.MISSING, seconds[0][0]);
+		verify(ttr, never()).save(any());
+	}
+
+	@Test
+	public void testNextDeparture() {
+		ZonedDateTime tuesday = ZonedDateTime.of(2026, 10, 13, 8, 40, 0, 0, ZoneId.systemDefault());
+
+		assertEquals(ZonedDateTime.of(2026, 10, 13, 17, 0, 0, 0, ZoneId.systemDefault()), TravelTimeServiceImpl.nextDeparture(tuesday, 2, 68));
+		assertEquals(ZonedDateTime.of(2026, 10, 20, 8, 30, 0, 0, ZoneId.systemDefault()), TravelTimeServiceImpl.nextDeparture(tuesday, 2, 34));
+		assertEquals(ZonedDateTime.of(2026, 10, 19, 0, 0, 0, 0, ZoneId.systemDefault()), TravelTimeServiceImpl.nextDeparture(tuesday, 1, 0));
+	}
+
+}
@@ -1,7 +1,12 @@
 package com.revature.services.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -18,8 +23,12 @@ import org.springframework.test.context.junit4.SpringRunner;
 import com.revature.beans.Admin;
 import com.revature.beans.Batch;
 import com.revature.beans.Car;
+import com.revature.beans.GeocodeJob;
 import com.revature.beans.User;
 import com.revature.repositories.UserRepository;
+import com.revature.services.DistanceService;
+import com.revature.services.DriverIndexService;
+import com.revature.services.GeocodeService;
 
 @RunWith(SpringRunner.class)
 public class UserServiceImplTest {
@@ -30,6 +39,15 @@ public class UserServiceImplTest {
 	@Mock
 	private UserRepository ur;
 	
+	@Mock
+	private DriverIndexService dis;
+	
+	@Mock
+	private DistanceService ds;
+	
+	@Mock
+	private GeocodeService gs;
+	
 	@Test
 	public void testGettingUsers() {
 		
@@ -74,6 +92,17 @@ public class UserServiceImplTest {
 		assertEquals(expected, actual);
 	}
 	
+	@Test
+	public void testGettingActiveRidersByBatch() {
+		
+		List<User> expected = new ArrayList<>();
+		expected.add(new User(1, "userName", new Batch(), "adonis", "cabreja", "adonis@gmail.com", "123-456-789"));
+		when(ur.getActiveRidersByBatch(1)).thenReturn(expected);
+		List<User> actual = usi.getActiveRidersByBatch(1);
+		
+		assertEquals(expected, actual);
+	}
+	
 	@Test
 	public void testAddingUser() {
 		
@@ -82,6 +111,7 @@ public class UserServiceImplTest {
 		User actual = usi.addUser(expected);
 		
 		assertEquals(expected, actual);
+		verify(dis).userSaved(expected);
 	}
 	
 	@Test
@@ -92,6 +122,7 @@ public class UserServiceImplTest {
 		User actual = usi.updateUser(expected);
 		
 		assertEquals(expected, actual);
+		verify(dis).userSaved(expected);
 	}
 	
 	@Test
@@ -102,6 +133,8 @@ public class UserServiceImplTest {
 		String actual = usi.deleteUserById(1);
 		
 		assertEquals(expected, actual);
+		verify(dis).userDeleted(1);
+		verify(ds).userDeleted(eq(1), any());
 	}
 	
 	@Test
@@ -130,4 +163,104 @@ public class UserServiceImplTest {
 		System.out.println(l);
 		assertTrue(result.size() == 2);
 	}
+	
+	//The commute is fetched by the geocode worker, the save doesn't wait on the provider
+	@Test
+	public void testAddingUserLeavesCommuteToWorker() throws Exception {
+		User user = located(commuter(1));
+		when(ur.save(user)).thenReturn(user);
+		
+		usi.addUser(user);
+		
+		assertNull(user.getCommuteMeters());
+		verify(ds, never()).getCommuteDistance(user);
+		verify(gs).enqueue(GeocodeJob.EntityType.USER, 1);
+	}
+	
+	//An update that keeps the addresses keeps the stored commute without asking for it again
+	@Test
+	public void testUpdatingUserKeepsCommute() throws Exception {
+		User stored = commuter(1);
+		stored.setCommuteMeters(8000L);
+		User user = commuter(1);
+		user.setAcceptingRides(false);
+		when(ur.findById(1)).thenReturn(Optional.of(stored));
+		when(ur.save(user)).thenReturn(user);
+		
+		usi.updateUser(user);
+		
+		assertEquals(Long.valueOf(8000), user.getCommuteMeters());
+		verify(ds, never()).getCommuteDistance(user);
+	}
+	
+	@Test
+	public void testUpdatingAddressRefetchesCommute() throws Exception {
+		User stored = commuter(1);
+		stored.setCommuteMeters(8000L);
+		User user = commuter(1);
+		user.sethAddress("35 VanGilder Ave");
+		when(ur.findById(1)).thenReturn(Optional.of(stored));
+		when(ur.save(user)).thenReturn(user);
+		
+		usi.updateUser(user);
+		
+		assertNull(user.getCommuteMeters());
+		verify(ds, never()).getCommuteDistance(user);
+		verify(gs).enqueue(GeocodeJob.EntityType.USER, 1);
+	}
+	
+	@Test
+	public void testAddingUserGeocodesThem() {
+		User user = commuter(1);
+		when(ur.save(user)).thenReturn(user);
+		
+		usi.addUser(user);
+		
+		verify(gs).enqueue(GeocodeJob.EntityType.USER, 1);
+		verify(ds).userSaved(eq(user), any());
+	}
+	
+	@Test
+	public void testUpdatingUserKeepsCoordinates() {
+		User stored = located(commuter(1));
+		stored.setCommuteMeters(8000L);
+		User user = commuter(1);
+		when(ur.findById(1)).thenReturn(Optional.of(stored));
+		when(ur.save(user)).thenReturn(user);
+		
+		usi.updateUser(user);
+		
+		assertEquals(Double.valueOf(39.64), user.gethLatitude());
+		assertEquals(Double.valueOf(39.63), user.getwLatitude());
+		verify(gs, never()).enqueue(GeocodeJob.EntityType.USER, 1);
+	}
+	
+	//Only the side that moved loses its coordinates, the job geocodes just that one
+	@Test
+	public void testMovingHomeGeocodesItAgain() {
+		User stored = located(commuter(1));
+		User user = located(commuter(1));
+		user.sethAddress("35 VanGilder Ave");
+		when(ur.findById(1)).thenReturn(Optional.of(stored));
+		when(ur.save(user)).thenReturn(user);
+		
+		usi.updateUser(user);
+		
+		assertEquals(null, user.gethLatitude());
+		assertEquals(Double.valueOf(39.63), user.getwLatitude());
+		verify(gs).enqueue(GeocodeJob.EntityType.USER, 1);
+	}
+	
+	private static User located(User user) {
+		user.sethLatitude(39.64);
+		user.sethLongitude(-79.95);
+		user.setwLatitude(39.63);
+		user.setwLongitude(-79.96);
+		return user;
+	}
+	
+	private static User commuter(int id) {
+		return new User(id, "commuter", new Batch(), "Grady", "Pichmann", "gp@gmail.com", "212-374-3466", false, true, true,
+				"418 Wilson Ave", "Morgantown", "26501", "WV", "650 Price Street", "Morgantown", "25605", "WV");
+	}
 }
@@ -0,0 +1,72 @@
+package com.revature.services.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ZipGazetteerTest {
+
+	//The Census file's own header, with the trailing spaces it ships with
+	private static final String CENSUS = "GEOID\tALAND\tAWATER\tALAND_SQMI\tAWATER_SQMI\tINTPTLAT\tINTPTLONG                                                                                                               \n"
+			+ "26505\t52040339\t1006497\t20.093\t0.389\t39.650600\t-79.944000\n"
+			+ "00601\t166847909\t799292\t64.42\t0.309\t18.180555\t-66.749961\n";
+
+	@Test
+	public void testLoadsCensusFormat() throws IOException {
+		ZipGazetteer gazetteer = new ZipGazetteer();
+		gazetteer.load(new StringReader(CENSUS));
+
+		assertEquals(2, gazetteer.size());
+		assertArrayEquals(new double[] {39.6506, -79.944}, gazetteer.centroid("26505"), 1e-4);
+		assertArrayEquals(new double[] {18.180555, -66.749961}, gazetteer.centroid("00601"), 1e-4);
+	}
+
+	@Test
+	public void testLoadsCommaSeparated() throws IOException {
+		ZipGazetteer gazetteer = new ZipGazetteer();
+		gazetteer.load(new StringReader("INTPTLAT,INTPTLONG,GEOID\n38.959700,-77.343200,20190\n"));
+
+		assertArrayEquals(new double[] {38.9597, -77.3432}, gazetteer.centroid("20190"), 1e-4);
+	}
+
+	@Test
+	public void testZipPlusFourUsesFirstFiveDigits() throws IOException {
+		ZipGazetteer gazetteer = new ZipGazetteer();
+		gazetteer.load(new StringReader(CENSUS));
+
+		assertArrayEquals(new double[] {39.6506, -79.944}, gazetteer.centroid(" 26505-1234"), 1e-4);
+	}
+
+	@Test
+	public void testUnknownOrMalformedZips() throws IOException {
+		ZipGazetteer gazetteer = new ZipGazetteer();
+		gazetteer.load(new StringReader(CENSUS));
+
+		assertNull(gazetteer.centroid("26501"));
+		assertNull(gazetteer.centroid("265051"));
+		assertNull(gazetteer.centroid("2650"));
+		assertNull(gazetteer.centroid("WV"));
+		assertNull(gazetteer.centroid(null));
+	}
+
+	@Test(expected = IOException.class)
+	public void testHeaderWithoutCoordinates() throws IOException {
+		new ZipGazetteer().load(new StringReader("GEOID\tALAND\n26505\t52040339\n"));
+	}
+
+	@Test
+	public void testBundledFileLoads() throws IOException {
+		ZipGazetteer gazetteer = new ZipGazetteer();
+		gazetteer.load(new InputStreamReader(getClass().getResourceAsStream("/zip-centroids.txt"), StandardCharsets.UTF_8));
+
+		assertEquals(18, gazetteer.size());
+	}
+
+}
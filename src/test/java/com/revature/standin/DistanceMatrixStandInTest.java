@@ -0,0 +1,172 @@
+package com.revature.standin;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.maps.GeoApiContext;
+import com.google.maps.OkHttpRequestHandler;
+import com.google.maps.errors.ApiException;
+import com.revature.beans.Waypoint;
+import com.revature.config.BaseUrlInterceptor;
+import com.revature.services.impl.GoogleDistanceProvider;
+
+public class DistanceMatrixStandInTest {
+
+	private static final Waypoint[] ORIGINS = {new Waypoint("38.9586,-77.3570"), new Waypoint("418 Wilson Ave, Morgantown, WV")};
+
+	private static final Waypoint[] DESTINATIONS = {new Waypoint("38.9586,-77.3570"), new Waypoint("39.0000,-77.3570")};
+
+	private DistanceMatrixStandIn standIn;
+
+	private DistanceMatrixStandIn upstream;
+
+	private GeoApiContext context;
+
+	@After
+	public void stop() {
+		if (context != null) {
+			context.shutdown();
+		}
+		if (standIn != null) {
+			standIn.stop();
+		}
+		if (upstream != null) {
+			upstream.stop();
+		}
+	}
+
+	//The real client reads the simulated answer, 4.6 km north times the road factor
+	@Test
+	public void testSimulatedThroughGoogleClient() throws Exception {
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.SIMULATED, null);
+		standIn.start(0);
+
+		long[][] distances = provider(standIn.getBaseUrl()).getDistances(ORIGINS, DESTINATIONS);
+
+		assertEquals(0, distances[0][0]);
+		assertEquals(5985, distances[0][1], 5);
+		assertTrue(distances[1][0] > 0);
+		assertEquals(1, standIn.getRequestCount());
+	}
+
+	//Spellings of one address are placed on the same spot
+	@Test
+	public void testSimulatedPlacesAddressesByCanonicalForm() throws Exception {
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.SIMULATED, null);
+		standIn.start(0);
+		Waypoint[] spellings = {new Waypoint("418 Wilson Ave, Morgantown, WV"), new Waypoint("418 wilson avenue, Morgantown, West Virginia")};
+
+		long[][] distances = provider(standIn.getBaseUrl()).getDistances(spellings, spellings);
+
+		assertEquals(0, distances[0][1]);
+		assertEquals(0, distances[1][0]);
+	}
+
+	//Recorded from an upstream, then replayed with the upstream gone
+	@Test
+	public void testRecordThenReplay() throws Exception {
+		Path file = Files.createTempFile("distance-recordings", ".jsonl");
+		Files.delete(file);
+		upstream = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.SIMULATED, null);
+		upstream.start(0);
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.RECORD, new DistanceMatrixRecordings(file));
+		standIn.setUpstream(upstream.getBaseUrl());
+		standIn.start(0);
+
+		long[][] recorded = provider(standIn.getBaseUrl()).getDistances(ORIGINS, DESTINATIONS);
+		context.shutdown();
+		standIn.stop();
+		upstream.stop();
+
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(1, lines.size());
+		assertTrue(!lines.get(0).contains("key="));
+
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.REPLAY, new DistanceMatrixRecordings(file));
+		standIn.start(0);
+		long[][] replayed = provider(standIn.getBaseUrl()).getDistances(ORIGINS, DESTINATIONS);
+
+		assertArrayEquals(recorded, replayed);
+		Files.delete(file);
+	}
+
+	//Times in traffic come back for a departure, slower in the weekday rush hours than at night
+	@Test
+	public void testDurationsInTraffic() throws Exception {
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.SIMULATED, null);
+		standIn.start(0);
+		GoogleDistanceProvider provider = provider(standIn.getBaseUrl());
+		Date rushHour = Date.from(ZonedDateTime.of(2030, 1, 8, 8, 30, 0, 0, ZoneId.systemDefault()).toInstant());
+		Date night = Date.from(ZonedDateTime.of(2030, 1, 6, 3, 0, 0, 0, ZoneId.systemDefault()).toInstant());
+
+		long[][] slow = provider.getDurations(ORIGINS, DESTINATIONS, rushHour);
+		long[][] fast = provider.getDurations(ORIGINS, DESTINATIONS, night);
+
+		assertEquals(Math.round(fast[0][1] * 1.6), slow[0][1], 1);
+	}
+
+	@Test
+	public void testReplayMissIsInvalidRequest() throws Exception {
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.REPLAY, new DistanceMatrixRecordings(null));
+		standIn.start(0);
+
+		try {
+			provider(standIn.getBaseUrl()).getDistances(ORIGINS, DESTINATIONS);
+			fail("Nothing was recorded");
+		} catch (ApiException e) {
+			assertTrue(e.getMessage().contains("Nothing was recorded"));
+		}
+	}
+
+	//Every request fails, and the client's retries show up as requests
+	@Test
+	public void testInjectedErrorsAreRetried() throws Exception {
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.SIMULATED, null);
+		standIn.setOverLimitRate(1);
+		standIn.start(0);
+
+		try {
+			provider(standIn.getBaseUrl()).getDistances(ORIGINS, DESTINATIONS);
+			fail("Every request is over the limit");
+		} catch (ApiException e) {
+			assertTrue(standIn.getRequestCount() > 1);
+		}
+	}
+
+	@Test
+	public void testLatencyIsInjected() throws Exception {
+		standIn = new DistanceMatrixStandIn(DistanceMatrixStandIn.Mode.SIMULATED, null);
+		standIn.setLatency(LatencyModel.parse("fixed:200"));
+		standIn.start(0);
+		GoogleDistanceProvider provider = provider(standIn.getBaseUrl());
+
+		long start = System.nanoTime();
+		provider.getDistances(ORIGINS, DESTINATIONS);
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+	}
+
+	private GoogleDistanceProvider provider(String baseUrl) {
+		OkHttpRequestHandler.Builder handler = new OkHttpRequestHandler.Builder();
+		handler.okHttpClientBuilder().addInterceptor(new BaseUrlInterceptor(baseUrl));
+		context = new GeoApiContext.Builder(handler).apiKey("AIzaStandIn").maxRetries(2).retryTimeout(2, TimeUnit.SECONDS).build();
+		GoogleDistanceProvider provider = new GoogleDistanceProvider();
+		ReflectionTestUtils.setField(provider, "context", context);
+		return provider;
+	}
+
+}
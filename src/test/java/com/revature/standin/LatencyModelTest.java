@@ -0,0 +1,66 @@
+package com.revature.standin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LatencyModelTest {
+
+	@Test
+	public void testFixedAndNone() {
+		Random random = new Random(1);
+		assertEquals(20, LatencyModel.parse("fixed:20").sample(random));
+		assertEquals(0, LatencyModel.parse("").sample(random));
+		assertEquals(0, LatencyModel.parse(null).sample(random));
+	}
+
+	@Test
+	public void testUniformStaysInRange() {
+		LatencyModel uniform = LatencyModel.parse("uniform:10,80");
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			long sample = uniform.sample(random);
+			assertTrue(sample >= 10 && sample <= 80);
+		}
+	}
+
+	//The median is where it was asked, and the tail reaches far past it
+	@Test
+	public void testLogNormalHasMedianAndTail() {
+		long[] samples = samples(LatencyModel.parse("lognormal:40,0.8"), 10001);
+		assertEquals(40, samples[5000], 3);
+		assertTrue(samples[9900] > 200);
+	}
+
+	@Test
+	public void testParetoNeverBelowMinimum() {
+		long[] samples = samples(LatencyModel.parse("pareto:30,1.5"), 10001);
+		assertEquals(30, samples[0]);
+		assertTrue(samples[9900] > 300);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDistribution() {
+		LatencyModel.parse("gamma:1,2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingParameter() {
+		LatencyModel.parse("uniform:10");
+	}
+
+	private static long[] samples(LatencyModel model, int count) {
+		Random random = new Random(7);
+		long[] samples = new long[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = model.sample(random);
+		}
+		Arrays.sort(samples);
+		return samples;
+	}
+
+}